@@ -3,8 +3,12 @@ package com.dynamicweb.rubrica.components;
 import org.springframework.stereotype.Component;
 
 /**
- * Configurazione per le proprietà di autenticazione dell'applicazione.
+ * Configurazione per le credenziali dell'amministratore dell'applicazione.
  * Legge username e password dalle variabili di sistema per maggiore sicurezza.
+ * 
+ * <p>Le credenziali vengono usate solo per creare l'utente amministratore
+ * nella tabella degli utenti se non esiste ancora; da quel momento il login
+ * verifica l'hash salvato nel database.</p>
  *
  * @author Michael Leanza
  * @since 1.0
@@ -26,13 +30,16 @@ public class AuthProperties {
     }
 
     /**
-     * Verifica se le credenziali corrispondono a quelle configurate.
-     * 
-     * @param username nome utente da verificare
-     * @param password password da verificare
-     * @return true se le credenziali sono corrette, false altrimenti
+     * @return username dell'amministratore
      */
-    public boolean checkCredentials(String username, String password) {
-        return this.username.equals(username) && this.password.equals(password);
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return password iniziale dell'amministratore
+     */
+    public String getPassword() {
+        return password;
     }
 }
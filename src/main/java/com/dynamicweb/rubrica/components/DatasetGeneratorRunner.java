@@ -0,0 +1,125 @@
+package com.dynamicweb.rubrica.components;
+
+import com.dynamicweb.rubrica.dtos.DatasetOptions;
+import com.dynamicweb.rubrica.services.AuthService;
+import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
+import com.dynamicweb.rubrica.services.DatasetGenerator;
+import java.nio.file.Path;
+import java.util.Locale;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Avvio della generazione di contatti sintetici da linea di comando.
+ *
+ * <p>Attivo solo se è impostato {@code rubrica.generate.count}, ad esempio:</p>
+ * <pre>
+ * DB_MODE=H2_FILE java -jar target/Rubrica.war --rubrica.generate.count=1000000
+ * java -jar target/Rubrica.war --rubrica.generate.count=1000000 --rubrica.generate.target=csv
+ * </pre>
+ *
+ * <p>Nel database i contatti vengono inseriti nella rubrica dell'utente
+ * {@code rubrica.generate.owner}, di default l'amministratore, creato se
+ * non esiste ancora.</p>
+ *
+ * <p>La generazione avviene prima che l'applicazione sia pronta. Con
+ * destinazione {@code database} l'applicazione resta poi in esecuzione e le
+ * strutture in memoria vengono costruite sui contatti appena inseriti; con
+ * destinazione {@code csv} o {@code ndjson} l'applicazione termina dopo la
+ * scrittura del file.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "rubrica.generate.count")
+public class DatasetGeneratorRunner implements ApplicationRunner {
+
+    private final DatasetGenerator datasetGenerator;
+
+    private final DatabaseConnectionManager databaseConnectionManager;
+
+    private final AuthService authService;
+
+    private final ConfigurableApplicationContext context;
+
+    private final DatasetOptions options;
+
+    private final String owner;
+
+    /**
+     * Costruttore con i parametri della generazione.
+     *
+     * @param datasetGenerator il generatore dei contatti
+     * @param databaseConnectionManager servizio per la configurazione database corrente
+     * @param authService servizio degli utenti, per il proprietario dei contatti
+     * @param context il contesto da chiudere dopo la scrittura di un file
+     * @param count numero di contatti da generare
+     * @param seed seme della generazione
+     * @param duplicateRate frazione di contatti duplicati (0-1)
+     * @param target destinazione: database, csv o ndjson
+     * @param output file di destinazione, di default {@code ./data/contatti.<formato>}
+     * @param threads thread di generazione, 0 per uno per processore
+     * @param owner username del proprietario dei contatti nel database, vuoto per l'amministratore
+     */
+    public DatasetGeneratorRunner(
+        DatasetGenerator datasetGenerator,
+        DatabaseConnectionManager databaseConnectionManager,
+        AuthService authService,
+        ConfigurableApplicationContext context,
+        @Value("${rubrica.generate.count}") long count,
+        @Value("${rubrica.generate.seed:42}") long seed,
+        @Value("${rubrica.generate.duplicate-rate:0.02}") double duplicateRate,
+        @Value("${rubrica.generate.target:database}") String target,
+        @Value("${rubrica.generate.output:}") String output,
+        @Value("${rubrica.generate.threads:0}") int threads,
+        @Value("${rubrica.generate.owner:}") String owner) {
+        this.datasetGenerator = datasetGenerator;
+        this.databaseConnectionManager = databaseConnectionManager;
+        this.authService = authService;
+        this.context = context;
+        this.owner = owner;
+        DatasetOptions.Target parsedTarget = parseTarget(target);
+        this.options = new DatasetOptions(
+            count,
+            seed,
+            duplicateRate,
+            parsedTarget,
+            output.isBlank()
+                ? Path.of("data", "contatti." + parsedTarget.name().toLowerCase(Locale.ROOT))
+                : Path.of(output),
+            threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+            null);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (options.getTarget() == DatasetOptions.Target.DATABASE
+            && !databaseConnectionManager.isDatabaseConfigured()) {
+            throw new IllegalStateException(
+                "Database non configurato: impostare DB_MODE per generare i contatti nel database");
+        }
+        if (options.getTarget() == DatasetOptions.Target.DATABASE) {
+            options.setOwnerId(owner.isBlank()
+                ? authService.ensureAdministrator().getId()
+                : authService.getUser(owner).getId());
+        }
+        datasetGenerator.generate(options);
+        if (options.getTarget() != DatasetOptions.Target.DATABASE) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private static DatasetOptions.Target parseTarget(String target) {
+        try {
+            return DatasetOptions.Target.valueOf(target.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Destinazione non valida: " + target + " (database, csv o ndjson)");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.dynamicweb.rubrica.components;
+
+import java.time.Instant;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generatore di ID univoci tra tutti gli shard, senza coordinamento con il database.
+ * 
+ * <p>Ogni ID a 64 bit è composto da 41 bit di millisecondi trascorsi da
+ * {@link #EPOCH}, 10 bit di numero del nodo applicativo
+ * ({@code rubrica.shard.node-id}) e 12 bit di sequenza nel millisecondo.
+ * Gli ID sono quindi crescenti nel tempo per ciascun nodo e distinti tra nodi
+ * diversi. Se l'orologio torna indietro, il generatore continua dall'ultimo
+ * millisecondo usato.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class IdGenerator {
+
+    /** Istante zero degli ID generati */
+    public static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    private static final int NODE_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+
+    private long lastMillis = -1;
+
+    private long sequence;
+
+    /**
+     * Costruttore con il numero del nodo applicativo.
+     * 
+     * @param node numero del nodo, distinto per ogni istanza dell'applicazione (0-1023)
+     */
+    public IdGenerator(@Value("${rubrica.shard.node-id:0}") long node) {
+        if (node < 0 || node >= (1L << NODE_BITS)) {
+            throw new IllegalArgumentException("Numero del nodo non valido: " + node);
+        }
+        this.node = node;
+    }
+
+    /**
+     * Genera un nuovo ID.
+     * 
+     * @return ID positivo univoco
+     */
+    public synchronized long nextId() {
+        long millis = Math.max(System.currentTimeMillis() - EPOCH.toEpochMilli(), lastMillis);
+        if (millis == lastMillis) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                // Sequenza esaurita nel millisecondo: si passa al successivo
+                millis = lastMillis + 1;
+                while (System.currentTimeMillis() - EPOCH.toEpochMilli() < millis) {
+                    Thread.onSpinWait();
+                }
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = millis;
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Restituisce il più piccolo ID che un qualsiasi nodo può generare
+     * all'istante indicato: tutti gli ID generati prima sono minori.
+     *
+     * @param instant istante di riferimento
+     * @return primo ID dell'istante, 0 per gli istanti precedenti a {@link #EPOCH}
+     */
+    public static long firstIdAt(Instant instant) {
+        long millis = instant.toEpochMilli() - EPOCH.toEpochMilli();
+        return millis > 0 ? millis << (NODE_BITS + SEQUENCE_BITS) : 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.dynamicweb.rubrica.components;
+
+import com.dynamicweb.rubrica.events.JfrDispatchEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Interceptor che registra ogni richiesta servita da un controller come
+ * {@link JfrDispatchEvent} di Java Flight Recorder.
+ *
+ * <p>L'evento inizia prima del controller e termina a risposta completata,
+ * rendering della vista compreso; la durata del rendering viene riportata
+ * anche separatamente. Le richieste asincrone (API reattive) vengono
+ * registrate con un unico evento dalla richiesta iniziale al termine della
+ * risposta. Con JFR non attivo l'evento non viene registrato.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class JfrDispatchInterceptor implements AsyncHandlerInterceptor {
+
+    /** Attributo di richiesta con l'evento in corso */
+    private static final String EVENT = JfrDispatchInterceptor.class.getName() + ".event";
+
+    /** Attributo di richiesta con l'istante di inizio del rendering */
+    private static final String RENDER_START = JfrDispatchInterceptor.class.getName() + ".renderStart";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Alla ripresa di una richiesta asincrona l'evento è già in corso
+        if (request.getAttribute(EVENT) == null) {
+            JfrDispatchEvent event = new JfrDispatchEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                request.setAttribute(EVENT, event);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(
+        HttpServletRequest request, 
+        HttpServletResponse response, 
+        Object handler, 
+        ModelAndView modelAndView) {
+        if (request.getAttribute(EVENT) instanceof JfrDispatchEvent event) {
+            event.view = modelAndView != null ? modelAndView.getViewName() : null;
+            request.setAttribute(RENDER_START, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(
+        HttpServletRequest request, 
+        HttpServletResponse response, 
+        Object handler, 
+        Exception ex) {
+        if (!(request.getAttribute(EVENT) instanceof JfrDispatchEvent event)) {
+            return;
+        }
+        request.removeAttribute(EVENT);
+        event.end();
+        if (event.shouldCommit()) {
+            if (request.getAttribute(RENDER_START) instanceof Long renderStart) {
+                event.renderDuration = System.nanoTime() - renderStart;
+            }
+            event.method = request.getMethod();
+            event.uri = request.getRequestURI();
+            event.handler = describe(handler);
+            event.status = response.getStatus();
+            event.commit();
+        }
+    }
+
+    /**
+     * Descrive il gestore della richiesta: classe e metodo per i controller
+     * annotati, classe per gli altri gestori.
+     * 
+     * @param handler gestore scelto da Spring MVC
+     * @return descrizione del gestore
+     */
+    private static String describe(Object handler) {
+        if (handler instanceof HandlerMethod method) {
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return handler.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,103 @@
+package com.dynamicweb.rubrica.components;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calcolo e verifica degli hash delle password con PBKDF2-HMAC-SHA256.
+ * 
+ * <p>Ogni hash ha un sale casuale di 16 byte e viene salvato nel formato
+ * {@code pbkdf2$<iterazioni>$<sale>$<hash>}, con sale e hash in Base64: la
+ * verifica usa le iterazioni registrate nell'hash, quindi aumentare
+ * {@code rubrica.auth.hash-iterations} vale per le nuove password senza
+ * invalidare quelle esistenti.</p>
+ * 
+ * <p>Il costo della verifica è voluto: con le iterazioni di default richiede
+ * decine di millisecondi di CPU, che rendono lento un attacco a forza bruta
+ * sugli hash ma anche il login. Le verifiche ripetute delle stesse credenziali
+ * vengono evitate dalla cache di {@link com.dynamicweb.rubrica.services.AuthService}.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class PasswordHasher {
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    private static final String PREFIX = "pbkdf2";
+
+    private static final int SALT_BYTES = 16;
+
+    private static final int HASH_BITS = 256;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final int iterations;
+
+    /**
+     * Costruttore con il numero di iterazioni dei nuovi hash.
+     * 
+     * @param iterations iterazioni di PBKDF2, almeno 10000
+     */
+    public PasswordHasher(@Value("${rubrica.auth.hash-iterations:310000}") int iterations) {
+        if (iterations < 10_000) {
+            throw new IllegalArgumentException("Iterazioni dell'hash delle password troppo basse: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+
+    /**
+     * Calcola l'hash di una password con un nuovo sale.
+     * 
+     * @param password password in chiaro
+     * @return hash nel formato {@code pbkdf2$iterazioni$sale$hash}
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + base64.encodeToString(salt) 
+            + "$" + base64.encodeToString(derive(password, salt, iterations));
+    }
+
+    /**
+     * Verifica una password con un hash calcolato da {@link #hash(String)},
+     * con un confronto a tempo costante.
+     * 
+     * @param password password in chiaro
+     * @param stored hash salvato
+     * @return {@code true} se la password corrisponde, {@code false} anche se l'hash non è valido
+     */
+    public boolean matches(String password, String stored) {
+        String[] parts = stored != null ? stored.split("\\$") : new String[0];
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, derive(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Algoritmo " + ALGORITHM + " non disponibile", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
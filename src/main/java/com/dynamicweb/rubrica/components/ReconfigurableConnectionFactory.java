@@ -0,0 +1,145 @@
+package com.dynamicweb.rubrica.components;
+
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import reactor.core.publisher.Mono;
+
+/**
+ * ConnectionFactory R2DBC riconfigurabile a runtime, analoga al DataSource JDBC.
+ * 
+ * <p>Delega a un pool di connessioni creato dalla configurazione corrente e
+ * sostituito a ogni {@link DatabaseConfiguredEvent}; il pool precedente viene
+ * chiuso in background. Finché il database non è configurato le richieste di
+ * connessione terminano con errore.</p>
+ * 
+ * <p>Il percorso reattivo non instrada le operazioni tra gli shard: con più
+ * shard configurati il pool non viene creato e le richieste terminano con errore.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class ReconfigurableConnectionFactory implements ConnectionFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconfigurableConnectionFactory.class);
+
+    private final AtomicReference<ConnectionPool> pool = new AtomicReference<>();
+
+    private final int maxSize;
+
+    private final Duration acquireTimeout;
+
+    /**
+     * Costruttore con i limiti del pool.
+     * 
+     * @param maxSize numero massimo di connessioni aperte
+     * @param acquireTimeout attesa massima per ottenere una connessione
+     */
+    public ReconfigurableConnectionFactory(int maxSize, Duration acquireTimeout) {
+        this.maxSize = maxSize;
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    /**
+     * Sostituisce il pool con uno collegato al database appena configurato.
+     * 
+     * @param event evento di configurazione del database
+     */
+    @EventListener
+    public void onDatabaseConfigured(DatabaseConfiguredEvent event) {
+        configure(event.getProperties());
+    }
+
+    /**
+     * Crea un nuovo pool per la configurazione indicata e chiude il precedente.
+     * 
+     * @param properties configurazione del database
+     */
+    public void configure(DatabaseProperties properties) {
+        if (properties.buildShardProperties().size() > 1) {
+            log.warn("Persistenza reattiva non disponibile con più shard configurati");
+            ConnectionPool previous = pool.getAndSet(null);
+            if (previous != null) {
+                previous.disposeLater().subscribe();
+            }
+            return;
+        }
+
+        ConnectionPool next = new ConnectionPool(
+            ConnectionPoolConfiguration.builder(ConnectionFactories.get(optionsOf(properties)))
+                .maxSize(maxSize)
+                .maxAcquireTime(acquireTimeout)
+                .build());
+        ConnectionPool previous = pool.getAndSet(next);
+        if (previous != null) {
+            previous.disposeLater().subscribe();
+        }
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        ConnectionPool current = pool.get();
+        if (current == null) {
+            return Mono.error(new IllegalStateException("Database non configurato"));
+        }
+        return current.create();
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        ConnectionPool current = pool.get();
+        return current != null ? current.getMetadata() : () -> "unconfigured";
+    }
+
+    /**
+     * Chiude il pool corrente alla chiusura del contesto.
+     */
+    public void close() {
+        ConnectionPool current = pool.getAndSet(null);
+        if (current != null) {
+            current.dispose();
+        }
+    }
+
+    /**
+     * Costruisce le opzioni di connessione R2DBC di una configurazione.
+     * 
+     * <p>Per H2 riusa l'URL JDBC, così che i due percorsi aprano lo stesso
+     * database; per MySQL usa host, porta e timeout di connessione dell'URL JDBC.</p>
+     * 
+     * @param properties configurazione del database
+     * @return opzioni per {@code ConnectionFactories.get}
+     */
+    private static ConnectionFactoryOptions optionsOf(DatabaseProperties properties) {
+        ConnectionFactoryOptions.Builder builder = ConnectionFactoryOptions.builder()
+            .option(ConnectionFactoryOptions.USER, properties.getUsername())
+            .option(ConnectionFactoryOptions.PASSWORD, properties.getPassword());
+        if (properties.isEmbedded()) {
+            return builder
+                .option(ConnectionFactoryOptions.DRIVER, "h2")
+                .option(Option.valueOf("url"), properties.buildJdbcUrl().substring("jdbc:h2:".length()))
+                .build();
+        }
+        return builder
+            .option(ConnectionFactoryOptions.DRIVER, "mysql")
+            .option(ConnectionFactoryOptions.HOST, properties.getHost())
+            .option(ConnectionFactoryOptions.PORT, properties.getPort())
+            .option(ConnectionFactoryOptions.DATABASE, properties.getDbName())
+            .option(ConnectionFactoryOptions.CONNECT_TIMEOUT, Duration.ofMillis(DatabaseProperties.CONNECT_TIMEOUT_MILLIS))
+            .option(Option.valueOf("sslMode"), "disabled")
+            .build();
+    }
+}
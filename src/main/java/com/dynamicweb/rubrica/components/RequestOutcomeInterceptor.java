@@ -0,0 +1,54 @@
+package com.dynamicweb.rubrica.components;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.support.RequestContextUtils;
+
+/**
+ * Interceptor che segnala nell'header {@value #OUTCOME} le richieste non
+ * riuscite.
+ *
+ * <p>I controller delle pagine riportano gli errori con un messaggio
+ * {@code errorMessage}, nel model della vista o come attributo flash del
+ * redirect alla lista, con uno stato HTTP di successo. L'header permette ai
+ * client automatici (il test di carico) di distinguere un errore da un esito
+ * corretto senza seguire il redirect; il messaggio non viene esposto. Un
+ * messaggio ricevuto come attributo flash da una richiesta precedente e
+ * soltanto mostrato dalla vista non conta come errore.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class RequestOutcomeInterceptor implements HandlerInterceptor {
+
+    /** Nome dell'header con l'esito */
+    public static final String OUTCOME = "X-Rubrica-Outcome";
+
+    /** Valore dell'header per le richieste non riuscite */
+    public static final String ERROR = "error";
+
+    /** Attributo con cui i controller riportano un errore */
+    private static final String ERROR_MESSAGE = "errorMessage";
+
+    @Override
+    public void postHandle(
+        HttpServletRequest request,
+        HttpServletResponse response,
+        Object handler,
+        ModelAndView modelAndView) {
+        boolean failed = RequestContextUtils.getOutputFlashMap(request).containsKey(ERROR_MESSAGE);
+        if (!failed && modelAndView != null) {
+            Object message = modelAndView.getModel().get(ERROR_MESSAGE);
+            Map<String, ?> received = RequestContextUtils.getInputFlashMap(request);
+            failed = message != null && (received == null || received.get(ERROR_MESSAGE) != message);
+        }
+        if (failed) {
+            response.setHeader(OUTCOME, ERROR);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.dynamicweb.rubrica.components;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cronometro delle fasi di una richiesta HTTP, legato al thread che la serve.
+ * 
+ * <p>Ogni thread riusa lo stesso array di durate, azzerato all'inizio di ogni
+ * richiesta campionata. Sulle richieste non campionate il cronometro è inattivo:
+ * {@link #begin()} restituisce 0 senza leggere il timer e {@link #end(Phase, long)}
+ * non fa nulla, quindi non vengono allocati oggetti.</p>
+ * 
+ * <p>Uso tipico:</p>
+ * <pre>
+ * long start = RequestTimer.begin();
+ * try {
+ *     // operazione da misurare
+ * } finally {
+ *     RequestTimer.end(RequestTimer.Phase.QUERY, start);
+ * }
+ * </pre>
+ * 
+ * <p>Le operazioni eseguite per la richiesta su altri thread (le letture
+ * parallele sugli shard) vengono misurate con un cronometro avviato sul thread
+ * di lavoro ({@link #durations()}) e riportate sulla richiesta con
+ * {@link #addParallel(List)}.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public final class RequestTimer {
+
+    /**
+     * Fasi misurate di una richiesta, con il nome usato nell'header Server-Timing.
+     */
+    public enum Phase {
+        /** Verifica di configurazione database e autenticazione */
+        AUTH("auth"),
+        /** Apertura delle connessioni al database */
+        DB_ACQUIRE("db-acquire"),
+        /** Esecuzione delle istruzioni SQL */
+        QUERY("query"),
+        /** Lettura delle righe dal result set e mappatura in oggetti */
+        MAPPING("mapping"),
+        /** Rendering della vista */
+        RENDER("render");
+
+        private final String metric;
+
+        Phase(String metric) {
+            this.metric = metric;
+        }
+
+        /**
+         * @return nome della metrica nell'header Server-Timing
+         */
+        public String getMetric() {
+            return metric;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final ThreadLocal<RequestTimer> CURRENT = ThreadLocal.withInitial(RequestTimer::new);
+
+    private final long[] nanos = new long[PHASES.length];
+
+    private boolean active;
+
+    private long startNanos;
+
+    private RequestTimer() {
+    }
+
+    /**
+     * Attiva il cronometro per la richiesta corrente e azzera le durate.
+     */
+    public static void start() {
+        RequestTimer timer = CURRENT.get();
+        Arrays.fill(timer.nanos, 0);
+        timer.startNanos = System.nanoTime();
+        timer.active = true;
+    }
+
+    /**
+     * Disattiva il cronometro al termine della richiesta.
+     */
+    public static void stop() {
+        CURRENT.get().active = false;
+    }
+
+    /**
+     * Verifica se la richiesta corrente è campionata.
+     * 
+     * @return {@code true} se il cronometro è attivo
+     */
+    public static boolean isActive() {
+        return CURRENT.get().active;
+    }
+
+    /**
+     * Segna l'inizio di un'operazione.
+     * 
+     * @return istante di inizio in nanosecondi, 0 se il cronometro è inattivo
+     */
+    public static long begin() {
+        return CURRENT.get().active ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Aggiunge alla fase la durata dell'operazione iniziata con {@link #begin()}.
+     * 
+     * @param phase fase a cui attribuire la durata
+     * @param start valore restituito da {@link #begin()}
+     */
+    public static void end(Phase phase, long start) {
+        if (start != 0) {
+            CURRENT.get().nanos[phase.ordinal()] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Restituisce la durata accumulata da una fase.
+     * 
+     * @param phase fase richiesta
+     * @return durata in nanosecondi
+     */
+    public static long elapsed(Phase phase) {
+        return CURRENT.get().nanos[phase.ordinal()];
+    }
+
+    /**
+     * Restituisce il tempo trascorso dall'inizio della richiesta.
+     * 
+     * @return durata in nanosecondi
+     */
+    public static long total() {
+        return System.nanoTime() - CURRENT.get().startNanos;
+    }
+
+    /**
+     * Restituisce una copia delle durate accumulate sul thread corrente, da
+     * riportare sulla richiesta con {@link #addParallel(List)}.
+     * 
+     * @return durata in nanosecondi di ogni fase, nell'ordine di {@link Phase}
+     */
+    public static long[] durations() {
+        return CURRENT.get().nanos.clone();
+    }
+
+    /**
+     * Aggiunge alla richiesta corrente le durate di operazioni eseguite in
+     * parallelo su altri thread: per ogni fase viene aggiunta la durata
+     * maggiore, perché la richiesta attende l'operazione più lenta.
+     * 
+     * @param parts durate restituite da {@link #durations()} su ciascun thread
+     */
+    public static void addParallel(List<long[]> parts) {
+        RequestTimer timer = CURRENT.get();
+        if (!timer.active) {
+            return;
+        }
+        for (int i = 0; i < timer.nanos.length; i++) {
+            long slowest = 0;
+            for (long[] part : parts) {
+                slowest = Math.max(slowest, part[i]);
+            }
+            timer.nanos[i] += slowest;
+        }
+    }
+}
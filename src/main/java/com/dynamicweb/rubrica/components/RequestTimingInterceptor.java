@@ -0,0 +1,160 @@
+package com.dynamicweb.rubrica.components;
+
+import com.dynamicweb.rubrica.components.RequestTimer.Phase;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Interceptor che misura le fasi delle richieste campionate.
+ * 
+ * <p>Una frazione {@code rubrica.timing.sample-rate} delle richieste attiva il
+ * {@link RequestTimer}. Per queste richieste le fasi eseguite dal controller
+ * (auth, db-acquire, query, mapping) vengono inviate nell'header
+ * {@code Server-Timing} prima del rendering della vista; il rendering e il
+ * totale, noti solo a risposta già inviata, vengono aggiunti come trailer
+ * {@code Server-Timing} quando il protocollo lo consente. Al termine viene
+ * scritta una riga di log strutturata con tutte le fasi.</p>
+ * 
+ * <p>Le richieste asincrone (API reattive) non vengono misurate: il timer viene
+ * fermato quando il thread del server viene rilasciato.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class RequestTimingInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestTimingInterceptor.class);
+
+    /** Nome dell'header e del trailer con le durate */
+    private static final String SERVER_TIMING = "Server-Timing";
+
+    /** Attributo di richiesta con l'istante di inizio del rendering */
+    private static final String RENDER_START = RequestTimingInterceptor.class.getName() + ".renderStart";
+
+    /** Fasi concluse prima del rendering, inviate nell'header */
+    private static final Phase[] HEADER_PHASES = {Phase.AUTH, Phase.DB_ACQUIRE, Phase.QUERY, Phase.MAPPING};
+
+    private final double sampleRate;
+
+    /**
+     * Costruttore con la frazione di richieste da campionare.
+     * 
+     * @param sampleRate frazione tra 0 (nessuna) e 1 (tutte)
+     */
+    public RequestTimingInterceptor(@Value("${rubrica.timing.sample-rate:0.05}") double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            RequestTimer.start();
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(
+        HttpServletRequest request, 
+        HttpServletResponse response, 
+        Object handler, 
+        ModelAndView modelAndView) {
+        if (!RequestTimer.isActive()) {
+            return;
+        }
+
+        StringBuilder header = new StringBuilder();
+        for (Phase phase : HEADER_PHASES) {
+            appendMetric(header, phase.getMetric(), RequestTimer.elapsed(phase));
+        }
+        appendMetric(header, "handler", RequestTimer.total());
+        response.setHeader(SERVER_TIMING, header.toString());
+
+        long renderStart = System.nanoTime();
+        long requestStart = renderStart - RequestTimer.total();
+        request.setAttribute(RENDER_START, renderStart);
+        try {
+            response.setTrailerFields(() -> {
+                long now = System.nanoTime();
+                StringBuilder trailer = new StringBuilder();
+                appendMetric(trailer, Phase.RENDER.getMetric(), now - renderStart);
+                appendMetric(trailer, "total", now - requestStart);
+                return Map.of(SERVER_TIMING, trailer.toString());
+            });
+        } catch (IllegalStateException e) {
+            // Trailer non supportati dal protocollo della richiesta: restano header e log
+        }
+    }
+
+    @Override
+    public void afterCompletion(
+        HttpServletRequest request, 
+        HttpServletResponse response, 
+        Object handler, 
+        Exception ex) {
+        if (!RequestTimer.isActive()) {
+            return;
+        }
+
+        try {
+            if (request.getAttribute(RENDER_START) instanceof Long renderStart) {
+                RequestTimer.end(Phase.RENDER, renderStart);
+            }
+            log.info("request method={} uri={} status={} total_ms={} auth_ms={} db_acquire_ms={} "
+                    + "query_ms={} mapping_ms={} render_ms={}",
+                request.getMethod(),
+                request.getRequestURI(),
+                response.getStatus(),
+                millis(RequestTimer.total()),
+                millis(RequestTimer.elapsed(Phase.AUTH)),
+                millis(RequestTimer.elapsed(Phase.DB_ACQUIRE)),
+                millis(RequestTimer.elapsed(Phase.QUERY)),
+                millis(RequestTimer.elapsed(Phase.MAPPING)),
+                millis(RequestTimer.elapsed(Phase.RENDER)));
+        } finally {
+            RequestTimer.stop();
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(
+        HttpServletRequest request, 
+        HttpServletResponse response, 
+        Object handler) {
+        RequestTimer.stop();
+    }
+
+    /**
+     * Aggiunge una metrica nel formato di Server-Timing.
+     * 
+     * @param target testo dell'header
+     * @param metric nome della metrica
+     * @param nanos durata in nanosecondi
+     */
+    private static void appendMetric(StringBuilder target, String metric, long nanos) {
+        if (target.length() > 0) {
+            target.append(", ");
+        }
+        target.append(metric).append(";dur=").append(millis(nanos));
+    }
+
+    /**
+     * Converte una durata in millisecondi con tre decimali.
+     * 
+     * @param nanos durata in nanosecondi
+     * @return durata formattata, es. "1.234"
+     */
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,69 @@
+package com.dynamicweb.rubrica.components;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configurazione dei limiti di protezione per l'accesso al database.
+ * Legge timeout, dimensione dei bulkhead, soglie del circuit breaker e
+ * parametri dei tentativi dalle proprietà {@code rubrica.db.*}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+@Getter
+public class ResilienceProperties {
+
+    /** Timeout delle query di lettura, in secondi */
+    private final int readTimeoutSeconds;
+
+    /** Timeout delle transazioni di scrittura, in secondi */
+    private final int writeTimeoutSeconds;
+
+    /** Numero massimo di letture concorrenti */
+    private final int maxConcurrentReads;
+
+    /** Numero massimo di scritture concorrenti */
+    private final int maxConcurrentWrites;
+
+    /** Attesa massima per un posto libero nel bulkhead, in millisecondi */
+    private final long bulkheadWaitMillis;
+
+    /** Errori consecutivi del database che aprono il circuito */
+    private final int circuitFailureThreshold;
+
+    /** Durata dell'apertura del circuito prima di un tentativo di prova, in secondi */
+    private final int circuitOpenSeconds;
+
+    /** Numero massimo di tentativi per le letture */
+    private final int readMaxAttempts;
+
+    /** Attesa base tra i tentativi, raddoppiata a ogni tentativo, in millisecondi */
+    private final long retryBaseDelayMillis;
+
+    /**
+     * Costruttore che legge i valori dalle proprietà dell'applicazione.
+     */
+    public ResilienceProperties(
+        @Value("${rubrica.db.read-timeout-seconds:10}") int readTimeoutSeconds,
+        @Value("${rubrica.db.write-timeout-seconds:30}") int writeTimeoutSeconds,
+        @Value("${rubrica.db.max-concurrent-reads:20}") int maxConcurrentReads,
+        @Value("${rubrica.db.max-concurrent-writes:5}") int maxConcurrentWrites,
+        @Value("${rubrica.db.bulkhead-wait-ms:500}") long bulkheadWaitMillis,
+        @Value("${rubrica.db.circuit-failure-threshold:5}") int circuitFailureThreshold,
+        @Value("${rubrica.db.circuit-open-seconds:30}") int circuitOpenSeconds,
+        @Value("${rubrica.db.read-max-attempts:3}") int readMaxAttempts,
+        @Value("${rubrica.db.retry-base-delay-ms:100}") long retryBaseDelayMillis) {
+        this.readTimeoutSeconds = readTimeoutSeconds;
+        this.writeTimeoutSeconds = writeTimeoutSeconds;
+        this.maxConcurrentReads = maxConcurrentReads;
+        this.maxConcurrentWrites = maxConcurrentWrites;
+        this.bulkheadWaitMillis = bulkheadWaitMillis;
+        this.circuitFailureThreshold = circuitFailureThreshold;
+        this.circuitOpenSeconds = circuitOpenSeconds;
+        this.readMaxAttempts = readMaxAttempts;
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+}
@@ -0,0 +1,252 @@
+package com.dynamicweb.rubrica.components;
+
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Instradamento delle operazioni sui contatti tra gli shard del database.
+ * 
+ * <p>Ogni contatto appartiene allo shard dato da un hash del suo ID. Le operazioni
+ * su un contatto vengono eseguite impostando lo shard sul thread corrente, letto
+ * da {@link ShardRoutingDataSource} quando viene aperta una connessione; le
+ * letture su tutti i contatti vengono eseguite in parallelo su ogni shard.</p>
+ * 
+ * <p>Il numero di shard è fisso per la vita dei dati: la ridistribuzione dei
+ * contatti non è supportata (vedi {@link #shardOf(long, int)}).</p>
+ * 
+ * <p>Dentro una transazione la connessione è già legata a uno shard: passare a
+ * uno shard diverso è un errore di programmazione e solleva un'eccezione invece
+ * di eseguire l'istruzione sullo shard sbagliato.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class ShardRouter {
+
+    /** Shard del thread corrente, null per il primo */
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final ShardRoutingDataSource routingDataSource;
+
+    /** Thread per le letture parallele sugli shard */
+    private final ExecutorService executor;
+
+    /**
+     * Costruttore con il DataSource che instrada le connessioni.
+     * 
+     * @param routingDataSource il DataSource con gli shard configurati
+     */
+    public ShardRouter(ShardRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "shard-query-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restituisce lo shard impostato sul thread corrente.
+     * 
+     * @return numero dello shard, 0 se non impostato
+     */
+    public static int currentShard() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+
+    /**
+     * Restituisce il numero di shard configurati.
+     * 
+     * @return numero di shard, almeno 1
+     */
+    public int getShardCount() {
+        return routingDataSource.getShardCount();
+    }
+
+    /**
+     * Calcola lo shard di un contatto dal suo ID.
+     * 
+     * <p>L'ID viene rimescolato prima del modulo, così che ID consecutivi o
+     * generati con una componente temporale si distribuiscano in modo uniforme.</p>
+     * 
+     * @param id identificativo del contatto, null per un contatto non ancora inserito
+     * @return numero dello shard
+     */
+    public int shardOf(Long id) {
+        return id != null ? shardOf(id, getShardCount()) : 0;
+    }
+
+    /**
+     * Calcola lo shard di un contatto per un numero di shard dato.
+     * 
+     * <p>Il risultato dipende dal numero di shard: cambiandolo la maggior parte
+     * dei contatti apparterrebbe a uno shard diverso da quello che li contiene,
+     * per questo la configurazione rifiuta un numero di shard diverso da quello
+     * registrato nei database.</p>
+     * 
+     * @param id identificativo del contatto
+     * @param count numero di shard, almeno 1
+     * @return numero dello shard
+     */
+    public static int shardOf(long id, int count) {
+        if (count == 1) {
+            return 0;
+        }
+        long hash = id;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) count);
+    }
+
+    /**
+     * Esegue un'operazione sullo shard indicato.
+     * 
+     * @param <T> tipo del risultato
+     * @param shard numero dello shard
+     * @param action l'operazione da eseguire
+     * @return il risultato dell'operazione
+     * @throws IllegalStateException se una transazione è già aperta su un altro shard
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = CURRENT.get();
+        int current = previous != null ? previous : 0;
+        if (shard != current && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException(
+                "Transazione aperta sullo shard " + current + ", operazione richiesta sullo shard " + shard);
+        }
+        CURRENT.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    /**
+     * Esegue un'operazione sullo shard a cui appartiene il contatto.
+     * 
+     * @param <T> tipo del risultato
+     * @param id identificativo del contatto
+     * @param action l'operazione da eseguire
+     * @return il risultato dell'operazione
+     */
+    public <T> T onShardOf(Long id, Supplier<T> action) {
+        return onShard(shardOf(id), action);
+    }
+
+    /**
+     * Esegue una lettura su tutti gli shard, in parallelo se sono più di uno.
+     * 
+     * <p>Se la richiesta corrente è campionata dal {@link RequestTimer}, le
+     * letture parallele vengono misurate sui thread degli shard e le durate
+     * della più lenta riportate sulla richiesta.</p>
+     * 
+     * @param <T> tipo del risultato
+     * @param action la lettura da eseguire su ciascuno shard
+     * @return i risultati nell'ordine degli shard
+     */
+    public <T> List<T> onEachShard(Supplier<T> action) {
+        int count = getShardCount();
+        if (count == 1) {
+            return List.of(onShard(0, action));
+        }
+
+        boolean timed = RequestTimer.isActive();
+        List<Future<ShardResult<T>>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int shard = i;
+            futures.add(executor.submit(() -> onShardTimed(shard, action, timed)));
+        }
+        List<T> results = new ArrayList<>(count);
+        List<long[]> durations = new ArrayList<>(timed ? count : 0);
+        try {
+            for (Future<ShardResult<T>> future : futures) {
+                ShardResult<T> result = future.get();
+                results.add(result.value());
+                if (timed) {
+                    durations.add(result.durations());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Lettura sugli shard interrotta", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        RequestTimer.addParallel(durations);
+        return results;
+    }
+
+    /**
+     * Esegue la lettura di uno shard su un thread di lavoro, misurandone le
+     * fasi se la richiesta che l'ha avviata è campionata.
+     */
+    private <T> ShardResult<T> onShardTimed(int shard, Supplier<T> action, boolean timed) {
+        if (!timed) {
+            return new ShardResult<>(onShard(shard, action), null);
+        }
+        RequestTimer.start();
+        try {
+            T value = onShard(shard, action);
+            return new ShardResult<>(value, RequestTimer.durations());
+        } finally {
+            RequestTimer.stop();
+        }
+    }
+
+    /**
+     * Raggruppa gli ID dei contatti per shard di appartenenza.
+     * 
+     * @param ids identificativi dei contatti
+     * @return ID per numero di shard, in ordine di shard
+     */
+    public Map<Integer, List<Long>> groupByShard(Collection<Long> ids) {
+        Map<Integer, List<Long>> groups = new TreeMap<>();
+        for (Long id : ids) {
+            groups.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+
+    /**
+     * Arresta i thread delle letture parallele alla chiusura del contesto.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Risultato della lettura di uno shard con le durate delle sue fasi,
+     * null se la richiesta non è campionata.
+     */
+    private record ShardResult<T>(T value, long[] durations) {
+    }
+}
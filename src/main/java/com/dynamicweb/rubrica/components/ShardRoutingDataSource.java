@@ -0,0 +1,66 @@
+package com.dynamicweb.rubrica.components;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * DataSource che instrada ogni richiesta di connessione allo shard corrente.
+ * 
+ * <p>Lo shard è quello impostato sul thread da {@link ShardRouter}; senza uno
+ * shard esplicito viene usato il primo. Con un solo database configurato il
+ * DataSource si comporta come il DataSource del primo shard.</p>
+ * 
+ * <p>Le transazioni si legano alla connessione ottenuta all'inizio, quindi lo
+ * shard va scelto prima di aprire la transazione.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private volatile int shardCount = 1;
+
+    /**
+     * Costruttore con il DataSource del primo shard, l'unico finché non
+     * viene configurato un insieme di shard.
+     * 
+     * @param primary DataSource del primo shard
+     */
+    public ShardRoutingDataSource(DataSource primary) {
+        configure(List.of(primary));
+    }
+
+    /**
+     * Sostituisce l'insieme degli shard.
+     * 
+     * @param shards DataSource degli shard nell'ordine di numerazione, il primo è quello predefinito
+     */
+    public synchronized void configure(List<? extends DataSource> shards) {
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        initialize();
+        shardCount = shards.size();
+    }
+
+    /**
+     * Restituisce il numero di shard configurati.
+     * 
+     * @return numero di shard, almeno 1
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+}
@@ -0,0 +1,140 @@
+package com.dynamicweb.rubrica.components;
+
+import com.dynamicweb.rubrica.dtos.SlowQuery;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registro in memoria delle istruzioni SQL lente.
+ * 
+ * <p>Le istruzioni che superano la soglia {@code rubrica.db.slow-query-ms} vengono
+ * salvate in un buffer circolare di dimensione fissa senza lock: ogni scrittura
+ * riserva uno slot con un incremento atomico e sovrascrive la registrazione più
+ * vecchia. Il testo SQL viene normalizzato solo per le istruzioni registrate.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class SlowQueryLog {
+
+    /** Valori letterali stringa e numerici nel testo SQL */
+    private static final Pattern LITERALS = Pattern.compile("'(?:[^']|'')*'|\\b\\d+(?:\\.\\d+)?\\b");
+
+    /** Sequenze di spazi, tabulazioni e a capo */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long thresholdNanos;
+
+    private final AtomicReferenceArray<SlowQuery> buffer;
+
+    private final int mask;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Costruttore con soglia e capacità dalle proprietà dell'applicazione.
+     * 
+     * @param thresholdMillis durata minima delle istruzioni da registrare, in millisecondi
+     * @param capacity numero di registrazioni conservate, arrotondato alla potenza di 2 successiva
+     */
+    public SlowQueryLog(
+        @Value("${rubrica.db.slow-query-ms:200}") long thresholdMillis,
+        @Value("${rubrica.db.slow-query-buffer:256}") int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Verifica se una durata supera la soglia di registrazione.
+     * 
+     * @param elapsedNanos durata dell'istruzione, in nanosecondi
+     * @return {@code true} se l'istruzione va registrata
+     */
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * Registra un'istruzione lenta.
+     * 
+     * @param sql testo SQL eseguito
+     * @param rows righe lette o modificate, -1 se non disponibili
+     * @param elapsedNanos durata dell'istruzione, in nanosecondi
+     */
+    public void record(String sql, long rows, long elapsedNanos) {
+        long seq = sequence.getAndIncrement();
+        String shape = sql == null ? "" : WHITESPACE.matcher(
+            LITERALS.matcher(sql).replaceAll("?")).replaceAll(" ").trim();
+        buffer.set((int) (seq & mask), new SlowQuery(
+            seq, 
+            System.currentTimeMillis(), 
+            shape, 
+            countPlaceholders(sql), 
+            rows, 
+            TimeUnit.NANOSECONDS.toMicros(elapsedNanos)));
+    }
+
+    /**
+     * Restituisce le istruzioni registrate, dalla più recente.
+     * 
+     * @return copia del contenuto del buffer
+     */
+    public List<SlowQuery> getEntries() {
+        List<SlowQuery> entries = new ArrayList<>(buffer.length());
+        for (int i = 0; i < buffer.length(); i++) {
+            SlowQuery entry = buffer.get(i);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong(SlowQuery::getSequence).reversed());
+        return entries;
+    }
+
+    /**
+     * @return soglia di registrazione, in millisecondi
+     */
+    public long getThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(thresholdNanos);
+    }
+
+    /**
+     * @return numero totale di istruzioni registrate dall'avvio
+     */
+    public long getTotalRecorded() {
+        return sequence.get();
+    }
+
+    /**
+     * Conta i segnaposto "?" fuori dalle stringhe letterali.
+     * 
+     * @param sql testo SQL
+     * @return numero di parametri
+     */
+    private static int countPlaceholders(String sql) {
+        if (sql == null) {
+            return 0;
+        }
+        int count = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
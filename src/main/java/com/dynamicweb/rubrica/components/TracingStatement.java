@@ -0,0 +1,542 @@
+package com.dynamicweb.rubrica.components;
+
+import com.dynamicweb.rubrica.components.RequestTimer.Phase;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * Istruzione restituita da {@link TracingConnection}: misura ogni esecuzione
+ * e delega le altre chiamate all'istruzione reale.
+ *
+ * <p>Un'esecuzione viene misurata dalla chiamata {@code execute*} fino alla
+ * chiusura del result set prodotto (compresi quelli ottenuti con
+ * {@link #getResultSet()} e {@link #getGeneratedKeys()}), alla chiusura
+ * dell'istruzione o all'esecuzione successiva, e viene passata a
+ * {@link SlowQueryLog} se supera la soglia. Le righe sono quelle modificate
+ * per gli aggiornamenti e quelle lette per le query.</p>
+ *
+ * @param <S> tipo dell'istruzione reale
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class TracingStatement<S extends Statement> implements Statement {
+
+    /** Istruzione reale */
+    protected final S target;
+
+    private final TracingConnection connection;
+
+    private final SlowQueryLog slowQueryLog;
+
+    /** Testo dell'istruzione preparata, null per le istruzioni semplici */
+    private final String sql;
+
+    /** Testo dell'esecuzione in corso */
+    private String executedSql;
+
+    /** Inizio dell'esecuzione in corso, 0 se nessuna */
+    private long start;
+
+    /** Inizio della lettura delle righe per il {@link RequestTimer}, 0 se non misurata */
+    private long fetchStart;
+
+    /** Righe modificate o lette dall'esecuzione in corso */
+    private long rows;
+
+    TracingStatement(S target, TracingConnection connection, SlowQueryLog slowQueryLog, String sql) {
+        this.target = target;
+        this.connection = connection;
+        this.slowQueryLog = slowQueryLog;
+        this.sql = sql;
+    }
+
+    /**
+     * Inizia la misura di un'esecuzione, chiudendo quella precedente.
+     *
+     * @param executedSql testo eseguito, null per l'istruzione preparata
+     */
+    protected final void begin(String executedSql) {
+        finish();
+        this.executedSql = executedSql != null ? executedSql : sql;
+        this.rows = 0;
+        this.start = System.nanoTime();
+    }
+
+    /**
+     * Registra il ritorno della chiamata di esecuzione nel {@link RequestTimer}.
+     */
+    protected final void executed() {
+        RequestTimer.end(Phase.QUERY, RequestTimer.isActive() ? start : 0);
+    }
+
+    /**
+     * Avvolge un result set dell'esecuzione in corso, per contarne le righe.
+     *
+     * @param resultSet il result set reale
+     * @return il result set misurato, null se {@code resultSet} è null
+     */
+    protected final ResultSet results(ResultSet resultSet) {
+        return wrap(resultSet, true);
+    }
+
+    /**
+     * Avvolge un result set dell'esecuzione in corso.
+     *
+     * @param resultSet il result set reale
+     * @param countRows {@code false} per le chiavi generate, che non sono righe lette
+     * @return il result set misurato, null se {@code resultSet} è null
+     */
+    private ResultSet wrap(ResultSet resultSet, boolean countRows) {
+        if (resultSet == null) {
+            return null;
+        }
+        if (fetchStart == 0) {
+            fetchStart = RequestTimer.begin();
+        }
+        return new TracingResultSet(resultSet, this, countRows);
+    }
+
+    /**
+     * Registra l'esito di {@code execute}: un result set da leggere o righe modificate.
+     *
+     * @param hasResults valore restituito da {@code execute}
+     * @return lo stesso valore
+     */
+    protected final boolean executeResult(boolean hasResults) throws SQLException {
+        if (hasResults) {
+            fetchStart = RequestTimer.begin();
+        } else {
+            rows += Math.max(target.getUpdateCount(), 0);
+        }
+        return hasResults;
+    }
+
+    /**
+     * Registra le righe modificate da un aggiornamento.
+     *
+     * @param count righe modificate
+     * @return lo stesso valore
+     */
+    protected final long updated(long count) {
+        rows += Math.max(count, 0);
+        return count;
+    }
+
+    /**
+     * Registra le righe modificate da un batch.
+     *
+     * @param counts righe modificate da ogni istruzione del batch
+     * @return lo stesso array
+     */
+    protected final int[] updated(int[] counts) {
+        for (int count : counts) {
+            rows += Math.max(count, 0);
+        }
+        return counts;
+    }
+
+    /**
+     * Registra le righe modificate da un batch.
+     *
+     * @param counts righe modificate da ogni istruzione del batch
+     * @return lo stesso array
+     */
+    protected final long[] updated(long[] counts) {
+        for (long count : counts) {
+            rows += Math.max(count, 0);
+        }
+        return counts;
+    }
+
+    /**
+     * Conta una riga letta da un result set dell'esecuzione in corso.
+     */
+    final void rowRead() {
+        rows++;
+    }
+
+    /**
+     * Chiude la misura dell'esecuzione in corso, se presente.
+     */
+    final void finish() {
+        if (start == 0) {
+            return;
+        }
+        RequestTimer.end(Phase.MAPPING, fetchStart);
+        long elapsed = System.nanoTime() - start;
+        if (slowQueryLog.isSlow(elapsed)) {
+            slowQueryLog.record(executedSql, rows, elapsed);
+        }
+        start = 0;
+        fetchStart = 0;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        begin(sql);
+        ResultSet resultSet;
+        try {
+            resultSet = target.executeQuery(sql);
+        } finally {
+            executed();
+        }
+        return results(resultSet);
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        begin(sql);
+        try {
+            return (int) updated(target.executeUpdate(sql));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        begin(sql);
+        try {
+            return (int) updated(target.executeUpdate(sql, autoGeneratedKeys));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        begin(sql);
+        try {
+            return (int) updated(target.executeUpdate(sql, columnIndexes));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        begin(sql);
+        try {
+            return (int) updated(target.executeUpdate(sql, columnNames));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        begin(sql);
+        try {
+            return updated(target.executeLargeUpdate(sql));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        begin(sql);
+        try {
+            return updated(target.executeLargeUpdate(sql, autoGeneratedKeys));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        begin(sql);
+        try {
+            return updated(target.executeLargeUpdate(sql, columnIndexes));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        begin(sql);
+        try {
+            return updated(target.executeLargeUpdate(sql, columnNames));
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        begin(sql);
+        boolean hasResults;
+        try {
+            hasResults = target.execute(sql);
+        } finally {
+            executed();
+        }
+        return executeResult(hasResults);
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        begin(sql);
+        boolean hasResults;
+        try {
+            hasResults = target.execute(sql, autoGeneratedKeys);
+        } finally {
+            executed();
+        }
+        return executeResult(hasResults);
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        begin(sql);
+        boolean hasResults;
+        try {
+            hasResults = target.execute(sql, columnIndexes);
+        } finally {
+            executed();
+        }
+        return executeResult(hasResults);
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        begin(sql);
+        boolean hasResults;
+        try {
+            hasResults = target.execute(sql, columnNames);
+        } finally {
+            executed();
+        }
+        return executeResult(hasResults);
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        begin(null);
+        try {
+            return updated(target.executeBatch());
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        begin(null);
+        try {
+            return updated(target.executeLargeBatch());
+        } finally {
+            executed();
+        }
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        return results(target.getResultSet());
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return wrap(target.getGeneratedKeys(), false);
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        finish();
+        target.close();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(target) ? iface.cast(target) : target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(target) || target.isWrapperFor(iface);
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return target.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        target.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return target.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        target.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        target.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return target.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        target.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        target.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return target.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        target.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        target.setCursorName(name);
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return target.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return target.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        target.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return target.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        target.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return target.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return target.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return target.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        target.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        target.clearBatch();
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return target.getMoreResults(current);
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return target.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return target.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        target.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return target.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        target.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return target.isCloseOnCompletion();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return target.getLargeUpdateCount();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        target.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return target.getLargeMaxRows();
+    }
+
+    @Override
+    public String enquoteLiteral(String val) throws SQLException {
+        return target.enquoteLiteral(val);
+    }
+
+    @Override
+    public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+        return target.enquoteIdentifier(identifier, alwaysQuote);
+    }
+
+    @Override
+    public boolean isSimpleIdentifier(String identifier) throws SQLException {
+        return target.isSimpleIdentifier(identifier);
+    }
+
+    @Override
+    public String enquoteNCharLiteral(String val) throws SQLException {
+        return target.enquoteNCharLiteral(val);
+    }
+}
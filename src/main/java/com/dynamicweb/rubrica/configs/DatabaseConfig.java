@@ -1,15 +1,26 @@
 package com.dynamicweb.rubrica.configs;
 
+import com.dynamicweb.rubrica.components.ResilienceProperties;
+import com.dynamicweb.rubrica.components.ShardRoutingDataSource;
+import com.dynamicweb.rubrica.components.SlowQueryLog;
+import com.dynamicweb.rubrica.components.TracingDataSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
 /**
  * Configurazione Spring per i bean DataSource e JdbcTemplate.
  * Gestisce la connessione al database MySQL con supporto per configurazione dinamica.
  *
+ * <p>JdbcTemplate e transaction manager usano il {@link TracingDataSource}, che
+ * misura ogni istruzione e registra quelle lente nello {@link SlowQueryLog}.
+ * Le connessioni vengono aperte sullo shard corrente tramite lo
+ * {@link ShardRoutingDataSource}, il cui primo shard è il DataSource configurato
+ * dinamicamente.</p>
+ *
  * @author Michael Leanza
  * @since 1.0
  */
@@ -28,16 +39,57 @@ public class DatabaseConfig {
         return new DriverManagerDataSource();
     }
 
+    /**
+     * Bean DataSource che instrada le connessioni allo shard corrente.
+     * 
+     * @param dataSource il DataSource configurato dinamicamente, primo shard
+     * @return istanza di ShardRoutingDataSource
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DriverManagerDataSource dataSource) {
+        return new ShardRoutingDataSource(dataSource);
+    }
+
+    /**
+     * Bean DataSource che misura le istruzioni eseguite sugli shard.
+     * 
+     * @param dataSource il DataSource che instrada le connessioni agli shard
+     * @param slowQueryLog registro delle istruzioni lente
+     * @return istanza di TracingDataSource
+     */
+    @Bean
+    public TracingDataSource tracingDataSource(ShardRoutingDataSource dataSource, SlowQueryLog slowQueryLog) {
+        return new TracingDataSource(dataSource, slowQueryLog);
+    }
+
     /**
      * Bean per JdbcTemplate che usa il DataSource configurato.
      * Fornisce un template per le operazioni SQL con gestione automatica delle connessioni.
      * 
+     * <p>Le istruzioni fuori transazione usano il timeout delle letture; nelle
+     * transazioni prevale il timeout della transazione.</p>
+     * 
      * @param dataSource il DataSource da utilizzare per le connessioni database
+     * @param resilienceProperties limiti di timeout per le query
      * @return istanza configurata di JdbcTemplate
      */
     @Bean
     @Primary
-    public JdbcTemplate jdbcTemplate(DriverManagerDataSource dataSource) {
-        return new JdbcTemplate(dataSource);
+    public JdbcTemplate jdbcTemplate(TracingDataSource dataSource, ResilienceProperties resilienceProperties) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(resilienceProperties.getReadTimeoutSeconds());
+        return jdbcTemplate;
+    }
+
+    /**
+     * Bean per il transaction manager JDBC sullo stesso DataSource.
+     * Consente alle operazioni massive di eseguire più istruzioni in un'unica transazione.
+     * 
+     * @param dataSource il DataSource su cui aprire le transazioni
+     * @return istanza configurata di DataSourceTransactionManager
+     */
+    @Bean
+    public DataSourceTransactionManager transactionManager(TracingDataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
     }
 }
@@ -0,0 +1,129 @@
+package com.dynamicweb.rubrica.configs;
+
+import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletRegistration;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.jasper.compiler.JspUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.ServletContextInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Configurazione Spring per l'uso delle JSP precompilate in fase di build.
+ *
+ * <p>Le viste in {@code WEB-INF/views} vengono tradotte in servlet da Jasper JspC
+ * durante la build Maven e incluse nel WAR. Quando la proprietà
+ * {@code rubrica.jsp.precompiled} è attiva (profilo "prod"), ogni vista viene
+ * mappata con il suo percorso esatto sulla servlet precompilata: il forward
+ * dell'InternalResourceView raggiunge così direttamente la classe compilata,
+ * senza passare dalla JspServlet e senza compilazione alla prima richiesta.</p>
+ *
+ * <p>Le viste vengono elencate dalla cartella dell'applicazione o, se questa
+ * non è disponibile (eseguibile nativo GraalVM, senza document root), dall'indice
+ * {@value #VIEW_INDEX} generato dalla build. Le servlet precompilate sono
+ * classi ordinarie e costituiscono quindi anche il percorso di rendering
+ * dell'eseguibile nativo, dove Jasper non può compilare JSP a runtime.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "rubrica.jsp.precompiled", havingValue = "true")
+public class JspPrecompileConfig {
+
+    /** Package radice usato da Jasper per le classi generate */
+    private static final String JSP_PACKAGE = "org.apache.jsp";
+
+    /** Indice delle JSP generato dalla build, percorsi separati da virgola */
+    static final String VIEW_INDEX = "META-INF/rubrica/jsp-views.txt";
+
+    /**
+     * Registra una servlet per ogni JSP della cartella delle viste per cui
+     * esiste la classe precompilata. Le JSP senza classe restano gestite da Jasper.
+     *
+     * @param viewPrefix prefisso delle viste configurato per Spring MVC
+     * @return initializer che registra le servlet all'avvio del contesto
+     */
+    @Bean
+    public ServletContextInitializer precompiledJspInitializer(
+        @Value("${spring.mvc.view.prefix}") String viewPrefix) {
+        return servletContext -> {
+            ClassLoader classLoader = getClass().getClassLoader();
+            Set<String> paths = servletContext.getResourcePaths(viewPrefix);
+            if (paths == null || paths.isEmpty()) {
+                paths = new LinkedHashSet<>();
+                for (String path : indexedJspPaths(classLoader)) {
+                    if (path.startsWith(viewPrefix)) {
+                        paths.add(path);
+                    }
+                }
+            }
+
+            for (String path : paths) {
+                if (!path.endsWith(".jsp")) {
+                    continue;
+                }
+
+                String className = toServletClassName(path);
+                if (!ClassUtils.isPresent(className, classLoader)) {
+                    continue;
+                }
+
+                @SuppressWarnings("unchecked")
+                Class<? extends Servlet> servletClass =
+                    (Class<? extends Servlet>) ClassUtils.resolveClassName(className, classLoader);
+                ServletRegistration.Dynamic registration = servletContext.addServlet(className, servletClass);
+                registration.addMapping(path);
+                registration.setLoadOnStartup(1);
+            }
+        };
+    }
+
+    /**
+     * Calcola il nome della classe generata da Jasper per una JSP,
+     * con le stesse regole di codifica usate in fase di compilazione.
+     *
+     * @param jspPath percorso della JSP, es. "/WEB-INF/views/lista.jsp"
+     * @return nome completo della classe, es. "org.apache.jsp.WEB_002dINF.views.lista_jsp"
+     */
+    static String toServletClassName(String jspPath) {
+        int lastSlash = jspPath.lastIndexOf('/');
+        String directory = jspPath.substring(1, lastSlash);
+        String fileName = jspPath.substring(lastSlash + 1);
+        return JSP_PACKAGE + "." + JspUtil.makeJavaPackage(directory) + "."
+            + JspUtil.makeJavaIdentifier(fileName);
+    }
+
+    /**
+     * Legge l'elenco delle JSP dall'indice generato dalla build.
+     *
+     * @param classLoader class loader da cui leggere l'indice
+     * @return percorsi delle JSP, es. "/WEB-INF/views/lista.jsp"; vuoto se l'indice manca
+     * @throws UncheckedIOException se l'indice non è leggibile
+     */
+    static List<String> indexedJspPaths(ClassLoader classLoader) {
+        ClassPathResource index = new ClassPathResource(VIEW_INDEX, classLoader);
+        if (!index.exists()) {
+            return List.of();
+        }
+        try {
+            String content = index.getContentAsString(StandardCharsets.UTF_8);
+            return Arrays.stream(content.split(","))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Indice delle JSP non leggibile: " + VIEW_INDEX, e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dynamicweb.rubrica.configs;
+
+import com.dynamicweb.rubrica.dtos.AuditRecord;
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.dtos.LetterJump;
+import com.dynamicweb.rubrica.dtos.PersonaPage;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.dtos.RubricaStatistics;
+import com.dynamicweb.rubrica.dtos.SlowQuery;
+import com.dynamicweb.rubrica.dtos.SyncPage;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.entities.Utente;
+import java.util.Date;
+import java.util.List;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Configurazione dei suggerimenti per la compilazione nativa con GraalVM
+ * (profilo Maven {@code native}).
+ *
+ * <p>In un eseguibile nativo riflessione e risorse del classpath sono disponibili
+ * solo per i tipi e i file dichiarati in fase di build. Spring AOT ricava da solo
+ * quelli dei bean e dei controller; qui vengono aggiunti quelli che l'analisi non
+ * vede: le proprietà lette dalle espressioni EL delle viste e da Jackson, le
+ * classi del driver MySQL caricate per nome, le servlet delle JSP precompilate
+ * e i tag handler istanziati dai loro pool.</p>
+ *
+ * <p>Sulla JVM la configurazione non ha effetti.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Configuration
+@ImportRuntimeHints(NativeImageConfig.RubricaRuntimeHints.class)
+public class NativeImageConfig {
+
+    /**
+     * Suggerimenti di riflessione e risorse dell'applicazione.
+     */
+    static class RubricaRuntimeHints implements RuntimeHintsRegistrar {
+
+        /** Tipi letti dalle viste tramite EL, legati dai form, mappati dalle righe o serializzati in JSON */
+        private static final List<Class<?>> BINDING_TYPES = List.of(
+            Persona.class,
+            Utente.class,
+            PersonaQuery.class,
+            PersonaPage.class,
+            LetterJump.class,
+            SyncPage.class,
+            DatabaseProperties.class,
+            RubricaStatistics.class,
+            SlowQuery.class,
+            AuditRecord.class);
+
+        /** Classi dei driver JDBC e del driver MySQL istanziate a partire dal nome */
+        private static final List<String> JDBC_CLASSES = List.of(
+            "com.mysql.cj.jdbc.Driver",
+            "com.mysql.cj.protocol.StandardSocketFactory",
+            "com.mysql.cj.log.StandardLogger",
+            "com.mysql.cj.log.Slf4JLogger",
+            "com.mysql.cj.log.LoggingProfilerEventHandler",
+            "org.h2.Driver");
+
+        /** Tag handler usati dalle viste, creati per riflessione dai TagHandlerPool delle JSP */
+        private static final List<String> TAG_CLASSES = List.of(
+            "org.apache.taglibs.standard.tag.common.core.ChooseTag",
+            "org.apache.taglibs.standard.tag.common.core.OtherwiseTag",
+            "org.apache.taglibs.standard.tag.rt.core.ForEachTag",
+            "org.apache.taglibs.standard.tag.rt.core.IfTag",
+            "org.apache.taglibs.standard.tag.rt.core.OutTag",
+            "org.apache.taglibs.standard.tag.rt.core.ParamTag",
+            "org.apache.taglibs.standard.tag.rt.core.UrlTag",
+            "org.apache.taglibs.standard.tag.rt.core.WhenTag",
+            "org.apache.taglibs.standard.tag.rt.fmt.FormatDateTag",
+            "org.apache.taglibs.standard.tag.rt.fmt.FormatNumberTag",
+            "org.springframework.web.servlet.tags.form.CheckboxTag",
+            "org.springframework.web.servlet.tags.form.FormTag",
+            "org.springframework.web.servlet.tags.form.InputTag",
+            "org.springframework.web.servlet.tags.form.OptionTag",
+            "org.springframework.web.servlet.tags.form.SelectTag");
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            new BindingReflectionHintsRegistrar()
+                .registerReflectionHints(hints.reflection(), BINDING_TYPES.toArray(Class<?>[]::new));
+            // jsp:setProperty su java.util.Date in query-lente.jsp
+            hints.reflection().registerType(Date.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+            for (String className : JDBC_CLASSES) {
+                hints.reflection().registerTypeIfPresent(classLoader, className,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+            hints.resources().registerPattern("com/mysql/cj/*.properties");
+            hints.resources().registerPattern("com/mysql/cj/configurations/*.properties");
+            hints.resources().registerPattern("com/mysql/cj/util/*.properties");
+            hints.resources().registerPattern("schema_database.sql");
+
+            hints.resources().registerPattern(JspPrecompileConfig.VIEW_INDEX);
+            for (String path : JspPrecompileConfig.indexedJspPaths(classLoader)) {
+                hints.reflection().registerTypeIfPresent(classLoader,
+                    JspPrecompileConfig.toServletClassName(path), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            }
+            for (String className : TAG_CLASSES) {
+                hints.reflection().registerTypeIfPresent(classLoader, className,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dynamicweb.rubrica.configs;
+
+import com.dynamicweb.rubrica.controllers.PersonaApiHandler;
+import com.dynamicweb.rubrica.services.AuthService;
+import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
+import com.dynamicweb.rubrica.services.DatabaseUnavailableException;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Configurazione Spring delle rotte funzionali per le API JSON in {@code /api/persone}.
+ * 
+ * <p>Le rotte sono le stesse qualunque sia il percorso di accesso ai dati scelto
+ * con {@code rubrica.persistence}; cambia solo l'implementazione di
+ * {@link PersonaApiHandler}. Come per le pagine, ogni richiesta richiede
+ * un database configurato e un utente autenticato.</p>
+ *
+ * <p>Le librerie R2DBC del percorso reattivo sono incluse nel WAR solo con il
+ * profilo Maven {@code reactive}: senza di esse, {@code rubrica.persistence=reactive}
+ * interrompe l'avvio con un messaggio esplicito.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Configuration
+public class PersonaApiConfig {
+
+    /** Classe dell'API R2DBC, presente solo nei WAR costruiti con il profilo {@code reactive} */
+    public static final String R2DBC_CLASS = "io.r2dbc.spi.ConnectionFactory";
+
+    /**
+     * Definisce le rotte delle API sulle persone con il controllo di accesso
+     * e la conversione degli errori in risposte JSON.
+     * 
+     * @param handler implementazione attiva degli handler
+     * @param authService servizio per la gestione dell'autenticazione
+     * @param databaseConnectionManager servizio per lo stato del database
+     * @return rotte delle API
+     */
+    @Bean
+    public RouterFunction<ServerResponse> personaApiRoutes(
+        PersonaApiHandler handler, 
+        AuthService authService, 
+        DatabaseConnectionManager databaseConnectionManager) {
+        return RouterFunctions.route()
+            .path("/api/persone", builder -> builder
+                .GET("/export", handler::export)
+                .GET("/cerca", handler::search)
+                .GET("/sync", handler::sync)
+                .GET("/{id}", handler::get)
+                .PUT("/{id}", handler::update)
+                .DELETE("/{id}", handler::delete)
+                .GET("", handler::page)
+                .POST("", handler::create))
+            .filter((request, next) -> {
+                if (!databaseConnectionManager.isDatabaseConfigured()) {
+                    return PersonaApiHandler.errorResponse(
+                        new DatabaseUnavailableException("Database non configurato"));
+                }
+                HttpSession session = request.servletRequest().getSession(false);
+                if (session == null || !authService.isLoggedIn(session)) {
+                    return ServerResponse.status(HttpStatus.UNAUTHORIZED).build();
+                }
+                return next.handle(request);
+            })
+            .onError(Exception.class, (error, request) -> PersonaApiHandler.errorResponse(error))
+            .build();
+    }
+
+    /**
+     * Interrompe l'avvio se è scelto il percorso reattivo ma le librerie R2DBC
+     * non sono presenti.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(name = "rubrica.persistence", havingValue = "reactive")
+    @ConditionalOnMissingClass(R2DBC_CLASS)
+    static class ReactiveLibrariesCheck {
+
+        @Bean
+        static BeanFactoryPostProcessor reactiveLibrariesMissing() {
+            return beanFactory -> {
+                throw new IllegalStateException("rubrica.persistence=reactive richiede le librerie R2DBC: "
+                    + "costruire il WAR con il profilo Maven 'reactive' (mvn -Preactive package)");
+            };
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.dynamicweb.rubrica.configs;
+
+import com.dynamicweb.rubrica.components.ReconfigurableConnectionFactory;
+import com.dynamicweb.rubrica.components.ResilienceProperties;
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
+import java.time.Duration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+/**
+ * Configurazione Spring del percorso di accesso reattivo (R2DBC).
+ * 
+ * <p>Attiva solo con {@code rubrica.persistence=reactive}. La ConnectionFactory
+ * segue la configurazione del database applicata da {@link DatabaseConnectionManager},
+ * come il DataSource JDBC.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "rubrica.persistence", havingValue = "reactive")
+@ConditionalOnClass(name = PersonaApiConfig.R2DBC_CLASS)
+public class ReactiveDatabaseConfig {
+
+    /**
+     * Bean ConnectionFactory riconfigurabile, allineato al database eventualmente
+     * già configurato all'avvio.
+     * 
+     * @param databaseConnectionManager servizio con la configurazione corrente
+     * @param resilienceProperties limiti di concorrenza e attesa
+     * @return istanza di ReconfigurableConnectionFactory
+     */
+    @Bean(destroyMethod = "close")
+    public ReconfigurableConnectionFactory connectionFactory(
+        DatabaseConnectionManager databaseConnectionManager, 
+        ResilienceProperties resilienceProperties) {
+        ReconfigurableConnectionFactory connectionFactory = new ReconfigurableConnectionFactory(
+            resilienceProperties.getMaxConcurrentReads() + resilienceProperties.getMaxConcurrentWrites(),
+            Duration.ofMillis(resilienceProperties.getBulkheadWaitMillis()));
+        DatabaseProperties current = databaseConnectionManager.getCurrentProperties();
+        if (current != null) {
+            connectionFactory.configure(current);
+        }
+        return connectionFactory;
+    }
+
+    /**
+     * Bean DatabaseClient per l'esecuzione di istruzioni SQL non bloccanti.
+     * 
+     * @param connectionFactory la ConnectionFactory riconfigurabile
+     * @return istanza di DatabaseClient
+     */
+    @Bean
+    public DatabaseClient databaseClient(ReconfigurableConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    /**
+     * Operatore per eseguire più istruzioni reattive in un'unica transazione.
+     * 
+     * @param connectionFactory la ConnectionFactory riconfigurabile
+     * @param resilienceProperties timeout delle scritture
+     * @return istanza di TransactionalOperator
+     */
+    @Bean
+    public TransactionalOperator transactionalOperator(
+        ReconfigurableConnectionFactory connectionFactory, 
+        ResilienceProperties resilienceProperties) {
+        DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+        definition.setTimeout(resilienceProperties.getWriteTimeoutSeconds());
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory), definition);
+    }
+}
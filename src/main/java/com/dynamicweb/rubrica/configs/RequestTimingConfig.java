@@ -0,0 +1,54 @@
+package com.dynamicweb.rubrica.configs;
+
+import com.dynamicweb.rubrica.components.JfrDispatchInterceptor;
+import com.dynamicweb.rubrica.components.RequestOutcomeInterceptor;
+import com.dynamicweb.rubrica.components.RequestTimingInterceptor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configurazione Spring per la misura delle fasi delle richieste.
+ * Registra il {@link RequestTimingInterceptor}, il {@link JfrDispatchInterceptor}
+ * e il {@link RequestOutcomeInterceptor} su tutte le pagine, esclusi gli asset statici.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Configuration
+public class RequestTimingConfig implements WebMvcConfigurer {
+
+    private final RequestTimingInterceptor requestTimingInterceptor;
+
+    private final JfrDispatchInterceptor jfrDispatchInterceptor;
+
+    private final RequestOutcomeInterceptor requestOutcomeInterceptor;
+
+    /**
+     * Costruttore per l'injection degli interceptor.
+     * 
+     * @param requestTimingInterceptor interceptor che misura le fasi delle richieste
+     * @param jfrDispatchInterceptor interceptor che registra le richieste in Java Flight Recorder
+     * @param requestOutcomeInterceptor interceptor che segnala le richieste non riuscite
+     */
+    public RequestTimingConfig(
+        RequestTimingInterceptor requestTimingInterceptor, 
+        JfrDispatchInterceptor jfrDispatchInterceptor,
+        RequestOutcomeInterceptor requestOutcomeInterceptor) {
+        this.requestTimingInterceptor = requestTimingInterceptor;
+        this.jfrDispatchInterceptor = jfrDispatchInterceptor;
+        this.requestOutcomeInterceptor = requestOutcomeInterceptor;
+    }
+
+    /**
+     * Registra gli interceptor escludendo gli asset in {@code /vendor/**}.
+     * 
+     * @param registry registro degli interceptor di Spring MVC
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestTimingInterceptor).excludePathPatterns("/vendor/**");
+        registry.addInterceptor(jfrDispatchInterceptor).excludePathPatterns("/vendor/**");
+        registry.addInterceptor(requestOutcomeInterceptor).excludePathPatterns("/vendor/**");
+    }
+}
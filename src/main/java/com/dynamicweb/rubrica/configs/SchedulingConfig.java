@@ -0,0 +1,16 @@
+package com.dynamicweb.rubrica.configs;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configurazione Spring per le attività periodiche in background,
+ * come la pulizia dei contatti eliminati.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
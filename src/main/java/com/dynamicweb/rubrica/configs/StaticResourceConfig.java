@@ -0,0 +1,56 @@
+package com.dynamicweb.rubrica.configs;
+
+import java.util.concurrent.TimeUnit;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+/**
+ * Configurazione Spring per gli asset statici di terze parti (Bootstrap, Font Awesome).
+ *
+ * <p>Gli asset vengono copiati dalla build Maven in {@code static/vendor} insieme
+ * alle varianti precompresse {@code .gz} e {@code .br}. Le URL generate nelle JSP
+ * con {@code <c:url>} vengono riscritte dal {@link ResourceUrlEncodingFilter}
+ * aggiungendo al nome del file l'hash del contenuto; le risposte sono quindi
+ * immutabili e possono essere messe in cache per un anno.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+    /** Durata della cache per gli asset con fingerprint */
+    private static final long CACHE_DAYS = 365;
+
+    /**
+     * Registra l'handler per gli asset in {@code /vendor/**} con fingerprint
+     * sul contenuto, varianti precompresse e header di cache immutabili.
+     *
+     * @param registry registro degli handler per le risorse statiche
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/vendor/**")
+            .addResourceLocations("classpath:/static/vendor/")
+            .setCacheControl(CacheControl.maxAge(CACHE_DAYS, TimeUnit.DAYS).cachePublic().immutable())
+            .resourceChain(true)
+            .addResolver(new EncodedResourceResolver())
+            .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    /**
+     * Filtro che riscrive le URL degli asset con la versione basata sul contenuto.
+     *
+     * @return istanza di ResourceUrlEncodingFilter
+     */
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() {
+        return new ResourceUrlEncodingFilter();
+    }
+}
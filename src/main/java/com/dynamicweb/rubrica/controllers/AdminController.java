@@ -0,0 +1,199 @@
+package com.dynamicweb.rubrica.controllers;
+
+import com.dynamicweb.rubrica.components.RequestTimer;
+import com.dynamicweb.rubrica.components.SlowQueryLog;
+import com.dynamicweb.rubrica.services.AuthService;
+import com.dynamicweb.rubrica.services.FlightRecorderService;
+import jakarta.servlet.http.HttpSession;
+import java.util.Date;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+/**
+ * Controller per le pagine di diagnostica dell'applicazione.
+ * Richiede l'autenticazione come amministratore ma non un database configurato:
+ * le istruzioni registrate riguardano le rubriche di tutti gli utenti.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Controller
+@RequestMapping("/admin")
+public class AdminController {
+
+    private final SlowQueryLog slowQueryLog;
+
+    private final AuthService authService;
+
+    private final FlightRecorderService flightRecorderService;
+
+    /**
+     * Costruttore per l'injection dei servizi necessari.
+     * 
+     * @param slowQueryLog registro delle istruzioni SQL lente
+     * @param authService servizio per la gestione dell'autenticazione
+     * @param flightRecorderService servizio per le registrazioni Java Flight Recorder
+     */
+    public AdminController(
+        SlowQueryLog slowQueryLog, 
+        AuthService authService, 
+        FlightRecorderService flightRecorderService) {
+        this.slowQueryLog = slowQueryLog;
+        this.authService = authService;
+        this.flightRecorderService = flightRecorderService;
+    }
+
+    /**
+     * Verifica che l'utente sia autenticato come amministratore.
+     * 
+     * @param session sessione HTTP per verifica autenticazione
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @return redirect string se il controllo fallisce, null se tutto ok
+     */
+    private String checkAccessPrerequisites(HttpSession session, RedirectAttributes redirectAttributes) {
+        long start = RequestTimer.begin();
+        try {
+            if (!authService.isLoggedIn(session)) {
+                redirectAttributes.addFlashAttribute(
+                    "errorMessage", 
+                    "Devi effettuare il login per accedere alla diagnostica"
+                );
+                return "redirect:/login";
+            }
+            if (!authService.isAdministrator(session)) {
+                redirectAttributes.addFlashAttribute(
+                    "errorMessage", 
+                    "La diagnostica è riservata all'amministratore"
+                );
+                return "redirect:/lista";
+            }
+            return null;
+        } finally {
+            RequestTimer.end(RequestTimer.Phase.AUTH, start);
+        }
+    }
+
+    /**
+     * Mostra le istruzioni SQL che hanno superato la soglia di durata.
+     * 
+     * @param model model per passare le registrazioni alla vista
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return vista "query-lente" se autenticato, altrimenti redirect al login
+     */
+    @GetMapping("/query-lente")
+    public String showSlowQueries(
+        Model model, 
+        RedirectAttributes redirectAttributes, 
+        HttpSession session) {
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+
+        model.addAttribute("slowQueries", slowQueryLog.getEntries());
+        model.addAttribute("thresholdMillis", slowQueryLog.getThresholdMillis());
+        model.addAttribute("totalRecorded", slowQueryLog.getTotalRecorded());
+        return "query-lente";
+    }
+
+    /**
+     * Mostra lo stato della registrazione Java Flight Recorder e le soglie degli eventi.
+     * 
+     * @param model model per passare lo stato alla vista
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return vista "jfr" se autenticato, altrimenti redirect al login
+     */
+    @GetMapping("/jfr")
+    public String showFlightRecorder(
+        Model model, 
+        RedirectAttributes redirectAttributes, 
+        HttpSession session) {
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+
+        model.addAttribute("recording", flightRecorderService.isRecording());
+        if (flightRecorderService.getStartedAt() != null) {
+            model.addAttribute("startedAt", Date.from(flightRecorderService.getStartedAt()));
+        }
+        model.addAttribute("thresholds", flightRecorderService.getThresholdMillis());
+        model.addAttribute("directory", flightRecorderService.getDirectory());
+        return "jfr";
+    }
+
+    /**
+     * Avvia una registrazione Java Flight Recorder.
+     * 
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return redirect alla pagina della registrazione
+     */
+    @PostMapping("/jfr/avvia")
+    public String startRecording(RedirectAttributes redirectAttributes, HttpSession session) {
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+
+        try {
+            flightRecorderService.start();
+            redirectAttributes.addFlashAttribute("successMessage", "Registrazione avviata");
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/admin/jfr";
+    }
+
+    /**
+     * Salva in un file il contenuto della registrazione in corso, senza interromperla.
+     * 
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return redirect alla pagina della registrazione
+     */
+    @PostMapping("/jfr/salva")
+    public String dumpRecording(RedirectAttributes redirectAttributes, HttpSession session) {
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+
+        try {
+            redirectAttributes.addFlashAttribute("successMessage", 
+                "Registrazione salvata in " + flightRecorderService.dump().toAbsolutePath());
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/admin/jfr";
+    }
+
+    /**
+     * Salva in un file il contenuto della registrazione in corso e la termina.
+     * 
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return redirect alla pagina della registrazione
+     */
+    @PostMapping("/jfr/ferma")
+    public String stopRecording(RedirectAttributes redirectAttributes, HttpSession session) {
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+
+        try {
+            redirectAttributes.addFlashAttribute("successMessage", 
+                "Registrazione terminata e salvata in " + flightRecorderService.stop().toAbsolutePath());
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/admin/jfr";
+    }
+}
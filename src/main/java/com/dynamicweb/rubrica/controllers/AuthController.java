@@ -1,5 +1,6 @@
 package com.dynamicweb.rubrica.controllers;
 
+import com.dynamicweb.rubrica.entities.Utente;
 import com.dynamicweb.rubrica.services.AuthService;
 import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
 import jakarta.servlet.http.HttpSession;
@@ -11,7 +12,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 /**
  * Controller per la gestione dell'autenticazione degli utenti.
- * Fornisce endpoint per login e gestione delle sessioni utente.
+ * Fornisce endpoint per login, registrazione e gestione delle sessioni utente.
  *
  * @author Michael Leanza
  * @since 1.0
@@ -90,9 +91,10 @@ public class AuthController {
         }
         
         // Procede con l'autenticazione
-        if (authService.authenticate(username, password)) {
+        Utente utente = authService.authenticate(username, password);
+        if (utente != null) {
             // Imposta l'utente come autenticato nella sessione
-            authService.login(session, username);
+            authService.login(session, utente);
             return "redirect:/lista";
         } else {
             redirectAttributes.addFlashAttribute(
@@ -102,4 +104,52 @@ public class AuthController {
             return "redirect:/login";
         }
     }
+    
+    /**
+     * Mostra la pagina di registrazione solo se il database è configurato.
+     * 
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @return nome della vista JSP per la registrazione o redirect alla configurazione
+     */
+    @GetMapping("/registrazione")
+    public String registrationPage(RedirectAttributes redirectAttributes) {
+        String prerequisiteCheck = checkAccessPrerequisites(redirectAttributes);
+        if (prerequisiteCheck != null) {
+            return prerequisiteCheck;
+        }
+        
+        return "registrazione";
+    }
+    
+    /**
+     * Registra un nuovo utente con una rubrica vuota.
+     * 
+     * @param username nome utente scelto
+     * @param password password scelta
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @return redirect al login se la registrazione è riuscita, altrimenti alla registrazione
+     */
+    @PostMapping("/registrazione")
+    public String processRegistration(
+        @RequestParam String username, 
+        @RequestParam String password,
+        RedirectAttributes redirectAttributes) {
+        String prerequisiteCheck = checkAccessPrerequisites(redirectAttributes);
+        if (prerequisiteCheck != null) {
+            return prerequisiteCheck;
+        }
+        
+        try {
+            authService.register(username, password);
+            redirectAttributes.addFlashAttribute(
+                "successMessage", 
+                "Registrazione completata, ora puoi accedere"
+            );
+            return "redirect:/login";
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+            redirectAttributes.addFlashAttribute("username", username);
+            return "redirect:/registrazione";
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package com.dynamicweb.rubrica.controllers;
+
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.repositories.PersonaCursor;
+import com.dynamicweb.rubrica.services.PersonaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletOutputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Implementazione delle API sulle persone tramite {@link PersonaService} e JdbcTemplate.
+ * Ogni richiesta occupa un thread del server fino al termine della risposta.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "rubrica.persistence", havingValue = "blocking", matchIfMissing = true)
+public class BlockingPersonaApiHandler implements PersonaApiHandler {
+
+    private final PersonaService personaService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Costruttore per l'injection dei servizi necessari.
+     * 
+     * @param personaService servizio per la gestione delle persone
+     * @param objectMapper serializzatore JSON configurato da Spring
+     */
+    public BlockingPersonaApiHandler(PersonaService personaService, ObjectMapper objectMapper) {
+        this.personaService = personaService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ServerResponse page(ServerRequest request) throws Exception {
+        PersonaQuery query = request.bind(PersonaQuery.class);
+        return ServerResponse.ok().body(personaService.getPersonsPage(query));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>Le righe vengono lette dal cursore in streaming e scritte direttamente
+     * sulla risposta, svuotando il buffer ogni {@link #EXPORT_BATCH} righe.</p>
+     */
+    @Override
+    public ServerResponse export(ServerRequest request) {
+        return ServerResponse.ok().contentType(NDJSON).build((servletRequest, servletResponse) -> {
+            ServletOutputStream out = servletResponse.getOutputStream();
+            try (PersonaCursor cursor = personaService.streamAllPersons()) {
+                int count = 0;
+                for (Persona persona : cursor) {
+                    out.write(objectMapper.writeValueAsBytes(persona));
+                    out.write('\n');
+                    if (++count % EXPORT_BATCH == 0) {
+                        out.flush();
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public ServerResponse search(ServerRequest request) {
+        String text = request.param("q").orElse("");
+        return ServerResponse.ok().body(personaService.searchByName(text, PersonaApiHandler.searchLimit(request)));
+    }
+
+    @Override
+    public ServerResponse sync(ServerRequest request) {
+        String token = request.param("token").orElse(null);
+        return ServerResponse.ok().body(personaService.getChangesSince(token, PersonaApiHandler.syncSize(request)));
+    }
+
+    @Override
+    public ServerResponse get(ServerRequest request) {
+        try {
+            return ServerResponse.ok().body(personaService.getPersonById(PersonaApiHandler.pathId(request)));
+        } catch (EmptyResultDataAccessException e) {
+            return ServerResponse.notFound().build();
+        }
+    }
+
+    @Override
+    public ServerResponse create(ServerRequest request) throws Exception {
+        Persona persona = request.body(Persona.class);
+        return personaService.savePerson(persona) 
+            ? ServerResponse.status(HttpStatus.CREATED).build() 
+            : PersonaApiHandler.errorResponse(new IllegalStateException("salvataggio non riuscito"));
+    }
+
+    @Override
+    public ServerResponse update(ServerRequest request) throws Exception {
+        Persona persona = request.body(Persona.class);
+        persona.setId(PersonaApiHandler.pathId(request));
+        return personaService.updatePerson(persona) 
+            ? ServerResponse.noContent().build() 
+            : ServerResponse.notFound().build();
+    }
+
+    @Override
+    public ServerResponse delete(ServerRequest request) {
+        return personaService.deletePerson(PersonaApiHandler.pathId(request)) 
+            ? ServerResponse.noContent().build() 
+            : ServerResponse.notFound().build();
+    }
+}
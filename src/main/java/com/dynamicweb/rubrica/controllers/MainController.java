@@ -1,6 +1,7 @@
 package com.dynamicweb.rubrica.controllers;
 
 import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.dtos.WarmUpReport;
 import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.stereotype.Controller;
@@ -56,7 +57,8 @@ public class MainController {
      * 
      * <p>Riceve un {@link DatabaseProperties} direttamente dal form, valida la
      * configurazione e testa la connettività. Se tutto è corretto, aggiorna
-     * il DataSource e procede al login.</p>
+     * il DataSource e procede al login, mostrando l'esito del riscaldamento
+     * dei pool di connessioni.</p>
      * 
      * @param config oggetto DatabaseProperties popolato automaticamente dal form
      * @param session sessione HTTP (non utilizzata attualmente)
@@ -71,6 +73,10 @@ public class MainController {
         try {
             // Valida e applica la nuova configurazione al DataSource
             databaseConnectionManager.updateDataSource(config);
+            redirectAttributes.addFlashAttribute(
+                "successMessage",
+                describeWarmUp(databaseConnectionManager.getLastWarmUp())
+            );
 
             // Reindirizza al login dopo configurazione completata
             return "redirect:/login";
@@ -83,4 +89,20 @@ public class MainController {
             return "redirect:/index";
         }
     }
+
+    /**
+     * Descrive l'esito del riscaldamento per il messaggio mostrato dopo la configurazione.
+     * 
+     * @param report riepilogo del riscaldamento
+     * @return messaggio per l'utente
+     */
+    private static String describeWarmUp(WarmUpReport report) {
+        if (report == null || report.getShards() == 0) {
+            return "Database configurato";
+        }
+        return String.format(
+            "Database configurato e riscaldato in %d ms: %d shard, %d connessioni, %d statement preparati, %d indici letti, %d errori",
+            report.getDurationMillis(), report.getShards(), report.getConnections(),
+            report.getStatements(), report.getIndexes(), report.getFailures());
+    }
 }
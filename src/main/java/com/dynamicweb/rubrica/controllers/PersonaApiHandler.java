@@ -0,0 +1,198 @@
+package com.dynamicweb.rubrica.controllers;
+
+import com.dynamicweb.rubrica.services.DatabaseUnavailableException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindException;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+/**
+ * Handler delle API JSON sulle persone, esposte come endpoint funzionali in
+ * {@code /api/persone}.
+ * 
+ * <p>Esistono due implementazioni, scelte all'avvio con la proprietà
+ * {@code rubrica.persistence}: {@link BlockingPersonaApiHandler} su JdbcTemplate
+ * e {@link ReactivePersonaApiHandler} su R2DBC. Le risposte sono identiche
+ * nei due casi.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public interface PersonaApiHandler {
+
+    /** Tipo dei contenuti dell'esportazione, un oggetto JSON per riga */
+    MediaType NDJSON = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+
+    /** Numero di righe esportate tra uno svuotamento del buffer e il successivo */
+    int EXPORT_BATCH = 200;
+
+    /** Numero di risultati della ricerca approssimata se non indicato */
+    int DEFAULT_SEARCH_LIMIT = 20;
+
+    /** Numero di modifiche per pagina della sincronizzazione se non indicato */
+    int DEFAULT_SYNC_SIZE = 500;
+
+    /**
+     * Restituisce una pagina di persone secondo i parametri della query string
+     * (gli stessi della pagina /lista).
+     * 
+     * @param request richiesta con i parametri di ordinamento, filtro e paginazione
+     * @return pagina JSON con le persone e il token per la pagina successiva
+     * @throws Exception se i parametri non sono validi o il database non risponde
+     */
+    ServerResponse page(ServerRequest request) throws Exception;
+
+    /**
+     * Esporta tutte le persone in streaming come NDJSON, a blocchi di
+     * {@link #EXPORT_BATCH} righe.
+     * 
+     * @param request richiesta HTTP
+     * @return risposta in streaming
+     */
+    ServerResponse export(ServerRequest request);
+
+    /**
+     * Cerca le persone con nome o cognome simili al parametro {@code q},
+     * tollerando errori di battitura e accenti.
+     * 
+     * @param request richiesta con il testo {@code q} e il numero massimo di risultati {@code limit}
+     * @return le persone trovate in JSON, dalla più simile
+     */
+    ServerResponse search(ServerRequest request);
+
+    /**
+     * Restituisce le modifiche alla rubrica successive al token del client,
+     * in ordine di versione: contatti inseriti o modificati ed ID eliminati.
+     * 
+     * @param request richiesta con il {@code token} della risposta precedente
+     *        (assente per una sincronizzazione completa) e il numero massimo di modifiche {@code size}
+     * @return pagina JSON di modifiche con il token per la richiesta successiva
+     */
+    ServerResponse sync(ServerRequest request);
+
+    /**
+     * Restituisce una persona tramite l'ID nel percorso.
+     * 
+     * @param request richiesta con la variabile {@code id}
+     * @return la persona in JSON, o 404 se non esiste
+     */
+    ServerResponse get(ServerRequest request);
+
+    /**
+     * Inserisce una nuova persona dal corpo JSON della richiesta.
+     * 
+     * @param request richiesta con la persona senza ID
+     * @return 201 se l'inserimento è riuscito
+     * @throws Exception se il corpo non è leggibile o i dati non sono validi
+     */
+    ServerResponse create(ServerRequest request) throws Exception;
+
+    /**
+     * Aggiorna la persona con l'ID nel percorso con i dati del corpo JSON.
+     * 
+     * @param request richiesta con la variabile {@code id} e la persona
+     * @return 204 se l'aggiornamento è riuscito, 404 se la persona non esiste
+     * @throws Exception se il corpo non è leggibile o i dati non sono validi
+     */
+    ServerResponse update(ServerRequest request) throws Exception;
+
+    /**
+     * Elimina la persona con l'ID nel percorso.
+     * 
+     * @param request richiesta con la variabile {@code id}
+     * @return 204 se l'eliminazione è riuscita, 404 se la persona non esiste
+     */
+    ServerResponse delete(ServerRequest request);
+
+    /**
+     * Converte un errore nella risposta JSON corrispondente: 400 per dati non
+     * validi, 503 per database non disponibile, 500 negli altri casi.
+     * 
+     * @param error errore sollevato dall'handler o dal flusso reattivo
+     * @return risposta con il messaggio di errore
+     */
+    static ServerResponse errorResponse(Throwable error) {
+        HttpStatus status;
+        String message;
+        if (error instanceof BindException || error instanceof HttpMessageNotReadableException) {
+            status = HttpStatus.BAD_REQUEST;
+            message = "Parametri della richiesta non validi";
+        } else if (error instanceof IllegalArgumentException) {
+            status = HttpStatus.BAD_REQUEST;
+            message = error.getMessage();
+        } else if (error instanceof DatabaseUnavailableException) {
+            status = HttpStatus.SERVICE_UNAVAILABLE;
+            message = error.getMessage();
+        } else {
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+            message = "Errore di connessione al database: " + error.getMessage();
+        }
+        return ServerResponse.status(status)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Map.of("errore", String.valueOf(message)));
+    }
+
+    /**
+     * Legge il numero massimo di risultati della ricerca dalla query string.
+     * 
+     * @param request richiesta con il parametro opzionale {@code limit}
+     * @return il numero di risultati, {@value #DEFAULT_SEARCH_LIMIT} se assente
+     * @throws IllegalArgumentException se il valore non è numerico
+     */
+    static int searchLimit(ServerRequest request) {
+        return intParam(request, "limit", DEFAULT_SEARCH_LIMIT, "Numero di risultati non valido: ");
+    }
+
+    /**
+     * Legge il numero di modifiche per pagina della sincronizzazione dalla query string.
+     * 
+     * @param request richiesta con il parametro opzionale {@code size}
+     * @return il numero di modifiche, {@value #DEFAULT_SYNC_SIZE} se assente
+     * @throws IllegalArgumentException se il valore non è numerico
+     */
+    static int syncSize(ServerRequest request) {
+        return intParam(request, "size", DEFAULT_SYNC_SIZE, "Dimensione pagina non valida: ");
+    }
+
+    /**
+     * Legge un parametro intero opzionale dalla query string.
+     * 
+     * @param request richiesta HTTP
+     * @param name nome del parametro
+     * @param defaultValue valore se il parametro è assente
+     * @param error messaggio di errore, seguito dal valore ricevuto
+     * @return il valore del parametro
+     * @throws IllegalArgumentException se il valore non è numerico
+     */
+    private static int intParam(ServerRequest request, String name, int defaultValue, String error) {
+        String value = request.param(name).orElse(null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(error + value);
+        }
+    }
+
+    /**
+     * Legge l'ID della persona dal percorso della richiesta.
+     * 
+     * @param request richiesta con la variabile {@code id}
+     * @return l'ID della persona
+     * @throws IllegalArgumentException se l'ID non è numerico
+     */
+    static Long pathId(ServerRequest request) {
+        String id = request.pathVariable("id");
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("ID persona non valido: " + id);
+        }
+    }
+}
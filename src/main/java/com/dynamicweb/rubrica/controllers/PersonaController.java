@@ -1,16 +1,27 @@
 package com.dynamicweb.rubrica.controllers;
 
+import com.dynamicweb.rubrica.components.RequestTimer;
+import com.dynamicweb.rubrica.dtos.PersonaPage;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
 import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.repositories.PersonaCursor;
 import com.dynamicweb.rubrica.services.PersonaService;
+import com.dynamicweb.rubrica.services.PurgeService;
 import com.dynamicweb.rubrica.services.AuthService;
 import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
+import com.dynamicweb.rubrica.services.DatabaseUnavailableException;
 import jakarta.servlet.http.HttpSession;
+import java.util.List;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 /**
@@ -30,20 +41,25 @@ public class PersonaController {
     
     private final AuthService authService;
 
+    private final PurgeService purgeService;
+
     /**
      * Costruttore per l'injection dei servizi necessari.
      * 
      * @param personaService servizio per operazioni CRUD sulle persone
      * @param databaseConnectionManager servizio per verificare la configurazione database
      * @param authService servizio per la gestione dell'autenticazione
+     * @param purgeService servizio di pulizia, per la finestra di annullamento delle eliminazioni
      */
     public PersonaController(
         PersonaService personaService, 
         DatabaseConnectionManager databaseConnectionManager, 
-        AuthService authService) {
+        AuthService authService, 
+        PurgeService purgeService) {
         this.personaService = personaService;
         this.databaseConnectionManager = databaseConnectionManager;
         this.authService = authService;
+        this.purgeService = purgeService;
     }
     
     /**
@@ -55,25 +71,30 @@ public class PersonaController {
      * @return redirect string se controlli falliscono, null se tutto ok
      */
     private String checkAccessPrerequisites(HttpSession session, RedirectAttributes redirectAttributes) {
-        // Verifica che il database sia configurato
-        if (!databaseConnectionManager.isDatabaseConfigured()) {
-            redirectAttributes.addFlashAttribute(
-                "errorMessage", 
-                "Database non configurato. Configura prima la connessione al database."
-            );
-            return "redirect:/index";
-        }
+        long start = RequestTimer.begin();
+        try {
+            // Verifica che il database sia configurato
+            if (!databaseConnectionManager.isDatabaseConfigured()) {
+                redirectAttributes.addFlashAttribute(
+                    "errorMessage", 
+                    "Database non configurato. Configura prima la connessione al database."
+                );
+                return "redirect:/index";
+            }
 
-        // Verifica autenticazione - OBBLIGATORIA per accedere alle funzionalità
-        if (!authService.isLoggedIn(session)) {
-            redirectAttributes.addFlashAttribute(
-                "errorMessage", 
-                "Devi effettuare il login per accedere alla lista persone"
-            );
-            return "redirect:/login";
-        }
+            // Verifica autenticazione - OBBLIGATORIA per accedere alle funzionalità
+            if (!authService.isLoggedIn(session)) {
+                redirectAttributes.addFlashAttribute(
+                    "errorMessage", 
+                    "Devi effettuare il login per accedere alla lista persone"
+                );
+                return "redirect:/login";
+            }
         
-        return null; // Tutti i controlli superati
+            return null; // Tutti i controlli superati
+        } finally {
+            RequestTimer.end(RequestTimer.Phase.AUTH, start);
+        }
     }
     
     /**
@@ -82,6 +103,13 @@ public class PersonaController {
      * <p>Richiede database configurato e autenticazione obbligatoria. 
      * Se i prerequisiti non sono soddisfatti, reindirizza alla configurazione o login.</p>
      * 
+     * <p>Ordinamento, filtri e paginazione vengono eseguiti dal database secondo i
+     * parametri di {@link PersonaQuery}; valori non ammessi riportano alla lista
+     * senza parametri con un messaggio di errore. Nell'ordine alfabetico senza
+     * filtri la vista riceve anche le schede A-Z con la posizione di ogni iniziale.</p>
+     * 
+     * @param query parametri di ordinamento, filtro e paginazione dalla richiesta
+     * @param bindingResult esito della conversione dei parametri
      * @param model model per passare dati alla vista
      * @param redirectAttributes attributi per messaggi flash tra redirect
      * @param session sessione HTTP per verifica autenticazione
@@ -89,6 +117,8 @@ public class PersonaController {
      */
     @GetMapping("/lista")
     public String listPersons(
+        @ModelAttribute("query") PersonaQuery query, 
+        BindingResult bindingResult, 
         Model model, 
         RedirectAttributes redirectAttributes, 
         HttpSession session) {
@@ -98,9 +128,108 @@ public class PersonaController {
             return accessCheck;
         }
         
+        if (bindingResult.hasErrors()) {
+            redirectAttributes.addFlashAttribute(
+                "errorMessage", 
+                "Parametri di ricerca non validi"
+            );
+            return "redirect:/lista";
+        }
+        
+        try {
+            PersonaPage page = personaService.getPersonsPage(query);
+            model.addAttribute("listPerson", page.getItems());
+            model.addAttribute("nextCursor", page.getNextCursor());
+            model.addAttribute("letterJumps", personaService.getLetterJumps(query));
+            model.addAttribute("sortKeys", PersonaQuery.SortKey.values());
+            return "lista";
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+            return "redirect:/lista";
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute(
+                "errorMessage", 
+                "Errore di connessione al database: " + e.getMessage()
+            );
+            return "redirect:/index";
+        }
+    }
+
+    /**
+     * Mostra i contatti con nome o cognome simili al testo cercato.
+     *
+     * <p>La ricerca tollera errori di battitura e accenti mancanti; i risultati
+     * sono ordinati dal più simile e non sono paginati.</p>
+     *
+     * @param q una o più parole da cercare tra nomi e cognomi
+     * @param model model per passare i risultati alla vista
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return vista "lista" con i risultati, altrimenti redirect appropriato
+     */
+    @GetMapping("/cerca")
+    public String searchPersons(
+        @RequestParam(required = false) String q,
+        Model model,
+        RedirectAttributes redirectAttributes,
+        HttpSession session) {
+        // Verifica prerequisiti di accesso
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+
         try {
-            model.addAttribute("listPerson", personaService.getAllPersons());
+            model.addAttribute("listPerson",
+                personaService.searchByName(q, PersonaApiHandler.DEFAULT_SEARCH_LIMIT));
+            model.addAttribute("query", new PersonaQuery());
+            model.addAttribute("sortKeys", PersonaQuery.SortKey.values());
+            model.addAttribute("searchText", q);
             return "lista";
+        } catch (IllegalArgumentException | DatabaseUnavailableException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+            return "redirect:/lista";
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute(
+                "errorMessage",
+                "Errore di connessione al database: " + e.getMessage()
+            );
+            return "redirect:/index";
+        }
+    }
+
+    /**
+     * Mostra la versione stampabile di tutti i contatti in streaming.
+     * 
+     * <p>Il modello contiene un cursore lazy sul database invece di una lista
+     * materializzata: la vista scrive le righe man mano che vengono lette e svuota
+     * il buffer a blocchi, quindi il tempo al primo byte e la memoria non crescono
+     * con la dimensione della tabella. Il cursore viene chiuso al termine della
+     * richiesta, dopo il rendering della vista.</p>
+     * 
+     * @param model model per passare il cursore alla vista
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return vista "stampa" se autenticato, altrimenti redirect appropriato
+     */
+    @GetMapping("/stampa")
+    public String printPersons(
+        Model model, 
+        RedirectAttributes redirectAttributes, 
+        HttpSession session) {
+        // Verifica prerequisiti di accesso
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+        
+        try {
+            PersonaCursor cursor = personaService.streamAllPersons();
+            // Chiude il cursore al completamento della richiesta
+            RequestContextHolder.currentRequestAttributes().registerDestructionCallback(
+                "personCursor", cursor::close, RequestAttributes.SCOPE_REQUEST);
+            model.addAttribute("personCursor", cursor);
+            return "stampa";
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute(
                 "errorMessage", 
@@ -265,6 +394,7 @@ public class PersonaController {
                     "successMessage", 
                     "Persona eliminata con successo!"
                 );
+                addUndo(redirectAttributes, List.of(id));
             } else {
                 redirectAttributes.addFlashAttribute(
                     "errorMessage", 
@@ -279,4 +409,142 @@ public class PersonaController {
         }
         return "redirect:/lista";
     }
+
+    /**
+     * Elimina le persone selezionate nella lista con un'unica richiesta.
+     * Richiede database configurato e autenticazione valida.
+     * 
+     * @param ids ID delle persone selezionate (assenti se nessuna selezione)
+     * @param session sessione HTTP per verifica autenticazione
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @return redirect a /lista con messaggio di esito o redirect se prerequisiti non soddisfatti
+     */
+    @PostMapping("/elimina")
+    public String deletePersons(
+        @RequestParam(name = "ids", required = false) List<Long> ids, 
+        HttpSession session, 
+        RedirectAttributes redirectAttributes) {
+        // Verifica prerequisiti di accesso
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+        
+        try {
+            int deleted = personaService.deletePersons(ids);
+            redirectAttributes.addFlashAttribute(
+                "successMessage", 
+                "Persone eliminate con successo: " + deleted
+            );
+            if (deleted > 0) {
+                addUndo(redirectAttributes, ids);
+            }
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute(
+                "errorMessage", 
+                "Errore di connessione durante l'eliminazione: " + e.getMessage()
+            );
+        }
+        return "redirect:/lista";
+    }
+
+    /**
+     * Annulla l'eliminazione delle persone indicate, se non ancora rimosse
+     * definitivamente dalla pulizia periodica.
+     * Richiede database configurato e autenticazione valida.
+     * 
+     * @param ids ID delle persone da ripristinare
+     * @param session sessione HTTP per verifica autenticazione
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @return redirect a /lista con messaggio di esito o redirect se prerequisiti non soddisfatti
+     */
+    @PostMapping("/ripristina")
+    public String restorePersons(
+        @RequestParam(name = "ids", required = false) List<Long> ids, 
+        HttpSession session, 
+        RedirectAttributes redirectAttributes) {
+        // Verifica prerequisiti di accesso
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+        
+        try {
+            int restored = personaService.restorePersons(ids);
+            if (restored > 0) {
+                redirectAttributes.addFlashAttribute(
+                    "successMessage", 
+                    "Persone ripristinate con successo: " + restored
+                );
+            } else {
+                redirectAttributes.addFlashAttribute(
+                    "errorMessage", 
+                    "Le persone selezionate non sono più ripristinabili"
+                );
+            }
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute(
+                "errorMessage", 
+                "Errore di connessione durante il ripristino: " + e.getMessage()
+            );
+        }
+        return "redirect:/lista";
+    }
+
+    /**
+     * Imposta lo stesso valore di un campo sulle persone selezionate nella lista.
+     * Richiede database configurato e autenticazione valida.
+     * 
+     * @param ids ID delle persone selezionate (assenti se nessuna selezione)
+     * @param field nome del campo da aggiornare
+     * @param value nuovo valore del campo
+     * @param session sessione HTTP per verifica autenticazione
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @return redirect a /lista con messaggio di esito o redirect se prerequisiti non soddisfatti
+     */
+    @PostMapping("/aggiorna")
+    public String updatePersons(
+        @RequestParam(name = "ids", required = false) List<Long> ids, 
+        @RequestParam String field, 
+        @RequestParam(required = false) String value, 
+        HttpSession session, 
+        RedirectAttributes redirectAttributes) {
+        // Verifica prerequisiti di accesso
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+        
+        try {
+            int updated = personaService.updateFieldForPersons(ids, field, value);
+            redirectAttributes.addFlashAttribute(
+                "successMessage", 
+                "Persone aggiornate con successo: " + updated
+            );
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute(
+                "errorMessage", 
+                "Errore di connessione durante l'aggiornamento: " + e.getMessage()
+            );
+        }
+        return "redirect:/lista";
+    }
+
+    /**
+     * Aggiunge ai messaggi flash gli ID eliminati e la durata della finestra
+     * di annullamento, mostrati dalla lista con il pulsante "Annulla".
+     * 
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param ids ID delle persone appena eliminate
+     */
+    private void addUndo(RedirectAttributes redirectAttributes, List<Long> ids) {
+        redirectAttributes.addFlashAttribute("undoIds", ids);
+        redirectAttributes.addFlashAttribute("undoMinutes", Math.max(1, purgeService.getUndoWindow().toMinutes()));
+    }
 }
@@ -0,0 +1,142 @@
+package com.dynamicweb.rubrica.controllers;
+
+import com.dynamicweb.rubrica.configs.PersonaApiConfig;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.services.ReactivePersonaService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Implementazione delle API sulle persone tramite {@link ReactivePersonaService} e R2DBC.
+ * 
+ * <p>Le risposte vengono restituite come {@link Mono} e {@link Flux}: la richiesta
+ * passa in modalità asincrona e il thread del server viene rilasciato durante
+ * l'accesso al database. L'esportazione richiede al database un blocco di righe
+ * alla volta e non chiede il successivo finché il precedente non è stato scritto
+ * sulla risposta, quindi un client lento non fa crescere la memoria occupata.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "rubrica.persistence", havingValue = "reactive")
+@ConditionalOnClass(name = PersonaApiConfig.R2DBC_CLASS)
+public class ReactivePersonaApiHandler implements PersonaApiHandler {
+
+    private final ReactivePersonaService personaService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Costruttore per l'injection dei servizi necessari.
+     * 
+     * @param personaService servizio reattivo per la gestione delle persone
+     * @param objectMapper serializzatore JSON configurato da Spring
+     */
+    public ReactivePersonaApiHandler(ReactivePersonaService personaService, ObjectMapper objectMapper) {
+        this.personaService = personaService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ServerResponse page(ServerRequest request) throws Exception {
+        PersonaQuery query = request.bind(PersonaQuery.class);
+        return respond(personaService.getPersonsPage(query)
+            .map(page -> ServerResponse.ok().body(page)));
+    }
+
+    @Override
+    public ServerResponse export(ServerRequest request) {
+        Flux<String> lines = personaService.streamAllPersons()
+            .map(this::toJsonLine)
+            .buffer(EXPORT_BATCH)
+            .map(batch -> String.join("", batch));
+        return ServerResponse.ok()
+            .contentType(NDJSON)
+            .body(lines, new ParameterizedTypeReference<Flux<String>>() {});
+    }
+
+    @Override
+    public ServerResponse search(ServerRequest request) {
+        String text = request.param("q").orElse("");
+        return respond(Mono.defer(() -> personaService.searchByName(text, PersonaApiHandler.searchLimit(request))
+            .collectList()
+            .map(found -> ServerResponse.ok().body(found))));
+    }
+
+    @Override
+    public ServerResponse sync(ServerRequest request) {
+        String token = request.param("token").orElse(null);
+        return respond(Mono.defer(() -> personaService.getChangesSince(token, PersonaApiHandler.syncSize(request))
+            .map(page -> ServerResponse.ok().body(page))));
+    }
+
+    @Override
+    public ServerResponse get(ServerRequest request) {
+        return respond(personaService.getPersonById(PersonaApiHandler.pathId(request))
+            .map(persona -> ServerResponse.ok().body(persona))
+            .defaultIfEmpty(ServerResponse.notFound().build()));
+    }
+
+    @Override
+    public ServerResponse create(ServerRequest request) throws Exception {
+        Persona persona = request.body(Persona.class);
+        return respond(personaService.savePerson(persona)
+            .map(saved -> saved 
+                ? ServerResponse.status(HttpStatus.CREATED).build() 
+                : PersonaApiHandler.errorResponse(new IllegalStateException("salvataggio non riuscito"))));
+    }
+
+    @Override
+    public ServerResponse update(ServerRequest request) throws Exception {
+        Persona persona = request.body(Persona.class);
+        persona.setId(PersonaApiHandler.pathId(request));
+        return respond(personaService.updatePerson(persona)
+            .map(updated -> updated 
+                ? ServerResponse.noContent().build() 
+                : ServerResponse.notFound().build()));
+    }
+
+    @Override
+    public ServerResponse delete(ServerRequest request) {
+        return respond(personaService.deletePerson(PersonaApiHandler.pathId(request))
+            .map(deleted -> deleted 
+                ? ServerResponse.noContent().build() 
+                : ServerResponse.notFound().build()));
+    }
+
+    /**
+     * Crea una risposta asincrona, convertendo gli errori del flusso nella
+     * risposta di errore comune alle due implementazioni.
+     * 
+     * @param response risposta prodotta dal flusso reattivo
+     * @return risposta asincrona
+     */
+    private static ServerResponse respond(Mono<ServerResponse> response) {
+        return ServerResponse.async(response.onErrorResume(error -> Mono.just(PersonaApiHandler.errorResponse(error))));
+    }
+
+    /**
+     * Serializza una persona come riga NDJSON.
+     * 
+     * @param persona la persona da serializzare
+     * @return oggetto JSON terminato da un a capo
+     */
+    private String toJsonLine(Persona persona) {
+        try {
+            return objectMapper.writeValueAsString(persona) + "\n";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Serializzazione della persona non riuscita", e);
+        }
+    }
+}
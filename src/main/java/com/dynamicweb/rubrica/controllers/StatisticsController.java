@@ -0,0 +1,100 @@
+package com.dynamicweb.rubrica.controllers;
+
+import com.dynamicweb.rubrica.components.RequestTimer;
+import com.dynamicweb.rubrica.services.AuthService;
+import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
+import com.dynamicweb.rubrica.services.StatisticsService;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+/**
+ * Controller per la pagina delle statistiche della rubrica.
+ * Le statistiche vengono lette dai contatori in memoria, senza accedere al database.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Controller
+public class StatisticsController {
+
+    private final StatisticsService statisticsService;
+
+    private final DatabaseConnectionManager databaseConnectionManager;
+
+    private final AuthService authService;
+
+    /**
+     * Costruttore per l'injection dei servizi necessari.
+     * 
+     * @param statisticsService servizio che mantiene le statistiche
+     * @param databaseConnectionManager servizio per verificare la configurazione database
+     * @param authService servizio per la gestione dell'autenticazione
+     */
+    public StatisticsController(
+        StatisticsService statisticsService, 
+        DatabaseConnectionManager databaseConnectionManager, 
+        AuthService authService) {
+        this.statisticsService = statisticsService;
+        this.databaseConnectionManager = databaseConnectionManager;
+        this.authService = authService;
+    }
+
+    /**
+     * Verifica i prerequisiti per l'accesso alle statistiche.
+     * Controlla che il database sia configurato e l'utente sia autenticato.
+     * 
+     * @param session sessione HTTP per verifica autenticazione
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @return redirect string se controlli falliscono, null se tutto ok
+     */
+    private String checkAccessPrerequisites(HttpSession session, RedirectAttributes redirectAttributes) {
+        long start = RequestTimer.begin();
+        try {
+            if (!databaseConnectionManager.isDatabaseConfigured()) {
+                redirectAttributes.addFlashAttribute(
+                    "errorMessage", 
+                    "Database non configurato. Configura prima la connessione al database."
+                );
+                return "redirect:/index";
+            }
+
+            if (!authService.isLoggedIn(session)) {
+                redirectAttributes.addFlashAttribute(
+                    "errorMessage", 
+                    "Devi effettuare il login per accedere alle statistiche"
+                );
+                return "redirect:/login";
+            }
+
+            return null;
+        } finally {
+            RequestTimer.end(RequestTimer.Phase.AUTH, start);
+        }
+    }
+
+    /**
+     * Mostra le statistiche della rubrica.
+     * 
+     * @param model model per passare le statistiche alla vista
+     * @param redirectAttributes attributi per messaggi flash tra redirect
+     * @param session sessione HTTP per verifica autenticazione
+     * @return vista "statistiche" se autenticato, altrimenti redirect appropriato
+     */
+    @GetMapping("/statistiche")
+    public String showStatistics(
+        Model model, 
+        RedirectAttributes redirectAttributes, 
+        HttpSession session) {
+        String accessCheck = checkAccessPrerequisites(session, redirectAttributes);
+        if (accessCheck != null) {
+            return accessCheck;
+        }
+
+        model.addAttribute("stats", statisticsService.getStatistics(authService.getCurrentUserId()));
+        model.addAttribute("statsReady", statisticsService.isReady());
+        return "statistiche";
+    }
+}
@@ -0,0 +1,44 @@
+package com.dynamicweb.rubrica.dtos;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO con una voce del registro di audit: chi ha modificato quale contatto e quando.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class AuditRecord {
+
+    /**
+     * Tipo di modifica registrata.
+     */
+    public enum Operation {
+        INSERIMENTO,
+        MODIFICA,
+        ELIMINAZIONE
+    }
+
+    /** Istante del commit della modifica */
+    private Instant timestamp;
+
+    /** Utente autenticato che ha richiesto la modifica, null se sconosciuto */
+    private String username;
+
+    /** Tipo di modifica */
+    private Operation operation;
+
+    /** ID del contatto modificato */
+    private Long personaId;
+
+    /** Dati del contatto prima della modifica, null per un inserimento */
+    private Persona before;
+
+    /** Dati del contatto dopo la modifica, null per un'eliminazione */
+    private Persona after;
+}
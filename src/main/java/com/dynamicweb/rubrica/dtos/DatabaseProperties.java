@@ -4,6 +4,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
 
@@ -12,6 +14,14 @@ import org.springframework.jdbc.datasource.DriverManagerDataSource;
  * Contiene i parametri necessari per stabilire una connessione al database
  * e fornisce metodi per validazione e test della connettività.
  * 
+ * <p>Oltre a MySQL supporta un motore embedded H2 in modalità di compatibilità
+ * MySQL, in memoria o su file, selezionabile tramite {@link Mode}. In modalità
+ * embedded host e porta vengono ignorati.</p>
+ * 
+ * <p>Può descrivere più database (shard) tra cui vengono distribuiti i contatti:
+ * il database indicato da host, porta e nome è il primo shard, gli altri sono
+ * elencati in {@link #shards} e condividono motore e credenziali.</p>
+ * 
  * <p>Include validazione per hostname/IP, porta, nome database, username e password
  * secondo le regole di MySQL. Supporta campi opzionali nullable come età e indirizzo.</p>
  * 
@@ -30,6 +40,53 @@ public class DatabaseProperties {
      * Driver JDBC per MySQL - costante centralizzata utilizzata in tutta l'applicazione.
      */
     public static final String MYSQL_DRIVER_CLASS = "com.mysql.cj.jdbc.Driver";
+
+    /** 
+     * Driver JDBC per il database embedded H2.
+     */
+    public static final String H2_DRIVER_CLASS = "org.h2.Driver";
+
+    /** 
+     * Directory in cui vengono creati i file del database embedded su file.
+     */
+    public static final String EMBEDDED_DATA_DIR = "./data";
+
+    /** 
+     * Timeout di apertura della connessione TCP verso MySQL, in millisecondi.
+     */
+    public static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    /** 
+     * Timeout di lettura sul socket verso MySQL, in millisecondi. Ultima difesa
+     * contro un server bloccato: deve superare i timeout delle query.
+     */
+    public static final int SOCKET_TIMEOUT_MILLIS = 120000;
+
+    /** 
+     * Numero di statement preparati conservati nella cache di ogni connessione.
+     */
+    public static final int PREPARED_STATEMENT_CACHE_SIZE = 256;
+
+    /** 
+     * Lunghezza massima del testo SQL degli statement conservati in cache da MySQL,
+     * sufficiente per i blocchi IN (...) delle operazioni massive.
+     */
+    public static final int PREPARED_STATEMENT_CACHE_SQL_LIMIT = 4096;
+
+    /**
+     * Motore di database da utilizzare.
+     */
+    public enum Mode {
+        /** Server MySQL esterno */
+        MYSQL,
+        /** Database H2 embedded in memoria, perso alla chiusura dell'applicazione */
+        H2_MEMORY,
+        /** Database H2 embedded persistito su file in {@link #EMBEDDED_DATA_DIR} */
+        H2_FILE
+    }
+
+    /** Motore di database (default: MYSQL) */
+    private Mode mode = Mode.MYSQL;
     
     /** Hostname o indirizzo IP del server MySQL */
     private String host;
@@ -46,6 +103,71 @@ public class DatabaseProperties {
     /** Password per la connessione al database */
     private String password;
 
+    /**
+     * Shard aggiuntivi separati da virgola, nel formato {@code [host[:porta]/]database}.
+     * Host e porta omessi sono quelli del primo shard; vuoto per un solo database.
+     */
+    private String shards;
+
+    /** 
+     * Cache degli statement preparati in ogni connessione (default: attiva).
+     * Per MySQL corrisponde a {@code cachePrepStmts}, per H2 a {@code QUERY_CACHE_SIZE}.
+     */
+    private boolean cachePrepStmts = true;
+
+    /** 
+     * Preparazione degli statement sul server MySQL invece che nel driver
+     * (default: attiva); ignorata dal database embedded.
+     */
+    private boolean useServerPrepStmts = true;
+
+    /**
+     * Restituisce la configurazione di ciascuno shard, a partire dal primo
+     * (questa configurazione senza shard aggiuntivi).
+     * 
+     * <p>L'ordine è significativo: la posizione nella lista è il numero dello
+     * shard usato per distribuire i contatti, quindi non deve cambiare una volta
+     * che il database contiene dati.</p>
+     * 
+     * @return configurazioni degli shard, almeno una
+     * @throws IllegalArgumentException se una voce di {@link #shards} non è nel formato previsto
+     */
+    public List<DatabaseProperties> buildShardProperties() {
+        List<DatabaseProperties> result = new ArrayList<>();
+        result.add(new DatabaseProperties(
+            mode, host, port, dbName, username, password, null, cachePrepStmts, useServerPrepStmts));
+        if (shards == null || shards.isBlank()) {
+            return result;
+        }
+
+        for (String spec : shards.split(",")) {
+            spec = spec.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            String shardHost = host;
+            int shardPort = port;
+            String shardDbName = spec;
+            int slash = spec.indexOf('/');
+            if (slash >= 0) {
+                String address = spec.substring(0, slash);
+                shardDbName = spec.substring(slash + 1);
+                int colon = address.lastIndexOf(':');
+                shardHost = colon >= 0 ? address.substring(0, colon) : address;
+                if (colon >= 0) {
+                    try {
+                        shardPort = Integer.parseInt(address.substring(colon + 1));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Porta dello shard non valida: " + spec);
+                    }
+                }
+            }
+            result.add(new DatabaseProperties(
+                mode, shardHost, shardPort, shardDbName, username, password, null, cachePrepStmts, useServerPrepStmts));
+        }
+        return result;
+    }
+
     /**
      * Costruisce l'URL JDBC completo per la connessione MySQL.
      * 
@@ -55,17 +177,81 @@ public class DatabaseProperties {
      * <p>Include parametri ottimizzati per MySQL 8.0:
      * - useSSL=false per connessioni locali
      * - allowPublicKeyRetrieval=true per autenticazione
-     * - serverTimezone=UTC per gestione fuso orario</p>
+     * - serverTimezone=UTC per gestione fuso orario
+     * - rewriteBatchedStatements=true per inviare gli inserimenti batch come
+     *   un'unica istruzione multi-riga
+     * - cachePrepStmts e useServerPrepStmts secondo la configurazione, con
+     *   dimensione della cache {@value #PREPARED_STATEMENT_CACHE_SIZE}</p>
      * 
-     * @return URL JDBC formattato per MySQL
+     * <p>In modalità embedded genera un URL H2 con compatibilità MySQL
+     * e identificatori minuscoli, in memoria o su file; con la cache degli
+     * statement attiva la cache dei comandi di ogni sessione viene portata a
+     * {@value #PREPARED_STATEMENT_CACHE_SIZE} istruzioni.</p>
+     * 
+     * @return URL JDBC formattato per il motore configurato
      */
     public String buildJdbcUrl() {
-        return String.format(
-            "jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC", 
-            host, 
-            port, 
-            dbName
-        );
+        return switch (getModeOrDefault()) {
+            case H2_MEMORY -> String.format(
+                "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1%s", 
+                dbName,
+                h2QueryCache()
+            );
+            case H2_FILE -> String.format(
+                "jdbc:h2:file:%s/%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE%s", 
+                EMBEDDED_DATA_DIR, 
+                dbName,
+                h2QueryCache()
+            );
+            case MYSQL -> String.format(
+                "jdbc:mysql://%s:%d/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC"
+                    + "&rewriteBatchedStatements=true&connectTimeout=%d&socketTimeout=%d"
+                    + "&cachePrepStmts=%b&useServerPrepStmts=%b&prepStmtCacheSize=%d&prepStmtCacheSqlLimit=%d", 
+                host, 
+                port, 
+                dbName,
+                CONNECT_TIMEOUT_MILLIS,
+                SOCKET_TIMEOUT_MILLIS,
+                cachePrepStmts,
+                useServerPrepStmts,
+                PREPARED_STATEMENT_CACHE_SIZE,
+                PREPARED_STATEMENT_CACHE_SQL_LIMIT
+            );
+        };
+    }
+
+    /**
+     * Impostazione della cache dei comandi H2, vuota per lasciare quella predefinita.
+     */
+    private String h2QueryCache() {
+        return cachePrepStmts ? ";QUERY_CACHE_SIZE=" + PREPARED_STATEMENT_CACHE_SIZE : "";
+    }
+
+    /**
+     * Restituisce la classe del driver JDBC per il motore configurato.
+     * 
+     * @return nome completo della classe driver
+     */
+    public String getDriverClassName() {
+        return isEmbedded() ? H2_DRIVER_CLASS : MYSQL_DRIVER_CLASS;
+    }
+
+    /**
+     * Indica se la configurazione usa il database embedded H2.
+     * 
+     * @return true per le modalità H2_MEMORY e H2_FILE
+     */
+    public boolean isEmbedded() {
+        return getModeOrDefault() != Mode.MYSQL;
+    }
+
+    /**
+     * Restituisce la modalità configurata, MYSQL se non impostata dal form.
+     * 
+     * @return modalità del database
+     */
+    private Mode getModeOrDefault() {
+        return mode != null ? mode : Mode.MYSQL;
     }
 
     /**
@@ -112,23 +298,19 @@ public class DatabaseProperties {
      * <p>Supporta configurazioni per database con campi nullable come
      * età e indirizzo nella tabella lista_contatti.</p>
      * 
+     * <p>In modalità embedded host e porta non vengono validati. Gli shard
+     * aggiuntivi vengono validati con le stesse regole.</p>
+     * 
      * @throws IllegalArgumentException se uno o più parametri non sono validi
      */
     public void validateConfiguration() {
-        // Host (hostname/IP)
-        String hostPattern = "^(?:(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?\\.)*)?" +
-                "[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?$|" +
-                "^(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}" +
-                "(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$";
-        validateFieldFormat(
-            host, 
-            "Host", 
-            255, 
-            hostPattern);
+        List<DatabaseProperties> shardProperties = buildShardProperties();
+        for (DatabaseProperties shard : shardProperties.subList(1, shardProperties.size())) {
+            shard.validateConfiguration();
+        }
 
-        // Porta (solo controllo range)
-        if (port < 1 || port > 65535) {
-            throw new IllegalArgumentException("Porta non valida: " + port);
+        if (!isEmbedded()) {
+            validateServerAddress();
         }
 
         // Nome database
@@ -151,6 +333,29 @@ public class DatabaseProperties {
         if (password.length() > 128) {
             throw new IllegalArgumentException("Password troppo lunga: massimo 128 caratteri");
         }
+    }
+
+    /**
+     * Valida host e porta del server MySQL.
+     * 
+     * @throws IllegalArgumentException se host o porta non sono validi
+     */
+    private void validateServerAddress() {
+        // Host (hostname/IP)
+        String hostPattern = "^(?:(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?\\.)*)?" +
+                "[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?$|" +
+                "^(?:(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}" +
+                "(?:25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$";
+        validateFieldFormat(
+            host, 
+            "Host", 
+            255, 
+            hostPattern);
+
+        // Porta (solo controllo range)
+        if (port < 1 || port > 65535) {
+            throw new IllegalArgumentException("Porta non valida: " + port);
+        }
     }    
     
     /**
@@ -168,7 +373,7 @@ public class DatabaseProperties {
     public void testConnection() {    
         try {
             DriverManagerDataSource testDataSource = new DriverManagerDataSource();
-            testDataSource.setDriverClassName(MYSQL_DRIVER_CLASS);
+            testDataSource.setDriverClassName(getDriverClassName());
             testDataSource.setUrl(buildJdbcUrl());
             testDataSource.setUsername(getUsername());
             testDataSource.setPassword(getPassword());
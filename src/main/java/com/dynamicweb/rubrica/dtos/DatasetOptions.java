@@ -0,0 +1,49 @@
+package com.dynamicweb.rubrica.dtos;
+
+import java.nio.file.Path;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO con i parametri di una generazione di contatti sintetici.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class DatasetOptions {
+
+    /**
+     * Destinazione dei contatti generati.
+     */
+    public enum Target {
+        /** Inserimento a blocchi nel database configurato */
+        DATABASE,
+        /** File CSV con intestazione, separatore virgola */
+        CSV,
+        /** File con un oggetto JSON per riga, nel formato dell'esportazione */
+        NDJSON
+    }
+
+    /** Numero di contatti da generare */
+    private long count;
+
+    /** Seme della generazione: a parità di seme e numero i contatti sono identici */
+    private long seed;
+
+    /** Frazione di contatti che ripetono una persona già generata (0-1) */
+    private double duplicateRate;
+
+    /** Destinazione dei contatti */
+    private Target target;
+
+    /** File di destinazione per CSV e NDJSON */
+    private Path output;
+
+    /** Thread di generazione e inserimento */
+    private int threads;
+
+    /** ID dell'utente proprietario dei contatti inseriti nel database */
+    private Long ownerId;
+}
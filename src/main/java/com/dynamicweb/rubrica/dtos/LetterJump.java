@@ -0,0 +1,25 @@
+package com.dynamicweb.rubrica.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO con la posizione di una lettera iniziale nella lista dei contatti
+ * ordinata per cognome, per le schede A-Z della lista.
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class LetterJump {
+
+    /** Lettera iniziale del cognome, maiuscola */
+    private String letter;
+
+    /** Numero di contatti che precedono il primo con questa iniziale */
+    private int offset;
+
+    /** Numero di contatti con questa iniziale, comprese le lettere accentate */
+    private int count;
+}
@@ -0,0 +1,27 @@
+package com.dynamicweb.rubrica.dtos;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO con la modifica di un contatto letta per la sincronizzazione: la
+ * versione che l'ha prodotta e i dati correnti, o nessun dato se il
+ * contatto è stato eliminato.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class PersonaChange {
+
+    /** Versione della modifica, crescente nel tempo */
+    private long versione;
+
+    /** ID del contatto modificato */
+    private long id;
+
+    /** Dati correnti del contatto, null se è stato eliminato */
+    private Persona persona;
+}
@@ -0,0 +1,23 @@
+package com.dynamicweb.rubrica.dtos;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO per una pagina di persone ottenuta con paginazione keyset.
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class PersonaPage {
+
+    /** Persone della pagina corrente */
+    private List<Persona> items;
+
+    /** Token per la pagina successiva, null se non ci sono altre righe */
+    private String nextCursor;
+}
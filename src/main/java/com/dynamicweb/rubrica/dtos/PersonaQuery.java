@@ -0,0 +1,135 @@
+package com.dynamicweb.rubrica.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO per i parametri di ordinamento, filtro e paginazione della lista persone.
+ * 
+ * <p>Viene popolato direttamente dai parametri della richiesta su {@code /lista}.
+ * L'ordinamento è limitato alle colonne di {@link SortKey}; i filtri sono tutti
+ * opzionali e vengono tradotti dal repository in condizioni SQL parametrizzate.</p>
+ * 
+ * <p>La paginazione è di tipo keyset: {@code after} contiene il token opaco
+ * restituito con la pagina precedente e identifica l'ultima riga già mostrata.
+ * Con l'ordinamento per cognome crescente e senza filtri, {@code lettera}
+ * fa partire la lista dal primo cognome con quell'iniziale.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+public class PersonaQuery {
+
+    /** Numero di righe per pagina se non specificato */
+    public static final int DEFAULT_SIZE = 50;
+
+    /** Numero massimo di righe per pagina */
+    public static final int MAX_SIZE = 500;
+
+    /**
+     * Colonne ammesse per l'ordinamento, ognuna con la colonna SQL corrispondente.
+     * A parità di valore l'ordinamento prosegue sempre per ID.
+     */
+    public enum SortKey {
+        COGNOME("cognome", false),
+        NOME("nome", false),
+        ETA("eta", true),
+        ID("id", false);
+
+        private final String column;
+
+        private final boolean nullable;
+
+        SortKey(String column, boolean nullable) {
+            this.column = column;
+            this.nullable = nullable;
+        }
+
+        /**
+         * @return nome della colonna SQL
+         */
+        public String getColumn() {
+            return column;
+        }
+
+        /**
+         * @return true se la colonna ammette valori NULL
+         */
+        public boolean isNullable() {
+            return nullable;
+        }
+    }
+
+    /** Colonna di ordinamento (default: COGNOME) */
+    private SortKey sort = SortKey.COGNOME;
+
+    /** Ordinamento decrescente */
+    private boolean descending;
+
+    /** Prefisso del cognome */
+    private String cognome;
+
+    /** Età minima (inclusa) */
+    private Integer etaMin;
+
+    /** Età massima (inclusa) */
+    private Integer etaMax;
+
+    /** Prefisso del numero di telefono */
+    private String telefono;
+
+    /** Token della posizione da cui proseguire, null per la prima pagina */
+    private String after;
+
+    /** Iniziale del cognome da cui partire, se non c'è un token di posizione */
+    private String lettera;
+
+    /** Numero di righe per pagina */
+    private int size = DEFAULT_SIZE;
+
+    /**
+     * Restituisce la colonna di ordinamento, COGNOME se non impostata.
+     * 
+     * @return colonna di ordinamento
+     */
+    public SortKey getSortOrDefault() {
+        return sort != null ? sort : SortKey.COGNOME;
+    }
+
+    /**
+     * Verifica se la richiesta contiene almeno un filtro.
+     * 
+     * @return true se è impostato un filtro su cognome, età o telefono
+     */
+    public boolean isFiltered() {
+        return (cognome != null && !cognome.isBlank())
+            || etaMin != null
+            || etaMax != null
+            || (telefono != null && !telefono.isBlank());
+    }
+
+    /**
+     * Valida i parametri della richiesta.
+     * 
+     * @throws IllegalArgumentException se i filtri o la dimensione pagina non sono validi
+     */
+    public void validate() {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Dimensione pagina non valida: massimo " + MAX_SIZE + " righe");
+        }
+        if (etaMin != null && etaMax != null && etaMin > etaMax) {
+            throw new IllegalArgumentException("L'età minima non può superare l'età massima");
+        }
+        if (cognome != null && cognome.length() > 100) {
+            throw new IllegalArgumentException("Il filtro sul cognome non può superare i 100 caratteri");
+        }
+        if (telefono != null && telefono.length() > 20) {
+            throw new IllegalArgumentException("Il filtro sul telefono non può superare i 20 caratteri");
+        }
+        if (lettera != null && !lettera.isEmpty() && !lettera.matches("[A-Za-z]")) {
+            throw new IllegalArgumentException("L'iniziale deve essere una lettera dalla A alla Z");
+        }
+    }
+}
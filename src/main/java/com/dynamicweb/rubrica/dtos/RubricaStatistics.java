@@ -0,0 +1,43 @@
+package com.dynamicweb.rubrica.dtos;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO con le statistiche della rubrica in un determinato istante.
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class RubricaStatistics {
+
+    /** Numero totale di contatti */
+    private long total;
+
+    /** Numero di contatti senza indirizzo */
+    private long withoutAddress;
+
+    /** Numero di contatti per fascia d'età, nell'ordine delle fasce */
+    private Map<String, Long> ageHistogram;
+
+    /** Numero di cellulari (prefisso 3xx) */
+    private long mobile;
+
+    /** Numero di numeri fissi (prefisso 0x) */
+    private long landline;
+
+    /** Numero di contatti per prefisso telefonico, in ordine di prefisso */
+    private Map<String, Long> phonePrefixes;
+
+    /**
+     * Calcola la quota di contatti senza indirizzo.
+     * 
+     * @return percentuale tra 0 e 100, 0 se la rubrica è vuota
+     */
+    public double getWithoutAddressPercent() {
+        return total == 0 ? 0 : withoutAddress * 100.0 / total;
+    }
+}
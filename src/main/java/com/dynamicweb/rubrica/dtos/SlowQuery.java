@@ -0,0 +1,33 @@
+package com.dynamicweb.rubrica.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO con i dati di un'istruzione SQL che ha superato la soglia di durata.
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class SlowQuery {
+
+    /** Numero progressivo di registrazione */
+    private long sequence;
+
+    /** Istante di fine dell'istruzione, in millisecondi dall'epoch */
+    private long timestamp;
+
+    /** Testo SQL normalizzato, con i valori letterali sostituiti da "?" */
+    private String sql;
+
+    /** Numero di parametri dell'istruzione */
+    private int bindCount;
+
+    /** Righe lette o modificate, -1 se non disponibili */
+    private long rows;
+
+    /** Durata dell'istruzione, in microsecondi */
+    private long durationMicros;
+}
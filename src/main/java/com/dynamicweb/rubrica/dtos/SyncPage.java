@@ -0,0 +1,39 @@
+package com.dynamicweb.rubrica.dtos;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO per una pagina di modifiche della sincronizzazione incrementale.
+ *
+ * <p>Il client applica i contatti come inserimenti o sostituzioni per ID e
+ * rimuove gli ID eliminati; alla richiesta successiva invia {@code nextToken}.
+ * Una stessa modifica può essere ricevuta più di una volta.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class SyncPage {
+
+    /** Contatti inseriti o modificati, in ordine di versione */
+    private List<Persona> items;
+
+    /** ID dei contatti eliminati, in ordine di versione */
+    private List<Long> deleted;
+
+    /** Token da inviare alla richiesta successiva */
+    private String nextToken;
+
+    /** true se ci sono altre modifiche da leggere subito con {@code nextToken} */
+    private boolean hasMore;
+
+    /**
+     * true se il token ricevuto era scaduto: il client deve scartare la copia
+     * locale, e la pagina è l'inizio di una sincronizzazione completa
+     */
+    private boolean reset;
+}
@@ -0,0 +1,34 @@
+package com.dynamicweb.rubrica.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO con il riepilogo del riscaldamento delle connessioni eseguito
+ * all'applicazione di una configurazione del database.
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@AllArgsConstructor
+public class WarmUpReport {
+
+    /** Numero di shard riscaldati */
+    private int shards;
+
+    /** Numero di connessioni aperte nei pool */
+    private int connections;
+
+    /** Numero di statement preparati, sommati su tutte le connessioni */
+    private int statements;
+
+    /** Numero di indici letti per caricarli in memoria */
+    private int indexes;
+
+    /** Numero di operazioni fallite, registrate nel log */
+    private int failures;
+
+    /** Durata complessiva in millisecondi */
+    private long durationMillis;
+}
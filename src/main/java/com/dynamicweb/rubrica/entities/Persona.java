@@ -1,5 +1,6 @@
 package com.dynamicweb.rubrica.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -10,6 +11,10 @@ import lombok.AllArgsConstructor;
  * per la gestione di una rubrica contatti: identificativo, nome, cognome, 
  * indirizzo, telefono ed età.
  * 
+ * <p>Ogni persona appartiene alla rubrica di un utente ({@code ownerId}),
+ * assegnato dal servizio in base all'utente autenticato e mai letto dai
+ * dati inviati dal client.</p>
+ * 
  * @author Michael Leanza
  * @since 1.0
  */
@@ -29,4 +34,7 @@ public class Persona {
     private String telefono;
     
     private Integer eta;
+
+    @JsonIgnore
+    private Long ownerId;
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.dynamicweb.rubrica.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entità che rappresenta un utente dell'applicazione, proprietario di una
+ * rubrica privata.
+ * 
+ * <p>La password non viene mai conservata: {@code passwordHash} contiene
+ * l'hash calcolato da {@link com.dynamicweb.rubrica.components.PasswordHasher}.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Utente {
+
+    private Long id;
+
+    private String username;
+
+    private String passwordHash;
+}
@@ -0,0 +1,39 @@
+package com.dynamicweb.rubrica.events;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import java.util.Collection;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Evento pubblicato quando l'insieme completo dei contatti attivi è stato
+ * caricato, all'avvio o dopo la configurazione di un nuovo database.
+ * 
+ * <p>I contatti vengono letti una sola volta, dall'ultimo snapshot o dal
+ * database, e condivisi tra tutti i componenti che ricostruiscono strutture
+ * in memoria sulla rubrica. La collezione non deve essere modificata.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class ContactsLoadedEvent extends ApplicationEvent {
+
+    private final Collection<Persona> contacts;
+
+    /**
+     * Costruttore dell'evento.
+     * 
+     * @param source oggetto che ha caricato i contatti
+     * @param contacts tutti i contatti attivi
+     */
+    public ContactsLoadedEvent(Object source, Collection<Persona> contacts) {
+        super(source);
+        this.contacts = contacts;
+    }
+
+    /**
+     * @return tutti i contatti attivi
+     */
+    public Collection<Persona> getContacts() {
+        return contacts;
+    }
+}
@@ -0,0 +1,39 @@
+package com.dynamicweb.rubrica.events;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Evento pubblicato prima della lettura dell'insieme completo dei contatti,
+ * e di nuovo se la lettura non riesce.
+ * 
+ * <p>Le modifiche confermate mentre i contatti vengono letti potrebbero non
+ * essere comprese nella lettura: i componenti che ricostruiscono strutture in
+ * memoria alla ricezione del {@link ContactsLoadedEvent} le conservano da
+ * questo evento in poi e le riapplicano alla struttura ricostruita.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class ContactsLoadingEvent extends ApplicationEvent {
+
+    private final boolean failed;
+
+    /**
+     * Costruttore dell'evento.
+     * 
+     * @param source oggetto che legge i contatti
+     * @param failed {@code true} se la lettura è stata interrotta da un errore
+     *               e non seguirà alcun {@link ContactsLoadedEvent}
+     */
+    public ContactsLoadingEvent(Object source, boolean failed) {
+        super(source);
+        this.failed = failed;
+    }
+
+    /**
+     * @return {@code true} se la lettura è stata interrotta da un errore
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+}
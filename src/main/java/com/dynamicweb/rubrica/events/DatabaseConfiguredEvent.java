@@ -0,0 +1,36 @@
+package com.dynamicweb.rubrica.events;
+
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Evento pubblicato quando il DataSource viene configurato con un nuovo database.
+ * 
+ * <p>Permette ai componenti che mantengono strutture in memoria costruite sui
+ * dati della rubrica di ricostruirle dal nuovo database.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class DatabaseConfiguredEvent extends ApplicationEvent {
+
+    private final DatabaseProperties properties;
+
+    /**
+     * Costruttore dell'evento.
+     * 
+     * @param source oggetto che ha applicato la configurazione
+     * @param properties configurazione del database applicata
+     */
+    public DatabaseConfiguredEvent(Object source, DatabaseProperties properties) {
+        super(source);
+        this.properties = properties;
+    }
+
+    /**
+     * @return configurazione del database applicata
+     */
+    public DatabaseProperties getProperties() {
+        return properties;
+    }
+}
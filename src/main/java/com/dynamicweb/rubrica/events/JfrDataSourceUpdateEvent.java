@@ -0,0 +1,43 @@
+package com.dynamicweb.rubrica.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento Java Flight Recorder per l'applicazione di una configurazione del
+ * database: verifica delle connessioni, aggiornamento dei DataSource,
+ * creazione dello schema e riscaldamento dei pool.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Name("rubrica.DataSourceUpdate")
+@Label("Configurazione database")
+@Category({"Rubrica", "Database"})
+@Description("Esecuzione di DatabaseConnectionManager.updateDataSource")
+@StackTrace(false)
+@Threshold("0 ms")
+public class JfrDataSourceUpdateEvent extends jdk.jfr.Event {
+
+    /** Modalità del database configurato */
+    @Label("Modalità")
+    public String mode;
+
+    /** Numero di shard configurati, 0 se la configurazione non è stata applicata */
+    @Label("Shard")
+    public int shards;
+
+    /** Durata del riscaldamento dei pool di connessioni */
+    @Label("Riscaldamento")
+    @Timespan(Timespan.MILLISECONDS)
+    public long warmUpMillis;
+
+    /** true se la configurazione è stata applicata */
+    @Label("Riuscita")
+    public boolean succeeded;
+}
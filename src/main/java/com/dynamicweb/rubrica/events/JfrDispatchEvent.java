@@ -0,0 +1,51 @@
+package com.dynamicweb.rubrica.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento Java Flight Recorder per una richiesta servita da un controller:
+ * la durata copre il controller e il rendering della vista, riportato anche
+ * separatamente.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Name("rubrica.Dispatch")
+@Label("Richiesta al controller")
+@Category({"Rubrica", "Web"})
+@Description("Esecuzione del controller e rendering della vista di una richiesta")
+@StackTrace(false)
+@Threshold("20 ms")
+public class JfrDispatchEvent extends jdk.jfr.Event {
+
+    /** Metodo HTTP */
+    @Label("Metodo")
+    public String method;
+
+    /** Percorso richiesto */
+    @Label("URI")
+    public String uri;
+
+    /** Metodo del controller che ha gestito la richiesta */
+    @Label("Handler")
+    public String handler;
+
+    /** Vista restituita dal controller, null per redirect e risposte dirette */
+    @Label("Vista")
+    public String view;
+
+    /** Stato HTTP della risposta */
+    @Label("Stato")
+    public int status;
+
+    /** Durata del rendering della vista */
+    @Label("Rendering")
+    @Timespan(Timespan.NANOSECONDS)
+    public long renderDuration;
+}
@@ -0,0 +1,75 @@
+package com.dynamicweb.rubrica.events;
+
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento Java Flight Recorder per una chiamata a un metodo di repository:
+ * operazione, tipo di istruzione SQL, righe e durata.
+ *
+ * <p>Con JFR non attivo {@link #record(String, String, Supplier, ToLongFunction)}
+ * esegue solo la chiamata: l'evento viene eliminato dal compilatore JIT.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Name("rubrica.RepositoryCall")
+@Label("Chiamata al repository")
+@Category({"Rubrica", "Database"})
+@Description("Metodo di repository eseguito, con tipo di istruzione e righe")
+@StackTrace(false)
+@Threshold("10 ms")
+public class JfrRepositoryEvent extends jdk.jfr.Event {
+
+    /** Nome del metodo, es. PersonaRepository.findAll */
+    @Label("Operazione")
+    private String operation;
+
+    /** Tipo di istruzione SQL: SELECT, INSERT, UPDATE o DELETE */
+    @Label("Tipo SQL")
+    private String sqlKind;
+
+    /** Righe lette o modificate, -1 se non note (cursori in streaming) */
+    @Label("Righe")
+    private long rows;
+
+    /** true se la chiamata ha sollevato un'eccezione */
+    @Label("Fallita")
+    private boolean failed;
+
+    /**
+     * Esegue una chiamata registrandone l'evento.
+     *
+     * @param operation nome del metodo
+     * @param sqlKind tipo di istruzione SQL
+     * @param call chiamata da eseguire
+     * @param rows righe corrispondenti al risultato
+     * @return il risultato della chiamata
+     */
+    public static <T> T record(String operation, String sqlKind, Supplier<T> call, ToLongFunction<? super T> rows) {
+        JfrRepositoryEvent event = new JfrRepositoryEvent();
+        event.begin();
+        T result = null;
+        boolean failed = true;
+        try {
+            result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.sqlKind = sqlKind;
+                event.rows = failed ? -1 : rows.applyAsLong(result);
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.dynamicweb.rubrica.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Evento Java Flight Recorder per una validazione dei dati delle persone.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Name("rubrica.Validation")
+@Label("Validazione")
+@Category({"Rubrica", "Validazione"})
+@Description("Controllo dei dati ricevuti prima di una scrittura")
+@StackTrace(false)
+@Threshold("1 ms")
+public class JfrValidationEvent extends jdk.jfr.Event {
+
+    /** Oggetto della validazione: persona, campo, ids o eta */
+    @Label("Oggetto")
+    public String target;
+
+    /** true se i dati sono stati rifiutati */
+    @Label("Rifiutata")
+    public boolean rejected;
+}
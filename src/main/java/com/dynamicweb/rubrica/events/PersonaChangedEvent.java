@@ -0,0 +1,62 @@
+package com.dynamicweb.rubrica.events;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Evento pubblicato dopo il commit di ogni inserimento, modifica o eliminazione
+ * di una persona.
+ * 
+ * <p>Contiene i dati della persona prima e dopo la modifica, così che i
+ * componenti con strutture in memoria costruite sulla rubrica possano
+ * aggiornarle in modo incrementale: per un inserimento manca lo stato
+ * precedente, per un'eliminazione quello successivo. L'utente che ha eseguito
+ * la modifica viene letto dalla sessione quando l'evento viene creato.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class PersonaChangedEvent extends ApplicationEvent {
+
+    private final String username;
+
+    private final Persona before;
+
+    private final Persona after;
+
+    /**
+     * Costruttore dell'evento.
+     * 
+     * @param source oggetto che ha eseguito la modifica
+     * @param username utente autenticato che ha richiesto la modifica, null se sconosciuto
+     * @param before dati della persona prima della modifica, null per un inserimento
+     * @param after dati della persona dopo la modifica, null per un'eliminazione
+     */
+    public PersonaChangedEvent(Object source, String username, Persona before, Persona after) {
+        super(source);
+        this.username = username;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @return utente autenticato che ha richiesto la modifica, null se sconosciuto
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return dati della persona prima della modifica, null per un inserimento
+     */
+    public Persona getBefore() {
+        return before;
+    }
+
+    /**
+     * @return dati della persona dopo la modifica, null per un'eliminazione
+     */
+    public Persona getAfter() {
+        return after;
+    }
+}
@@ -0,0 +1,197 @@
+package com.dynamicweb.rubrica.repositories;
+
+import com.dynamicweb.rubrica.dtos.AuditRecord;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Registro di audit su file, in sola aggiunta e diviso in segmenti.
+ *
+ * <p>Ogni voce è una riga JSON ({@link AuditRecord}) in un file
+ * {@code audit-<istante>.log} della cartella {@code rubrica.audit.dir}; quando
+ * il segmento corrente supera {@code rubrica.audit.segment-bytes} ne viene
+ * aperto uno nuovo. I segmenti non vengono mai riscritti né eliminati
+ * dall'applicazione e si leggono con gli strumenti di testo abituali.</p>
+ *
+ * <p>Un blocco di voci viene scritto con il {@link FileChannel} del segmento e
+ * sincronizzato su disco con una sola {@code force} (group fsync): il costo della
+ * sincronizzazione viene diviso tra tutte le voci accumulate nel frattempo. Una
+ * riga incompleta lasciata da un'interruzione durante la scrittura viene
+ * rimossa alla riapertura del segmento.</p>
+ *
+ * <p>La classe non è thread-safe: viene usata dal solo writer di
+ * {@code AuditService}.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Repository
+public class AuditLogStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogStore.class);
+
+    /** Nome dei segmenti, con l'istante di apertura in millisecondi */
+    private static final Pattern FILE_NAME = Pattern.compile("audit-(\\d+)\\.log");
+
+    /** Porzione finale di un segmento in cui cercare l'ultima riga completa */
+    private static final int TAIL_SCAN_BYTES = 64 * 1024;
+
+    private final Path directory;
+
+    private final long segmentBytes;
+
+    private final ObjectMapper objectMapper;
+
+    /** Voci del blocco in corso di scrittura, riutilizzato tra i blocchi */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+
+    private FileChannel channel;
+
+    private long segmentSize;
+
+    /**
+     * Costruttore con la cartella del registro.
+     *
+     * @param directory cartella dei segmenti
+     * @param segmentBytes dimensione oltre la quale viene aperto un nuovo segmento
+     * @param objectMapper serializzazione JSON delle voci
+     */
+    public AuditLogStore(
+        @Value("${rubrica.audit.dir:./data/audit}") Path directory,
+        @Value("${rubrica.audit.segment-bytes:67108864}") long segmentBytes,
+        ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Aggiunge un blocco di voci in coda al registro e lo sincronizza su disco.
+     *
+     * @param records voci da aggiungere, nell'ordine di scrittura
+     * @throws IOException se la scrittura o la sincronizzazione non riescono
+     */
+    public void append(List<AuditRecord> records) throws IOException {
+        pending.reset();
+        for (AuditRecord record : records) {
+            pending.write(objectMapper.writeValueAsBytes(record));
+            pending.write('\n');
+        }
+        if (channel == null) {
+            openLatest();
+        } else if (segmentSize > 0 && segmentSize + pending.size() > segmentBytes) {
+            openSegment();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        while (buffer.hasRemaining()) {
+            segmentSize += channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Chiude il segmento corrente.
+     *
+     * @throws IOException se la chiusura non riesce
+     */
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Riapre l'ultimo segmento, se ha ancora spazio, o ne crea uno nuovo.
+     */
+    private void openLatest() throws IOException {
+        Files.createDirectories(directory);
+        Path latest = listSegments().stream().reduce((first, second) -> second).orElse(null);
+        if (latest == null || Files.size(latest) >= segmentBytes) {
+            openSegment();
+            return;
+        }
+        channel = FileChannel.open(latest, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        segmentSize = truncateIncompleteLine(channel, latest);
+        channel.position(segmentSize);
+    }
+
+    /**
+     * Chiude il segmento corrente e ne apre uno nuovo.
+     */
+    private void openSegment() throws IOException {
+        close();
+        long openedAt = System.currentTimeMillis();
+        Path segment = directory.resolve("audit-" + openedAt + ".log");
+        while (Files.exists(segment)) {
+            segment = directory.resolve("audit-" + ++openedAt + ".log");
+        }
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        log.info("Nuovo segmento del registro di audit: {}", segment);
+    }
+
+    /**
+     * Rimuove l'eventuale riga incompleta in fondo al segmento.
+     *
+     * @return dimensione del segmento dopo la pulizia
+     */
+    private static long truncateIncompleteLine(FileChannel channel, Path segment) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        int length = (int) Math.min(size, TAIL_SCAN_BYTES);
+        ByteBuffer tail = ByteBuffer.allocate(length);
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, size - length + tail.position()) < 0) {
+                break;
+            }
+        }
+        int lastNewline = length - 1;
+        while (lastNewline >= 0 && tail.get(lastNewline) != '\n') {
+            lastNewline--;
+        }
+        long complete = size - length + lastNewline + 1;
+        if (complete < size) {
+            log.warn("Registro di audit {}: rimossi {} byte di una voce incompleta", segment.getFileName(), size - complete);
+            channel.truncate(complete);
+        }
+        return complete;
+    }
+
+    /**
+     * @return segmenti esistenti dal più vecchio
+     */
+    private List<Path> listSegments() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "audit-*.log")) {
+            stream.forEach(files::add);
+        }
+        files.removeIf(file -> !FILE_NAME.matcher(file.getFileName().toString()).matches());
+        files.sort(Comparator.comparingLong(AuditLogStore::openedAtMillis));
+        return files;
+    }
+
+    private static long openedAtMillis(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+}
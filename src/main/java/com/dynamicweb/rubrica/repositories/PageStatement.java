@@ -0,0 +1,288 @@
+package com.dynamicweb.rubrica.repositories;
+
+import com.dynamicweb.rubrica.dtos.PersonaPage;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.dtos.PersonaQuery.SortKey;
+import com.dynamicweb.rubrica.entities.Persona;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Istruzione SQL e parametri per una pagina keyset di persone.
+ * 
+ * <p>Condivisa dai repository bloccante e reattivo: il testo SQL usa segnaposto
+ * posizionali "?" e dipende solo dalla combinazione di ordinamento e filtri,
+ * per cui viene memorizzato in cache.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class PageStatement {
+
+    /** Testo SQL delle query paginate, per combinazione di ordinamento e filtri */
+    private static final Map<String, String> SQL_CACHE = new ConcurrentHashMap<>();
+
+    private final String sql;
+
+    private final Object[] args;
+
+    private final SortKey sort;
+
+    private final boolean descending;
+
+    private final int size;
+
+    private PageStatement(String sql, Object[] args, SortKey sort, boolean descending, int size) {
+        this.sql = sql;
+        this.args = args;
+        this.sort = sort;
+        this.descending = descending;
+        this.size = size;
+    }
+
+    /**
+     * Prepara testo SQL e parametri per la pagina richiesta della rubrica di un utente.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param query parametri di ordinamento, filtro e paginazione già validati
+     * @return istruzione pronta per l'esecuzione
+     */
+    static PageStatement prepare(long ownerId, PersonaQuery query) {
+        SortKey sort = query.getSortOrDefault();
+        Keyset position = Keyset.decode(query.getAfter(), sort);
+
+        String shape = sort + ":" + query.isDescending()
+            + ":" + hasText(query.getCognome())
+            + ":" + (query.getEtaMin() != null)
+            + ":" + (query.getEtaMax() != null)
+            + ":" + hasText(query.getTelefono())
+            + ":" + (position == null ? "-" : position.value() == null ? "null" : "value");
+        String sql = SQL_CACHE.computeIfAbsent(shape, key -> buildSql(query, sort, position));
+
+        // Parametri nello stesso ordine delle condizioni di buildSql
+        List<Object> args = new ArrayList<>();
+        args.add(ownerId);
+        if (hasText(query.getCognome())) {
+            args.add(likePrefix(query.getCognome()));
+        }
+        if (query.getEtaMin() != null) {
+            args.add(query.getEtaMin());
+        }
+        if (query.getEtaMax() != null) {
+            args.add(query.getEtaMax());
+        }
+        if (hasText(query.getTelefono())) {
+            args.add(likePrefix(query.getTelefono()));
+        }
+        if (position != null) {
+            if (position.value() == null) {
+                args.add(position.id());
+            } else if (sort == SortKey.ID) {
+                args.add(position.id());
+            } else {
+                args.add(position.value());
+                args.add(position.value());
+                args.add(position.id());
+            }
+        }
+        // Una riga in più per sapere se esiste una pagina successiva
+        args.add(query.getSize() + 1);
+
+        return new PageStatement(sql, args.toArray(), sort, query.isDescending(), query.getSize());
+    }
+
+    /**
+     * Testo SQL della lista senza filtri nell'ordinamento predefinito, per la
+     * prima pagina e per le successive, da preparare in anticipo sulle connessioni.
+     * 
+     * @return istruzioni con segnaposto posizionali "?"
+     */
+    static List<String> defaultSql() {
+        PersonaQuery query = new PersonaQuery();
+        String first = prepare(0, query).getSql();
+        Persona last = new Persona();
+        last.setId(0L);
+        last.setCognome("");
+        query.setAfter(Keyset.encode(last, query.getSortOrDefault()));
+        return List.of(first, prepare(0, query).getSql());
+    }
+
+    /**
+     * @return testo SQL con segnaposto posizionali "?"
+     */
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return parametri nell'ordine dei segnaposto
+     */
+    Object[] getArgs() {
+        return args;
+    }
+
+    /**
+     * @return numero massimo di righe lette dall'istruzione, una in più della pagina
+     */
+    int getLimit() {
+        return size + 1;
+    }
+
+    /**
+     * Restituisce l'ordinamento dell'istruzione, per fondere le righe lette da più shard.
+     * 
+     * <p>Segue l'ORDER BY generato: colonna e poi ID, con i NULL prima dei valori
+     * in ordine crescente e dopo in ordine decrescente. I testi vengono confrontati
+     * per codice carattere, come fa H2 e come fa MySQL con una collation binaria:
+     * con una collation diversa sugli shard l'ordine tra righe di shard diversi
+     * può differire da quello del database.</p>
+     * 
+     * @return comparatore coerente con l'ordinamento SQL
+     */
+    Comparator<Persona> comparator() {
+        Comparator<Persona> byId = Comparator.comparing(Persona::getId);
+        Comparator<Persona> order = switch (sort) {
+            case COGNOME -> Comparator.comparing(Persona::getCognome).thenComparing(byId);
+            case NOME -> Comparator.comparing(Persona::getNome).thenComparing(byId);
+            case ETA -> Comparator.comparing(Persona::getEta, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()))
+                .thenComparing(byId);
+            case ID -> byId;
+        };
+        return descending ? order.reversed() : order;
+    }
+
+    /**
+     * Costruisce la pagina dalle righe lette, al massimo una in più della dimensione richiesta.
+     * 
+     * @param rows righe restituite dall'istruzione
+     * @return pagina con il token per la pagina successiva, se esiste
+     */
+    PersonaPage toPage(List<Persona> rows) {
+        if (rows.size() <= size) {
+            return new PersonaPage(rows, null);
+        }
+        List<Persona> items = new ArrayList<>(rows.subList(0, size));
+        return new PersonaPage(items, Keyset.encode(items.get(items.size() - 1), sort));
+    }
+
+    /**
+     * Costruisce il testo SQL per una combinazione di ordinamento e filtri.
+     * 
+     * <p>Con ordinamento crescente i NULL vengono prima dei valori, con ordinamento
+     * decrescente dopo, come in MySQL; le condizioni keyset ne tengono conto
+     * solo per le colonne nullable. I contatti eliminati logicamente sono sempre esclusi.
+     * Il proprietario è la prima condizione, come la prima colonna degli indici.</p>
+     */
+    private static String buildSql(PersonaQuery query, SortKey sort, Keyset position) {
+        String column = sort.getColumn();
+        String direction = query.isDescending() ? "DESC" : "ASC";
+        String cmp = query.isDescending() ? "<" : ">";
+
+        List<String> conditions = new ArrayList<>();
+        conditions.add("owner_id = ?");
+        conditions.add("eliminato_il IS NULL");
+        if (hasText(query.getCognome())) {
+            conditions.add("cognome LIKE ?");
+        }
+        if (query.getEtaMin() != null) {
+            conditions.add("eta >= ?");
+        }
+        if (query.getEtaMax() != null) {
+            conditions.add("eta <= ?");
+        }
+        if (hasText(query.getTelefono())) {
+            conditions.add("telefono LIKE ?");
+        }
+        if (position != null) {
+            if (position.value() == null) {
+                // Ultima riga con valore NULL
+                conditions.add(query.isDescending()
+                    ? "(" + column + " IS NULL AND id < ?)"
+                    : "((" + column + " IS NULL AND id > ?) OR " + column + " IS NOT NULL)");
+            } else if (sort == SortKey.ID) {
+                conditions.add("id " + cmp + " ?");
+            } else {
+                String keyset = column + " " + cmp + " ? OR (" + column + " = ? AND id " + cmp + " ?)";
+                if (sort.isNullable() && query.isDescending()) {
+                    keyset += " OR " + column + " IS NULL";
+                }
+                conditions.add("(" + keyset + ")");
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM lista_contatti WHERE ");
+        sql.append(String.join(" AND ", conditions));
+        sql.append(" ORDER BY ");
+        if (sort != SortKey.ID) {
+            sql.append(column).append(' ').append(direction).append(", ");
+        }
+        sql.append("id ").append(direction).append(" LIMIT ?");
+        return sql.toString();
+    }
+
+    /**
+     * Posizione keyset: valore della colonna di ordinamento e ID dell'ultima riga.
+     * Viene scambiata con il client come token Base64 opaco.
+     */
+    private record Keyset(Object value, long id) {
+
+        static String encode(Persona last, SortKey sort) {
+            Object value = switch (sort) {
+                case COGNOME -> last.getCognome();
+                case NOME -> last.getNome();
+                case ETA -> last.getEta();
+                case ID -> last.getId();
+            };
+            String raw = sort + "\n" + last.getId() + (value != null ? "\n" + value : "");
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Decodifica il token; un token assente, malformato o relativo a un altro
+         * ordinamento fa ripartire dalla prima pagina.
+         */
+        static Keyset decode(String token, SortKey sort) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\n", 3);
+                if (parts.length < 2 || !sort.name().equals(parts[0])) {
+                    return null;
+                }
+                long id = Long.parseLong(parts[1]);
+                if (parts.length == 2) {
+                    return new Keyset(null, id);
+                }
+                Object value = switch (sort) {
+                    case ETA -> Integer.valueOf(parts[2]);
+                    case ID -> Long.valueOf(parts[2]);
+                    default -> parts[2];
+                };
+                return new Keyset(value, id);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    /**
+     * Converte un prefisso in un pattern LIKE, con escape dei caratteri jolly.
+     */
+    private static String likePrefix(String prefix) {
+        return prefix.trim()
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_") + "%";
+    }
+}
@@ -0,0 +1,49 @@
+package com.dynamicweb.rubrica.repositories;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Cursore di sola lettura sulle persone, basato su un result set in streaming.
+ *
+ * <p>Le righe vengono lette dal database e mappate una alla volta durante
+ * l'iterazione, senza materializzare l'intera lista in memoria. Il cursore
+ * mantiene aperta la connessione finché non viene chiuso e può essere
+ * iterato una sola volta.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class PersonaCursor implements Iterable<Persona>, AutoCloseable {
+
+    private final Stream<Persona> stream;
+
+    /**
+     * Costruttore a partire dallo stream restituito da JdbcTemplate.
+     *
+     * @param stream stream di persone collegato al result set aperto
+     */
+    PersonaCursor(Stream<Persona> stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Restituisce l'iteratore sulle righe del result set.
+     *
+     * @return iteratore lazy sulle persone
+     * @throws IllegalStateException se il cursore è già stato iterato o chiuso
+     */
+    @Override
+    public Iterator<Persona> iterator() {
+        return stream.iterator();
+    }
+
+    /**
+     * Chiude il result set e rilascia la connessione al database.
+     */
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -1,9 +1,37 @@
 package com.dynamicweb.rubrica.repositories;
 
+import com.dynamicweb.rubrica.components.IdGenerator;
+import com.dynamicweb.rubrica.components.ShardRouter;
+import com.dynamicweb.rubrica.dtos.PersonaChange;
+import com.dynamicweb.rubrica.dtos.PersonaPage;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
 import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.JfrRepositoryEvent;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -14,112 +42,780 @@ import org.springframework.stereotype.Repository;
  * Tutti i metodi gestiscono automaticamente le connessioni al database
  * e la mappatura dei risultati verso l'entità Persona.
  * 
+ * <p>L'eliminazione è logica: la riga riceve l'istante di eliminazione nella
+ * colonna {@code eliminato_il} e viene esclusa da tutte le letture e gli
+ * aggiornamenti. Le righe eliminate possono essere ripristinate finché non
+ * vengono rimosse definitivamente dalla pulizia periodica.</p>
+ * 
+ * <p>I contatti sono distribuiti tra gli shard configurati in base a un hash
+ * dell'ID ({@link ShardRouter}). Le operazioni per ID vengono eseguite sullo
+ * shard del contatto, quelle su più ID a gruppi per shard; letture complete e
+ * pagine vengono eseguite in parallelo su tutti gli shard e fuse mantenendo
+ * l'ordinamento ({@link ShardMerge}). Con più shard gli ID vengono assegnati
+ * dall'{@link IdGenerator} invece che dall'AUTO_INCREMENT di ciascun database.
+ * Le istruzioni di pulizia operano sullo shard corrente.</p>
+ * 
+ * <p>Ogni contatto appartiene alla rubrica di un utente (colonna {@code owner_id}):
+ * le operazioni richieste dagli utenti ricevono il proprietario come primo
+ * parametro e lo aggiungono a ogni condizione, così che un utente non possa
+ * leggere né modificare i contatti di un altro anche conoscendone l'ID. Solo
+ * le operazioni di manutenzione (snapshot, allineamento e pulizia) operano
+ * su tutti i proprietari.</p>
+ * 
+ * <p>Ogni scrittura assegna alle righe modificate una nuova versione
+ * (colonna {@code versione}) presa dall'{@link IdGenerator}, quindi crescente
+ * nel tempo: le righe eliminate logicamente restano come tombstone con la
+ * versione dell'eliminazione, e alla rimozione definitiva vengono spostate in
+ * {@code contatti_rimossi}. Le modifiche di una rubrica si leggono così in
+ * ordine di versione con {@link #findChangesSince(long, SyncToken, int)}.</p>
+ * 
+ * <p>Ogni operazione viene registrata da Java Flight Recorder come
+ * {@link JfrRepositoryEvent}, con il tipo di istruzione e le righe.</p>
+ * 
  * @author Michael Leanza
  * @since 1.0
  */
 @Repository
 public class PersonaRepository {
     
+    /** Numero massimo di ID per ogni istruzione IN (...) delle operazioni massive */
+    private static final int BULK_CHUNK_SIZE = 500;
+
+    /** Colonne aggiornabili tramite {@link #updateFieldByIds(long, Collection, String, Object)} */
+    static final Set<String> BULK_UPDATABLE_COLUMNS = Set.of(
+        "nome", "cognome", "indirizzo", "telefono", "eta");
+
+    /** Fetch size usata dai driver diversi da MySQL per la lettura in streaming */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /** Ordine delle modifiche per la sincronizzazione */
+    private static final Comparator<PersonaChange> CHANGE_ORDER =
+        Comparator.comparingLong(PersonaChange::getVersione).thenComparingLong(PersonaChange::getId);
+
+    /** Condizione delle righe non eliminate logicamente */
+    private static final String ACTIVE = "eliminato_il IS NULL";
+
+    private static final String FIND_ALL_SQL =
+        "SELECT * FROM lista_contatti WHERE owner_id = ? AND eliminato_il IS NULL ORDER BY id";
+
+    private static final String FIND_BY_ID_SQL =
+        "SELECT * FROM lista_contatti WHERE owner_id = ? AND id = ? AND eliminato_il IS NULL";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO lista_contatti (owner_id, nome, cognome, indirizzo, telefono, eta, versione)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_WITH_ID_SQL =
+        "INSERT INTO lista_contatti (id, owner_id, nome, cognome, indirizzo, telefono, eta, versione)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+        "UPDATE lista_contatti SET nome = ?, cognome = ?, indirizzo = ?, telefono = ?, eta = ?, versione = ?"
+            + " WHERE owner_id = ? AND id = ? AND eliminato_il IS NULL";
+
+    private static final String DELETE_BY_ID_SQL =
+        "UPDATE lista_contatti SET eliminato_il = ?, versione = ? WHERE owner_id = ? AND id = ? AND eliminato_il IS NULL";
+
+    /** Posizione keyset comune alle due letture della sincronizzazione */
+    private static final String CHANGES_POSITION =
+        " WHERE owner_id = ? AND (versione > ? OR (versione = ? AND id > ?)) ORDER BY versione, id LIMIT ?";
+
+    private static final String CHANGES_SQL = "SELECT * FROM lista_contatti" + CHANGES_POSITION;
+
+    private static final String REMOVED_CHANGES_SQL = "SELECT id, versione FROM contatti_rimossi" + CHANGES_POSITION;
+
     private final JdbcTemplate jdbcTemplate;
+
+    private final ShardRouter shardRouter;
+
+    private final IdGenerator idGenerator;
     
     /**
      * Costruttore per l'injection del JdbcTemplate.
      * 
      * @param jdbcTemplate template per operazioni JDBC
+     * @param shardRouter instradamento delle operazioni tra gli shard
+     * @param idGenerator generatore di ID univoci tra gli shard
      */
-    public PersonaRepository(JdbcTemplate jdbcTemplate) {
+    public PersonaRepository(JdbcTemplate jdbcTemplate, ShardRouter shardRouter, IdGenerator idGenerator) {
         this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.idGenerator = idGenerator;
     }
     
     /**
-     * Recupera tutte le persone dal database.
+     * Recupera tutte le persone della rubrica di un utente.
      * 
-     * <p>Esegue una query per ottenere tutti i record dalla tabella 'lista_contatti'
-     * e li mappa automaticamente in oggetti Persona.</p>
+     * <p>Esegue una query per ottenere tutti i record attivi dell'utente dalla
+     * tabella 'lista_contatti' e li mappa automaticamente in oggetti Persona.</p>
      * 
-     * @return lista di tutte le persone, lista vuota se nessun risultato
+     * @param ownerId ID dell'utente proprietario
+     * @return lista di tutte le persone ordinata per ID, lista vuota se nessun risultato
      */
-    public List<Persona> findAll() {
-        String sql = "SELECT * FROM lista_contatti";
-        List<Persona> listPersona = jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(Persona.class));
-        return listPersona != null ? listPersona : List.of(); // Restituisce lista vuota se null
+    public List<Persona> findAll(long ownerId) {
+        return JfrRepositoryEvent.record("PersonaRepository.findAll", "SELECT", () -> {
+            List<List<Persona>> shards = shardRouter.onEachShard(
+                () -> jdbcTemplate.query(FIND_ALL_SQL, new BeanPropertyRowMapper<>(Persona.class), ownerId));
+            return ShardMerge.merge(shards, Comparator.comparing(Persona::getId), Integer.MAX_VALUE);
+        }, List::size);
     }
 
     /**
-     * Cerca una persona specifica per ID.
+     * Recupera una pagina di persone ordinata e filtrata lato database.
+     * 
+     * <p>L'ordinamento usa la colonna richiesta seguita dall'ID, coperta dagli
+     * indici compositi dello schema; la pagina successiva riparte dall'ultima riga
+     * restituita (paginazione keyset) invece di usare OFFSET. Il testo SQL dipende
+     * solo dalla combinazione di ordinamento e filtri presenti e viene memorizzato
+     * in cache da {@link PageStatement}, così il driver riutilizza gli stessi
+     * statement preparati.</p>
      * 
+     * @param ownerId ID dell'utente proprietario
+     * @param query parametri di ordinamento, filtro e paginazione già validati
+     * @return pagina di persone con il token per la pagina successiva
+     */
+    public PersonaPage findPage(long ownerId, PersonaQuery query) {
+        return JfrRepositoryEvent.record("PersonaRepository.findPage", "SELECT", () -> {
+            PageStatement page = PageStatement.prepare(ownerId, query);
+            List<List<Persona>> shards = shardRouter.onEachShard(() -> 
+                jdbcTemplate.query(page.getSql(), new BeanPropertyRowMapper<>(Persona.class), page.getArgs()));
+            return page.toPage(ShardMerge.merge(shards, page.comparator(), page.getLimit()));
+        }, page -> page.getItems().size());
+    }
+
+    /**
+     * Apre un cursore in streaming su tutte le persone del database.
+     * 
+     * <p>Con MySQL imposta la fetch size a {@link Integer#MIN_VALUE}, che attiva
+     * il result set in streaming del driver (una riga alla volta); con gli altri
+     * driver usa una fetch size di {@value #STREAM_FETCH_SIZE} righe. Con più shard
+     * apre un cursore per shard e li fonde per ID man mano che vengono letti. Il
+     * chiamante deve chiudere il cursore per rilasciare le connessioni.</p>
+     * 
+     * <p>Legge i contatti di tutti gli utenti, per gli snapshot.</p>
+     * 
+     * @return cursore lazy sulle persone, ordinato per ID
+     */
+    public PersonaCursor streamAll() {
+        return JfrRepositoryEvent.record("PersonaRepository.streamAll", "SELECT", () -> {
+            return stream("SELECT * FROM lista_contatti WHERE eliminato_il IS NULL ORDER BY id");
+        }, cursor -> -1);
+    }
+
+    /**
+     * Apre un cursore in streaming sulle persone della rubrica di un utente,
+     * come {@link #streamAll()}.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @return cursore lazy sulle persone, ordinato per ID
+     */
+    public PersonaCursor streamByOwner(long ownerId) {
+        return JfrRepositoryEvent.record("PersonaRepository.streamByOwner", "SELECT", () -> {
+            return stream("SELECT * FROM lista_contatti WHERE owner_id = ? AND eliminato_il IS NULL ORDER BY id", ownerId);
+        }, cursor -> -1);
+    }
+
+    /**
+     * Apre un cursore per shard sulla query indicata e li fonde per ID.
+     * 
+     * @param sql query ordinata per ID
+     * @param args parametri della query
+     * @return cursore lazy sulle persone, ordinato per ID
+     */
+    private PersonaCursor stream(String sql, Object... args) {
+        int count = shardRouter.getShardCount();
+        List<Stream<Persona>> streams = new ArrayList<>(count);
+        try {
+            for (int shard = 0; shard < count; shard++) {
+                streams.add(shardRouter.onShard(shard, () -> streamShard(sql, args)));
+            }
+        } catch (RuntimeException e) {
+            streams.forEach(Stream::close);
+            throw e;
+        }
+        if (count == 1) {
+            return new PersonaCursor(streams.get(0));
+        }
+
+        List<Iterator<Persona>> iterators = new ArrayList<>(count);
+        streams.forEach(stream -> iterators.add(stream.iterator()));
+        Iterator<Persona> merged = ShardMerge.merge(iterators, Comparator.comparing(Persona::getId));
+        return new PersonaCursor(StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(() -> streams.forEach(Stream::close)));
+    }
+
+    /**
+     * Apre lo stream delle persone dello shard corrente, ordinato per ID.
+     * 
+     * @param sql query ordinata per ID
+     * @param args parametri della query
+     * @return stream collegato al result set aperto
+     */
+    private Stream<Persona> streamShard(String sql, Object[] args) {
+        return jdbcTemplate.queryForStream(
+            connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+                statement.setFetchSize(mysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+                for (int i = 0; i < args.length; i++) {
+                    statement.setObject(i + 1, args[i]);
+                }
+                return statement;
+            },
+            new BeanPropertyRowMapper<>(Persona.class));
+    }
+
+    /**
+     * Cerca una persona specifica per ID nella rubrica di un utente.
+     * 
+     * @param ownerId ID dell'utente proprietario
      * @param id identificativo univoco della persona
      * @return oggetto Persona corrispondente all'ID
      * @throws org.springframework.dao.EmptyResultDataAccessException se non trovata
+     *         o se appartiene a un altro utente
      */
-    public Persona findById(Long id) {
-        String sql = "SELECT * FROM lista_contatti WHERE id = ?";
-        return jdbcTemplate.queryForObject(sql, new BeanPropertyRowMapper<>(Persona.class), id);
+    public Persona findById(long ownerId, Long id) {
+        return JfrRepositoryEvent.record("PersonaRepository.findById", "SELECT", () -> {
+            return shardRouter.onShardOf(id, 
+                () -> jdbcTemplate.queryForObject(FIND_BY_ID_SQL, new BeanPropertyRowMapper<>(Persona.class), ownerId, id));
+        }, persona -> 1);
     }
     
     /**
-     * Inserisce una nuova persona nel database.
+     * Cerca un insieme di persone per ID nella rubrica di un utente.
+     * 
+     * <p>Gli ID vengono suddivisi in blocchi come in {@link #deleteByIds(long, Collection)};
+     * gli ID inesistenti o di altri utenti vengono ignorati.</p>
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da cercare
+     * @return persone trovate, in ordine non specificato
+     */
+    public List<Persona> findByIds(long ownerId, Collection<Long> ids) {
+        return JfrRepositoryEvent.record("PersonaRepository.findByIds", "SELECT", () -> {
+            return findByIds(ownerId, ids, ACTIVE);
+        }, List::size);
+    }
+    
+    /**
+     * Assegna l'ID a una nuova persona prima dell'inserimento.
+     * 
+     * <p>Con un solo shard l'ID resta assegnato dall'AUTO_INCREMENT del database;
+     * con più shard viene generato qui, perché determina lo shard su cui
+     * aprire la transazione di inserimento.</p>
+     * 
+     * @return nuovo ID univoco, o {@code null} se lo assegna il database
+     */
+    public Long allocateId() {
+        return shardRouter.getShardCount() > 1 ? idGenerator.nextId() : null;
+    }
+
+    /**
+     * Inserisce una nuova persona nella rubrica di un utente.
      * 
      * <p>Aggiunge un nuovo record nella tabella 'lista_contatti' con tutti
-     * i dati della persona fornita. L'ID viene generato automaticamente.</p>
+     * i dati della persona fornita e imposta il proprietario sulla persona.
+     * Se la persona ha già un ID assegnato da {@link #allocateId()} il record
+     * viene inserito sul suo shard con quell'ID, altrimenti l'ID viene generato
+     * automaticamente dal database e impostato sulla persona.</p>
      * 
+     * @param ownerId ID dell'utente proprietario
      * @param persona oggetto Persona da inserire
      * @return true se l'inserimento è riuscito, false altrimenti
      */
-    public boolean insert(Persona persona) {
-        String sql = """
-            INSERT INTO lista_contatti (nome, cognome, indirizzo, telefono, eta) 
-            VALUES (?, ?, ?, ?, ?)
-            """;
-
-        int rowsAffected = jdbcTemplate.update(sql,
-            persona.getNome(),
-            persona.getCognome(),
-            persona.getIndirizzo(),
-            persona.getTelefono(),
-            persona.getEta());
-            
-        return rowsAffected > 0;
+    public boolean insert(long ownerId, Persona persona) {
+        return JfrRepositoryEvent.record("PersonaRepository.insert", "INSERT", () -> {
+            persona.setOwnerId(ownerId);
+            if (persona.getId() == null) {
+                long versione = idGenerator.nextId();
+                KeyHolder keyHolder = new GeneratedKeyHolder();
+                int rowsAffected = jdbcTemplate.update(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[] {"id"});
+                    statement.setLong(1, ownerId);
+                    statement.setString(2, persona.getNome());
+                    statement.setString(3, persona.getCognome());
+                    statement.setString(4, persona.getIndirizzo());
+                    statement.setString(5, persona.getTelefono());
+                    statement.setObject(6, persona.getEta(), Types.INTEGER);
+                    statement.setLong(7, versione);
+                    return statement;
+                }, keyHolder);
+                if (rowsAffected > 0 && keyHolder.getKey() != null) {
+                    persona.setId(keyHolder.getKey().longValue());
+                }
+                return rowsAffected > 0;
+            }
+
+            return shardRouter.onShardOf(persona.getId(), () -> jdbcTemplate.update(INSERT_WITH_ID_SQL,
+                persona.getId(),
+                ownerId,
+                persona.getNome(),
+                persona.getCognome(),
+                persona.getIndirizzo(),
+                persona.getTelefono(),
+                persona.getEta(),
+                idGenerator.nextId()) > 0);
+        }, PersonaRepository::count);
     }
     
     /**
-     * Aggiorna i dati di una persona esistente.
+     * Inserisce un blocco di nuove persone nella rubrica di un utente, sullo
+     * shard corrente, con un'unica istruzione batch.
+     *
+     * <p>Se le persone hanno già un ID assegnato da {@link #allocateId()} viene
+     * inserito anche quello, e devono appartenere tutte allo shard corrente;
+     * altrimenti gli ID vengono assegnati dal database e non vengono riportati
+     * sulle persone. Tutte le righe del blocco ricevono la stessa versione.
+     * La transazione deve essere gestita dal chiamante.</p>
+     *
+     * @param ownerId ID dell'utente proprietario
+     * @param persons persone da inserire, tutte con o tutte senza ID
+     * @return numero di righe inserite
+     */
+    public int insertBatch(long ownerId, List<Persona> persons) {
+        return JfrRepositoryEvent.record("PersonaRepository.insertBatch", "INSERT", () -> {
+            if (persons.isEmpty()) {
+                return 0;
+            }
+            boolean withId = persons.get(0).getId() != null;
+            String sql = withId ? INSERT_WITH_ID_SQL : INSERT_SQL;
+            long versione = idGenerator.nextId();
+            int[][] counts = jdbcTemplate.batchUpdate(sql, persons, persons.size(), (statement, persona) -> {
+                int index = 1;
+                if (withId) {
+                    statement.setLong(index++, persona.getId());
+                }
+                statement.setLong(index++, ownerId);
+                statement.setString(index++, persona.getNome());
+                statement.setString(index++, persona.getCognome());
+                statement.setString(index++, persona.getIndirizzo());
+                statement.setString(index++, persona.getTelefono());
+                statement.setObject(index++, persona.getEta(), Types.INTEGER);
+                statement.setLong(index, versione);
+            });
+            int rows = 0;
+            for (int count : counts[0]) {
+                // I driver che riscrivono il batch restituiscono SUCCESS_NO_INFO
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+            return rows;
+        }, Integer::longValue);
+    }
+
+    /**
+     * Aggiorna i dati di una persona esistente nella rubrica di un utente.
      * 
      * <p>Modifica tutti i campi della persona identificata dall'ID.
      * Tutti i campi vengono aggiornati con i nuovi valori forniti.</p>
      * 
+     * @param ownerId ID dell'utente proprietario
      * @param persona oggetto Persona con i nuovi dati e ID esistente
      * @return true se l'aggiornamento è riuscito, false altrimenti
      */
-    public boolean update(Persona persona) {
-        String sql = """
-            UPDATE lista_contatti 
-            SET nome = ?, cognome = ?, indirizzo = ?, telefono = ?, eta = ? 
-            WHERE id = ?
-            """;
-        
-        int rowsAffected = jdbcTemplate.update(sql,
-            persona.getNome(),
-            persona.getCognome(), 
-            persona.getIndirizzo(),
-            persona.getTelefono(),
-            persona.getEta(),
-            persona.getId());
+    public boolean update(long ownerId, Persona persona) {
+        return JfrRepositoryEvent.record("PersonaRepository.update", "UPDATE", () -> {
+            persona.setOwnerId(ownerId);
+            int rowsAffected = shardRouter.onShardOf(persona.getId(), () -> jdbcTemplate.update(UPDATE_SQL,
+                persona.getNome(),
+                persona.getCognome(), 
+                persona.getIndirizzo(),
+                persona.getTelefono(),
+                persona.getEta(),
+                idGenerator.nextId(),
+                ownerId,
+                persona.getId()));
             
-        return rowsAffected > 0;
+            return rowsAffected > 0;
+        }, PersonaRepository::count);
     }
     
     /**
-     * Elimina una persona dal database tramite ID.
+     * Elimina logicamente una persona della rubrica di un utente tramite ID.
      * 
-     * <p>Rimuove definitivamente il record della persona dalla tabella
-     * 'lista_contatti' usando l'identificativo fornito.</p>
+     * <p>Imposta l'istante di eliminazione sul record della persona, che da quel
+     * momento viene escluso dalle letture; la riga viene rimossa definitivamente
+     * da {@link #purgeByIds(Collection, Instant)}.</p>
      * 
+     * @param ownerId ID dell'utente proprietario
      * @param id identificativo della persona da eliminare
      * @return true se l'eliminazione è riuscita, false altrimenti
      */
-    public boolean deleteById(Long id) {
-        String sql = "DELETE FROM lista_contatti WHERE id = ?";
-        return jdbcTemplate.update(sql, id) > 0;
+    public boolean deleteById(long ownerId, Long id) {
+        return JfrRepositoryEvent.record("PersonaRepository.deleteById", "UPDATE", () -> {
+            return shardRouter.onShardOf(id, () -> jdbcTemplate.update(
+                DELETE_BY_ID_SQL, Timestamp.from(Instant.now()), idGenerator.nextId(), ownerId, id)) > 0;
+        }, PersonaRepository::count);
+    }
+
+    /**
+     * Elimina logicamente un insieme di persone della rubrica di un utente
+     * tramite i loro ID.
+     * 
+     * <p>Gli ID vengono suddivisi in blocchi da {@value #BULK_CHUNK_SIZE} e marcati
+     * con una singola istruzione {@code UPDATE ... WHERE id IN (...)} per blocco,
+     * con lo stesso istante di eliminazione. La transazione deve essere gestita
+     * dal chiamante.</p>
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da eliminare
+     * @return numero di righe effettivamente eliminate
+     */
+    public int deleteByIds(long ownerId, Collection<Long> ids) {
+        return JfrRepositoryEvent.record("PersonaRepository.deleteByIds", "UPDATE", () -> {
+            Timestamp now = Timestamp.from(Instant.now());
+            return updateByShard(ids, chunk -> jdbcTemplate.update(
+                "UPDATE lista_contatti SET eliminato_il = ?, versione = ? WHERE owner_id = ? AND id IN (" 
+                    + placeholders(chunk.size()) + ") AND eliminato_il IS NULL",
+                withFirst(chunk, now, idGenerator.nextId(), ownerId)));
+        }, Integer::longValue);
+    }
+
+    /**
+     * Cerca un insieme di persone della rubrica di un utente eliminate
+     * logicamente e non ancora rimosse.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da cercare
+     * @return persone eliminate trovate, in ordine non specificato
+     */
+    public List<Persona> findDeletedByIds(long ownerId, Collection<Long> ids) {
+        return JfrRepositoryEvent.record("PersonaRepository.findDeletedByIds", "SELECT", () -> {
+            return findByIds(ownerId, ids, "eliminato_il IS NOT NULL");
+        }, List::size);
+    }
+
+    /**
+     * Ripristina un insieme di persone della rubrica di un utente eliminate
+     * logicamente e non ancora rimosse. La transazione deve essere gestita
+     * dal chiamante.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da ripristinare
+     * @return numero di righe effettivamente ripristinate
+     */
+    public int restoreByIds(long ownerId, Collection<Long> ids) {
+        return JfrRepositoryEvent.record("PersonaRepository.restoreByIds", "UPDATE", () -> {
+            return updateByShard(ids, chunk -> jdbcTemplate.update(
+                "UPDATE lista_contatti SET eliminato_il = NULL, versione = ? WHERE owner_id = ? AND id IN (" 
+                    + placeholders(chunk.size()) + ") AND eliminato_il IS NOT NULL",
+                withFirst(chunk, idGenerator.nextId(), ownerId)));
+        }, Integer::longValue);
+    }
+
+    /**
+     * Recupera in ordine di ID le persone dello shard corrente eliminate logicamente
+     * prima dell'istante indicato.
+     * 
+     * @param cutoff istante limite di eliminazione (escluso)
+     * @param limit numero massimo di ID da restituire
+     * @return ID delle righe da rimuovere definitivamente, in ordine crescente
+     */
+    public List<Long> findPurgeableIds(Instant cutoff, int limit) {
+        return JfrRepositoryEvent.record("PersonaRepository.findPurgeableIds", "SELECT", () -> {
+            String sql = "SELECT id FROM lista_contatti WHERE eliminato_il < ? ORDER BY id LIMIT ?";
+            return jdbcTemplate.queryForList(sql, Long.class, Timestamp.from(cutoff), limit);
+        }, List::size);
+    }
+
+    /**
+     * Rimuove definitivamente le righe dello shard corrente eliminate logicamente
+     * prima dell'istante indicato.
+     * 
+     * <p>La condizione sull'istante di eliminazione viene ripetuta nell'istruzione,
+     * così una riga ripristinata nel frattempo non viene rimossa. Prima della
+     * rimozione ogni riga viene copiata in {@code contatti_rimossi} con la
+     * versione dell'eliminazione; la transazione deve essere gestita dal
+     * chiamante.</p>
+     * 
+     * @param ids identificativi delle righe da rimuovere, al massimo {@value #BULK_CHUNK_SIZE}
+     *            per istruzione
+     * @param cutoff istante limite di eliminazione (escluso)
+     * @return numero di righe effettivamente rimosse
+     */
+    public int purgeByIds(Collection<Long> ids, Instant cutoff) {
+        return JfrRepositoryEvent.record("PersonaRepository.purgeByIds", "DELETE", () -> {
+            int rowsAffected = 0;
+            for (List<Long> chunk : partition(ids)) {
+                String condition = " WHERE id IN (" + placeholders(chunk.size()) + ") AND eliminato_il < ?";
+                List<Object> args = new ArrayList<>(chunk);
+                args.add(Timestamp.from(cutoff));
+                jdbcTemplate.update("INSERT INTO contatti_rimossi (id, owner_id, versione)"
+                    + " SELECT id, owner_id, versione FROM lista_contatti" + condition, args.toArray());
+                rowsAffected += jdbcTemplate.update("DELETE FROM lista_contatti" + condition, args.toArray());
+            }
+            return rowsAffected;
+        }, Integer::longValue);
+    }
+
+    /**
+     * Rimuove dallo shard corrente un blocco di tombstone con versione
+     * precedente a quella indicata.
+     * 
+     * @param before versione limite (esclusa)
+     * @param limit numero massimo di tombstone da rimuovere
+     * @return numero di tombstone rimossi
+     */
+    public int purgeTombstones(long before, int limit) {
+        return JfrRepositoryEvent.record("PersonaRepository.purgeTombstones", "DELETE", () -> {
+            return jdbcTemplate.update("DELETE FROM contatti_rimossi WHERE versione < ? LIMIT ?", before, limit);
+        }, Integer::longValue);
+    }
+
+    /**
+     * Recupera le modifiche della rubrica di un utente successive a una
+     * posizione, in ordine di (versione, ID).
+     * 
+     * <p>Legge sia le righe attive sia quelle eliminate logicamente e i
+     * tombstone delle righe già rimosse, usando gli indici su
+     * {@code (owner_id, versione, id)}: il costo dipende dal numero di
+     * modifiche lette, non dalla dimensione della rubrica. Con più shard le
+     * letture vengono eseguite in parallelo e fuse in ordine.</p>
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param after posizione dell'ultima modifica già letta (esclusa)
+     * @param limit numero massimo di modifiche
+     * @return modifiche in ordine di versione, con la persona null per le eliminazioni
+     */
+    public List<PersonaChange> findChangesSince(long ownerId, SyncToken after, int limit) {
+        return JfrRepositoryEvent.record("PersonaRepository.findChangesSince", "SELECT", () -> {
+            Object[] args = {ownerId, after.versione(), after.versione(), after.id(), limit};
+            RowMapper<Persona> personaMapper = new BeanPropertyRowMapper<>(Persona.class);
+            List<List<PersonaChange>> sources = new ArrayList<>();
+            shardRouter.onEachShard(() -> List.of(
+                    jdbcTemplate.query(CHANGES_SQL, (rs, rowNum) -> {
+                        Persona persona = personaMapper.mapRow(rs, rowNum);
+                        return new PersonaChange(rs.getLong("versione"), persona.getId(),
+                            rs.getTimestamp("eliminato_il") == null ? persona : null);
+                    }, args),
+                    jdbcTemplate.query(REMOVED_CHANGES_SQL,
+                        (rs, rowNum) -> new PersonaChange(rs.getLong("versione"), rs.getLong("id"), null), args)))
+                .forEach(sources::addAll);
+            return ShardMerge.merge(sources, CHANGE_ORDER, limit);
+        }, List::size);
+    }
+
+    /**
+     * Legge l'ora corrente del database (del primo shard).
+     *
+     * <p>È il riferimento per confrontare {@code modificato_il}, impostata
+     * dal database stesso e quindi indipendente dall'orologio dell'applicazione.</p>
+     *
+     * @return istante corrente secondo il database
+     */
+    public Instant currentTimestamp() {
+        return JfrRepositoryEvent.record("PersonaRepository.currentTimestamp", "SELECT", () -> {
+            return shardRouter.onShard(0,
+                () -> jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP", Timestamp.class).toInstant());
+        }, timestamp -> 1);
+    }
+
+    /**
+     * Recupera le persone attive modificate o inserite a partire dall'istante indicato.
+     *
+     * @param since istante di partenza, incluso
+     * @return persone modificate su tutti gli shard, in ordine non specificato
+     */
+    public List<Persona> findModifiedSince(Instant since) {
+        return JfrRepositoryEvent.record("PersonaRepository.findModifiedSince", "SELECT", () -> {
+            String sql = "SELECT * FROM lista_contatti WHERE modificato_il >= ? AND eliminato_il IS NULL";
+            List<Persona> result = new ArrayList<>();
+            shardRouter.onEachShard(() -> jdbcTemplate.query(
+                    sql, new BeanPropertyRowMapper<>(Persona.class), Timestamp.from(since)))
+                .forEach(result::addAll);
+            return result;
+        }, List::size);
+    }
+
+    /**
+     * Recupera gli ID delle persone eliminate logicamente a partire dall'istante indicato.
+     *
+     * @param since istante di partenza, incluso
+     * @return ID eliminati su tutti gli shard, in ordine non specificato
+     */
+    public List<Long> findDeletedIdsSince(Instant since) {
+        return JfrRepositoryEvent.record("PersonaRepository.findDeletedIdsSince", "SELECT", () -> {
+            String sql = "SELECT id FROM lista_contatti WHERE modificato_il >= ? AND eliminato_il IS NOT NULL";
+            List<Long> result = new ArrayList<>();
+            shardRouter.onEachShard(() -> jdbcTemplate.queryForList(sql, Long.class, Timestamp.from(since)))
+                .forEach(result::addAll);
+            return result;
+        }, List::size);
+    }
+
+    /**
+     * Recupera gli ID di tutte le persone attive.
+     *
+     * <p>Legge la sola chiave primaria, senza mappare le righe: serve a
+     * riconoscere i contatti rimossi definitivamente dalla pulizia.</p>
+     *
+     * @return ID attivi su tutti gli shard, in ordine non specificato
+     */
+    public List<Long> findActiveIds() {
+        return JfrRepositoryEvent.record("PersonaRepository.findActiveIds", "SELECT", () -> {
+            String sql = "SELECT id FROM lista_contatti WHERE eliminato_il IS NULL";
+            List<Long> result = new ArrayList<>();
+            shardRouter.onEachShard(() -> jdbcTemplate.queryForList(sql, Long.class)).forEach(result::addAll);
+            return result;
+        }, List::size);
+    }
+
+    /**
+     * Imposta lo stesso valore di un campo su un insieme di persone della
+     * rubrica di un utente.
+     * 
+     * <p>La colonna deve appartenere alla whitelist delle colonne aggiornabili,
+     * poiché il suo nome viene inserito direttamente nel testo SQL. Gli ID vengono
+     * suddivisi in blocchi come in {@link #deleteByIds(long, Collection)}.</p>
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da aggiornare
+     * @param column nome della colonna da aggiornare
+     * @param value nuovo valore della colonna (può essere null per i campi opzionali)
+     * @return numero di righe effettivamente aggiornate
+     * @throws IllegalArgumentException se la colonna non è aggiornabile
+     */
+    public int updateFieldByIds(long ownerId, Collection<Long> ids, String column, Object value) {
+        return JfrRepositoryEvent.record("PersonaRepository.updateFieldByIds", "UPDATE", () -> {
+            if (!BULK_UPDATABLE_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Campo non aggiornabile: " + column);
+            }
+
+            return updateByShard(ids, chunk -> jdbcTemplate.update(
+                "UPDATE lista_contatti SET " + column + " = ?, versione = ? WHERE owner_id = ? AND id IN (" 
+                    + placeholders(chunk.size()) + ") AND eliminato_il IS NULL",
+                withFirst(chunk, value, idGenerator.nextId(), ownerId)));
+        }, Integer::longValue);
+    }
+
+    /**
+     * Restituisce il testo delle istruzioni eseguite dalle richieste degli
+     * utenti, da preparare su ogni nuova connessione prima che il database
+     * venga dichiarato pronto.
+     * 
+     * <p>Il testo coincide con quello usato dalle operazioni, così che gli
+     * statement preparati in anticipo vengano ritrovati nella cache del driver.
+     * Delle istruzioni con un numero variabile di ID sono incluse la lettura di
+     * un solo contatto, usata prima di ogni modifica, e quella di una pagina
+     * in ordine alfabetico; sono escluse le operazioni di manutenzione.</p>
+     * 
+     * @return istruzioni SQL con segnaposto posizionali "?"
+     */
+    public static List<String> warmUpStatements() {
+        List<String> statements = new ArrayList<>(List.of(
+            FIND_ALL_SQL,
+            FIND_BY_ID_SQL,
+            findByIdsSql(1, ACTIVE),
+            findByIdsSql(PersonaQuery.DEFAULT_SIZE, ACTIVE),
+            INSERT_SQL,
+            INSERT_WITH_ID_SQL,
+            UPDATE_SQL,
+            DELETE_BY_ID_SQL,
+            CHANGES_SQL,
+            REMOVED_CHANGES_SQL));
+        statements.addAll(PageStatement.defaultSql());
+        return statements;
+    }
+
+    /**
+     * Testo della lettura per ID di un blocco di persone di un utente.
+     * 
+     * @param count numero di ID del blocco
+     * @param condition condizione sullo stato di eliminazione
+     * @return istruzione SQL
+     */
+    private static String findByIdsSql(int count, String condition) {
+        return "SELECT * FROM lista_contatti WHERE owner_id = ? AND id IN (" + placeholders(count) + ") AND " + condition;
+    }
+
+    /**
+     * Cerca un insieme di persone di un utente per ID sui rispettivi shard, a blocchi.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da cercare
+     * @param condition condizione sullo stato di eliminazione
+     * @return persone trovate, in ordine non specificato
+     */
+    private List<Persona> findByIds(long ownerId, Collection<Long> ids, String condition) {
+        List<Persona> result = new ArrayList<>();
+        shardRouter.groupByShard(ids).forEach((shard, shardIds) -> shardRouter.onShard(shard, () -> {
+            for (List<Long> chunk : partition(shardIds)) {
+                result.addAll(jdbcTemplate.query(
+                    findByIdsSql(chunk.size(), condition), new BeanPropertyRowMapper<>(Persona.class), withFirst(chunk, ownerId)));
+            }
+            return null;
+        }));
+        return result;
+    }
+
+    /**
+     * Esegue un aggiornamento a blocchi di ID sugli shard a cui appartengono.
+     * 
+     * @param ids identificativi delle righe da aggiornare
+     * @param update istruzione da eseguire per ogni blocco, restituisce le righe modificate
+     * @return numero totale di righe modificate
+     */
+    private int updateByShard(Collection<Long> ids, ToIntFunction<List<Long>> update) {
+        int rowsAffected = 0;
+        for (Map.Entry<Integer, List<Long>> group : shardRouter.groupByShard(ids).entrySet()) {
+            rowsAffected += shardRouter.onShard(group.getKey(), () -> {
+                int rows = 0;
+                for (List<Long> chunk : partition(group.getValue())) {
+                    rows += update.applyAsInt(chunk);
+                }
+                return rows;
+            });
+        }
+        return rowsAffected;
+    }
+
+    /**
+     * Costruisce gli argomenti di un'istruzione con alcuni valori seguiti dagli ID.
+     * 
+     * @param ids identificativi per gli ultimi parametri
+     * @param first valori dei primi parametri
+     * @return argomenti nell'ordine dei segnaposto
+     */
+    private static Object[] withFirst(List<Long> ids, Object... first) {
+        List<Object> args = new ArrayList<>(ids.size() + first.length);
+        args.addAll(Arrays.asList(first));
+        args.addAll(ids);
+        return args.toArray();
+    }
+
+    /**
+     * Righe corrispondenti all'esito di un'operazione su una sola riga.
+     */
+    private static long count(boolean done) {
+        return done ? 1 : 0;
+    }
+
+    /**
+     * Suddivide gli ID in blocchi di dimensione massima {@value #BULK_CHUNK_SIZE}.
+     * 
+     * @param ids identificativi da suddividere
+     * @return lista di blocchi, vuota se non ci sono ID
+     */
+    static List<List<Long>> partition(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> source = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < source.size(); from += BULK_CHUNK_SIZE) {
+            chunks.add(source.subList(from, Math.min(from + BULK_CHUNK_SIZE, source.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Genera la lista di segnaposto per una clausola IN.
+     * 
+     * @param count numero di segnaposto
+     * @return stringa del tipo "?, ?, ?"
+     */
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
     }
 }
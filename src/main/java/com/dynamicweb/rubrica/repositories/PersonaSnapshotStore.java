@@ -0,0 +1,446 @@
+package com.dynamicweb.rubrica.repositories;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Archivio su file degli snapshot binari dei contatti.
+ *
+ * <p>Ogni snapshot è un file {@code rubrica-<istante>.snap} nella cartella
+ * {@code rubrica.snapshot.dir}, con questo formato (interi in big endian):</p>
+ * <pre>
+ * intestazione  "RBSN", versione (1 byte), istante in ms (8 byte),
+ *               origine (varint lunghezza + UTF-8)
+ * contatto      id (varint), proprietario (varint), campi presenti (1 byte, un bit per campo),
+ *               nome, cognome, indirizzo, telefono (varint lunghezza + UTF-8),
+ *               età (varint zigzag)
+ * chiusura      numero di contatti (8 byte), CRC32C di tutto il resto (4 byte)
+ * </pre>
+ *
+ * <p>L'origine identifica il database da cui è stato letto lo snapshot, così
+ * che uno snapshot non venga mai caricato su un database diverso. Il file viene
+ * scritto in una copia temporanea, sincronizzato su disco e rinominato, quindi
+ * un'interruzione non lascia mai uno snapshot parziale con il nome definitivo.</p>
+ *
+ * <p>La lettura mappa il file in memoria tramite {@link FileChannel#map} e ne
+ * decodifica i contatti direttamente dalla mappatura: il checksum viene
+ * calcolato sul buffer mappato e il file non viene mai copiato per intero
+ * nello heap. Gli snapshot danneggiati o di una versione sconosciuta vengono
+ * scartati a favore del precedente.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Repository
+public class PersonaSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PersonaSnapshotStore.class);
+
+    /** Firma iniziale dei file di snapshot, "RBSN" in ASCII */
+    private static final int MAGIC = 0x5242534E;
+
+    /** Versione corrente del formato */
+    private static final byte VERSION = 2;
+
+    /** Byte della chiusura: numero di contatti e checksum */
+    private static final int TRAILER_SIZE = Long.BYTES + Integer.BYTES;
+
+    /** Nome dei file di snapshot, con l'istante in millisecondi */
+    private static final Pattern FILE_NAME = Pattern.compile("rubrica-(\\d+)\\.snap");
+
+    /** Dimensione del buffer di scrittura */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private static final int HAS_NOME = 1;
+    private static final int HAS_COGNOME = 1 << 1;
+    private static final int HAS_INDIRIZZO = 1 << 2;
+    private static final int HAS_TELEFONO = 1 << 3;
+    private static final int HAS_ETA = 1 << 4;
+
+    private final Path directory;
+
+    private final int keep;
+
+    /**
+     * Snapshot letto da file.
+     *
+     * @param takenAt istante a cui si riferiscono i dati
+     * @param contacts contatti attivi all'istante dello snapshot
+     */
+    public record Snapshot(Instant takenAt, List<Persona> contacts) {
+    }
+
+    /**
+     * Costruttore con la cartella degli snapshot.
+     *
+     * @param directory cartella in cui vengono scritti gli snapshot
+     * @param keep numero di snapshot conservati, i più vecchi vengono eliminati
+     */
+    public PersonaSnapshotStore(
+        @Value("${rubrica.snapshot.dir:./data/snapshot}") Path directory,
+        @Value("${rubrica.snapshot.keep:3}") int keep) {
+        this.directory = directory;
+        this.keep = Math.max(1, keep);
+    }
+
+    /**
+     * Scrive un nuovo snapshot con i contatti forniti ed elimina i più vecchi.
+     *
+     * @param source identificativo del database di origine
+     * @param takenAt istante a cui si riferiscono i dati
+     * @param contacts contatti da salvare, letti una sola volta
+     * @return percorso dello snapshot scritto
+     * @throws IOException se la scrittura non riesce
+     */
+    public Path write(String source, Instant takenAt, Iterable<Persona> contacts) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve("rubrica-" + takenAt.toEpochMilli() + ".snap");
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Encoder out = new Encoder(channel);
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(takenAt.toEpochMilli());
+            out.writeString(source);
+
+            long count = 0;
+            for (Persona persona : contacts) {
+                writePersona(out, persona);
+                count++;
+            }
+            out.writeLong(count);
+            out.finish();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        deleteOlderThanKept();
+        return target;
+    }
+
+    /**
+     * Legge lo snapshot valido più recente per il database indicato.
+     *
+     * @param source identificativo del database di origine
+     * @return lo snapshot, vuoto se non ne esiste uno valido per quel database
+     */
+    public Optional<Snapshot> readLatest(String source) {
+        for (Path file : listSnapshots()) {
+            try {
+                Snapshot snapshot = read(file, source);
+                if (snapshot != null) {
+                    return Optional.of(snapshot);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Snapshot {} non leggibile, ignorato: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Legge uno snapshot dal file mappato in memoria.
+     *
+     * @param file percorso dello snapshot
+     * @param source identificativo del database atteso
+     * @return lo snapshot, o {@code null} se appartiene a un altro database
+     * @throws IOException se il file è danneggiato o di una versione non supportata
+     */
+    private static Snapshot read(Path file, String source) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < Integer.BYTES + 1 + Long.BYTES + TRAILER_SIZE) {
+                throw new IOException("dimensione non valida: " + size);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.BIG_ENDIAN);
+
+            int end = (int) size - TRAILER_SIZE;
+            CRC32C crc = new CRC32C();
+            crc.update(mapped.duplicate().limit(end + Long.BYTES));
+            if ((int) crc.getValue() != mapped.getInt(end + Long.BYTES)) {
+                throw new IOException("checksum non valido");
+            }
+            long expected = mapped.getLong(end);
+
+            Decoder in = new Decoder(mapped.limit(end));
+            if (in.buffer.getInt() != MAGIC) {
+                throw new IOException("firma non valida");
+            }
+            byte version = in.buffer.get();
+            if (version != VERSION) {
+                throw new IOException("versione " + version + " non supportata");
+            }
+            Instant takenAt = Instant.ofEpochMilli(in.buffer.getLong());
+            if (!source.equals(in.readString())) {
+                return null;
+            }
+
+            List<Persona> contacts = new ArrayList<>((int) Math.min(expected, Integer.MAX_VALUE - 8));
+            while (in.buffer.hasRemaining()) {
+                contacts.add(readPersona(in));
+            }
+            if (contacts.size() != expected) {
+                throw new IOException("attesi " + expected + " contatti, letti " + contacts.size());
+            }
+            return new Snapshot(takenAt, contacts);
+        }
+    }
+
+    /**
+     * Codifica un contatto.
+     *
+     * @param out destinazione
+     * @param persona contatto da codificare
+     * @throws IOException se la scrittura non riesce
+     */
+    private static void writePersona(Encoder out, Persona persona) throws IOException {
+        int flags = (persona.getNome() != null ? HAS_NOME : 0)
+            | (persona.getCognome() != null ? HAS_COGNOME : 0)
+            | (persona.getIndirizzo() != null ? HAS_INDIRIZZO : 0)
+            | (persona.getTelefono() != null ? HAS_TELEFONO : 0)
+            | (persona.getEta() != null ? HAS_ETA : 0);
+        out.writeVarLong(persona.getId());
+        out.writeVarLong(persona.getOwnerId());
+        out.writeByte((byte) flags);
+        if (persona.getNome() != null) {
+            out.writeString(persona.getNome());
+        }
+        if (persona.getCognome() != null) {
+            out.writeString(persona.getCognome());
+        }
+        if (persona.getIndirizzo() != null) {
+            out.writeString(persona.getIndirizzo());
+        }
+        if (persona.getTelefono() != null) {
+            out.writeString(persona.getTelefono());
+        }
+        if (persona.getEta() != null) {
+            int eta = persona.getEta();
+            out.writeVarLong((eta << 1) ^ (eta >> 31));
+        }
+    }
+
+    /**
+     * Decodifica un contatto.
+     *
+     * @param in sorgente posizionata all'inizio del contatto
+     * @return il contatto letto
+     */
+    private static Persona readPersona(Decoder in) {
+        Persona persona = new Persona();
+        persona.setId(in.readVarLong());
+        persona.setOwnerId(in.readVarLong());
+        int flags = in.buffer.get();
+        if ((flags & HAS_NOME) != 0) {
+            persona.setNome(in.readString());
+        }
+        if ((flags & HAS_COGNOME) != 0) {
+            persona.setCognome(in.readString());
+        }
+        if ((flags & HAS_INDIRIZZO) != 0) {
+            persona.setIndirizzo(in.readString());
+        }
+        if ((flags & HAS_TELEFONO) != 0) {
+            persona.setTelefono(in.readString());
+        }
+        if ((flags & HAS_ETA) != 0) {
+            int zigzag = (int) in.readVarLong();
+            persona.setEta((zigzag >>> 1) ^ -(zigzag & 1));
+        }
+        return persona;
+    }
+
+    /**
+     * Elenca gli snapshot presenti, dal più recente.
+     *
+     * @return percorsi degli snapshot
+     */
+    private List<Path> listSnapshots() {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "rubrica-*.snap")) {
+            stream.forEach(files::add);
+        } catch (IOException e) {
+            log.warn("Cartella degli snapshot non leggibile: {}", e.getMessage());
+        }
+        files.removeIf(file -> !FILE_NAME.matcher(file.getFileName().toString()).matches());
+        files.sort(Comparator.comparingLong(PersonaSnapshotStore::takenAtMillis).reversed());
+        return files;
+    }
+
+    /**
+     * Elimina gli snapshot oltre il numero da conservare.
+     */
+    private void deleteOlderThanKept() {
+        List<Path> files = listSnapshots();
+        for (Path file : files.subList(Math.min(keep, files.size()), files.size())) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Snapshot {} non eliminato: {}", file.getFileName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Estrae l'istante dal nome di uno snapshot.
+     *
+     * @param file percorso dello snapshot
+     * @return istante in millisecondi
+     */
+    private static long takenAtMillis(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+
+    /**
+     * Scrittura bufferizzata su canale con calcolo del checksum.
+     */
+    private static final class Encoder {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+        private final CRC32C crc = new CRC32C();
+
+        Encoder(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Scrive un intero senza segno a lunghezza variabile, 7 bit per byte.
+         */
+        void writeVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Scrive il checksum di quanto scritto finora e svuota il buffer.
+         */
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Lettura dei valori codificati direttamente dal buffer mappato.
+     */
+    private static final class Decoder {
+
+        private final ByteBuffer buffer;
+
+        /** Appoggio riutilizzato per la decodifica UTF-8 delle stringhe */
+        private byte[] scratch = new byte[256];
+
+        Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("varint non valido");
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            if (length > buffer.remaining()) {
+                throw new IllegalStateException("stringa oltre la fine del file");
+            }
+            if (length > scratch.length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
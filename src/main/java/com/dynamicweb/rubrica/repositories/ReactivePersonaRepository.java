@@ -0,0 +1,319 @@
+package com.dynamicweb.rubrica.repositories;
+
+import com.dynamicweb.rubrica.components.IdGenerator;
+import com.dynamicweb.rubrica.configs.PersonaApiConfig;
+import com.dynamicweb.rubrica.dtos.PersonaChange;
+import com.dynamicweb.rubrica.dtos.PersonaPage;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.entities.Persona;
+import io.r2dbc.spi.Readable;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Repository reattivo per l'accesso ai dati delle persone tramite R2DBC.
+ * Offre le stesse operazioni di {@link PersonaRepository} senza bloccare
+ * il thread chiamante: i risultati sono {@link Mono} e {@link Flux}.
+ * 
+ * <p>Le letture multiple vengono emesse riga per riga secondo la richiesta del
+ * sottoscrittore, quindi un consumatore lento rallenta la lettura dal database
+ * invece di accumulare righe in memoria.</p>
+ * 
+ * <p>Come nel repository bloccante, ogni operazione è limitata alla rubrica
+ * dell'utente proprietario ricevuto come primo parametro, e ogni scrittura
+ * assegna una nuova versione alle righe modificate.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Repository
+@ConditionalOnProperty(name = "rubrica.persistence", havingValue = "reactive")
+@ConditionalOnClass(name = PersonaApiConfig.R2DBC_CLASS)
+public class ReactivePersonaRepository {
+
+    private final DatabaseClient databaseClient;
+
+    private final IdGenerator idGenerator;
+
+    /**
+     * Costruttore per l'injection del DatabaseClient.
+     * 
+     * @param databaseClient client R2DBC per operazioni SQL
+     * @param idGenerator generatore delle versioni delle modifiche
+     */
+    public ReactivePersonaRepository(DatabaseClient databaseClient, IdGenerator idGenerator) {
+        this.databaseClient = databaseClient;
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Recupera tutte le persone della rubrica di un utente.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @return flusso di tutte le persone
+     */
+    public Flux<Persona> findAll(long ownerId) {
+        return databaseClient.sql("SELECT * FROM lista_contatti WHERE owner_id = :owner AND eliminato_il IS NULL")
+            .bind("owner", ownerId)
+            .map(ReactivePersonaRepository::toPersona)
+            .all();
+    }
+
+    /**
+     * Recupera una pagina di persone ordinata e filtrata lato database,
+     * con la stessa istruzione keyset di {@link PersonaRepository#findPage(long, PersonaQuery)}.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param query parametri di ordinamento, filtro e paginazione già validati
+     * @return pagina di persone con il token per la pagina successiva
+     */
+    public Mono<PersonaPage> findPage(long ownerId, PersonaQuery query) {
+        PageStatement page = PageStatement.prepare(ownerId, query);
+        GenericExecuteSpec spec = databaseClient.sql(toNamedParameters(page.getSql()));
+        Object[] args = page.getArgs();
+        for (int i = 0; i < args.length; i++) {
+            spec = spec.bind("p" + i, args[i]);
+        }
+        return spec.map(ReactivePersonaRepository::toPersona)
+            .all()
+            .collectList()
+            .map(page::toPage);
+    }
+
+    /**
+     * Legge in streaming tutte le persone della rubrica di un utente ordinate per ID.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @return flusso lazy delle persone, letto secondo la richiesta del sottoscrittore
+     */
+    public Flux<Persona> streamByOwner(long ownerId) {
+        return databaseClient.sql(
+                "SELECT * FROM lista_contatti WHERE owner_id = :owner AND eliminato_il IS NULL ORDER BY id")
+            .bind("owner", ownerId)
+            .map(ReactivePersonaRepository::toPersona)
+            .all();
+    }
+
+    /**
+     * Cerca una persona specifica per ID nella rubrica di un utente.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param id identificativo univoco della persona
+     * @return la persona, o un Mono vuoto se non trovata o di un altro utente
+     */
+    public Mono<Persona> findById(long ownerId, Long id) {
+        return databaseClient.sql(
+                "SELECT * FROM lista_contatti WHERE owner_id = :owner AND id = :id AND eliminato_il IS NULL")
+            .bind("owner", ownerId)
+            .bind("id", id)
+            .map(ReactivePersonaRepository::toPersona)
+            .one();
+    }
+
+    /**
+     * Cerca un insieme di persone di un utente per ID, a blocchi come
+     * {@link PersonaRepository#findByIds(long, Collection)}.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da cercare
+     * @return flusso delle persone trovate
+     */
+    public Flux<Persona> findByIds(long ownerId, Collection<Long> ids) {
+        return Flux.fromIterable(PersonaRepository.partition(ids))
+            .concatMap(chunk -> databaseClient.sql(
+                    "SELECT * FROM lista_contatti WHERE owner_id = :owner AND id IN (:ids) AND eliminato_il IS NULL")
+                .bind("owner", ownerId)
+                .bind("ids", chunk)
+                .map(ReactivePersonaRepository::toPersona)
+                .all());
+    }
+
+    /**
+     * Recupera le modifiche della rubrica di un utente successive a una
+     * posizione, come {@link PersonaRepository#findChangesSince(long, SyncToken, int)}.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param after posizione dell'ultima modifica già letta (esclusa)
+     * @param limit numero massimo di modifiche
+     * @return flusso delle modifiche in ordine di versione
+     */
+    public Flux<PersonaChange> findChangesSince(long ownerId, SyncToken after, int limit) {
+        String position = " WHERE owner_id = :owner AND (versione > :versione OR (versione = :versione AND id > :id))"
+            + " ORDER BY versione, id LIMIT :limit";
+        Flux<PersonaChange> rows = databaseClient.sql("SELECT * FROM lista_contatti" + position)
+            .bind("owner", ownerId).bind("versione", after.versione()).bind("id", after.id()).bind("limit", limit)
+            .map(row -> new PersonaChange(row.get("versione", Long.class), row.get("id", Long.class),
+                row.get("eliminato_il") == null ? toPersona(row) : null))
+            .all();
+        Flux<PersonaChange> tombstones = databaseClient.sql("SELECT id, versione FROM contatti_rimossi" + position)
+            .bind("owner", ownerId).bind("versione", after.versione()).bind("id", after.id()).bind("limit", limit)
+            .map(row -> new PersonaChange(row.get("versione", Long.class), row.get("id", Long.class), null))
+            .all();
+        return Flux.concat(rows, tombstones)
+            .sort(Comparator.comparingLong(PersonaChange::getVersione).thenComparingLong(PersonaChange::getId))
+            .take(limit);
+    }
+
+    /**
+     * Inserisce una nuova persona nella rubrica di un utente e le assegna
+     * l'ID generato e il proprietario.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param persona oggetto Persona da inserire
+     * @return true se l'inserimento è riuscito
+     */
+    public Mono<Boolean> insert(long ownerId, Persona persona) {
+        persona.setOwnerId(ownerId);
+        GenericExecuteSpec spec = databaseClient.sql("""
+            INSERT INTO lista_contatti (owner_id, nome, cognome, indirizzo, telefono, eta, versione) 
+            VALUES (:owner, :nome, :cognome, :indirizzo, :telefono, :eta, :versione)
+            """);
+        return bindFields(spec, persona).bind("owner", ownerId).bind("versione", idGenerator.nextId())
+            .filter(statement -> statement.returnGeneratedValues("id"))
+            .map(row -> row.get("id", Long.class))
+            .one()
+            .doOnNext(persona::setId)
+            .hasElement();
+    }
+
+    /**
+     * Aggiorna tutti i campi di una persona esistente nella rubrica di un utente.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param persona oggetto Persona con i nuovi dati e ID esistente
+     * @return true se l'aggiornamento è riuscito
+     */
+    public Mono<Boolean> update(long ownerId, Persona persona) {
+        persona.setOwnerId(ownerId);
+        GenericExecuteSpec spec = databaseClient.sql("""
+            UPDATE lista_contatti 
+            SET nome = :nome, cognome = :cognome, indirizzo = :indirizzo, telefono = :telefono, eta = :eta, 
+                versione = :versione 
+            WHERE owner_id = :owner AND id = :id AND eliminato_il IS NULL
+            """);
+        return bindFields(spec, persona).bind("owner", ownerId).bind("id", persona.getId())
+            .bind("versione", idGenerator.nextId())
+            .fetch().rowsUpdated().map(rows -> rows > 0);
+    }
+
+    /**
+     * Elimina logicamente una persona della rubrica di un utente tramite ID,
+     * come {@link PersonaRepository#deleteById(long, Long)}.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param id identificativo della persona da eliminare
+     * @return true se l'eliminazione è riuscita
+     */
+    public Mono<Boolean> deleteById(long ownerId, Long id) {
+        return databaseClient.sql("UPDATE lista_contatti SET eliminato_il = :now, versione = :versione"
+                + " WHERE owner_id = :owner AND id = :id AND eliminato_il IS NULL")
+            .bind("now", LocalDateTime.now())
+            .bind("versione", idGenerator.nextId())
+            .bind("owner", ownerId)
+            .bind("id", id)
+            .fetch().rowsUpdated().map(rows -> rows > 0);
+    }
+
+    /**
+     * Elimina logicamente un insieme di persone della rubrica di un utente
+     * tramite i loro ID, a blocchi. La transazione deve essere gestita dal chiamante.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da eliminare
+     * @return numero di righe effettivamente eliminate
+     */
+    public Mono<Integer> deleteByIds(long ownerId, Collection<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        return Flux.fromIterable(PersonaRepository.partition(ids))
+            .concatMap(chunk -> databaseClient.sql("UPDATE lista_contatti SET eliminato_il = :now, versione = :versione"
+                    + " WHERE owner_id = :owner AND id IN (:ids) AND eliminato_il IS NULL")
+                .bind("now", now)
+                .bind("versione", idGenerator.nextId())
+                .bind("owner", ownerId)
+                .bind("ids", chunk)
+                .fetch().rowsUpdated())
+            .reduce(0, (total, rows) -> total + rows.intValue());
+    }
+
+    /**
+     * Imposta lo stesso valore di un campo su un insieme di persone della
+     * rubrica di un utente, a blocchi.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @param ids identificativi delle persone da aggiornare
+     * @param column nome della colonna da aggiornare, tra quelle ammesse da {@link PersonaRepository}
+     * @param value nuovo valore della colonna (può essere null per i campi opzionali)
+     * @return numero di righe effettivamente aggiornate
+     */
+    public Mono<Integer> updateFieldByIds(long ownerId, Collection<Long> ids, String column, Object value) {
+        if (!PersonaRepository.BULK_UPDATABLE_COLUMNS.contains(column)) {
+            return Mono.error(new IllegalArgumentException("Campo non aggiornabile: " + column));
+        }
+        Class<?> type = "eta".equals(column) ? Integer.class : String.class;
+        return Flux.fromIterable(PersonaRepository.partition(ids))
+            .concatMap(chunk -> {
+                GenericExecuteSpec spec = databaseClient.sql("UPDATE lista_contatti SET " + column
+                    + " = :value, versione = :versione WHERE owner_id = :owner AND id IN (:ids) AND eliminato_il IS NULL");
+                spec = value != null ? spec.bind("value", value) : spec.bindNull("value", type);
+                return spec.bind("versione", idGenerator.nextId()).bind("owner", ownerId).bind("ids", chunk)
+                    .fetch().rowsUpdated();
+            })
+            .reduce(0, (total, rows) -> total + rows.intValue());
+    }
+
+    /**
+     * Associa i campi della persona ai parametri con nome, gestendo i valori null.
+     */
+    private static GenericExecuteSpec bindFields(GenericExecuteSpec spec, Persona persona) {
+        spec = spec.bind("nome", persona.getNome())
+            .bind("cognome", persona.getCognome())
+            .bind("telefono", persona.getTelefono());
+        spec = persona.getIndirizzo() != null 
+            ? spec.bind("indirizzo", persona.getIndirizzo()) 
+            : spec.bindNull("indirizzo", String.class);
+        return persona.getEta() != null 
+            ? spec.bind("eta", persona.getEta()) 
+            : spec.bindNull("eta", Integer.class);
+    }
+
+    /**
+     * Converte una riga nel corrispondente oggetto Persona.
+     */
+    private static Persona toPersona(Readable row) {
+        return new Persona(
+            row.get("id", Long.class),
+            row.get("nome", String.class),
+            row.get("cognome", String.class),
+            row.get("indirizzo", String.class),
+            row.get("telefono", String.class),
+            row.get("eta", Integer.class),
+            row.get("owner_id", Long.class));
+    }
+
+    /**
+     * Sostituisce i segnaposto posizionali "?" con parametri con nome p0, p1, ...,
+     * tradotti da DatabaseClient nei marcatori del driver.
+     */
+    private static String toNamedParameters(String sql) {
+        StringBuilder named = new StringBuilder(sql.length() + 16);
+        int index = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '?') {
+                named.append(":p").append(index++);
+            } else {
+                named.append(c);
+            }
+        }
+        return named.toString();
+    }
+}
@@ -0,0 +1,98 @@
+package com.dynamicweb.rubrica.repositories;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Fusione k-way dei risultati ordinati letti dai singoli shard.
+ * 
+ * <p>Mantiene in una coda con priorità la riga corrente di ciascuno shard:
+ * ogni elemento emesso costa O(log k) con k shard, senza riordinare l'insieme
+ * dei risultati. Le sequenze in ingresso devono essere già ordinate con lo
+ * stesso comparatore.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class ShardMerge {
+
+    private ShardMerge() {
+    }
+
+    /**
+     * Fonde liste ordinate fermandosi al numero massimo di elementi richiesto.
+     * 
+     * @param <T> tipo degli elementi
+     * @param sorted liste ordinate, una per shard
+     * @param comparator ordinamento comune delle liste
+     * @param limit numero massimo di elementi da restituire
+     * @return i primi {@code limit} elementi nell'ordine complessivo
+     */
+    static <T> List<T> merge(List<List<T>> sorted, Comparator<? super T> comparator, int limit) {
+        if (sorted.size() == 1) {
+            List<T> only = sorted.get(0);
+            return only.size() <= limit ? only : new ArrayList<>(only.subList(0, limit));
+        }
+
+        List<Iterator<T>> iterators = new ArrayList<>(sorted.size());
+        sorted.forEach(list -> iterators.add(list.iterator()));
+        Iterator<T> merged = merge(iterators, comparator);
+        List<T> result = new ArrayList<>();
+        while (result.size() < limit && merged.hasNext()) {
+            result.add(merged.next());
+        }
+        return result;
+    }
+
+    /**
+     * Fonde in modo lazy iteratori ordinati: ogni iteratore viene avanzato
+     * solo quando il suo elemento corrente è stato emesso.
+     * 
+     * @param <T> tipo degli elementi
+     * @param sorted iteratori ordinati, uno per shard
+     * @param comparator ordinamento comune degli iteratori
+     * @return iteratore sugli elementi nell'ordine complessivo
+     */
+    static <T> Iterator<T> merge(List<Iterator<T>> sorted, Comparator<? super T> comparator) {
+        if (sorted.size() == 1) {
+            return sorted.get(0);
+        }
+
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(
+            sorted.size(), (a, b) -> comparator.compare(a.value, b.value));
+        for (Iterator<T> iterator : sorted) {
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Head<T> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                if (head.source.hasNext()) {
+                    heads.add(new Head<>(head.source.next(), head.source));
+                }
+                return head.value;
+            }
+        };
+    }
+
+    /**
+     * Elemento corrente di uno shard con l'iteratore da cui proviene.
+     */
+    private record Head<T>(T value, Iterator<T> source) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.dynamicweb.rubrica.repositories;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posizione di un client nella sequenza delle modifiche di una rubrica,
+ * scambiata con il client come token Base64 opaco.
+ *
+ * <p>Le modifiche vengono lette in ordine di (versione, ID) a partire dalla
+ * riga successiva alla posizione. Durante una lettura a più pagine il token
+ * porta anche la soglia di stabilità calcolata alla prima pagina
+ * ({@code floor}); alla fine della lettura la posizione riparte dalla soglia
+ * e {@code floor} vale 0.</p>
+ *
+ * @param versione versione dell'ultima modifica letta
+ * @param id ID dell'ultima modifica letta
+ * @param floor soglia della lettura in corso, 0 all'inizio di una nuova lettura
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public record SyncToken(long versione, long id, long floor) {
+
+    /** Posizione iniziale, prima di qualsiasi modifica */
+    public static final SyncToken START = new SyncToken(0, 0, 0);
+
+    /**
+     * Verifica se il token proviene da una pagina intermedia di una lettura.
+     *
+     * @return true se la lettura è in corso
+     */
+    public boolean isContinuation() {
+        return floor > 0;
+    }
+
+    /**
+     * Codifica la posizione come token opaco.
+     *
+     * @return token Base64 senza padding, sicuro negli URL
+     */
+    public String encode() {
+        String raw = versione + "\n" + id + "\n" + floor;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un token ricevuto dal client.
+     *
+     * <p>A differenza dei token delle pagine, un token malformato non fa
+     * ripartire dall'inizio: il client non saprebbe di dover scartare la
+     * copia locale.</p>
+     *
+     * @param token token ricevuto, null o vuoto per una sincronizzazione completa
+     * @return la posizione, {@link #START} se il token è assente
+     * @throws IllegalArgumentException se il token non è valido
+     */
+    public static SyncToken decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", -1);
+            if (parts.length == 3) {
+                SyncToken position = new SyncToken(
+                    Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                if (position.versione >= 0 && position.id >= 0 && position.floor >= 0) {
+                    return position;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Gestito sotto come token non valido
+        }
+        throw new IllegalArgumentException("Token di sincronizzazione non valido");
+    }
+}
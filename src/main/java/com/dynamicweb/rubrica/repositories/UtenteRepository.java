@@ -0,0 +1,92 @@
+package com.dynamicweb.rubrica.repositories;
+
+import com.dynamicweb.rubrica.components.ShardRouter;
+import com.dynamicweb.rubrica.entities.Utente;
+import com.dynamicweb.rubrica.events.JfrRepositoryEvent;
+import java.sql.PreparedStatement;
+import java.util.List;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository per l'accesso agli utenti nella tabella 'utenti'.
+ * 
+ * <p>Gli utenti sono pochi rispetto ai contatti e non vengono distribuiti tra
+ * gli shard: la tabella risiede sempre sul primo shard. L'unicità dello
+ * username è garantita dall'indice univoco dello schema.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Repository
+public class UtenteRepository {
+
+    private static final String FIND_BY_USERNAME_SQL = "SELECT id, username, password_hash FROM utenti WHERE username = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO utenti (username, password_hash) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ShardRouter shardRouter;
+
+    /**
+     * Costruttore per l'injection del JdbcTemplate.
+     * 
+     * @param jdbcTemplate template per operazioni JDBC
+     * @param shardRouter instradamento delle operazioni sul primo shard
+     */
+    public UtenteRepository(JdbcTemplate jdbcTemplate, ShardRouter shardRouter) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Cerca un utente per username.
+     * 
+     * @param username nome utente
+     * @return l'utente, o {@code null} se non esiste
+     */
+    public Utente findByUsername(String username) {
+        return JfrRepositoryEvent.record("UtenteRepository.findByUsername", "SELECT", () -> {
+            List<Utente> found = shardRouter.onShard(0, 
+                () -> jdbcTemplate.query(FIND_BY_USERNAME_SQL, new BeanPropertyRowMapper<>(Utente.class), username));
+            return found.isEmpty() ? null : found.get(0);
+        }, utente -> utente != null ? 1 : 0);
+    }
+
+    /**
+     * Inserisce un nuovo utente e gli assegna l'ID generato dal database.
+     * 
+     * @param utente utente da inserire, senza ID
+     * @return true se l'inserimento è riuscito
+     * @throws org.springframework.dao.DuplicateKeyException se lo username è già in uso
+     */
+    public boolean insert(Utente utente) {
+        return JfrRepositoryEvent.record("UtenteRepository.insert", "INSERT", () -> {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            int rowsAffected = shardRouter.onShard(0, () -> jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(INSERT_SQL, new String[] {"id"});
+                statement.setString(1, utente.getUsername());
+                statement.setString(2, utente.getPasswordHash());
+                return statement;
+            }, keyHolder));
+            if (rowsAffected > 0 && keyHolder.getKey() != null) {
+                utente.setId(keyHolder.getKey().longValue());
+            }
+            return rowsAffected > 0;
+        }, inserted -> inserted ? 1 : 0);
+    }
+
+    /**
+     * Restituisce il testo delle istruzioni sugli utenti, da preparare su ogni
+     * nuova connessione come quelle di {@link PersonaRepository#warmUpStatements()}.
+     * 
+     * @return istruzioni SQL con segnaposto posizionali "?"
+     */
+    public static List<String> warmUpStatements() {
+        return List.of(FIND_BY_USERNAME_SQL, INSERT_SQL);
+    }
+}
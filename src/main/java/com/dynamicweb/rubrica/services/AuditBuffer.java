@@ -0,0 +1,103 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.dtos.AuditRecord;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Buffer circolare limitato e senza lock tra i thread delle richieste e il
+ * writer del registro di audit.
+ *
+ * <p>Più produttori, un solo consumatore. Ogni posizione ha un numero di
+ * sequenza che indica a chi appartiene: un produttore riserva la posizione
+ * con un compare-and-set sulla coda e la pubblica aggiornandone la sequenza;
+ * il consumatore la libera per il giro successivo dopo averla letta. Un
+ * produttore non attende mai: se il buffer è pieno l'inserimento fallisce.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class AuditBuffer {
+
+    private final AuditRecord[] slots;
+
+    /** Sequenza di ogni posizione: uguale alla posizione se libera, posizione + 1 se pubblicata */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /** Prossima posizione da riservare, condivisa tra i produttori */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Prossima posizione da leggere, usata dal solo consumatore */
+    private long head;
+
+    /**
+     * Crea un buffer vuoto.
+     *
+     * @param capacity numero di posizioni, potenza di due
+     * @throws IllegalArgumentException se la capacità non è una potenza di due
+     */
+    AuditBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("La dimensione del buffer di audit deve essere una potenza di due: " + capacity);
+        }
+        this.slots = new AuditRecord[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Inserisce una voce senza attendere.
+     *
+     * @param record voce da inserire
+     * @return {@code false} se il buffer è pieno
+     */
+    boolean offer(AuditRecord record) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = record;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Sposta nella lista le voci pubblicate, nell'ordine di inserimento.
+     * Deve essere chiamato da un solo thread.
+     *
+     * @param target lista di destinazione
+     * @param max numero massimo di voci da spostare
+     * @return numero di voci spostate
+     */
+    int drainTo(List<AuditRecord> target, int max) {
+        int count = 0;
+        while (count < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            target.add(slots[index]);
+            slots[index] = null;
+            sequences.lazySet(index, head + slots.length);
+            head++;
+            count++;
+        }
+        return count;
+    }
+}
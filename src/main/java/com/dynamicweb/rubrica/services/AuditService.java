@@ -0,0 +1,189 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.dtos.AuditRecord;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import com.dynamicweb.rubrica.repositories.AuditLogStore;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servizio del registro di audit delle modifiche ai contatti.
+ *
+ * <p>Ogni {@link PersonaChangedEvent} diventa una voce con l'utente, l'istante
+ * e i dati del contatto prima e dopo la modifica. Il thread della richiesta
+ * si limita a inserire la voce in un {@link AuditBuffer} senza lock; un unico
+ * thread in background la scrive su file con {@link AuditLogStore}, a blocchi
+ * di al più {@code rubrica.audit.batch-size} voci con una sola sincronizzazione
+ * su disco per blocco. Quando il buffer è vuoto il writer attende
+ * {@code rubrica.audit.flush-interval-ms} prima di ricontrollare.</p>
+ *
+ * <p>Le richieste non attendono mai il registro: se il buffer è pieno o la
+ * scrittura fallisce le voci vengono perse e conteggiate in un avviso nel log
+ * applicativo. Alla chiusura dell'applicazione il writer scrive tutte le voci
+ * ancora nel buffer.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class AuditService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditService.class);
+
+    /** Attesa massima del writer alla chiusura */
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private final AuditLogStore auditLogStore;
+
+    private final AuditBuffer buffer;
+
+    private final int batchSize;
+
+    private final long idleNanos;
+
+    private final boolean enabled;
+
+    /** Voci perse dall'ultimo avviso */
+    private final AtomicLong lost = new AtomicLong();
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    /**
+     * Costruttore del servizio di audit; avvia il writer in background.
+     *
+     * @param auditLogStore il registro su file
+     * @param enabled se le modifiche vengono registrate
+     * @param bufferSize numero di voci in attesa di scrittura, potenza di due
+     * @param batchSize numero massimo di voci per sincronizzazione su disco
+     * @param flushIntervalMillis attesa del writer quando non ci sono voci
+     */
+    public AuditService(
+        AuditLogStore auditLogStore,
+        @Value("${rubrica.audit.enabled:true}") boolean enabled,
+        @Value("${rubrica.audit.buffer-size:65536}") int bufferSize,
+        @Value("${rubrica.audit.batch-size:1024}") int batchSize,
+        @Value("${rubrica.audit.flush-interval-ms:10}") long flushIntervalMillis) {
+        this.auditLogStore = auditLogStore;
+        this.enabled = enabled;
+        this.buffer = new AuditBuffer(bufferSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.writer = new Thread(this::writeLoop, "audit-writer");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            writer.start();
+        }
+    }
+
+    /**
+     * Registra una modifica inserendola nel buffer, senza attendere la scrittura.
+     *
+     * @param event evento con l'utente e i dati prima e dopo la modifica
+     */
+    @EventListener
+    public void onPersonaChanged(PersonaChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        Persona before = copy(event.getBefore());
+        Persona after = copy(event.getAfter());
+        AuditRecord.Operation operation = before == null ? AuditRecord.Operation.INSERIMENTO
+            : after == null ? AuditRecord.Operation.ELIMINAZIONE
+            : AuditRecord.Operation.MODIFICA;
+        Long personaId = after != null ? after.getId() : before.getId();
+        AuditRecord record = new AuditRecord(Instant.now(), event.getUsername(), operation, personaId, before, after);
+        if (!buffer.offer(record)) {
+            lost.incrementAndGet();
+        }
+    }
+
+    /**
+     * Ferma il writer dopo la scrittura delle voci ancora nel buffer.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!writer.isAlive()) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ciclo del writer: scrive un blocco alla volta finché l'applicazione è
+     * attiva e, alla chiusura, finché il buffer non è vuoto.
+     */
+    private void writeLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        while (true) {
+            if (buffer.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+                continue;
+            }
+            reportLost();
+            if (!running) {
+                break;
+            }
+            LockSupport.parkNanos(this, idleNanos);
+        }
+        try {
+            auditLogStore.close();
+        } catch (IOException e) {
+            log.warn("Chiusura del registro di audit non riuscita: {}", e.getMessage());
+        }
+    }
+
+    private void write(List<AuditRecord> batch) {
+        try {
+            auditLogStore.append(batch);
+        } catch (IOException | RuntimeException e) {
+            lost.addAndGet(batch.size());
+            log.error("Scrittura del registro di audit non riuscita: {}", e.getMessage());
+        }
+    }
+
+    private void reportLost() {
+        long count = lost.getAndSet(0);
+        if (count > 0) {
+            log.warn("Registro di audit: {} modifiche non registrate (buffer pieno o errore di scrittura)", count);
+        }
+    }
+
+    /**
+     * Copia i dati di una persona, che il chiamante potrebbe modificare prima
+     * della scrittura in background.
+     */
+    private static Persona copy(Persona persona) {
+        if (persona == null) {
+            return null;
+        }
+        return new Persona(
+            persona.getId(),
+            persona.getNome(),
+            persona.getCognome(),
+            persona.getIndirizzo(),
+            persona.getTelefono(),
+            persona.getEta(),
+            persona.getOwnerId());
+    }
+}
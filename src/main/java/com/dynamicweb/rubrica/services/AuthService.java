@@ -1,74 +1,292 @@
 package com.dynamicweb.rubrica.services;
 
 import com.dynamicweb.rubrica.components.AuthProperties;
+import com.dynamicweb.rubrica.components.PasswordHasher;
+import com.dynamicweb.rubrica.entities.Utente;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import com.dynamicweb.rubrica.repositories.UtenteRepository;
 import jakarta.servlet.http.HttpSession;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * Servizio per la gestione dell'autenticazione dell'applicazione.
- * 
- * <p>Questo servizio fornisce metodi per autenticare gli utenti utilizzando
- * le credenziali configurate tramite {@link AuthProperties} e per gestire
- * lo stato di login attraverso le sessioni HTTP.</p>
- * 
- * <p>L'autenticazione è basata su credenziali statiche configurate nel file
- * application.properties e utilizza la sessione HTTP per mantenere lo stato
- * di login dell'utente.</p>
- * 
+ *
+ * <p>Questo servizio fornisce metodi per registrare e autenticare gli utenti
+ * della tabella 'utenti' e per gestire lo stato di login attraverso le
+ * sessioni HTTP. Ogni utente possiede una rubrica privata, identificata
+ * dal suo ID.</p>
+ *
+ * <p>Le password vengono verificate con l'hash PBKDF2 salvato
+ * ({@link PasswordHasher}); le verifiche riuscite vengono registrate in una
+ * {@link CredentialCache}, così i login ripetuti dello stesso utente non
+ * ripetono il calcolo dell'hash. L'utente amministratore configurato tramite
+ * {@link AuthProperties} viene creato alla configurazione del database se
+ * non esiste ancora.</p>
+ *
  * @author Michael Leanza
  * @since 1.0
  */
 @Service
 public class AuthService {
-    
+
+    private static final Logger log = LoggerFactory.getLogger(AuthService.class);
+
+    /** Formato ammesso per gli username */
+    private static final Pattern USERNAME = Pattern.compile("^[a-zA-Z0-9._-]{3,50}$");
+
+    /** Lunghezza minima delle password */
+    private static final int MIN_PASSWORD_LENGTH = 8;
+
+    /** Lunghezza massima delle password, per limitare il costo dell'hash */
+    private static final int MAX_PASSWORD_LENGTH = 128;
+
     private final AuthProperties authProperties;
-    
+
+    private final UtenteRepository utenteRepository;
+
+    private final PasswordHasher passwordHasher;
+
+    private final DatabaseConnectionManager databaseConnectionManager;
+
+    private final CredentialCache credentialCache;
+
+    /** Hash verificato per gli username inesistenti, con lo stesso costo di una password errata */
+    private final String unknownUserHash;
+
     /**
      * Costruttore del servizio di autenticazione.
-     * 
-     * @param authProperties le proprietà di configurazione per l'autenticazione
+     *
+     * @param authProperties le credenziali dell'amministratore
+     * @param utenteRepository il repository degli utenti
+     * @param passwordHasher il calcolo degli hash delle password
+     * @param databaseConnectionManager servizio per verificare la configurazione del database
+     * @param cacheSize numero massimo di verifiche in cache, 0 per disattivarla
+     * @param cacheTtlSeconds durata di una verifica in cache
      */
-    public AuthService(AuthProperties authProperties) {
+    public AuthService(
+        AuthProperties authProperties,
+        UtenteRepository utenteRepository,
+        PasswordHasher passwordHasher,
+        DatabaseConnectionManager databaseConnectionManager,
+        @Value("${rubrica.auth.credential-cache-size:10000}") int cacheSize,
+        @Value("${rubrica.auth.credential-cache-ttl-seconds:600}") long cacheTtlSeconds) {
         this.authProperties = authProperties;
+        this.utenteRepository = utenteRepository;
+        this.passwordHasher = passwordHasher;
+        this.databaseConnectionManager = databaseConnectionManager;
+        this.credentialCache = new CredentialCache(cacheSize, cacheTtlSeconds * 1000);
+        this.unknownUserHash = passwordHasher.hash("");
     }
-    
+
+    /**
+     * Crea l'amministratore all'avvio se il database è già configurato
+     * (ad esempio in modalità embedded tramite DB_MODE).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (databaseConnectionManager.isDatabaseConfigured()) {
+            bootstrapAdministrator();
+        }
+    }
+
+    /**
+     * Crea l'amministratore quando viene configurato un nuovo database.
+     *
+     * @param event evento di configurazione del database
+     */
+    @EventListener
+    public void onDatabaseConfigured(DatabaseConfiguredEvent event) {
+        bootstrapAdministrator();
+    }
+
+    /**
+     * Restituisce l'utente amministratore, creandolo con le credenziali di
+     * {@link AuthProperties} se non esiste ancora.
+     *
+     * @return l'amministratore
+     */
+    public Utente ensureAdministrator() {
+        Utente admin = utenteRepository.findByUsername(authProperties.getUsername());
+        if (admin != null) {
+            return admin;
+        }
+        admin = new Utente(null, authProperties.getUsername(), passwordHasher.hash(authProperties.getPassword()));
+        try {
+            utenteRepository.insert(admin);
+            log.info("Creato l'utente amministratore {}", admin.getUsername());
+            return admin;
+        } catch (DuplicateKeyException e) {
+            // Creato nel frattempo da un'altra istanza
+            return utenteRepository.findByUsername(authProperties.getUsername());
+        }
+    }
+
+    /**
+     * Cerca un utente per username.
+     *
+     * @param username nome utente
+     * @return l'utente
+     * @throws IllegalArgumentException se l'utente non esiste
+     */
+    public Utente getUser(String username) {
+        Utente utente = utenteRepository.findByUsername(username);
+        if (utente == null) {
+            throw new IllegalArgumentException("Utente inesistente: " + username);
+        }
+        return utente;
+    }
+
+    /**
+     * Registra un nuovo utente con una rubrica vuota.
+     *
+     * @param username nome utente, da 3 a 50 lettere, cifre, punti, trattini o underscore
+     * @param password password di almeno {@value #MIN_PASSWORD_LENGTH} caratteri
+     * @return l'utente registrato
+     * @throws IllegalArgumentException se i dati non sono validi o lo username è già in uso
+     */
+    public Utente register(String username, String password) {
+        if (username == null || !USERNAME.matcher(username).matches()) {
+            throw new IllegalArgumentException(
+                "Username non valido: da 3 a 50 caratteri tra lettere, cifre, punto, trattino e underscore");
+        }
+        if (password == null || password.length() < MIN_PASSWORD_LENGTH || password.length() > MAX_PASSWORD_LENGTH) {
+            throw new IllegalArgumentException("La password deve avere da " + MIN_PASSWORD_LENGTH
+                + " a " + MAX_PASSWORD_LENGTH + " caratteri");
+        }
+        if (utenteRepository.findByUsername(username) != null) {
+            throw new IllegalArgumentException("Username già in uso: " + username);
+        }
+        Utente utente = new Utente(null, username, passwordHasher.hash(password));
+        try {
+            utenteRepository.insert(utente);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Username già in uso: " + username);
+        }
+        return utente;
+    }
+
     /**
      * Autentica un utente verificando username e password.
-     * 
-     * <p>Confronta le credenziali fornite con quelle configurate nelle
-     * proprietà dell'applicazione.</p>
-     * 
+     *
+     * <p>Confronta la password con l'hash salvato, o con la verifica già
+     * registrata in cache per lo stesso hash. Per uno username inesistente
+     * viene comunque calcolato un hash, così che il tempo di risposta non
+     * riveli quali utenti esistono.</p>
+     *
      * @param username il nome utente da verificare
      * @param password la password da verificare
-     * @return {@code true} se le credenziali sono corrette, {@code false} altrimenti
+     * @return l'utente autenticato, o {@code null} se le credenziali non sono corrette
      */
-    public boolean authenticate(String username, String password) {
-        return authProperties.checkCredentials(username, password);
+    public Utente authenticate(String username, String password) {
+        if (username == null || password == null || password.length() > MAX_PASSWORD_LENGTH) {
+            return null;
+        }
+        Utente utente = utenteRepository.findByUsername(username);
+        if (utente == null) {
+            passwordHasher.matches(password, unknownUserHash);
+            return null;
+        }
+        if (credentialCache.contains(username, utente.getPasswordHash(), password)) {
+            return utente;
+        }
+        if (!passwordHasher.matches(password, utente.getPasswordHash())) {
+            return null;
+        }
+        credentialCache.put(username, utente.getPasswordHash(), password);
+        return utente;
     }
-    
+
     /**
      * Verifica se l'utente è attualmente autenticato.
-     * 
+     *
      * <p>Controlla la presenza dell'attributo "loggedUser" nella sessione HTTP
      * per determinare lo stato di autenticazione.</p>
-     * 
+     *
      * @param session la sessione HTTP corrente
      * @return {@code true} se l'utente è autenticato, {@code false} altrimenti
      */
     public boolean isLoggedIn(HttpSession session) {
         return session.getAttribute("loggedUser") != null;
     }
-    
+
+    /**
+     * Verifica se l'utente autenticato è l'amministratore configurato.
+     *
+     * @param session la sessione HTTP corrente
+     * @return {@code true} se l'utente è l'amministratore, {@code false} altrimenti
+     */
+    public boolean isAdministrator(HttpSession session) {
+        return authProperties.getUsername().equals(session.getAttribute("loggedUser"));
+    }
+
     /**
      * Registra l'utente come autenticato nella sessione.
-     * 
-     * <p>Salva l'username nella sessione HTTP per mantenere lo stato
-     * di autenticazione durante la navigazione.</p>
-     * 
+     *
+     * <p>Salva username e ID dell'utente nella sessione HTTP per mantenere lo
+     * stato di autenticazione durante la navigazione; l'ID identifica la
+     * rubrica dell'utente.</p>
+     *
      * @param session la sessione HTTP corrente
-     * @param username il nome utente da registrare come autenticato
+     * @param utente l'utente da registrare come autenticato
+     */
+    public void login(HttpSession session, Utente utente) {
+        session.setAttribute("loggedUser", utente.getUsername());
+        session.setAttribute("loggedUserId", utente.getId());
+    }
+
+    /**
+     * Restituisce l'utente autenticato nella richiesta HTTP del thread corrente.
+     *
+     * <p>Permette ai servizi di conoscere l'autore di una modifica senza
+     * ricevere la sessione come parametro; fuori da una richiesta (attività
+     * pianificate, thread di altri componenti) non c'è un utente.</p>
+     *
+     * @return nome dell'utente autenticato, o {@code null} se non disponibile
+     */
+    public String getCurrentUser() {
+        Object user = sessionAttribute("loggedUser");
+        return user != null ? user.toString() : null;
+    }
+
+    /**
+     * Restituisce l'ID dell'utente autenticato nella richiesta HTTP del thread
+     * corrente, cioè il proprietario della rubrica su cui operare.
+     *
+     * @return ID dell'utente autenticato
+     * @throws IllegalStateException se il thread non serve una richiesta di un utente autenticato
      */
-    public void login(HttpSession session, String username) {
-        session.setAttribute("loggedUser", username);
+    public long getCurrentUserId() {
+        Object id = sessionAttribute("loggedUserId");
+        if (id == null) {
+            throw new IllegalStateException("Nessun utente autenticato nella richiesta corrente");
+        }
+        return (Long) id;
+    }
+
+    /**
+     * Crea l'amministratore, registrando l'errore se la tabella degli utenti
+     * non esiste ancora (database MySQL senza schema applicato).
+     */
+    private void bootstrapAdministrator() {
+        try {
+            ensureAdministrator();
+        } catch (DataAccessException e) {
+            log.warn("Utente amministratore non creato: {}", e.getMessage());
+        }
+    }
+
+    private static Object sessionAttribute(String name) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null ? attributes.getAttribute(name, RequestAttributes.SCOPE_SESSION) : null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.dtos.WarmUpReport;
+import com.dynamicweb.rubrica.repositories.PersonaRepository;
+import com.dynamicweb.rubrica.repositories.UtenteRepository;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Riscaldamento dei pool di connessioni prima che un nuovo database venga
+ * dichiarato pronto.
+ *
+ * <p>Per ogni shard apre contemporaneamente il numero minimo di connessioni
+ * del pool e su ciascuna prepara tutte le istruzioni dei repository, con lo
+ * stesso testo usato dalle richieste: con la cache degli statement attiva
+ * ({@link DatabaseProperties#isCachePrepStmts()}) le prime richieste trovano
+ * connessioni già aperte e istruzioni già analizzate dal database.</p>
+ *
+ * <p>Se {@code rubrica.db.warmup.touch-indexes} è attivo e il database è
+ * MySQL, legge anche per intero la chiave primaria e gli indici secondari
+ * delle tabelle della rubrica, caricandone le pagine nel buffer pool.</p>
+ *
+ * <p>Il riscaldamento non blocca mai la configurazione: gli errori vengono
+ * contati e registrati nel log.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class ConnectionWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionWarmer.class);
+
+    /** Tabelle di cui vengono letti gli indici */
+    private static final List<String> TABLES = List.of("lista_contatti", "contatti_rimossi", "utenti");
+
+    /** Tempo massimo di lettura di un singolo indice */
+    private static final int INDEX_TIMEOUT_SECONDS = 60;
+
+    private final boolean enabled;
+
+    private final boolean touchIndexes;
+
+    /**
+     * Costruttore con le opzioni del riscaldamento.
+     *
+     * @param enabled {@code false} per dichiarare subito pronto il database
+     * @param touchIndexes {@code true} per leggere gli indici delle tabelle MySQL
+     */
+    public ConnectionWarmer(
+        @Value("${rubrica.db.warmup.enabled:true}") boolean enabled,
+        @Value("${rubrica.db.warmup.touch-indexes:false}") boolean touchIndexes) {
+        this.enabled = enabled;
+        this.touchIndexes = touchIndexes;
+    }
+
+    /**
+     * Riscalda i pool degli shard.
+     *
+     * @param properties configurazione applicata
+     * @param pools pool di connessioni degli shard, nell'ordine di numerazione
+     * @param connections numero di connessioni da aprire e preparare per ogni shard
+     * @return riepilogo del riscaldamento, con tutti i contatori a zero se disattivato
+     */
+    public WarmUpReport warmUp(DatabaseProperties properties, List<? extends DataSource> pools, int connections) {
+        if (!enabled) {
+            return new WarmUpReport(0, 0, 0, 0, 0, 0);
+        }
+        long start = System.nanoTime();
+        List<String> statements = new ArrayList<>(PersonaRepository.warmUpStatements());
+        statements.addAll(UtenteRepository.warmUpStatements());
+        boolean readIndexes = touchIndexes && properties.getMode() == DatabaseProperties.Mode.MYSQL;
+
+        WarmUpReport report = new WarmUpReport(0, 0, 0, 0, 0, 0);
+        for (int shard = 0; shard < pools.size(); shard++) {
+            long shardStart = System.nanoTime();
+            WarmUpReport shardReport = warmUpShard(pools.get(shard), statements, connections, readIndexes);
+            log.info("Riscaldamento shard {}/{}: {} connessioni, {} statement preparati, {} indici letti, {} errori in {} ms",
+                shard + 1, pools.size(), shardReport.getConnections(), shardReport.getStatements(),
+                shardReport.getIndexes(), shardReport.getFailures(), millisSince(shardStart));
+            report.setShards(report.getShards() + 1);
+            report.setConnections(report.getConnections() + shardReport.getConnections());
+            report.setStatements(report.getStatements() + shardReport.getStatements());
+            report.setIndexes(report.getIndexes() + shardReport.getIndexes());
+            report.setFailures(report.getFailures() + shardReport.getFailures());
+        }
+        report.setDurationMillis(millisSince(start));
+        log.info("Riscaldamento del database completato in {} ms", report.getDurationMillis());
+        return report;
+    }
+
+    /**
+     * Riscalda il pool di uno shard, tenendo aperte insieme tutte le
+     * connessioni così che il pool ne crei di distinte.
+     */
+    private WarmUpReport warmUpShard(DataSource pool, List<String> statements, int connections, boolean readIndexes) {
+        WarmUpReport report = new WarmUpReport(1, 0, 0, 0, 0, 0);
+        List<Connection> opened = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                try {
+                    opened.add(pool.getConnection());
+                } catch (SQLException e) {
+                    report.setFailures(report.getFailures() + 1);
+                    log.warn("Connessione di riscaldamento non aperta: {}", e.getMessage());
+                    break;
+                }
+            }
+            report.setConnections(opened.size());
+            for (Connection connection : opened) {
+                for (String sql : statements) {
+                    try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                        report.setStatements(report.getStatements() + 1);
+                    } catch (SQLException e) {
+                        report.setFailures(report.getFailures() + 1);
+                        log.warn("Statement non preparato ({}): {}", e.getMessage(), sql);
+                    }
+                }
+            }
+            if (readIndexes && !opened.isEmpty()) {
+                readIndexes(opened.get(0), report);
+            }
+        } finally {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    log.debug("Chiusura della connessione di riscaldamento fallita", e);
+                }
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Legge per intero gli indici delle tabelle, uno alla volta, forzando
+     * l'uso di ciascun indice nel conteggio delle righe.
+     */
+    private void readIndexes(Connection connection, WarmUpReport report) {
+        for (String table : TABLES) {
+            Set<String> indexes = new LinkedHashSet<>();
+            try {
+                DatabaseMetaData metaData = connection.getMetaData();
+                try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+                    while (rs.next()) {
+                        if (rs.getString("INDEX_NAME") != null) {
+                            indexes.add(rs.getString("INDEX_NAME"));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                report.setFailures(report.getFailures() + 1);
+                log.warn("Indici della tabella {} non letti: {}", table, e.getMessage());
+                continue;
+            }
+            for (String index : indexes) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.setQueryTimeout(INDEX_TIMEOUT_SECONDS);
+                    statement.executeQuery("SELECT COUNT(*) FROM " + table + " FORCE INDEX (`" + index + "`)").close();
+                    report.setIndexes(report.getIndexes() + 1);
+                } catch (SQLException e) {
+                    report.setFailures(report.getFailures() + 1);
+                    log.warn("Indice {} della tabella {} non letto: {}", index, table, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,130 @@
+package com.dynamicweb.rubrica.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Cache delle verifiche di credenziali riuscite.
+ *
+ * <p>Dopo una verifica lenta riuscita conserva, per username, l'hash salvato
+ * dell'utente e un HMAC-SHA256 della password calcolato con una chiave casuale
+ * generata all'avvio e mai scritta altrove: la password in chiaro non viene
+ * conservata e le voci non sono utili fuori dal processo. Un login successivo
+ * con la stessa password viene verificato con un solo HMAC, in microsecondi
+ * invece delle decine di millisecondi di PBKDF2.</p>
+ *
+ * <p>Una voce vale solo finché l'hash salvato dell'utente resta quello
+ * registrato, quindi un cambio di password la invalida al primo login
+ * successivo, e al massimo per {@code ttlMillis}. Le verifiche fallite non
+ * vengono registrate. Oltre {@code maxEntries} voci viene rimossa quella
+ * usata meno di recente.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class CredentialCache {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+
+    private final long ttlMillis;
+
+    private final Map<String, Entry> entries;
+
+    /**
+     * Verifica registrata.
+     *
+     * @param passwordHash hash salvato dell'utente al momento della verifica
+     * @param mac HMAC della password verificata
+     * @param expiresAt istante di scadenza in millisecondi
+     */
+    private record Entry(String passwordHash, byte[] mac, long expiresAt) {
+    }
+
+    /**
+     * Costruttore con dimensione e durata delle voci.
+     *
+     * @param maxEntries numero massimo di voci, 0 per disattivare la cache
+     * @param ttlMillis durata di una voce in millisecondi
+     */
+    CredentialCache(int maxEntries, long ttlMillis) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, MAC_ALGORITHM);
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Verifica se la password è già stata verificata per l'hash salvato indicato.
+     *
+     * @param username nome utente
+     * @param passwordHash hash salvato corrente dell'utente
+     * @param password password in chiaro da verificare
+     * @return {@code true} se una verifica valida è in cache; {@code false} non
+     *         significa che la password sia errata
+     */
+    boolean contains(String username, String passwordHash, String password) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(username);
+        }
+        if (entry == null || !entry.passwordHash().equals(passwordHash)) {
+            return false;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            forget(username);
+            return false;
+        }
+        return MessageDigest.isEqual(entry.mac(), mac(username, password));
+    }
+
+    /**
+     * Registra una verifica riuscita.
+     *
+     * @param username nome utente
+     * @param passwordHash hash salvato corrente dell'utente
+     * @param password password verificata
+     */
+    void put(String username, String passwordHash, String password) {
+        Entry entry = new Entry(passwordHash, mac(username, password), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(username, entry);
+        }
+    }
+
+    /**
+     * Rimuove la verifica registrata per un utente.
+     *
+     * @param username nome utente
+     */
+    void forget(String username) {
+        synchronized (entries) {
+            entries.remove(username);
+        }
+    }
+
+    private byte[] mac(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Algoritmo " + MAC_ALGORITHM + " non disponibile", e);
+        }
+    }
+}
@@ -1,51 +1,424 @@
 package com.dynamicweb.rubrica.services;
 
+import com.dynamicweb.rubrica.components.ShardRouter;
+import com.dynamicweb.rubrica.components.ShardRoutingDataSource;
 import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import com.dynamicweb.rubrica.events.JfrDataSourceUpdateEvent;
+import com.dynamicweb.rubrica.dtos.WarmUpReport;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.stereotype.Service;
 
 /**
  * Manager per la gestione dinamica delle connessioni al database.
  * Permette di aggiornare la connessione al database a runtime.
  *
+ * <p>Per il database embedded H2 lo schema viene creato automaticamente da
+ * {@code schema_database.sql}. La modalità embedded può essere attivata anche
+ * all'avvio tramite la variabile di ambiente DB_MODE (H2_MEMORY o H2_FILE),
+ * senza passare dalla pagina di configurazione.</p>
+ *
+ * <p>Con più shard configurati il DataSource principale punta al primo shard e
+ * gli altri vengono registrati nello {@link ShardRoutingDataSource}; la
+ * connessione a ogni shard viene verificata prima di applicare la configurazione.
+ * Il numero di shard non può cambiare dopo la prima configurazione: ogni
+ * database registra la propria posizione e una disposizione diversa viene
+ * rifiutata, perché la ridistribuzione dei contatti non è supportata.</p>
+ *
+ * <p>Le richieste usano un pool di connessioni per ogni shard. I pool di una
+ * nuova configurazione vengono creati, completati con lo schema (embedded) e
+ * riscaldati dal {@link ConnectionWarmer} prima di ricevere richieste: solo
+ * dopo vengono sostituiti nello {@link ShardRoutingDataSource} e il database
+ * risulta configurato. Se un passo non riesce la configurazione precedente
+ * resta attiva. I pool precedenti vengono ritirati senza interrompere le
+ * richieste in corso e chiusi quando le hanno completate.</p>
+ *
  * @author Michael Leanza
  * @since 1.0
  */
 @Service
 public class DatabaseConnectionManager {
 
+    /** Script di creazione dello schema applicato ai database embedded */
+    private static final String SCHEMA_SCRIPT = "schema_database.sql";
+
+    /** Intervallo di controllo dei pool ritirati */
+    private static final long DRAIN_POLL_MILLIS = 200;
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseConnectionManager.class);
+
     private final DriverManagerDataSource dataSource;
 
+    private final ShardRoutingDataSource shardRoutingDataSource;
+
+    private final ShardRouter shardRouter;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ConnectionWarmer connectionWarmer;
+
+    private final int poolMinIdle;
+
+    private final int poolMaxSize;
+
+    private final long drainSeconds;
+
+    /** Pool di connessioni degli shard della configurazione corrente */
+    private List<HikariDataSource> pools = List.of();
+
+    /** Pool delle configurazioni precedenti in attesa che le richieste in corso li rilascino */
+    private final Set<HikariDataSource> retiring = ConcurrentHashMap.newKeySet();
+
+    /** Thread che chiude i pool ritirati */
+    private final ScheduledExecutorService retirer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pool-retire");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Riepilogo dell'ultimo riscaldamento, null se il database non è configurato */
+    private volatile WarmUpReport lastWarmUp;
+
+    /** Ultima configurazione applicata, null se il database non è configurato */
+    private volatile DatabaseProperties currentProperties;
+
     /**
      * Costruttore con injection del DataSource.
+     *
+     * @param dataSource il DataSource da configurare dinamicamente
+     * @param shardRoutingDataSource il DataSource che instrada le connessioni agli shard
+     * @param shardRouter l'instradamento delle operazioni tra gli shard
+     * @param eventPublisher publisher per notificare la configurazione del database
+     * @param connectionWarmer il riscaldamento dei pool prima che il database sia pronto
+     * @param poolMinIdle connessioni tenute aperte in ogni pool, e riscaldate alla configurazione
+     * @param poolMaxSize connessioni massime di ogni pool
+     * @param drainSeconds attesa massima delle richieste in corso prima di chiudere i pool precedenti
      */
-    public DatabaseConnectionManager(DriverManagerDataSource dataSource) {
+    public DatabaseConnectionManager(
+        DriverManagerDataSource dataSource, 
+        ShardRoutingDataSource shardRoutingDataSource, 
+        ShardRouter shardRouter, 
+        ApplicationEventPublisher eventPublisher,
+        ConnectionWarmer connectionWarmer,
+        @Value("${rubrica.db.pool.min-idle:4}") int poolMinIdle,
+        @Value("${rubrica.db.pool.max-size:30}") int poolMaxSize,
+        @Value("${rubrica.db.pool.drain-seconds:30}") long drainSeconds) {
         this.dataSource = dataSource;
+        this.shardRoutingDataSource = shardRoutingDataSource;
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+        this.connectionWarmer = connectionWarmer;
+        this.poolMinIdle = Math.max(0, poolMinIdle);
+        this.poolMaxSize = Math.max(Math.max(1, poolMinIdle), poolMaxSize);
+        this.drainSeconds = Math.max(0, drainSeconds);
+    }
+
+    /**
+     * Configura il database embedded all'avvio se richiesto dalle variabili di sistema.
+     *
+     * <p>Legge DB_MODE (H2_MEMORY o H2_FILE), DB_NAME, DB_USERNAME, DB_PASSWORD
+     * e gli eventuali shard aggiuntivi in DB_SHARDS;
+     * se DB_MODE non è impostata o vale MYSQL, il database resta da configurare
+     * tramite la pagina iniziale.</p>
+     *
+     * @throws IllegalStateException se DB_MODE non è una modalità valida
+     */
+    @PostConstruct
+    public void configureEmbeddedFromEnvironment() {
+        String mode = System.getenv("DB_MODE");
+        if (mode == null || mode.isBlank()) {
+            return;
+        }
+
+        DatabaseProperties properties = new DatabaseProperties();
+        try {
+            properties.setMode(DatabaseProperties.Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Valore di DB_MODE non valido: " + mode
+                + " (valori ammessi: " + Arrays.toString(DatabaseProperties.Mode.values()) + ")");
+        }
+        if (!properties.isEmbedded()) {
+            return;
+        }
+        properties.setDbName(System.getenv().getOrDefault("DB_NAME", "rubrica"));
+        properties.setUsername(System.getenv().getOrDefault("DB_USERNAME", "sa"));
+        properties.setPassword(System.getenv().getOrDefault("DB_PASSWORD", ""));
+        properties.setShards(System.getenv("DB_SHARDS"));
+        updateDataSource(properties);
     }
 
     /**
      * Aggiorna la connessione del JdbcTemplate con una nuova configurazione.
      * Valida e testa la configurazione prima di applicarla.
      * 
+     * <p>Crea i pool di connessioni, applica lo schema su ogni shard per i
+     * database embedded e riscalda i pool; solo allora li sostituisce a quelli
+     * in uso e pubblica un {@link DatabaseConfiguredEvent}.
+     * L'intera operazione viene registrata da Java Flight Recorder come
+     * {@link JfrDataSourceUpdateEvent}.</p>
+     * 
      * @param newProperties nuova configurazione database da applicare
      * @throws IllegalArgumentException se la configurazione non è valida
      * @throws RuntimeException se la connessione non è valida
      */
     public void updateDataSource(DatabaseProperties newProperties) {
+        JfrDataSourceUpdateEvent event = new JfrDataSourceUpdateEvent();
+        event.begin();
+        try {
+            event.shards = applyDataSource(newProperties);
+            event.warmUpMillis = lastWarmUp.getDurationMillis();
+            event.succeeded = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.mode = String.valueOf(newProperties.getMode());
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Valida, verifica e applica la configurazione, come descritto in
+     * {@link #updateDataSource(DatabaseProperties)}.
+     * 
+     * @param newProperties nuova configurazione database da applicare
+     * @return numero di shard configurati
+     */
+    private synchronized int applyDataSource(DatabaseProperties newProperties) {
+        List<HikariDataSource> newPools = new ArrayList<>();
+        List<DatabaseProperties> shards;
+        WarmUpReport warmUp;
         try {
             newProperties.validateConfiguration();
-            newProperties.testConnection();
-            
-            // Applica la nuova configurazione al DataSource
-            dataSource.setDriverClassName(DatabaseProperties.MYSQL_DRIVER_CLASS);
-            dataSource.setUrl(newProperties.buildJdbcUrl());
-            dataSource.setUsername(newProperties.getUsername());
-            dataSource.setPassword(newProperties.getPassword());
+            shards = newProperties.buildShardProperties();
+            for (DatabaseProperties shard : shards) {
+                shard.testConnection();
+            }
+
+            // Prepara i pool della nuova configurazione senza esporli alle richieste
+            for (int i = 0; i < shards.size(); i++) {
+                newPools.add(createPool(i, shards.get(i)));
+            }
+            if (newProperties.isEmbedded()) {
+                ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource(SCHEMA_SCRIPT));
+                newPools.forEach(populator::execute);
+            }
+            verifyShardLayout(newPools, shards);
+            warmUp = connectionWarmer.warmUp(newProperties, newPools, poolMinIdle);
         } catch (IllegalArgumentException e) {
+            newPools.forEach(HikariDataSource::close);
             throw new IllegalArgumentException("Configurazione database non valida: " + e.getMessage(), e);
         } catch (RuntimeException e) {
+            newPools.forEach(HikariDataSource::close);
             throw new RuntimeException("Connessione al database fallita: " + e.getMessage(), e);
         }
+
+        // Solo ora le richieste passano ai nuovi pool, già riscaldati, e il database risulta configurato
+        shardRoutingDataSource.configure(newPools);
+        applyTo(dataSource, shards.get(0));
+        List<HikariDataSource> oldPools = pools;
+        pools = newPools;
+        oldPools.forEach(this::retire);
+
+        lastWarmUp = warmUp;
+        currentProperties = newProperties;
+        eventPublisher.publishEvent(new DatabaseConfiguredEvent(this, newProperties));
+        return shardRouter.getShardCount();
+    }
+
+    /**
+     * Verifica che ogni database occupi nella nuova configurazione la stessa
+     * posizione tra gli shard registrata alla prima configurazione.
+     * 
+     * <p>I contatti sono assegnati agli shard per hash dell'ID modulo il numero di
+     * shard, e la ridistribuzione non è supportata: con un numero o un ordine di
+     * shard diverso i contatti esistenti diventerebbero irraggiungibili. Un
+     * database senza posizione registrata (creato prima della tabella
+     * {@code shard_layout}) viene accettato solo se tutti i suoi contatti
+     * appartengono allo shard che occuperebbe, e la posizione viene registrata.</p>
+     * 
+     * @param shardPools i pool degli shard, nell'ordine della configurazione
+     * @param shards la configurazione degli shard
+     * @throws IllegalArgumentException se un database appartiene a una disposizione diversa
+     */
+    private static void verifyShardLayout(List<HikariDataSource> shardPools, List<DatabaseProperties> shards) {
+        int count = shardPools.size();
+        List<Integer> unrecorded = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int shard = i;
+            JdbcTemplate jdbc = new JdbcTemplate(shardPools.get(i));
+            jdbc.execute("CREATE TABLE IF NOT EXISTS shard_layout (shard_index INT NOT NULL, shard_count INT NOT NULL)");
+            List<int[]> layout = jdbc.query("SELECT shard_index, shard_count FROM shard_layout",
+                (rs, rowNum) -> new int[] { rs.getInt(1), rs.getInt(2) });
+            String name = shards.get(i).getDbName();
+
+            if (!layout.isEmpty()) {
+                int[] recorded = layout.get(0);
+                if (recorded[0] != shard || recorded[1] != count) {
+                    throw new IllegalArgumentException("il database " + name + " è lo shard " + (recorded[0] + 1)
+                        + " di " + recorded[1] + ", non lo shard " + (shard + 1) + " di " + count
+                        + " (la ridistribuzione dei contatti tra gli shard non è supportata)");
+                }
+                continue;
+            }
+
+            AtomicLong misplaced = new AtomicLong();
+            try {
+                jdbc.query("SELECT id FROM lista_contatti", (RowCallbackHandler) rs -> {
+                    if (ShardRouter.shardOf(rs.getLong(1), count) != shard) {
+                        misplaced.incrementAndGet();
+                    }
+                });
+            } catch (BadSqlGrammarException e) {
+                // Tabella dei contatti non ancora creata: nessun contatto da verificare
+            }
+            if (misplaced.get() > 0) {
+                throw new IllegalArgumentException("il database " + name + " contiene " + misplaced.get()
+                    + " contatti che con " + count + " shard appartengono a un altro shard"
+                    + " (la ridistribuzione dei contatti tra gli shard non è supportata)");
+            }
+            unrecorded.add(shard);
+        }
+
+        // Posizioni registrate solo se tutti gli shard sono compatibili
+        for (int shard : unrecorded) {
+            new JdbcTemplate(shardPools.get(shard)).update(
+                "INSERT INTO shard_layout (shard_index, shard_count) VALUES (?, ?)", shard, count);
+        }
+    }
+
+    /**
+     * Imposta su un DataSource i parametri di connessione di uno shard.
+     * 
+     * @param target il DataSource da configurare
+     * @param properties la configurazione dello shard
+     * @return il DataSource configurato
+     */
+    private static DriverManagerDataSource applyTo(DriverManagerDataSource target, DatabaseProperties properties) {
+        target.setDriverClassName(properties.getDriverClassName());
+        target.setUrl(properties.buildJdbcUrl());
+        target.setUsername(properties.getUsername());
+        target.setPassword(properties.getPassword());
+        return target;
+    }
+
+    /**
+     * Crea il pool di connessioni di uno shard.
+     * 
+     * @param shard numero dello shard
+     * @param properties la configurazione dello shard
+     * @return il pool, che apre le connessioni alla prima richiesta
+     */
+    private HikariDataSource createPool(int shard, DatabaseProperties properties) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("rubrica-shard-" + shard);
+        pool.setDriverClassName(properties.getDriverClassName());
+        pool.setJdbcUrl(properties.buildJdbcUrl());
+        pool.setUsername(properties.getUsername());
+        pool.setPassword(properties.getPassword());
+        pool.setMinimumIdle(poolMinIdle);
+        pool.setMaximumPoolSize(poolMaxSize);
+        pool.setConnectionTimeout(DatabaseProperties.CONNECT_TIMEOUT_MILLIS);
+        return pool;
+    }
+
+    /**
+     * Ritira un pool della configurazione precedente senza interrompere le
+     * richieste in corso: le connessioni libere vengono chiuse subito, quelle
+     * in uso al loro rilascio, e il pool viene chiuso quando non ne ha più in
+     * uso o al più tardi dopo {@code rubrica.db.pool.drain-seconds}.
+     * 
+     * @param pool il pool da ritirare
+     */
+    private void retire(HikariDataSource pool) {
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        if (bean == null) {
+            // Pool mai avviato: nessuna connessione da attendere
+            pool.close();
+            return;
+        }
+        bean.softEvictConnections();
+        retiring.add(pool);
+        scheduleClose(pool, System.nanoTime() + TimeUnit.SECONDS.toNanos(drainSeconds));
+    }
+
+    /**
+     * Controlla periodicamente un pool ritirato e lo chiude quando non ha più
+     * connessioni in uso o alla scadenza.
+     */
+    private void scheduleClose(HikariDataSource pool, long deadlineNanos) {
+        retirer.schedule(() -> {
+            if (pool.isClosed()) {
+                retiring.remove(pool);
+                return;
+            }
+            int active = pool.getHikariPoolMXBean().getActiveConnections();
+            if (active > 0 && System.nanoTime() < deadlineNanos) {
+                scheduleClose(pool, deadlineNanos);
+                return;
+            }
+            if (active > 0) {
+                log.warn("Pool {} chiuso con {} connessioni ancora in uso", pool.getPoolName(), active);
+            }
+            pool.close();
+            retiring.remove(pool);
+        }, DRAIN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Chiude i pool di connessioni, compresi quelli ritirati, alla chiusura dell'applicazione.
+     */
+    @PreDestroy
+    public synchronized void closePools() {
+        retirer.shutdownNow();
+        retiring.forEach(HikariDataSource::close);
+        retiring.clear();
+        pools.forEach(HikariDataSource::close);
+        pools = List.of();
+    }
+
+    /**
+     * Restituisce il riepilogo del riscaldamento dell'ultima configurazione applicata.
+     * 
+     * @return riepilogo, o {@code null} se il database non è configurato
+     */
+    public WarmUpReport getLastWarmUp() {
+        return lastWarmUp;
+    }
+
+    /**
+     * Restituisce l'ultima configurazione applicata con successo.
+     * 
+     * <p>Permette ai componenti creati dopo la configurazione all'avvio
+     * (che non ricevono il relativo evento) di allinearsi al database corrente.</p>
+     * 
+     * @return configurazione corrente, o {@code null} se il database non è configurato
+     */
+    public DatabaseProperties getCurrentProperties() {
+        return currentProperties;
     }
 
     /**
@@ -0,0 +1,246 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.components.ResilienceProperties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Protezione delle chiamate al database contro rallentamenti e indisponibilità.
+ * 
+ * <p>Ogni chiamata passa per un bulkhead separato per letture e scritture, che
+ * limita il numero di thread bloccati sul database, e per un circuit breaker
+ * che, dopo un numero di errori consecutivi del database, rifiuta subito le
+ * richieste per un intervallo configurato; trascorso l'intervallo viene lasciata
+ * passare una sola richiesta di prova, e solo il suo esito chiude il circuito:
+ * le chiamate riuscite ammesse prima dell'apertura non lo richiudono. Le
+ * letture, idempotenti, vengono ripetute in caso di errore transitorio con
+ * attesa esponenziale e jitter casuale; una lettura che fallisce dopo tutti i
+ * tentativi conta come un solo errore.</p>
+ * 
+ * <p>Le scritture vengono eseguite in una transazione con timeout
+ * {@code rubrica.db.write-timeout-seconds}, applicato a ogni istruzione della
+ * transazione; le letture usano il timeout delle query del JdbcTemplate.
+ * La transazione viene aperta solo dopo i controlli, così che con il circuito
+ * aperto non venga richiesta alcuna connessione.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class DatabaseGuard {
+
+    private final ResilienceProperties properties;
+
+    private final Semaphore readBulkhead;
+
+    private final Semaphore writeBulkhead;
+
+    private final TransactionTemplate writeTransaction;
+
+    /** Errori consecutivi del database dall'ultima chiamata riuscita */
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /** Istante fino al quale il circuito resta aperto, 0 se chiuso */
+    private final AtomicLong openUntilMillis = new AtomicLong();
+
+    /** Indica se una richiesta di prova è in corso con il circuito semiaperto */
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+
+    /**
+     * Costruttore con i limiti configurati.
+     * 
+     * @param properties timeout, bulkhead e soglie del circuit breaker
+     * @param transactionManager transaction manager per le scritture
+     */
+    public DatabaseGuard(ResilienceProperties properties, PlatformTransactionManager transactionManager) {
+        this.properties = properties;
+        this.readBulkhead = new Semaphore(properties.getMaxConcurrentReads());
+        this.writeBulkhead = new Semaphore(properties.getMaxConcurrentWrites());
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setTimeout(properties.getWriteTimeoutSeconds());
+    }
+
+    /**
+     * Esegue una lettura idempotente, ripetendola in caso di errore transitorio.
+     * 
+     * @param <T> tipo del risultato
+     * @param action la lettura da eseguire
+     * @return il risultato della lettura
+     * @throws DatabaseUnavailableException se il circuito è aperto o il bulkhead è pieno
+     */
+    public <T> T read(Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return execute(readBulkhead, action, attempt >= properties.getReadMaxAttempts());
+            } catch (RuntimeException e) {
+                if (!isDatabaseFailure(e) || attempt >= properties.getReadMaxAttempts() || isOpen()) {
+                    throw e;
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Esegue una scrittura in transazione, senza ripeterla.
+     * 
+     * @param <T> tipo del risultato
+     * @param action le istruzioni da eseguire nella stessa transazione
+     * @return il risultato della scrittura
+     * @throws DatabaseUnavailableException se il circuito è aperto o il bulkhead è pieno
+     */
+    public <T> T write(Supplier<T> action) {
+        return execute(writeBulkhead, () -> writeTransaction.execute(status -> action.get()), true);
+    }
+
+    /**
+     * Verifica se il circuito è aperto e le richieste vengono rifiutate.
+     * 
+     * @return {@code true} se il circuito è aperto
+     */
+    public boolean isOpen() {
+        return System.currentTimeMillis() < openUntilMillis.get();
+    }
+
+    /**
+     * Esegue un'operazione attraverso circuit breaker e bulkhead.
+     * 
+     * @param <T> tipo del risultato
+     * @param bulkhead il bulkhead da usare
+     * @param action l'operazione da eseguire
+     * @param countFailure {@code false} per un tentativo di lettura che verrà ripetuto,
+     *        il cui errore non viene conteggiato
+     * @return il risultato dell'operazione
+     */
+    private <T> T execute(Semaphore bulkhead, Supplier<T> action, boolean countFailure) {
+        boolean probe = acquireCircuit();
+        try {
+            acquireBulkhead(bulkhead);
+            try {
+                T result = action.get();
+                recordSuccess(probe);
+                return result;
+            } catch (RuntimeException e) {
+                if (isDatabaseFailure(e) && (probe || countFailure)) {
+                    recordFailure(probe);
+                }
+                throw e;
+            } finally {
+                bulkhead.release();
+            }
+        } finally {
+            if (probe) {
+                probeInFlight.set(false);
+            }
+        }
+    }
+
+    /**
+     * Controlla lo stato del circuito prima di una chiamata.
+     * 
+     * @return {@code true} se la chiamata è la richiesta di prova del circuito semiaperto
+     * @throws DatabaseUnavailableException se il circuito è aperto
+     */
+    private boolean acquireCircuit() {
+        long openUntil = openUntilMillis.get();
+        if (openUntil == 0) {
+            return false;
+        }
+        long remaining = openUntil - System.currentTimeMillis();
+        if (remaining <= 0 && probeInFlight.compareAndSet(false, true)) {
+            return true;
+        }
+        throw new DatabaseUnavailableException(
+            "Database non disponibile, riprovare tra " 
+            + Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remaining)) + " secondi");
+    }
+
+    /**
+     * Occupa un posto nel bulkhead, attendendo al massimo il tempo configurato.
+     * 
+     * @param bulkhead il bulkhead da occupare
+     * @throws DatabaseUnavailableException se non si libera un posto in tempo
+     */
+    private void acquireBulkhead(Semaphore bulkhead) {
+        try {
+            if (bulkhead.tryAcquire(properties.getBulkheadWaitMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new DatabaseUnavailableException("Database sovraccarico, riprovare tra poco");
+    }
+
+    /**
+     * Registra una chiamata riuscita: la richiesta di prova chiude il circuito,
+     * le altre azzerano gli errori consecutivi solo se il circuito è chiuso.
+     * 
+     * @param probe se la chiamata è la richiesta di prova
+     */
+    private void recordSuccess(boolean probe) {
+        if (probe) {
+            consecutiveFailures.set(0);
+            openUntilMillis.set(0);
+        } else if (openUntilMillis.get() == 0) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * Registra un errore del database e apre il circuito al raggiungimento della soglia
+     * o se fallisce la richiesta di prova.
+     * 
+     * @param probe se l'errore riguarda la richiesta di prova
+     */
+    private void recordFailure(boolean probe) {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (probe || failures >= properties.getCircuitFailureThreshold()) {
+            openUntilMillis.set(System.currentTimeMillis() 
+                + TimeUnit.SECONDS.toMillis(properties.getCircuitOpenSeconds()));
+        }
+    }
+
+    /**
+     * Attende prima di un nuovo tentativo, con attesa esponenziale e jitter completo.
+     * 
+     * @param attempt numero del tentativo appena fallito
+     */
+    private void backoff(int attempt) {
+        long ceiling = properties.getRetryBaseDelayMillis() << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseUnavailableException("Richiesta interrotta");
+        }
+    }
+
+    /**
+     * Verifica se un errore indica un problema del database (connessione, timeout,
+     * risorse) e non un errore della richiesta.
+     * 
+     * @param e l'eccezione da classificare
+     * @return {@code true} se l'errore deve essere conteggiato dal circuit breaker
+     */
+    private static boolean isDatabaseFailure(RuntimeException e) {
+        return e instanceof TransientDataAccessException 
+            || e instanceof DataAccessResourceFailureException 
+            || e instanceof RecoverableDataAccessException 
+            || e instanceof CannotCreateTransactionException 
+            || e instanceof TransactionTimedOutException;
+    }
+}
@@ -0,0 +1,20 @@
+package com.dynamicweb.rubrica.services;
+
+/**
+ * Eccezione sollevata quando una richiesta al database viene rifiutata senza
+ * essere eseguita, perché il circuito è aperto o il bulkhead è pieno.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+public class DatabaseUnavailableException extends RuntimeException {
+
+    /**
+     * Costruttore con messaggio da mostrare all'utente.
+     * 
+     * @param message descrizione del motivo del rifiuto
+     */
+    public DatabaseUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,482 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.components.ShardRouter;
+import com.dynamicweb.rubrica.dtos.DatasetOptions;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.repositories.PersonaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Generatore di rubriche sintetiche di grandi dimensioni, per misurare
+ * paginazione, ricerca e importazione su dati realistici.
+ *
+ * <p>I contatti hanno nomi e cognomi italiani con accenti e apostrofi, scelti
+ * con una distribuzione sbilanciata verso i più diffusi, numeri di cellulare e
+ * di rete fissa in diversi formati, indirizzi con CAP e città, età con una
+ * distribuzione asimmetrica (pochi minori, mediana intorno ai quarant'anni,
+ * coda verso le età avanzate) e una quota configurabile di duplicati: la stessa
+ * persona inserita di nuovo, identica o con piccole differenze (telefono con o
+ * senza prefisso internazionale, indirizzo mancante, cognome in maiuscolo).
+ * Ogni contatto supera la validazione di {@link PersonaValidator}.</p>
+ *
+ * <p>La generazione procede a blocchi di {@value #CHUNK_SIZE} contatti, ognuno
+ * con un proprio generatore pseudo-casuale derivato dal seme e dal numero del
+ * blocco: i blocchi vengono prodotti in parallelo ma il risultato dipende solo
+ * da seme e numero di contatti, non dal numero di thread. I duplicati ripetono
+ * contatti dello stesso blocco. Nel database ogni blocco viene inserito nella
+ * rubrica dell'utente indicato con un'istruzione batch in una transazione per shard, senza passare dalle
+ * notifiche delle singole modifiche; nei file i blocchi vengono scritti
+ * nell'ordine, con al più due blocchi per thread in memoria.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class DatasetGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    /** Contatti per blocco: unità di generazione, di inserimento e di scrittura */
+    static final int CHUNK_SIZE = 5000;
+
+    /** Intervallo minimo tra due messaggi di avanzamento */
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /** Intestazione dei file CSV */
+    private static final String CSV_HEADER = "nome,cognome,indirizzo,telefono,eta\n";
+
+    // Le tabelle seguenti sono ordinate dal valore più diffuso al meno diffuso
+
+    private static final String[] NOMI_MASCHILI = {
+        "Giuseppe", "Giovanni", "Antonio", "Mario", "Francesco", "Luigi", "Angelo", "Vincenzo",
+        "Pietro", "Salvatore", "Carlo", "Franco", "Domenico", "Bruno", "Paolo", "Michele",
+        "Giorgio", "Marco", "Alessandro", "Andrea", "Luca", "Matteo", "Lorenzo", "Leonardo",
+        "Sergio", "Luciano", "Roberto", "Stefano", "Davide", "Riccardo", "Gabriele", "Tommaso",
+        "Federico", "Edoardo", "Raffaele", "Gennaro", "Ciro", "Saverio", "Niccolò", "Nicolò",
+        "Mattia", "Elia", "Gian Marco", "Pierluigi", "Gianluca", "Emanuele", "Nicola", "Simone"
+    };
+
+    private static final String[] NOMI_FEMMINILI = {
+        "Maria", "Anna", "Giuseppina", "Rosa", "Angela", "Giovanna", "Teresa", "Lucia",
+        "Carmela", "Caterina", "Francesca", "Antonietta", "Carla", "Elena", "Chiara", "Sofia",
+        "Giulia", "Aurora", "Alice", "Ginevra", "Emma", "Giorgia", "Beatrice", "Martina",
+        "Sara", "Noemi", "Matilde", "Anna Maria", "Maria Grazia", "Rosaria", "Concetta", "Raffaella",
+        "Annalisa", "Valentina", "Federica", "Silvia", "Paola", "Laura", "Ilaria", "Mirella",
+        "Nicoletta", "Lucrezia", "Agnese", "Benedetta", "Irene", "Zoe", "Gioia", "Desirèe"
+    };
+
+    private static final String[] COGNOMI = {
+        "Rossi", "Russo", "Ferrari", "Esposito", "Bianchi", "Romano", "Colombo", "Ricci",
+        "Marino", "Greco", "Bruno", "Gallo", "Conti", "De Luca", "Mancini", "Costa",
+        "Giordano", "Rizzo", "Lombardi", "Moretti", "Barbieri", "Fontana", "Santoro", "Mariani",
+        "Rinaldi", "Caruso", "Ferrara", "Galli", "Martini", "Leone", "Longo", "Gentile",
+        "Martinelli", "Vitale", "Lombardo", "Serra", "Coppola", "De Santis", "D'Angelo", "Marchetti",
+        "Parisi", "Villa", "Conte", "Ferraro", "Ferri", "Fabbri", "Bianco", "Marini",
+        "Grasso", "Valentini", "Messina", "Sala", "De Angelis", "Gatti", "Pellegrini", "Palumbo",
+        "Sanna", "Farina", "Rizzi", "Monti", "Cattaneo", "Morelli", "Amato", "Silvestri",
+        "Mazza", "Testa", "Grassi", "Pellegrino", "Carbone", "Giuliani", "Benedetti", "Barone",
+        "D'Amico", "Orlando", "Di Stefano", "Dell'Acqua", "Della Valle", "Lo Russo", "Piras", "Sorrentino",
+        "Cantù", "Corrà", "Mazzà", "Pellè", "Nicolò", "Di Nicolò", "Salvà", "Zanè"
+    };
+
+    /** Radici e desinenze dei cognomi meno diffusi, combinate liberamente */
+    private static final String[] RADICI_COGNOMI = {
+        "Bel", "Ross", "Mart", "Frances", "Gian", "Ber", "Tod", "Pagan", "Marc", "Bon",
+        "Lan", "Fer", "Sant", "Vent", "Cas", "Man", "Bald", "Zan", "Gualt", "Cors",
+        "Spin", "Bert", "Pier", "Mor", "Ghir", "Bar", "Tomm", "Calv", "Dal", "Sav"
+    };
+
+    private static final String[] DESINENZE_COGNOMI = {
+        "ini", "etti", "elli", "one", "ucci", "azzo", "ato", "iero", "olo", "esi", "otto", "ì", "à"
+    };
+
+    /** Prefissi dei cellulari */
+    private static final String[] PREFISSI_MOBILI = {
+        "347", "348", "349", "333", "338", "339", "340", "320", "328", "329", "335", "334",
+        "345", "346", "366", "380", "388", "389", "391", "392", "393", "350", "351", "370"
+    };
+
+    /** Prefissi della rete fissa */
+    private static final String[] PREFISSI_FISSI = {
+        "06", "02", "081", "011", "091", "010", "051", "055", "080", "095", "041", "045",
+        "070", "0471", "0422", "0543", "031", "049", "040", "090"
+    };
+
+    private static final String[] TIPI_STRADA = {
+        "Via", "Via", "Via", "Viale", "Piazza", "Corso", "Largo", "Vicolo"
+    };
+
+    private static final String[] ODONIMI = {
+        "Roma", "Garibaldi", "Giuseppe Mazzini", "Cavour", "Dante Alighieri", "Vittorio Emanuele II",
+        "XX Settembre", "dei Mille", "Giacomo Matteotti", "Antonio Gramsci", "della Repubblica",
+        "San Francesco", "Nazionale", "Guglielmo Marconi", "Giuseppe Verdi", "Alessandro Manzoni",
+        "IV Novembre", "Cesare Battisti", "Umberto I", "Santa Lucia", "Fratelli Rosselli",
+        "Sant'Antonio", "della Libertà", "dell'Università", "Nicolò Tommaseo", "Papa Giovanni XXIII"
+    };
+
+    /** CAP e città, dalla più popolosa */
+    private static final String[] CITTA = {
+        "00185 Roma", "20121 Milano", "80133 Napoli", "10121 Torino", "90133 Palermo",
+        "16121 Genova", "40121 Bologna", "50122 Firenze", "70121 Bari", "95131 Catania",
+        "30121 Venezia", "37121 Verona", "98122 Messina", "35122 Padova", "34121 Trieste",
+        "09124 Cagliari", "06121 Perugia", "47121 Forlì", "22063 Cantù", "39100 Bolzano",
+        "67100 L'Aquila", "89127 Reggio Calabria", "07100 Sassari", "11100 Aosta", "31100 Treviso"
+    };
+
+    private final PersonaRepository personaRepository;
+
+    private final PersonaValidator personaValidator;
+
+    private final ShardRouter shardRouter;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Costruttore del generatore.
+     *
+     * @param personaRepository il repository delle persone, per l'inserimento nel database
+     * @param personaValidator le regole di validazione che ogni contatto deve rispettare
+     * @param shardRouter instradamento dei blocchi tra gli shard
+     * @param transactionManager transaction manager per gli inserimenti
+     * @param objectMapper serializzazione JSON delle righe NDJSON
+     */
+    public DatasetGenerator(
+        PersonaRepository personaRepository,
+        PersonaValidator personaValidator,
+        ShardRouter shardRouter,
+        PlatformTransactionManager transactionManager,
+        ObjectMapper objectMapper) {
+        this.personaRepository = personaRepository;
+        this.personaValidator = personaValidator;
+        this.shardRouter = shardRouter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Genera i contatti e li inserisce nel database o li scrive nel file indicato.
+     *
+     * @param options numero, seme, quota di duplicati, destinazione e thread
+     * @return numero di contatti generati
+     * @throws IOException se la scrittura del file non riesce
+     * @throws IllegalArgumentException se i parametri non sono validi
+     */
+    public long generate(DatasetOptions options) throws IOException {
+        validate(options);
+        long chunks = (options.getCount() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        int window = options.getThreads() * 2;
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(options.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "dataset-generator-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        log.info("Generazione di {} contatti ({}, seme {}, duplicati {}%, {} thread)",
+            options.getCount(), options.getTarget(), options.getSeed(),
+            Math.round(options.getDuplicateRate() * 100), options.getThreads());
+        long start = System.nanoTime();
+        long lastProgress = start;
+        long done = 0;
+        try (OutputStream out = openOutput(options)) {
+            Deque<Future<byte[]>> pending = new ArrayDeque<>(window);
+            for (long chunk = 0; chunk < chunks || !pending.isEmpty(); ) {
+                if (chunk < chunks && pending.size() < window) {
+                    long current = chunk++;
+                    pending.addLast(executor.submit(() -> processChunk(current, options)));
+                    continue;
+                }
+                byte[] encoded = await(pending.removeFirst());
+                if (out != null) {
+                    out.write(encoded);
+                }
+                done = Math.min(options.getCount(), done + CHUNK_SIZE);
+                long now = System.nanoTime();
+                if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                    lastProgress = now;
+                    log.info("Generazione: {} di {} contatti", done, options.getCount());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Generati {} contatti in {} ms ({} contatti/s){}",
+            options.getCount(), millis, options.getCount() * 1000 / millis,
+            options.getOutput() != null && options.getTarget() != DatasetOptions.Target.DATABASE
+                ? " in " + options.getOutput().toAbsolutePath() : "");
+        return options.getCount();
+    }
+
+    /**
+     * Genera un blocco e lo inserisce nel database o lo codifica per il file.
+     *
+     * @return righe codificate del blocco, vuoto per il database
+     */
+    private byte[] processChunk(long chunk, DatasetOptions options) throws IOException {
+        List<Persona> persons = generateChunk(chunk, options);
+        return switch (options.getTarget()) {
+            case DATABASE -> {
+                insert(options.getOwnerId(), persons);
+                yield new byte[0];
+            }
+            case CSV -> encodeCsv(persons);
+            case NDJSON -> encodeNdjson(persons);
+        };
+    }
+
+    /**
+     * Genera i contatti di un blocco a partire dal seme e dal numero del blocco.
+     *
+     * @param chunk numero del blocco
+     * @param options parametri della generazione
+     * @return contatti validati, senza ID
+     */
+    List<Persona> generateChunk(long chunk, DatasetOptions options) {
+        long first = chunk * CHUNK_SIZE;
+        int size = (int) Math.min(CHUNK_SIZE, options.getCount() - first);
+        // Seme del blocco rimescolato: semi vicini darebbero sequenze sfasate di pochi valori
+        long chunkSeed = new SplittableRandom(options.getSeed() ^ (chunk * 0x9E3779B97F4A7C15L)).nextLong();
+        SplittableRandom random = new SplittableRandom(chunkSeed);
+        List<Persona> persons = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            boolean duplicate = i > 0 && random.nextDouble() < options.getDuplicateRate();
+            Persona persona = duplicate ? duplicate(persons.get(random.nextInt(i)), random) : person(random);
+            personaValidator.validatePersona(persona);
+            persons.add(persona);
+        }
+        return persons;
+    }
+
+    /**
+     * Inserisce un blocco con un'istruzione batch per shard, ciascuna nella propria transazione.
+     */
+    private void insert(long ownerId, List<Persona> persons) {
+        if (shardRouter.getShardCount() == 1) {
+            transactionTemplate.execute(status -> personaRepository.insertBatch(ownerId, persons));
+            return;
+        }
+        Map<Integer, List<Persona>> byShard = new HashMap<>();
+        for (Persona persona : persons) {
+            persona.setId(personaRepository.allocateId());
+            byShard.computeIfAbsent(shardRouter.shardOf(persona.getId()), shard -> new ArrayList<>()).add(persona);
+        }
+        byShard.forEach((shard, shardPersons) -> shardRouter.onShard(shard,
+            () -> transactionTemplate.execute(status -> personaRepository.insertBatch(ownerId, shardPersons))));
+    }
+
+    private static Persona person(SplittableRandom random) {
+        String[] nomi = random.nextBoolean() ? NOMI_FEMMINILI : NOMI_MASCHILI;
+        String nome = popular(nomi, random);
+        if (random.nextInt(100) < 3) {
+            // Secondo nome
+            nome = nome + " " + popular(nomi, random);
+        }
+        String indirizzo = random.nextInt(100) < 8 ? null : address(random);
+        return new Persona(null, nome, surname(random), indirizzo, phone(random), age(random), null);
+    }
+
+    /**
+     * Ripete una persona già generata, identica o con una piccola differenza
+     * come avviene per un contatto inserito due volte.
+     */
+    private static Persona duplicate(Persona original, SplittableRandom random) {
+        Persona copy = new Persona(null, original.getNome(), original.getCognome(),
+            original.getIndirizzo(), original.getTelefono(), original.getEta(), null);
+        switch (random.nextInt(4)) {
+            case 1 -> copy.setTelefono(original.getTelefono().startsWith("+39")
+                ? original.getTelefono().substring(3).strip()
+                : "+39 " + original.getTelefono());
+            case 2 -> copy.setIndirizzo(null);
+            case 3 -> copy.setCognome(original.getCognome().toUpperCase(Locale.ITALIAN));
+            default -> {
+                // Copia identica
+            }
+        }
+        return copy;
+    }
+
+    private static String surname(SplittableRandom random) {
+        if (random.nextInt(100) < 70) {
+            return popular(COGNOMI, random);
+        }
+        return RADICI_COGNOMI[random.nextInt(RADICI_COGNOMI.length)]
+            + DESINENZE_COGNOMI[random.nextInt(DESINENZE_COGNOMI.length)];
+    }
+
+    /**
+     * Numero di cellulare o di rete fissa con dieci cifre, in uno dei formati
+     * accettati: con o senza spazio dopo il prefisso, con o senza +39.
+     */
+    private static String phone(SplittableRandom random) {
+        String prefix = random.nextInt(100) < 75
+            ? popular(PREFISSI_MOBILI, random)
+            : popular(PREFISSI_FISSI, random);
+        StringBuilder number = new StringBuilder(10 - prefix.length());
+        for (int i = prefix.length(); i < 10; i++) {
+            number.append((char) ('0' + random.nextInt(10)));
+        }
+        return switch (random.nextInt(4)) {
+            case 0 -> prefix + number;
+            case 1 -> prefix + " " + number;
+            case 2 -> "+39 " + prefix + " " + number;
+            default -> "+39" + prefix + number;
+        };
+    }
+
+    private static String address(SplittableRandom random) {
+        int civico = 1 + random.nextInt(random.nextInt(10) < 8 ? 60 : 300);
+        return TIPI_STRADA[random.nextInt(TIPI_STRADA.length)] + " " + popular(ODONIMI, random)
+            + " " + civico + ", " + popular(CITTA, random);
+    }
+
+    /**
+     * Età con una distribuzione asimmetrica: 7% non indicata, 5% minori,
+     * adulti con distribuzione log-normale spostata a 18 anni (mediana circa 42).
+     */
+    private static Integer age(SplittableRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < 7) {
+            return null;
+        }
+        if (roll < 12) {
+            return random.nextInt(18);
+        }
+        double adult = 18 + Math.exp(3.2 + 0.45 * random.nextGaussian());
+        return (int) Math.min(adult, 105);
+    }
+
+    /**
+     * Sceglie un valore favorendo i primi della tabella: il primo decimo dei
+     * valori viene scelto circa quattro volte su dieci.
+     */
+    private static String popular(String[] values, SplittableRandom random) {
+        return values[(int) (values.length * Math.pow(random.nextDouble(), 2.5))];
+    }
+
+    private static byte[] encodeCsv(List<Persona> persons) {
+        StringBuilder csv = new StringBuilder(persons.size() * 80);
+        for (Persona persona : persons) {
+            csv.append(csvField(persona.getNome())).append(',')
+                .append(csvField(persona.getCognome())).append(',')
+                .append(csvField(persona.getIndirizzo())).append(',')
+                .append(csvField(persona.getTelefono())).append(',')
+                .append(persona.getEta() != null ? persona.getEta().toString() : "")
+                .append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Racchiude il campo tra virgolette se contiene separatori o virgolette (RFC 4180).
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private byte[] encodeNdjson(List<Persona> persons) throws IOException {
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream(persons.size() * 128);
+        for (Persona persona : persons) {
+            ndjson.write(objectMapper.writeValueAsBytes(persona));
+            ndjson.write('\n');
+        }
+        return ndjson.toByteArray();
+    }
+
+    /**
+     * Apre il file di destinazione e ne scrive l'intestazione.
+     *
+     * @return stream del file, {@code null} per il database
+     */
+    private static OutputStream openOutput(DatasetOptions options) throws IOException {
+        if (options.getTarget() == DatasetOptions.Target.DATABASE) {
+            return null;
+        }
+        Path parent = options.getOutput().toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(options.getOutput()), 1 << 16);
+        if (options.getTarget() == DatasetOptions.Target.CSV) {
+            out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    /**
+     * Attende un blocco e ne propaga l'eventuale errore.
+     */
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generazione interrotta", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Generazione non riuscita", cause);
+        }
+    }
+
+    private static void validate(DatasetOptions options) {
+        if (options.getCount() <= 0) {
+            throw new IllegalArgumentException("Il numero di contatti da generare deve essere positivo");
+        }
+        if (options.getDuplicateRate() < 0 || options.getDuplicateRate() > 1) {
+            throw new IllegalArgumentException("La quota di duplicati deve essere compresa tra 0 e 1");
+        }
+        if (options.getThreads() < 1) {
+            throw new IllegalArgumentException("Il numero di thread deve essere positivo");
+        }
+        if (options.getTarget() == null) {
+            throw new IllegalArgumentException("Destinazione dei contatti non indicata");
+        }
+        if (options.getTarget() != DatasetOptions.Target.DATABASE && options.getOutput() == null) {
+            throw new IllegalArgumentException("File di destinazione non indicato");
+        }
+        if (options.getTarget() == DatasetOptions.Target.DATABASE && options.getOwnerId() == null) {
+            throw new IllegalArgumentException("Utente proprietario dei contatti non indicato");
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.events.JfrDataSourceUpdateEvent;
+import com.dynamicweb.rubrica.events.JfrDispatchEvent;
+import com.dynamicweb.rubrica.events.JfrRepositoryEvent;
+import com.dynamicweb.rubrica.events.JfrValidationEvent;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servizio per le registrazioni Java Flight Recorder avviate dalla diagnostica.
+ *
+ * <p>Una registrazione usa la configurazione {@code default} della JVM (GC,
+ * thread, I/O, CPU) e aggiunge gli eventi dell'applicazione con le soglie
+ * {@code rubrica.jfr.*}: chiamate ai repository, validazioni, configurazioni
+ * del database e richieste ai controller. Il contenuto viene conservato in
+ * memoria e su disco nei limiti di durata e dimensione configurati e salvato
+ * su richiesta in un file {@code .jfr} nella directory
+ * {@code rubrica.jfr.directory}, da aprire con JDK Mission Control o
+ * {@code jfr print}.</p>
+ *
+ * <p>Le registrazioni avviate dalla riga di comando
+ * ({@code -XX:StartFlightRecording}) includono gli stessi eventi con le
+ * soglie predefinite delle classi, modificabili nel file {@code .jfc} tramite
+ * i nomi {@code rubrica.*}.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class FlightRecorderService {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorderService.class);
+
+    /** Formato dell'istante nei nomi dei file salvati */
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneId.systemDefault());
+
+    private final Path directory;
+
+    private final Duration maxAge;
+
+    private final long maxSizeBytes;
+
+    /** Soglie degli eventi dell'applicazione, nell'ordine di presentazione */
+    private final Map<Class<? extends Event>, Duration> thresholds = new LinkedHashMap<>();
+
+    private Recording recording;
+
+    /**
+     * Costruttore con la configurazione delle registrazioni.
+     *
+     * @param directory directory dei file salvati
+     * @param maxAgeMinutes durata massima del contenuto conservato
+     * @param maxSizeMb dimensione massima del contenuto conservato
+     * @param repositoryThreshold durata minima delle chiamate ai repository registrate
+     * @param validationThreshold durata minima delle validazioni registrate
+     * @param dataSourceThreshold durata minima delle configurazioni del database registrate
+     * @param dispatchThreshold durata minima delle richieste ai controller registrate
+     */
+    public FlightRecorderService(
+        @Value("${rubrica.jfr.directory:data/jfr}") String directory,
+        @Value("${rubrica.jfr.max-age-minutes:60}") long maxAgeMinutes,
+        @Value("${rubrica.jfr.max-size-mb:250}") long maxSizeMb,
+        @Value("${rubrica.jfr.repository-threshold:10ms}") Duration repositoryThreshold,
+        @Value("${rubrica.jfr.validation-threshold:1ms}") Duration validationThreshold,
+        @Value("${rubrica.jfr.datasource-threshold:0ms}") Duration dataSourceThreshold,
+        @Value("${rubrica.jfr.dispatch-threshold:20ms}") Duration dispatchThreshold) {
+        this.directory = Path.of(directory);
+        this.maxAge = Duration.ofMinutes(maxAgeMinutes);
+        this.maxSizeBytes = maxSizeMb * 1024 * 1024;
+        thresholds.put(JfrRepositoryEvent.class, repositoryThreshold);
+        thresholds.put(JfrValidationEvent.class, validationThreshold);
+        thresholds.put(JfrDataSourceUpdateEvent.class, dataSourceThreshold);
+        thresholds.put(JfrDispatchEvent.class, dispatchThreshold);
+    }
+
+    /**
+     * Avvia una nuova registrazione.
+     *
+     * @throws IllegalStateException se una registrazione è già in corso o JFR non è disponibile
+     */
+    public synchronized void start() {
+        if (recording != null) {
+            throw new IllegalStateException("Registrazione già in corso");
+        }
+        Recording started;
+        try {
+            started = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Configurazione JFR non disponibile: " + e.getMessage(), e);
+        }
+        started.setName("rubrica");
+        started.setToDisk(true);
+        started.setMaxAge(maxAge);
+        started.setMaxSize(maxSizeBytes);
+        thresholds.forEach((type, threshold) -> started.enable(type).withThreshold(threshold));
+        started.start();
+        recording = started;
+        log.info("Registrazione JFR avviata");
+    }
+
+    /**
+     * Salva il contenuto della registrazione in corso in un nuovo file,
+     * senza interromperla.
+     *
+     * @return percorso del file salvato
+     * @throws IllegalStateException se nessuna registrazione è in corso o il file non può essere scritto
+     */
+    public synchronized Path dump() {
+        if (recording == null) {
+            throw new IllegalStateException("Nessuna registrazione in corso");
+        }
+        Path file = directory.resolve("rubrica-" + FILE_TIMESTAMP.format(Instant.now()) + ".jfr");
+        try {
+            Files.createDirectories(directory);
+            recording.dump(file);
+        } catch (IOException e) {
+            throw new IllegalStateException("Salvataggio della registrazione non riuscito: " + e.getMessage(), e);
+        }
+        log.info("Registrazione JFR salvata in {}", file.toAbsolutePath());
+        return file;
+    }
+
+    /**
+     * Salva il contenuto della registrazione in corso e la termina.
+     *
+     * @return percorso del file salvato
+     * @throws IllegalStateException se nessuna registrazione è in corso o il file non può essere scritto
+     */
+    public synchronized Path stop() {
+        Path file = dump();
+        close();
+        return file;
+    }
+
+    /**
+     * Verifica se una registrazione è in corso.
+     *
+     * @return true se la registrazione è attiva
+     */
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Restituisce l'istante di avvio della registrazione in corso.
+     *
+     * @return istante di avvio, null se nessuna registrazione è in corso
+     */
+    public synchronized Instant getStartedAt() {
+        return recording != null ? recording.getStartTime() : null;
+    }
+
+    /**
+     * Restituisce le soglie degli eventi dell'applicazione per nome dell'evento.
+     *
+     * @return soglia in millisecondi per nome JFR dell'evento
+     */
+    public Map<String, Long> getThresholdMillis() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        thresholds.forEach((type, threshold) ->
+            result.put(type.getAnnotation(jdk.jfr.Name.class).value(), threshold.toMillis()));
+        return result;
+    }
+
+    /**
+     * Restituisce la directory dei file salvati.
+     *
+     * @return percorso assoluto della directory
+     */
+    public Path getDirectory() {
+        return directory.toAbsolutePath();
+    }
+
+    /**
+     * Termina la registrazione in corso senza salvarla, alla chiusura dell'applicazione.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
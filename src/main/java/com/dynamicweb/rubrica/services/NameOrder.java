@@ -0,0 +1,167 @@
+package com.dynamicweb.rubrica.services;
+
+import java.util.Arrays;
+
+/**
+ * Elenco ordinato delle chiavi di collazione dei contatti di una rubrica,
+ * con l'ID di ogni contatto.
+ *
+ * <p>Chiavi e ID sono conservati in due array paralleli ordinati per chiave
+ * (byte senza segno) e poi per ID: la posizione di una chiave si trova con
+ * una ricerca binaria, senza confronti tramite {@link java.text.Collator}.
+ * Un inserimento o una rimozione spostano la coda degli array con
+ * {@link System#arraycopy}. La classe non è thread-safe.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class NameOrder {
+
+    private byte[][] keys;
+
+    private long[] ids;
+
+    private int size;
+
+    /**
+     * Crea un elenco vuoto.
+     */
+    NameOrder() {
+        this.keys = new byte[16][];
+        this.ids = new long[16];
+    }
+
+    /**
+     * Crea un elenco da chiavi e ID non ordinati, ordinandoli una sola volta.
+     *
+     * @param keys chiavi di collazione
+     * @param ids ID dei contatti, nella stessa posizione delle chiavi
+     * @param size numero di elementi validi
+     */
+    NameOrder(byte[][] keys, long[] ids, int size) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(keys[a], ids[a], keys[b], ids[b]));
+        this.keys = new byte[Math.max(16, size)][];
+        this.ids = new long[this.keys.length];
+        for (int i = 0; i < size; i++) {
+            this.keys[i] = keys[order[i]];
+            this.ids[i] = ids[order[i]];
+        }
+        this.size = size;
+    }
+
+    /**
+     * Inserisce un contatto nella sua posizione.
+     *
+     * @param key chiave di collazione
+     * @param id ID del contatto
+     */
+    void add(byte[] key, long id) {
+        int position = search(key, id);
+        if (position >= 0) {
+            return;
+        }
+        position = -(position + 1);
+        if (size == ids.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(keys, position, keys, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        keys[position] = key;
+        ids[position] = id;
+        size++;
+    }
+
+    /**
+     * Rimuove un contatto, se presente con la chiave indicata.
+     *
+     * @param key chiave di collazione con cui il contatto è stato inserito
+     * @param id ID del contatto
+     */
+    void remove(byte[] key, long id) {
+        int position = search(key, id);
+        if (position < 0) {
+            return;
+        }
+        System.arraycopy(keys, position + 1, keys, position, size - position - 1);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        keys[--size] = null;
+    }
+
+    /**
+     * Posizione del primo contatto che segue la chiave e l'ID indicati.
+     *
+     * @param key chiave di collazione
+     * @param id ID del contatto, {@link Long#MIN_VALUE} per includere tutti i contatti con la chiave
+     * @return posizione, {@link #size()} se nessun contatto segue
+     */
+    int positionAfter(byte[] key, long id) {
+        int position = search(key, id);
+        return position >= 0 ? position + 1 : -(position + 1);
+    }
+
+    /**
+     * Posizione del primo contatto con chiave maggiore o uguale al prefisso
+     * indicato.
+     *
+     * @param prefix chiave di collazione o suo prefisso
+     * @return posizione, {@link #size()} se nessun contatto segue
+     */
+    int positionOf(byte[] prefix) {
+        return positionAfter(prefix, Long.MIN_VALUE);
+    }
+
+    /**
+     * @param position posizione nell'elenco
+     * @return ID del contatto nella posizione
+     */
+    long id(int position) {
+        return ids[position];
+    }
+
+    /**
+     * @param position posizione nell'elenco
+     * @return chiave di collazione del contatto nella posizione
+     */
+    byte[] key(int position) {
+        return keys[position];
+    }
+
+    /**
+     * @return numero di contatti nell'elenco
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Ricerca binaria di chiave e ID.
+     *
+     * @return posizione se presente, altrimenti {@code -(punto di inserimento) - 1}
+     */
+    private int search(byte[] key, long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(keys[middle], ids[middle], key, id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static int compare(byte[] keyA, long idA, byte[] keyB, long idB) {
+        int comparison = Arrays.compareUnsigned(keyA, keyB);
+        return comparison != 0 ? comparison : Long.compare(idA, idB);
+    }
+}
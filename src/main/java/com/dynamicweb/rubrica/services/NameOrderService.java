@@ -0,0 +1,390 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.dtos.LetterJump;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.events.ContactsLoadingEvent;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servizio dell'ordinamento alfabetico dei contatti secondo la lingua
+ * ({@code rubrica.sort.locale}, di default l'italiano).
+ *
+ * <p>Per ogni rubrica mantiene un {@link NameOrder} con la chiave di
+ * collazione di cognome e nome di ogni contatto, costruito dall'insieme dei
+ * contatti caricato all'avvio e aggiornato in modo incrementale a ogni
+ * modifica. Le chiavi vengono calcolate una sola volta con {@link Collator}:
+ * una pagina o la posizione di una lettera iniziale si trovano con una
+ * ricerca binaria sui byte delle chiavi, in O(log n).</p>
+ *
+ * <p>La chiave confronta prima le lettere del cognome, poi quelle del nome,
+ * e solo a parità di lettere accenti e maiuscole: D'Angelo e Dangelo sono
+ * vicini, Rossi precede Rossini qualunque sia il nome, Élia compare tra i
+ * cognomi con la E. L'ordine non dipende quindi dalla collation del database.</p>
+ *
+ * <p>Le letture concorrenti condividono un lock in lettura; le modifiche
+ * prendono il lock in scrittura per il tempo di uno spostamento di array.
+ * Le modifiche confermate mentre l'indice viene ricostruito vengono conservate
+ * e riapplicate al nuovo indice ({@link PendingChanges}), come per l'indice
+ * dei nomi. Alla configurazione di un nuovo database l'indice del precedente
+ * viene scartato e la lista viene letta dal database fino al caricamento.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class NameOrderService {
+
+    /** Lettere delle schede della lista */
+    private static final String LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    /** Prefisso dei token di paginazione, distinto da quelli delle pagine lette dal database */
+    private static final String TOKEN_PREFIX = "NAME";
+
+    private static final Logger log = LoggerFactory.getLogger(NameOrderService.class);
+
+    /** Confronto delle sole lettere, senza accenti, maiuscole e punteggiatura */
+    private final Collator primary;
+
+    /** Confronto completo, per l'ordine tra nomi con le stesse lettere */
+    private final Collator tertiary;
+
+    /** Indici correnti di tutte le rubriche, sostituiti in blocco a ogni ricaricamento */
+    private volatile Index index = new Index();
+
+    /** Modifiche confermate durante la ricostruzione dell'indice */
+    private final PendingChanges pendingChanges = new PendingChanges();
+
+    /**
+     * Contatti di una pagina in ordine alfabetico.
+     *
+     * @param ids ID dei contatti, nell'ordine della pagina
+     * @param nextCursor token per la pagina successiva, null se non ci sono altri contatti
+     */
+    public record Slice(List<Long> ids, String nextCursor) {
+    }
+
+    /**
+     * Costruttore con la lingua dell'ordinamento.
+     *
+     * @param locale lingua in formato BCP 47 (ad esempio "it-IT")
+     */
+    public NameOrderService(@Value("${rubrica.sort.locale:it-IT}") String locale) {
+        Locale parsed = Locale.forLanguageTag(locale);
+        this.primary = collator(parsed, Collator.PRIMARY);
+        this.tertiary = collator(parsed, Collator.TERTIARY);
+    }
+
+    /**
+     * Scarta l'indice del database precedente quando ne viene configurato uno
+     * nuovo: fino al caricamento dei suoi contatti la lista viene letta dal
+     * database. Viene eseguito prima del caricamento, avviato dallo stesso evento.
+     *
+     * @param event evento di configurazione del database
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDatabaseConfigured(DatabaseConfiguredEvent event) {
+        index = new Index();
+    }
+
+    /**
+     * Inizia a conservare le modifiche quando parte la lettura dei contatti,
+     * o smette se la lettura non è riuscita.
+     *
+     * @param event evento di inizio o di fallimento della lettura
+     */
+    @EventListener
+    public void onContactsLoading(ContactsLoadingEvent event) {
+        if (event.isFailed()) {
+            pendingChanges.abort();
+        } else {
+            pendingChanges.start();
+        }
+    }
+
+    /**
+     * Ricostruisce l'indice quando viene caricato l'insieme dei contatti e vi
+     * riapplica le modifiche confermate durante la lettura.
+     *
+     * @param event evento con tutti i contatti attivi
+     */
+    @EventListener
+    public void onContactsLoaded(ContactsLoadedEvent event) {
+        long start = System.nanoTime();
+        Map<Long, List<Persona>> byOwner = new HashMap<>();
+        for (Persona persona : event.getContacts()) {
+            byOwner.computeIfAbsent(persona.getOwnerId(), owner -> new ArrayList<>()).add(persona);
+        }
+        Index fresh = new Index();
+        byOwner.forEach((ownerId, persons) -> {
+            byte[][] keys = new byte[persons.size()][];
+            long[] ids = new long[persons.size()];
+            for (int i = 0; i < persons.size(); i++) {
+                keys[i] = key(persons.get(i));
+                ids[i] = persons.get(i).getId();
+            }
+            fresh.orders.put(ownerId, new NameOrder(keys, ids, persons.size()));
+        });
+        fresh.ready = true;
+        int replayed = pendingChanges.finish(change -> apply(fresh, change), () -> index = fresh);
+        log.info("Ordinamento alfabetico costruito: {} contatti di {} utenti, {} modifiche riapplicate ({} ms)",
+            event.getContacts().size(), byOwner.size(), replayed,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Aggiorna l'indice dopo l'inserimento, la modifica o l'eliminazione di una persona.
+     *
+     * @param event evento con i dati della persona prima e dopo la modifica
+     */
+    @EventListener
+    public void onPersonaChanged(PersonaChangedEvent event) {
+        Persona before = event.getBefore();
+        Persona after = event.getAfter();
+        if (before != null && after != null
+            && Objects.equals(before.getCognome(), after.getCognome())
+            && Objects.equals(before.getNome(), after.getNome())) {
+            return;
+        }
+        pendingChanges.record(event, change -> apply(index, change));
+    }
+
+    /**
+     * Applica una modifica a un indice.
+     */
+    private void apply(Index target, PersonaChangedEvent event) {
+        Persona before = event.getBefore();
+        Persona after = event.getAfter();
+        byte[] beforeKey = before != null ? key(before) : null;
+        byte[] afterKey = after != null ? key(after) : null;
+
+        target.lock.writeLock().lock();
+        try {
+            if (before != null) {
+                NameOrder order = target.orders.get(before.getOwnerId());
+                if (order != null) {
+                    order.remove(beforeKey, before.getId());
+                }
+            }
+            if (after != null) {
+                target.orders.computeIfAbsent(after.getOwnerId(), owner -> new NameOrder())
+                    .add(afterKey, after.getId());
+            }
+        } finally {
+            target.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Verifica se una richiesta della lista può essere servita dall'indice:
+     * ordinamento per cognome crescente e nessun filtro.
+     *
+     * @param query parametri della lista
+     * @return {@code true} se l'indice è pronto e la richiesta non ha filtri
+     */
+    public boolean supports(PersonaQuery query) {
+        return index.ready
+            && query.getSortOrDefault() == PersonaQuery.SortKey.COGNOME
+            && !query.isDescending()
+            && !query.isFiltered();
+    }
+
+    /**
+     * Restituisce una pagina della rubrica di un utente in ordine alfabetico.
+     *
+     * @param ownerId ID dell'utente proprietario
+     * @param after token della pagina precedente, null per partire dall'inizio o dalla lettera
+     * @param letter lettera iniziale del cognome da cui partire, null per l'inizio della rubrica
+     * @param size numero massimo di contatti
+     * @return ID dei contatti della pagina con il token per la successiva
+     * @throws DatabaseUnavailableException se l'indice non è ancora stato costruito
+     */
+    public Slice findPage(long ownerId, String after, String letter, int size) {
+        Cursor cursor = Cursor.decode(after);
+        byte[] letterKey = cursor == null && letter != null && !letter.isEmpty() ? letterKey(letter.charAt(0)) : null;
+        Index current = index;
+        if (!current.ready) {
+            throw new DatabaseUnavailableException("Ordinamento alfabetico non ancora disponibile");
+        }
+
+        current.lock.readLock().lock();
+        try {
+            NameOrder order = current.orders.get(ownerId);
+            if (order == null) {
+                return new Slice(List.of(), null);
+            }
+            int from = 0;
+            if (cursor != null) {
+                from = order.positionAfter(cursor.key(), cursor.id());
+            } else if (letterKey != null) {
+                from = order.positionOf(letterKey);
+            }
+            int to = Math.min(from + size, order.size());
+            List<Long> ids = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids.add(order.id(i));
+            }
+            String nextCursor = to > from && to < order.size()
+                ? Cursor.encode(order.key(to - 1), order.id(to - 1))
+                : null;
+            return new Slice(ids, nextCursor);
+        } finally {
+            current.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Restituisce la posizione e il numero di contatti di ogni lettera
+     * iniziale del cognome nella rubrica di un utente.
+     *
+     * @param ownerId ID dell'utente proprietario
+     * @return una voce per lettera dalla A alla Z, vuoto se l'indice non è pronto
+     */
+    public List<LetterJump> findLetterJumps(long ownerId) {
+        Index current = index;
+        if (!current.ready) {
+            return List.of();
+        }
+        List<LetterJump> jumps = new ArrayList<>(LETTERS.length());
+        current.lock.readLock().lock();
+        try {
+            NameOrder order = current.orders.get(ownerId);
+            for (int i = 0; i < LETTERS.length(); i++) {
+                char letter = LETTERS.charAt(i);
+                byte[] start = letterKey(letter);
+                int from = order != null ? order.positionOf(start) : 0;
+                int to = order != null ? order.positionOf(nextPrimary(start)) : 0;
+                jumps.add(new LetterJump(String.valueOf(letter), from, to - from));
+            }
+        } finally {
+            current.lock.readLock().unlock();
+        }
+        return jumps;
+    }
+
+    /**
+     * Chiave di collazione di un contatto: lettere del cognome, lettere del
+     * nome, poi accenti e maiuscole di entrambi.
+     *
+     * <p>Ogni chiave primaria termina con i separatori di livello (byte 0),
+     * minori di qualsiasi lettera: un cognome precede quindi tutti quelli di
+     * cui è l'inizio, indipendentemente dal nome. Della chiave completa si
+     * tengono solo i livelli dopo il primario, già presente.</p>
+     */
+    private byte[] key(Persona persona) {
+        String cognome = Objects.toString(persona.getCognome(), "");
+        String nome = Objects.toString(persona.getNome(), "");
+        byte[] surname = primary.getCollationKey(cognome).toByteArray();
+        byte[] name = primary.getCollationKey(nome).toByteArray();
+        byte[] full = tertiary.getCollationKey(cognome + " " + nome).toByteArray();
+        int levels = afterPrimary(full);
+
+        byte[] key = new byte[surname.length + name.length + full.length - levels];
+        System.arraycopy(surname, 0, key, 0, surname.length);
+        System.arraycopy(name, 0, key, surname.length, name.length);
+        System.arraycopy(full, levels, key, surname.length + name.length, full.length - levels);
+        return key;
+    }
+
+    /**
+     * Chiave primaria di una lettera, minore o uguale a quella di tutti i
+     * cognomi che iniziano con la lettera, anche accentata.
+     */
+    private byte[] letterKey(char letter) {
+        return primary.getCollationKey(String.valueOf(letter)).toByteArray();
+    }
+
+    /**
+     * Primo peso primario successivo a quello della lettera: tutti i cognomi
+     * con quell'iniziale hanno chiavi minori.
+     */
+    private static byte[] nextPrimary(byte[] letterKey) {
+        int weight = ((letterKey[0] & 0xff) << 8 | (letterKey[1] & 0xff)) + 1;
+        return new byte[] {(byte) (weight >>> 8), (byte) weight};
+    }
+
+    /**
+     * Posizione del primo byte dopo il separatore che chiude il livello
+     * primario; i pesi occupano due byte ciascuno.
+     */
+    private static int afterPrimary(byte[] key) {
+        for (int i = 0; i + 1 < key.length; i += 2) {
+            if (key[i] == 0 && key[i + 1] == 0) {
+                return i + 2;
+            }
+        }
+        return key.length;
+    }
+
+    private static Collator collator(Locale locale, int strength) {
+        Collator collator = Collator.getInstance(locale);
+        collator.setStrength(strength);
+        collator.setDecomposition(Collator.CANONICAL_DECOMPOSITION);
+        return collator;
+    }
+
+    /**
+     * Posizione di paginazione: chiave e ID dell'ultimo contatto mostrato.
+     * Viene scambiata con il client come token Base64 opaco.
+     */
+    private record Cursor(byte[] key, long id) {
+
+        static String encode(byte[] key, long id) {
+            String raw = TOKEN_PREFIX + "\n" + id + "\n" + Base64.getUrlEncoder().withoutPadding().encodeToString(key);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Decodifica il token; un token assente, malformato o di una pagina
+         * letta dal database fa ripartire dall'inizio.
+         */
+        static Cursor decode(String token) {
+            if (token == null || token.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\n", 3);
+                if (parts.length < 3 || !TOKEN_PREFIX.equals(parts[0])) {
+                    return null;
+                }
+                return new Cursor(Base64.getUrlDecoder().decode(parts[2]), Long.parseLong(parts[1]));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Elenchi ordinati per proprietario con il lock che ne protegge le modifiche.
+     */
+    private static final class Index {
+
+        private final Map<Long, NameOrder> orders = new HashMap<>();
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private volatile boolean ready;
+    }
+}
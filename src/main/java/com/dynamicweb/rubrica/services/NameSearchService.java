@@ -0,0 +1,416 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.events.ContactsLoadingEvent;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servizio di ricerca approssimata dei contatti per nome e cognome.
+ *
+ * <p>Mantiene in memoria un {@link NameTrie} dei termini di nomi e cognomi per
+ * ogni rubrica, costruito dall'insieme dei contatti caricato all'avvio e
+ * aggiornato in modo incrementale a ogni modifica: una ricerca visita solo il
+ * trie del proprietario, quindi non restituisce mai contatti di altri utenti e
+ * non rallenta con la dimensione delle altre rubriche. I termini vengono normalizzati in minuscolo,
+ * senza accenti (tutto l'intervallo À-ÿ ammesso dalla validazione) e senza
+ * apostrofi e punti; nomi composti vengono divisi in più termini.</p>
+ *
+ * <p>Una ricerca trova i contatti che hanno, per ogni parola cercata, un
+ * termine entro una distanza di edit che cresce con la lunghezza della
+ * parola (0 fino a 2 lettere, 1 fino a 5, poi {@code rubrica.search.max-distance}),
+ * e li ordina per somma delle distanze. La ricerca non accede al
+ * database: restituisce solo gli ID, da leggere con una query per chiave.</p>
+ *
+ * <p>Le ricerche concorrenti condividono un lock in lettura; le modifiche
+ * prendono il lock in scrittura per il tempo di pochi inserimenti nel trie.
+ * Le modifiche confermate mentre l'indice viene ricostruito vengono conservate
+ * e riapplicate al nuovo indice ({@link PendingChanges}); alla configurazione
+ * di un nuovo database l'indice del precedente viene scartato.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class NameSearchService {
+
+    /** Numero massimo di risultati di una ricerca */
+    public static final int MAX_RESULTS = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(NameSearchService.class);
+
+    private final int maxDistance;
+
+    /** Indici correnti di tutte le rubriche, sostituiti in blocco a ogni ricaricamento */
+    private volatile Index index = new Index();
+
+    /** Modifiche confermate durante la ricostruzione dell'indice */
+    private final PendingChanges pendingChanges = new PendingChanges();
+
+    /**
+     * Contatto trovato da una ricerca.
+     *
+     * @param id ID del contatto
+     * @param distance somma delle distanze di edit delle parole cercate
+     */
+    public record Match(long id, int distance) {
+    }
+
+    /**
+     * Costruttore con la distanza massima ammessa per le parole lunghe.
+     *
+     * @param maxDistance distanza di edit massima per parola
+     */
+    public NameSearchService(@Value("${rubrica.search.max-distance:2}") int maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Scarta l'indice del database precedente quando ne viene configurato uno
+     * nuovo: fino al caricamento dei suoi contatti la ricerca non è disponibile.
+     * Viene eseguito prima del caricamento, avviato dallo stesso evento.
+     *
+     * @param event evento di configurazione del database
+     */
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onDatabaseConfigured(DatabaseConfiguredEvent event) {
+        index = new Index();
+    }
+
+    /**
+     * Inizia a conservare le modifiche quando parte la lettura dei contatti,
+     * o smette se la lettura non è riuscita.
+     *
+     * @param event evento di inizio o di fallimento della lettura
+     */
+    @EventListener
+    public void onContactsLoading(ContactsLoadingEvent event) {
+        if (event.isFailed()) {
+            pendingChanges.abort();
+        } else {
+            pendingChanges.start();
+        }
+    }
+
+    /**
+     * Ricostruisce l'indice quando viene caricato l'insieme dei contatti e vi
+     * riapplica le modifiche confermate durante la lettura.
+     *
+     * @param event evento con tutti i contatti attivi
+     */
+    @EventListener
+    public void onContactsLoaded(ContactsLoadedEvent event) {
+        long start = System.nanoTime();
+        Index fresh = new Index();
+        for (Persona persona : event.getContacts()) {
+            fresh.add(persona);
+        }
+        fresh.ready = true;
+        int replayed = pendingChanges.finish(change -> apply(fresh, change), () -> index = fresh);
+        log.info("Indice dei nomi costruito: {} termini per {} contatti di {} utenti, {} modifiche riapplicate ({} ms)",
+            fresh.termCount(), event.getContacts().size(), fresh.tries.size(), replayed,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Aggiorna l'indice dopo l'inserimento, la modifica o l'eliminazione di una persona.
+     *
+     * @param event evento con i dati della persona prima e dopo la modifica
+     */
+    @EventListener
+    public void onPersonaChanged(PersonaChangedEvent event) {
+        pendingChanges.record(event, change -> apply(index, change));
+    }
+
+    /**
+     * Applica una modifica a un indice.
+     */
+    private static void apply(Index target, PersonaChangedEvent event) {
+        target.lock.writeLock().lock();
+        try {
+            if (event.getBefore() != null) {
+                target.remove(event.getBefore());
+            }
+            if (event.getAfter() != null) {
+                target.add(event.getAfter());
+            }
+        } finally {
+            target.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cerca i contatti della rubrica di un utente con nome o cognome simili al testo indicato.
+     *
+     * @param ownerId ID dell'utente proprietario
+     * @param text una o più parole da cercare tra nomi e cognomi
+     * @param limit numero massimo di risultati, al più {@value #MAX_RESULTS}
+     * @return contatti trovati, dal più simile
+     * @throws IllegalArgumentException se il testo non contiene lettere o il limite non è valido
+     * @throws DatabaseUnavailableException se l'indice non è ancora stato costruito
+     */
+    public List<Match> findMatches(long ownerId, String text, int limit) {
+        if (limit < 1 || limit > MAX_RESULTS) {
+            throw new IllegalArgumentException("Il numero di risultati deve essere tra 1 e " + MAX_RESULTS);
+        }
+        Set<String> words = terms(text);
+        if (words.isEmpty()) {
+            throw new IllegalArgumentException("Inserisci almeno una lettera da cercare");
+        }
+        Index current = index;
+        if (!current.ready) {
+            throw new DatabaseUnavailableException("Indice dei nomi non ancora disponibile");
+        }
+
+        current.lock.readLock().lock();
+        try {
+            NameTrie trie = current.tries.get(ownerId);
+            if (trie == null) {
+                return List.of();
+            }
+            return words.size() == 1
+                ? findSingle(trie, words.iterator().next(), limit)
+                : findAll(trie, words, limit);
+        } finally {
+            current.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Verifica se l'indice è stato costruito almeno una volta.
+     *
+     * @return {@code true} se le ricerche sono disponibili
+     */
+    public boolean isReady() {
+        return index.ready;
+    }
+
+    /**
+     * Ricerca di una sola parola: i termini vengono visitati dal più vicino e
+     * la raccolta si ferma al raggiungimento del limite.
+     */
+    private List<Match> findSingle(NameTrie trie, String word, int limit) {
+        List<NameTrie.Hit> hits = trie.search(word, allowedDistance(word));
+        hits.sort(Comparator.comparingInt(NameTrie.Hit::distance).thenComparing(NameTrie.Hit::term));
+        Set<Long> seen = new HashSet<>();
+        List<Match> matches = new ArrayList<>(limit);
+        for (NameTrie.Hit hit : hits) {
+            for (int i = 0; i < hit.size() && matches.size() < limit; i++) {
+                if (seen.add(hit.ids()[i])) {
+                    matches.add(new Match(hit.ids()[i], hit.distance()));
+                }
+            }
+            if (matches.size() == limit) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Ricerca di più parole: ogni contatto deve avere un termine simile a
+     * ciascuna parola, con punteggio pari alla somma delle distanze migliori.
+     * Gli elenchi ordinati di ID dei termini trovati vengono intersecati a
+     * coppie, scorrendo il più corto e cercando nel più lungo, così che un
+     * nome molto comune costi quanto il cognome raro a cui viene associato.
+     */
+    private List<Match> findAll(NameTrie trie, Set<String> words, int limit) {
+        List<List<NameTrie.Hit>> hitsByWord = new ArrayList<>(words.size());
+        for (String word : words) {
+            List<NameTrie.Hit> hits = trie.search(word, allowedDistance(word));
+            if (hits.isEmpty()) {
+                return List.of();
+            }
+            hitsByWord.add(hits);
+        }
+        hitsByWord.sort(Comparator.comparingLong(hits -> hits.stream().mapToLong(NameTrie.Hit::size).sum()));
+
+        List<Group> groups = new ArrayList<>();
+        for (NameTrie.Hit hit : hitsByWord.get(0)) {
+            groups.add(new Group(hit.ids(), hit.size(), hit.distance()));
+        }
+        for (List<NameTrie.Hit> hits : hitsByWord.subList(1, hitsByWord.size())) {
+            List<Group> next = new ArrayList<>();
+            for (Group group : groups) {
+                for (NameTrie.Hit hit : hits) {
+                    long[] common = intersect(group.ids(), group.size(), hit.ids(), hit.size());
+                    if (common.length > 0) {
+                        next.add(new Group(common, common.length, group.distance() + hit.distance()));
+                    }
+                }
+            }
+            if (next.isEmpty()) {
+                return List.of();
+            }
+            groups = next;
+        }
+
+        // Un contatto può comparire in più gruppi: vale il punteggio minore
+        Map<Long, Integer> scores = new HashMap<>();
+        for (Group group : groups) {
+            for (int i = 0; i < group.size(); i++) {
+                scores.merge(group.ids()[i], group.distance(), Math::min);
+            }
+        }
+        return scores.entrySet().stream()
+            .map(entry -> new Match(entry.getKey(), entry.getValue()))
+            .sorted(Comparator.comparingInt(Match::distance).thenComparingLong(Match::id))
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Contatti che hanno un termine simile a ciascuna delle parole già intersecate.
+     *
+     * @param ids ID in ordine crescente, validi fino a {@code size}
+     * @param size numero di ID validi
+     * @param distance somma delle distanze dei termini
+     */
+    private record Group(long[] ids, int size, int distance) {
+    }
+
+    /**
+     * Intersezione di due elenchi ordinati di ID, scorrendo il più corto.
+     */
+    private static long[] intersect(long[] a, int aSize, long[] b, int bSize) {
+        if (aSize > bSize) {
+            return intersect(b, bSize, a, aSize);
+        }
+        long[] common = new long[aSize];
+        int count = 0;
+        int from = 0;
+        for (int i = 0; i < aSize && from < bSize; i++) {
+            int found = Arrays.binarySearch(b, from, bSize, a[i]);
+            if (found >= 0) {
+                common[count++] = a[i];
+                from = found + 1;
+            } else {
+                from = -(found + 1);
+            }
+        }
+        return count == common.length ? common : Arrays.copyOf(common, count);
+    }
+
+    /**
+     * Distanza ammessa per una parola: nessun errore sulle parole molto corte,
+     * dove anche una sola modifica cambierebbe quasi tutto il termine.
+     */
+    private int allowedDistance(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return word.length() <= 5 ? Math.min(1, maxDistance) : maxDistance;
+    }
+
+    /**
+     * Scompone un testo nei termini normalizzati dell'indice.
+     *
+     * @param text nome, cognome o testo cercato
+     * @return termini distinti in ordine di apparizione, vuoto se il testo è null
+     */
+    static Set<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String term : fold(text).split("[\\s-]+")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Normalizza un testo: minuscolo, lettere accentate ricondotte alla lettera
+     * base (à → a, ç → c, ø → o, ß → ss, æ → ae), apostrofi e punti rimossi.
+     *
+     * @param text testo da normalizzare
+     * @return testo normalizzato
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            switch (c) {
+                case '\'', '’', '.' -> { }
+                case 'ø' -> folded.append('o');
+                case 'ß' -> folded.append("ss");
+                case 'æ' -> folded.append("ae");
+                case 'ð' -> folded.append('d');
+                case 'þ' -> folded.append("th");
+                default -> {
+                    if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                        folded.append(c);
+                    }
+                }
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * Trie dei termini per proprietario con il lock che ne protegge le modifiche.
+     */
+    private static final class Index {
+
+        private final Map<Long, NameTrie> tries = new HashMap<>();
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private volatile boolean ready;
+
+        void add(Persona persona) {
+            NameTrie trie = tries.computeIfAbsent(persona.getOwnerId(), owner -> new NameTrie());
+            for (String term : personTerms(persona)) {
+                trie.add(term, persona.getId());
+            }
+        }
+
+        void remove(Persona persona) {
+            NameTrie trie = tries.get(persona.getOwnerId());
+            if (trie == null) {
+                return;
+            }
+            for (String term : personTerms(persona)) {
+                trie.remove(term, persona.getId());
+            }
+        }
+
+        long termCount() {
+            long count = 0;
+            for (NameTrie trie : tries.values()) {
+                count += trie.termCount();
+            }
+            return count;
+        }
+
+        private static Set<String> personTerms(Persona persona) {
+            Set<String> terms = terms(persona.getNome());
+            terms.addAll(terms(persona.getCognome()));
+            return terms;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.dynamicweb.rubrica.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trie dei termini dei nomi, con l'elenco degli ID dei contatti per ogni termine.
+ *
+ * <p>La ricerca dei termini entro distanza {@code k} da una parola simula un
+ * automa di Levenshtein sul trie: scendendo da un nodo al figlio viene calcolata
+ * una sola riga della matrice delle distanze, condivisa da tutti i termini con
+ * quel prefisso, e un ramo viene abbandonato appena nessuna cella della riga è
+ * entro {@code k}. Vengono quindi visitati solo i prefissi ancora compatibili
+ * con la parola, indipendentemente dal numero di termini. La distanza conta
+ * come un solo errore anche lo scambio di due lettere vicine (Guiseppe → Giuseppe).</p>
+ *
+ * <p>I nodi non vengono mai rimossi: un termine senza più contatti resta come
+ * nodo vuoto e viene riutilizzato se ricompare. La classe non è thread-safe.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class NameTrie {
+
+    private final Node root = new Node();
+
+    private int termCount;
+
+    /**
+     * Termine trovato dalla ricerca, con la sua distanza dalla parola cercata.
+     *
+     * @param term termine del trie
+     * @param distance distanza di edit dalla parola cercata
+     * @param ids ID dei contatti con quel termine in ordine crescente, validi
+     *            fino a {@code size} e solo finché il trie non viene modificato
+     * @param size numero di ID validi
+     */
+    record Hit(String term, int distance, long[] ids, int size) {
+    }
+
+    /**
+     * Associa un contatto a un termine, inserendo il termine se nuovo.
+     *
+     * @param term termine normalizzato
+     * @param id ID del contatto
+     */
+    void add(String term, long id) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.childOrCreate(term.charAt(i));
+        }
+        if (node.ids == null) {
+            node.ids = new long[1];
+            termCount++;
+        }
+        node.add(id);
+    }
+
+    /**
+     * Rimuove l'associazione tra un contatto e un termine.
+     *
+     * @param term termine normalizzato
+     * @param id ID del contatto
+     */
+    void remove(String term, long id) {
+        Node node = root;
+        for (int i = 0; i < term.length() && node != null; i++) {
+            node = node.child(term.charAt(i));
+        }
+        if (node != null && node.ids != null) {
+            node.remove(id);
+        }
+    }
+
+    /**
+     * Cerca i termini con contatti entro la distanza massima dalla parola.
+     *
+     * @param word parola normalizzata da cercare
+     * @param maxDistance distanza di edit massima ammessa
+     * @return termini trovati, in ordine non specificato
+     */
+    List<Hit> search(String word, int maxDistance) {
+        Search search = new Search(word, maxDistance);
+        search.visit(root, 0);
+        return search.hits;
+    }
+
+    /**
+     * @return numero di termini distinti inseriti nel trie
+     */
+    int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Stato di una ricerca: una riga della matrice delle distanze per ogni
+     * livello del percorso corrente.
+     */
+    private static final class Search {
+
+        private final String word;
+
+        private final int maxDistance;
+
+        private final List<Hit> hits = new ArrayList<>();
+
+        /** Lettere del percorso corrente */
+        private final char[] path;
+
+        /** Righe della matrice per profondità; oltre {@code word.length() + maxDistance} nessun prefisso è compatibile */
+        private final int[][] rows;
+
+        Search(String word, int maxDistance) {
+            this.word = word;
+            this.maxDistance = maxDistance;
+            int depth = word.length() + maxDistance + 1;
+            this.path = new char[depth];
+            this.rows = new int[depth + 1][word.length() + 1];
+            for (int i = 0; i <= word.length(); i++) {
+                rows[0][i] = i;
+            }
+        }
+
+        void visit(Node node, int depth) {
+            int n = word.length();
+            int[] previous = rows[depth];
+            int[] beforePrevious = depth > 0 ? rows[depth - 1] : null;
+            int[] row = rows[depth + 1];
+            for (int child = 0; child < node.childCount; child++) {
+                char c = node.labels[child];
+                path[depth] = c;
+                row[0] = depth + 1;
+                int min = row[0];
+                for (int i = 1; i <= n; i++) {
+                    int cost = word.charAt(i - 1) == c ? 0 : 1;
+                    int value = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                    // Scambio di due lettere vicine
+                    if (beforePrevious != null && i > 1
+                        && word.charAt(i - 1) == path[depth - 1] && word.charAt(i - 2) == c) {
+                        value = Math.min(value, beforePrevious[i - 2] + 1);
+                    }
+                    row[i] = value;
+                    min = Math.min(min, value);
+                }
+
+                Node next = node.children[child];
+                if (row[n] <= maxDistance && next.size > 0) {
+                    hits.add(new Hit(new String(path, 0, depth + 1), row[n], next.ids, next.size));
+                }
+                if (min <= maxDistance && next.childCount > 0) {
+                    visit(next, depth + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Nodo del trie: i figli ordinati per lettera e, se il percorso è un
+     * termine, i suoi contatti.
+     */
+    private static final class Node {
+
+        private char[] labels;
+
+        private Node[] children;
+
+        private int childCount;
+
+        /** ID dei contatti ordinati in modo crescente, validi fino a {@link #size}; null se non è un termine */
+        private long[] ids;
+
+        private int size;
+
+        Node child(char c) {
+            int index = childCount == 0 ? -1 : Arrays.binarySearch(labels, 0, childCount, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = childCount == 0 ? -1 : Arrays.binarySearch(labels, 0, childCount, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -(index + 1);
+            if (labels == null) {
+                labels = new char[2];
+                children = new Node[2];
+            } else if (childCount == labels.length) {
+                labels = Arrays.copyOf(labels, childCount * 2);
+                children = Arrays.copyOf(children, childCount * 2);
+            }
+            System.arraycopy(labels, insertAt, labels, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            Node created = new Node();
+            labels[insertAt] = c;
+            children[insertAt] = created;
+            childCount++;
+            return created;
+        }
+
+        /**
+         * Aggiunge un ID mantenendo l'ordine; gli ID nuovi sono di solito i più
+         * alti e vengono quindi accodati.
+         */
+        void add(long id) {
+            int index = size > 0 && ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            int insertAt = -(index + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+        }
+    }
+}
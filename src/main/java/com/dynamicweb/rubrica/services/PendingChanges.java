@@ -0,0 +1,77 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Modifiche confermate durante la ricostruzione di un indice in memoria.
+ *
+ * <p>Dall'inizio della lettura dei contatti ({@link #start()}) ogni modifica
+ * viene applicata all'indice corrente e conservata; alla fine della
+ * ricostruzione le modifiche conservate vengono riapplicate al nuovo indice
+ * prima che sostituisca il corrente, così che nessuna vada persa. Riapplicare
+ * una modifica già compresa nella lettura non ha effetto, perché ogni evento
+ * contiene lo stato completo della persona prima e dopo la modifica.</p>
+ *
+ * <p>Registrazione e sostituzione sono serializzate: una modifica finisce
+ * nell'indice corrente e nell'elenco, oppure direttamente nel nuovo indice.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class PendingChanges {
+
+    /** Modifiche dall'inizio della lettura, null se nessuna ricostruzione è in corso */
+    private List<PersonaChangedEvent> pending;
+
+    /**
+     * Inizia a conservare le modifiche; una lettura già in corso mantiene
+     * quelle conservate fino a ora.
+     */
+    synchronized void start() {
+        if (pending == null) {
+            pending = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Smette di conservare le modifiche dopo una lettura non riuscita.
+     */
+    synchronized void abort() {
+        pending = null;
+    }
+
+    /**
+     * Applica una modifica all'indice corrente, conservandola se una
+     * ricostruzione è in corso.
+     *
+     * @param event la modifica
+     * @param apply applicazione della modifica all'indice corrente
+     */
+    synchronized void record(PersonaChangedEvent event, Consumer<PersonaChangedEvent> apply) {
+        if (pending != null) {
+            pending.add(event);
+        }
+        apply.accept(event);
+    }
+
+    /**
+     * Riapplica le modifiche conservate al nuovo indice e lo rende corrente.
+     *
+     * @param replay applicazione di una modifica al nuovo indice
+     * @param swap sostituzione dell'indice corrente con il nuovo
+     * @return numero di modifiche riapplicate
+     */
+    synchronized int finish(Consumer<PersonaChangedEvent> replay, Runnable swap) {
+        int replayed = 0;
+        if (pending != null) {
+            pending.forEach(replay);
+            replayed = pending.size();
+            pending = null;
+        }
+        swap.run();
+        return replayed;
+    }
+}
@@ -1,9 +1,31 @@
 package com.dynamicweb.rubrica.services;
 
+import com.dynamicweb.rubrica.components.ResilienceProperties;
+import com.dynamicweb.rubrica.components.ShardRouter;
+import com.dynamicweb.rubrica.dtos.LetterJump;
+import com.dynamicweb.rubrica.dtos.PersonaPage;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.dtos.SyncPage;
 import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import com.dynamicweb.rubrica.repositories.PersonaCursor;
 import com.dynamicweb.rubrica.repositories.PersonaRepository;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Servizio per la gestione delle operazioni business relative alle persone.
@@ -15,118 +37,260 @@ import org.springframework.stereotype.Service;
  * <p>Incapsula la logica business e coordina le chiamate al
  * {@link PersonaRepository} per l'accesso ai dati.</p>
  * 
+ * <p>Ogni modifica riuscita viene pubblicata dopo il commit come
+ * {@link PersonaChangedEvent} insieme ai dati precedenti della persona, così
+ * che le strutture in memoria (statistiche, indice dei nomi) restino
+ * aggiornate senza ricalcoli sul database.</p>
+ * 
+ * <p>Tutte le chiamate al repository passano per {@link DatabaseGuard}: le letture
+ * con bulkhead e tentativi ripetuti, le scritture con bulkhead dedicato, entrambe
+ * con circuit breaker. Ogni scrittura, compresa la lettura dei dati precedenti,
+ * viene eseguita in un'unica transazione con timeout.</p>
+ * 
+ * <p>Con più shard la transazione viene aperta sullo shard del contatto; le
+ * operazioni su più contatti aprono una transazione per ogni shard coinvolto
+ * e non sono quindi atomiche tra shard diversi.</p>
+ * 
+ * <p>Le letture di una persona per ID, di una pagina e dell'intera rubrica
+ * vengono accorpate con {@link SingleFlight}: le richieste contemporanee per
+ * la stessa chiave condividono un'unica query e un unico posto del bulkhead.
+ * Dopo ogni modifica le letture in corso non accettano nuovi chiamanti, che
+ * altrimenti potrebbero ricevere i dati precedenti alla modifica.</p>
+ * 
+ * <p>Ogni operazione riguarda la rubrica dell'utente autenticato nella
+ * richiesta corrente ({@link AuthService#getCurrentUserId()}): il proprietario
+ * viene passato al repository e fa parte delle chiavi delle letture accorpate,
+ * quindi utenti diversi non condividono mai una lettura. Il proprietario
+ * eventualmente presente nei dati ricevuti viene ignorato.</p>
+ * 
  * @author Michael Leanza
  * @since 1.0
  */
 @Service
 public class PersonaService {
-    
+
     private final PersonaRepository personaRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final DatabaseGuard databaseGuard;
+
+    private final PersonaValidator personaValidator;
+
+    private final ShardRouter shardRouter;
+
+    private final NameSearchService nameSearchService;
+
+    private final NameOrderService nameOrderService;
+
+    private final AuthService authService;
+
+    private final SyncWindow syncWindow;
+
+    /** Letture in corso dell'intera rubrica, per proprietario */
+    private final SingleFlight<Long, List<Persona>> allLoads = new SingleFlight<>();
+
+    /** Letture in corso delle pagine, per proprietario e parametri della richiesta */
+    private final SingleFlight<PageKey, PersonaPage> pageLoads = new SingleFlight<>();
+
+    /** Letture in corso delle singole persone, per proprietario e ID */
+    private final SingleFlight<PersonKey, Persona> personLoads = new SingleFlight<>();
+
+    /** Chiave delle letture accorpate di una pagina */
+    private record PageKey(long ownerId, PersonaQuery query) {
+    }
+
+    /** Chiave delle letture accorpate di una persona */
+    private record PersonKey(Long ownerId, Long id) {
+    }
+
     /**
      * Costruttore del servizio persona.
      * 
      * @param personaRepository il repository per l'accesso ai dati delle persone
+     * @param eventPublisher publisher per notificare le modifiche alle persone
+     * @param databaseGuard la protezione delle chiamate al database
+     * @param personaValidator le regole di validazione dei dati
+     * @param shardRouter l'instradamento delle operazioni tra gli shard
+     * @param nameSearchService l'indice dei nomi per la ricerca approssimata
+     * @param nameOrderService l'ordinamento alfabetico in memoria dei contatti
+     * @param authService il servizio di autenticazione, per l'autore delle modifiche
+     * @param resilienceProperties i timeout di accesso al database
+     * @param purgeService la pulizia, per la conservazione dei tombstone
      */
-    public PersonaService(PersonaRepository personaRepository) {
+    public PersonaService(
+        PersonaRepository personaRepository, 
+        ApplicationEventPublisher eventPublisher, 
+        DatabaseGuard databaseGuard, 
+        PersonaValidator personaValidator, 
+        ShardRouter shardRouter, 
+        NameSearchService nameSearchService, 
+        NameOrderService nameOrderService, 
+        AuthService authService, 
+        ResilienceProperties resilienceProperties, 
+        PurgeService purgeService) {
         this.personaRepository = personaRepository;
+        this.eventPublisher = eventPublisher;
+        this.databaseGuard = databaseGuard;
+        this.personaValidator = personaValidator;
+        this.shardRouter = shardRouter;
+        this.nameSearchService = nameSearchService;
+        this.nameOrderService = nameOrderService;
+        this.authService = authService;
+        this.syncWindow = new SyncWindow(
+            Duration.ofSeconds(resilienceProperties.getWriteTimeoutSeconds()), purgeService.getTombstoneRetention());
     }
 
     /**
-     * Valida un campo controllando null, vuoto, lunghezza e formato.
+     * Recupera tutte le persone della rubrica dell'utente.
      * 
-     * @param value il valore da validare
-     * @param fieldName il nome del campo per i messaggi di errore
-     * @param maxLength la lunghezza massima consentita
-     * @param pattern il pattern regex da utilizzare
-     * @param required se true, il campo è obbligatorio (non può essere null o vuoto)
-     * @throws IllegalArgumentException se il valore non è valido
+     * <p>La lista restituita può essere condivisa con altri chiamanti
+     * contemporanei e non deve essere modificata.</p>
+     * 
+     * @return lista di tutte le persone, vuota se non ce ne sono
      */
-    private void validateField(String value, String fieldName, int maxLength, String pattern, boolean required) {
-        // Controllo obbligatorietà (null e vuoti)
-        if (required && (value == null || value.isEmpty())) {
-            throw new IllegalArgumentException("Il " + fieldName + " è obbligatorio");
-        }
-        
-        // Se il campo è opzionale e null/vuoto, non validare ulteriormente
-        if (value == null || value.isEmpty()) {
-            return;
-        }
-        
-        // Controllo lunghezza
-        if (value.length() > maxLength) {
-            throw new IllegalArgumentException("Il " + fieldName + " non può superare i " + maxLength + " caratteri");
-        }
-        
-        // Controllo pattern
-        if (!value.matches(pattern)) {
-            throw new IllegalArgumentException("Il " + fieldName + " contiene caratteri non validi o formato errato");
+    public List<Persona> getAllPersons() {
+        long ownerId = authService.getCurrentUserId();
+        return allLoads.load(ownerId, () -> databaseGuard.read(() -> personaRepository.findAll(ownerId)));
+    }
+    
+    /**
+     * Recupera una pagina di persone ordinata e filtrata secondo i parametri richiesti.
+     * 
+     * <p>Le richieste contemporanee con gli stessi parametri, come l'apertura
+     * della lista senza filtri da parte di molti utenti, condividono la stessa
+     * pagina, che non deve essere modificata.</p>
+     * 
+     * <p>L'ordinamento per cognome crescente senza filtri segue l'ordine
+     * alfabetico della lingua ({@link NameOrderService}): gli ID della pagina
+     * vengono presi dall'indice in memoria e dal database vengono letti solo
+     * quei contatti, per chiave. Le altre richieste vengono ordinate dal database.</p>
+     * 
+     * @param query parametri di ordinamento, filtro e paginazione, da non
+     *        modificare dopo la chiamata
+     * @return pagina di persone con il token per la pagina successiva
+     * @throws IllegalArgumentException se i parametri non sono validi
+     */
+    public PersonaPage getPersonsPage(PersonaQuery query) {
+        query.validate();
+        long ownerId = authService.getCurrentUserId();
+        if (nameOrderService.supports(query)) {
+            return pageLoads.load(new PageKey(ownerId, query), () -> findOrderedPage(ownerId, query));
         }
+        return pageLoads.load(new PageKey(ownerId, query), 
+            () -> databaseGuard.read(() -> personaRepository.findPage(ownerId, query)));
     }
 
     /**
-     * Valida tutti i campi della persona.
+     * Recupera la posizione di ogni lettera iniziale del cognome nell'ordine
+     * alfabetico della rubrica dell'utente, per le schede della lista.
      * 
-     * @param persona la persona da validare
-     * @throws IllegalArgumentException se uno o più campi non sono validi
+     * @param query parametri della lista corrente
+     * @return una voce per lettera dalla A alla Z, vuoto se la lista non è in ordine alfabetico
      */
-    private void validatePersona(Persona persona) {
-        // Validazioni complete per ogni campo (inclusi controlli null/vuoti)
-        // Campi obbligatori
-        validateField(
-            persona.getNome(), 
-            "nome", 
-            100, 
-            "^[a-zA-ZÀ-ÿ\\s'.-]+$",
-            true); // obbligatorio
-            
-        validateField(
-            persona.getCognome(), 
-            "cognome", 
-            100, 
-            "^[a-zA-ZÀ-ÿ\\s'.-]+$",
-            true); // obbligatorio
-            
-        validateField(
-            persona.getTelefono(), 
-            "telefono", 
-            20, 
-            "^(\\+39\\s?)?((3[0-9]{2}|0[0-9]{1,3})\\s?)?[0-9]{6,8}$",
-            true); // obbligatorio
+    public List<LetterJump> getLetterJumps(PersonaQuery query) {
+        if (!nameOrderService.supports(query)) {
+            return List.of();
+        }
+        return nameOrderService.findLetterJumps(authService.getCurrentUserId());
+    }
+    
+    /**
+     * Apre un cursore in streaming su tutte le persone della rubrica dell'utente.
+     * 
+     * <p>Le righe vengono lette durante l'iterazione; il chiamante deve chiudere
+     * il cursore al termine per rilasciare la connessione.</p>
+     * 
+     * @return cursore lazy sulle persone
+     */
+    public PersonaCursor streamAllPersons() {
+        long ownerId = authService.getCurrentUserId();
+        return databaseGuard.read(() -> personaRepository.streamByOwner(ownerId));
+    }
+    
+    /**
+     * Recupera le modifiche alla rubrica dell'utente successive al token di
+     * sincronizzazione, in ordine di versione.
+     * 
+     * <p>Senza token restituisce l'intera rubrica, a pagine; il token della
+     * risposta permette poi di ricevere solo le modifiche successive, comprese
+     * le eliminazioni (vedi {@link SyncWindow}).</p>
+     * 
+     * @param token token della risposta precedente, null per una sincronizzazione completa
+     * @param size numero massimo di modifiche nella pagina
+     * @return pagina di modifiche con il token per la richiesta successiva
+     * @throws IllegalArgumentException se il token o la dimensione non sono validi
+     */
+    public SyncPage getChangesSince(String token, int size) {
+        long ownerId = authService.getCurrentUserId();
+        SyncWindow.Request request = syncWindow.start(token, size);
+        return syncWindow.toPage(request, 
+            databaseGuard.read(() -> personaRepository.findChangesSince(ownerId, request.from(), size + 1)), size);
+    }
 
-        // Campi opzionali
-        validateField(
-            persona.getIndirizzo(), 
-            "indirizzo", 
-            255, 
-            "^[a-zA-ZÀ-ÿ0-9\\s,.'-]+$",
-            false); // opzionale
-
-        // Validazione età (solo controllo range se non null)
-        if (persona.getEta() != null) {
-            if (persona.getEta() < 0 || persona.getEta() > 120) {
-                throw new IllegalArgumentException("L'età deve essere compresa tra 0 e 120 anni");
-            }
+    /**
+     * Cerca le persone con nome o cognome simili al testo indicato, tollerando
+     * errori di battitura e accenti.
+     * 
+     * <p>I candidati vengono trovati dall'indice in memoria ({@link NameSearchService});
+     * dal database vengono letti solo i contatti trovati, per chiave.</p>
+     * 
+     * @param text una o più parole da cercare tra nomi e cognomi
+     * @param limit numero massimo di risultati
+     * @return persone trovate, dalla più simile
+     * @throws IllegalArgumentException se il testo o il limite non sono validi
+     */
+    public List<Persona> searchByName(String text, int limit) {
+        long ownerId = authService.getCurrentUserId();
+        List<NameSearchService.Match> matches = nameSearchService.findMatches(ownerId, text, limit);
+        if (matches.isEmpty()) {
+            return List.of();
         }
+        Map<Long, Integer> rank = new HashMap<>();
+        for (NameSearchService.Match match : matches) {
+            rank.put(match.id(), rank.size());
+        }
+        List<Persona> found = new ArrayList<>(databaseGuard.read(() -> personaRepository.findByIds(ownerId, rank.keySet())));
+        found.sort(Comparator.comparing(persona -> rank.get(persona.getId())));
+        return found;
     }
 
     /**
-     * Recupera tutte le persone presenti nel database.
+     * Legge i contatti di una pagina in ordine alfabetico, nell'ordine degli
+     * ID restituiti dall'indice.
      * 
-     * @return lista di tutte le persone, vuota se non ce ne sono
+     * @param ownerId l'ID dell'utente proprietario
+     * @param query parametri della pagina
+     * @return pagina di persone con il token per la pagina successiva
      */
-    public List<Persona> getAllPersons() {
-        return personaRepository.findAll();
+    private PersonaPage findOrderedPage(long ownerId, PersonaQuery query) {
+        NameOrderService.Slice slice = nameOrderService.findPage(
+            ownerId, query.getAfter(), query.getLettera(), query.getSize());
+        if (slice.ids().isEmpty()) {
+            return new PersonaPage(List.of(), null);
+        }
+        Map<Long, Integer> rank = new HashMap<>();
+        for (Long id : slice.ids()) {
+            rank.put(id, rank.size());
+        }
+        List<Persona> found = new ArrayList<>(databaseGuard.read(() -> personaRepository.findByIds(ownerId, slice.ids())));
+        found.sort(Comparator.comparing(persona -> rank.get(persona.getId())));
+        return new PersonaPage(found, slice.nextCursor());
     }
-    
+
     /**
      * Recupera una persona specifica tramite il suo ID.
      * 
+     * <p>Le richieste contemporanee per lo stesso ID condividono la stessa
+     * persona, che non deve essere modificata.</p>
+     * 
      * @param id l'identificativo univoco della persona
      * @return la persona trovata, o {@code null} se non esiste
      */
     public Persona getPersonById(Long id) {
-        return personaRepository.findById(id);
+        long ownerId = authService.getCurrentUserId();
+        return personLoads.load(new PersonKey(ownerId, id), 
+            () -> databaseGuard.read(() -> personaRepository.findById(ownerId, id)));
     }
     
     /**
@@ -147,9 +311,18 @@ public class PersonaService {
         }
         
         // Valida tutti i dati
-        validatePersona(persona);
+        personaValidator.validatePersona(persona);
+        long ownerId = authService.getCurrentUserId();
         
-        return personaRepository.insert(persona);
+        // Con più shard l'ID viene assegnato prima, per aprire la transazione sullo shard giusto
+        persona.setId(personaRepository.allocateId());
+        return shardRouter.onShardOf(persona.getId(), () -> databaseGuard.write(() -> {
+            boolean saved = personaRepository.insert(ownerId, persona);
+            if (saved) {
+                afterCommit(() -> publishChange(null, persona));
+            }
+            return saved;
+        }));
     }
     
     /**
@@ -170,9 +343,17 @@ public class PersonaService {
         }
         
         // Valida tutti i dati
-        validatePersona(persona);
+        personaValidator.validatePersona(persona);
+        long ownerId = authService.getCurrentUserId();
         
-        return personaRepository.update(persona);
+        return shardRouter.onShardOf(persona.getId(), () -> databaseGuard.write(() -> {
+            Persona before = findExisting(ownerId, persona.getId());
+            boolean updated = personaRepository.update(ownerId, persona);
+            if (updated && before != null) {
+                afterCommit(() -> publishChange(before, persona));
+            }
+            return updated;
+        }));
     }
     
     /**
@@ -187,6 +368,227 @@ public class PersonaService {
         if (id == null || id <= 0) {
             throw new IllegalArgumentException("ID persona non valido: " + id);
         }
-        return personaRepository.deleteById(id);
+        long ownerId = authService.getCurrentUserId();
+        return shardRouter.onShardOf(id, () -> databaseGuard.write(() -> {
+            Persona before = findExisting(ownerId, id);
+            boolean deleted = personaRepository.deleteById(ownerId, id);
+            if (deleted && before != null) {
+                afterCommit(() -> publishChange(before, null));
+            }
+            return deleted;
+        }));
+    }
+
+    /**
+     * Elimina un insieme di persone con una transazione per shard.
+     * 
+     * <p>Gli ID duplicati vengono ignorati; le istruzioni vengono eseguite
+     * a blocchi dal repository.</p>
+     * 
+     * @param ids gli identificativi delle persone da eliminare
+     * @return il numero di persone eliminate
+     * @throws IllegalArgumentException se l'insieme è vuoto o contiene ID non validi
+     */
+    public int deletePersons(Collection<Long> ids) {
+        personaValidator.validateIds(ids);
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        long ownerId = authService.getCurrentUserId();
+
+        return writeByShard(uniqueIds, shardIds -> {
+            List<Persona> before = personaRepository.findByIds(ownerId, shardIds);
+            int deleted = personaRepository.deleteByIds(ownerId, shardIds);
+            afterCommit(() -> before.forEach(persona -> publishChange(persona, null)));
+            return deleted;
+        });
+    }
+
+    /**
+     * Annulla l'eliminazione di un insieme di persone con una transazione per shard.
+     * 
+     * <p>Sono ripristinabili solo le persone non ancora rimosse definitivamente
+     * dalla pulizia periodica ({@link PurgeService}); gli ID delle altre vengono
+     * ignorati.</p>
+     * 
+     * @param ids gli identificativi delle persone da ripristinare
+     * @return il numero di persone ripristinate
+     * @throws IllegalArgumentException se l'insieme è vuoto o contiene ID non validi
+     */
+    public int restorePersons(Collection<Long> ids) {
+        personaValidator.validateIds(ids);
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        long ownerId = authService.getCurrentUserId();
+
+        return writeByShard(uniqueIds, shardIds -> {
+            List<Persona> restored = personaRepository.findDeletedByIds(ownerId, shardIds);
+            int count = personaRepository.restoreByIds(ownerId, shardIds);
+            afterCommit(() -> restored.forEach(persona -> publishChange(null, persona)));
+            return count;
+        });
+    }
+
+    /**
+     * Imposta lo stesso valore di un campo su un insieme di persone con una transazione per shard.
+     * 
+     * <p>Il valore viene validato con le stesse regole usate per il salvataggio
+     * della singola persona. Per il campo "eta" il valore viene convertito in intero;
+     * un valore vuoto azzera i campi opzionali.</p>
+     * 
+     * @param ids gli identificativi delle persone da aggiornare
+     * @param fieldName il nome del campo da aggiornare
+     * @param value il nuovo valore del campo
+     * @return il numero di persone aggiornate
+     * @throws IllegalArgumentException se gli ID, il campo o il valore non sono validi
+     */
+    public int updateFieldForPersons(Collection<Long> ids, String fieldName, String value) {
+        personaValidator.validateIds(ids);
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+
+        if ("eta".equals(fieldName)) {
+            return updateField(uniqueIds, fieldName, personaValidator.parseEta(value));
+        }
+
+        personaValidator.validatePersonaField(fieldName, value);
+        String normalized = (value == null || value.isEmpty()) ? null : value;
+        return updateField(uniqueIds, fieldName, normalized);
+    }
+
+    /**
+     * Esegue l'aggiornamento massivo di un campo già validato e ne registra
+     * l'effetto sulle statistiche.
+     * 
+     * @param ids gli identificativi delle persone da aggiornare
+     * @param fieldName il nome del campo da aggiornare
+     * @param value il nuovo valore del campo
+     * @return il numero di persone aggiornate
+     */
+    private int updateField(Set<Long> ids, String fieldName, Object value) {
+        long ownerId = authService.getCurrentUserId();
+        return writeByShard(ids, shardIds -> {
+            List<Persona> before = personaRepository.findByIds(ownerId, shardIds);
+            int updated = personaRepository.updateFieldByIds(ownerId, shardIds, fieldName, value);
+            afterCommit(() -> {
+                for (Persona persona : before) {
+                    publishChange(persona, withField(persona, fieldName, value));
+                }
+            });
+            return updated;
+        });
+    }
+
+    /**
+     * Esegue una scrittura su un insieme di persone con una transazione per ogni
+     * shard coinvolto.
+     * 
+     * <p>Le transazioni sono indipendenti: se una fallisce, quelle sugli shard
+     * precedenti restano confermate. Con un solo shard l'operazione è atomica.</p>
+     * 
+     * @param ids gli identificativi delle persone
+     * @param action la scrittura sugli ID di uno shard, restituisce le righe modificate
+     * @return il numero totale di righe modificate
+     */
+    private int writeByShard(Set<Long> ids, ToIntFunction<List<Long>> action) {
+        int total = 0;
+        for (Map.Entry<Integer, List<Long>> group : shardRouter.groupByShard(ids).entrySet()) {
+            total += shardRouter.onShard(group.getKey(), 
+                () -> databaseGuard.write(() -> action.applyAsInt(group.getValue())));
+        }
+        return total;
+    }
+
+    /**
+     * Crea una copia della persona con un campo modificato.
+     * 
+     * @param persona la persona di partenza
+     * @param fieldName il nome del campo da modificare
+     * @param value il nuovo valore del campo
+     * @return la copia modificata
+     */
+    private static Persona withField(Persona persona, String fieldName, Object value) {
+        Persona copy = new Persona(
+            persona.getId(), 
+            persona.getNome(), 
+            persona.getCognome(), 
+            persona.getIndirizzo(), 
+            persona.getTelefono(), 
+            persona.getEta(), 
+            persona.getOwnerId());
+        switch (fieldName) {
+            case "nome" -> copy.setNome((String) value);
+            case "cognome" -> copy.setCognome((String) value);
+            case "indirizzo" -> copy.setIndirizzo((String) value);
+            case "telefono" -> copy.setTelefono((String) value);
+            case "eta" -> copy.setEta((Integer) value);
+            default -> throw new IllegalArgumentException("Campo sconosciuto: " + fieldName);
+        }
+        return copy;
+    }
+
+    /**
+     * Recupera i dati correnti di una persona prima di una modifica.
+     * 
+     * @param ownerId l'ID dell'utente proprietario
+     * @param id l'identificativo della persona
+     * @return la persona, o {@code null} se non esiste nella rubrica dell'utente
+     */
+    private Persona findExisting(long ownerId, Long id) {
+        List<Persona> found = personaRepository.findByIds(ownerId, List.of(id));
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Esclude le letture in corso che potrebbero non contenere una modifica
+     * appena confermata, dal percorso bloccante o da quello reattivo.
+     * 
+     * @param event evento con i dati della persona prima e dopo la modifica
+     */
+    @EventListener
+    public void onPersonaChanged(PersonaChangedEvent event) {
+        Persona changed = event.getAfter() != null ? event.getAfter() : event.getBefore();
+        personLoads.forget(new PersonKey(changed.getOwnerId(), changed.getId()));
+        pageLoads.forgetAll();
+        allLoads.forgetAll();
+    }
+
+    /**
+     * Esclude tutte le letture in corso sul database precedente.
+     * 
+     * @param event evento di configurazione del database
+     */
+    @EventListener
+    public void onDatabaseConfigured(DatabaseConfiguredEvent event) {
+        personLoads.forgetAll();
+        pageLoads.forgetAll();
+        allLoads.forgetAll();
+    }
+
+    /**
+     * Pubblica la modifica di una persona alle strutture in memoria, con
+     * l'utente della richiesta corrente: le azioni dopo il commit vengono
+     * eseguite sul thread della richiesta.
+     * 
+     * @param before i dati prima della modifica, null per un inserimento
+     * @param after i dati dopo la modifica, null per un'eliminazione
+     */
+    private void publishChange(Persona before, Persona after) {
+        eventPublisher.publishEvent(new PersonaChangedEvent(this, authService.getCurrentUser(), before, after));
+    }
+
+    /**
+     * Esegue un'azione dopo il commit della transazione corrente,
+     * o subito se non c'è una transazione attiva.
+     * 
+     * @param action l'azione da eseguire
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 }
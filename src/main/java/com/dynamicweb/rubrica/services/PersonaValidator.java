@@ -0,0 +1,192 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.JfrValidationEvent;
+import java.util.Collection;
+import org.springframework.stereotype.Component;
+
+/**
+ * Regole di validazione dei dati delle persone.
+ * 
+ * <p>Condivise dai servizi bloccante e reattivo, così che entrambi i percorsi
+ * di accesso ai dati accettino gli stessi valori.</p>
+ * 
+ * <p>Ogni validazione richiesta dai servizi viene registrata da Java Flight
+ * Recorder come {@link JfrValidationEvent}.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Component
+public class PersonaValidator {
+
+    /**
+     * Valida un campo controllando null, vuoto, lunghezza e formato.
+     * 
+     * @param value il valore da validare
+     * @param fieldName il nome del campo per i messaggi di errore
+     * @param maxLength la lunghezza massima consentita
+     * @param pattern il pattern regex da utilizzare
+     * @param required se true, il campo è obbligatorio (non può essere null o vuoto)
+     * @throws IllegalArgumentException se il valore non è valido
+     */
+    private void validateField(String value, String fieldName, int maxLength, String pattern, boolean required) {
+        // Controllo obbligatorietà (null e vuoti)
+        if (required && (value == null || value.isEmpty())) {
+            throw new IllegalArgumentException("Il " + fieldName + " è obbligatorio");
+        }
+        
+        // Se il campo è opzionale e null/vuoto, non validare ulteriormente
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        
+        // Controllo lunghezza
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException("Il " + fieldName + " non può superare i " + maxLength + " caratteri");
+        }
+        
+        // Controllo pattern
+        if (!value.matches(pattern)) {
+            throw new IllegalArgumentException("Il " + fieldName + " contiene caratteri non validi o formato errato");
+        }
+    }
+
+    /**
+     * Valida tutti i campi della persona.
+     * 
+     * @param persona la persona da validare
+     * @throws IllegalArgumentException se uno o più campi non sono validi
+     */
+    public void validatePersona(Persona persona) {
+        recorded("persona", () -> {
+            // Validazioni complete per ogni campo (inclusi controlli null/vuoti)
+            checkPersonaField("nome", persona.getNome());
+            checkPersonaField("cognome", persona.getCognome());
+            checkPersonaField("telefono", persona.getTelefono());
+            checkPersonaField("indirizzo", persona.getIndirizzo());
+            checkEta(persona.getEta());
+        });
+    }
+
+    /**
+     * Valida il valore testuale di un singolo campo della persona.
+     * 
+     * @param fieldName il nome del campo (nome, cognome, telefono, indirizzo)
+     * @param value il valore da validare
+     * @throws IllegalArgumentException se il campo non esiste o il valore non è valido
+     */
+    public void validatePersonaField(String fieldName, String value) {
+        recorded(fieldName, () -> checkPersonaField(fieldName, value));
+    }
+
+    /**
+     * Valida il valore di un campo senza registrare l'evento.
+     */
+    private void checkPersonaField(String fieldName, String value) {
+        switch (fieldName) {
+            // Campi obbligatori
+            case "nome", "cognome" -> validateField(
+                value, 
+                fieldName, 
+                100, 
+                "^[a-zA-ZÀ-ÿ\\s'.-]+$",
+                true); // obbligatorio
+            case "telefono" -> validateField(
+                value, 
+                fieldName, 
+                20, 
+                "^(\\+39\\s?)?((3[0-9]{2}|0[0-9]{1,3})\\s?)?[0-9]{6,8}$",
+                true); // obbligatorio
+            // Campi opzionali
+            case "indirizzo" -> validateField(
+                value, 
+                fieldName, 
+                255, 
+                "^[a-zA-ZÀ-ÿ0-9\\s,.'-]+$",
+                false); // opzionale
+            default -> throw new IllegalArgumentException("Campo sconosciuto: " + fieldName);
+        }
+    }
+
+    /**
+     * Valida l'età (solo controllo range se non null).
+     * 
+     * @param eta l'età da validare
+     * @throws IllegalArgumentException se l'età è fuori dall'intervallo consentito
+     */
+    public void validateEta(Integer eta) {
+        recorded("eta", () -> checkEta(eta));
+    }
+
+    /**
+     * Valida l'età senza registrare l'evento.
+     */
+    private static void checkEta(Integer eta) {
+        if (eta != null) {
+            if (eta < 0 || eta > 120) {
+                throw new IllegalArgumentException("L'età deve essere compresa tra 0 e 120 anni");
+            }
+        }
+    }
+
+    /**
+     * Verifica che l'insieme di ID per un'operazione massiva sia valido.
+     * 
+     * @param ids gli identificativi da verificare
+     * @throws IllegalArgumentException se l'insieme è vuoto o contiene ID non validi
+     */
+    public void validateIds(Collection<Long> ids) {
+        recorded("ids", () -> {
+            if (ids == null || ids.isEmpty()) {
+                throw new IllegalArgumentException("Nessuna persona selezionata");
+            }
+            for (Long id : ids) {
+                if (id == null || id <= 0) {
+                    throw new IllegalArgumentException("ID persona non valido: " + id);
+                }
+            }
+        });
+    }
+
+    /**
+     * Converte e valida l'età ricevuta come testo.
+     * 
+     * @param value il valore testuale, vuoto o null per nessuna età
+     * @return l'età, o {@code null} se il valore è vuoto
+     * @throws IllegalArgumentException se il valore non è un intero valido
+     */
+    public Integer parseEta(String value) {
+        Integer eta;
+        try {
+            eta = (value == null || value.isBlank()) ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("L'età deve essere un numero intero");
+        }
+        validateEta(eta);
+        return eta;
+    }
+
+    /**
+     * Esegue una validazione registrandone l'evento, con l'esito.
+     * 
+     * @param target oggetto della validazione
+     * @param validation controlli da eseguire, sollevano IllegalArgumentException se i dati non sono validi
+     */
+    private static void recorded(String target, Runnable validation) {
+        JfrValidationEvent event = new JfrValidationEvent();
+        event.begin();
+        boolean rejected = true;
+        try {
+            validation.run();
+            rejected = false;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.target = target;
+                event.rejected = rejected;
+                event.commit();
+            }
+        }
+    }
+}
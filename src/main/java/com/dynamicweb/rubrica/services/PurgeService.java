@@ -0,0 +1,233 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.components.IdGenerator;
+import com.dynamicweb.rubrica.components.ShardRouter;
+import com.dynamicweb.rubrica.repositories.PersonaRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servizio di pulizia periodica dei contatti eliminati logicamente.
+ * 
+ * <p>Le righe eliminate da più di {@code rubrica.purge.undo-window-seconds}
+ * (la finestra in cui l'eliminazione può essere annullata) vengono rimosse
+ * definitivamente a piccoli blocchi in ordine di ID, ciascuno in una propria
+ * transazione breve tramite {@link DatabaseGuard}.</p>
+ * 
+ * <p>Il ritmo si adatta alla latenza misurata del database: se un blocco supera
+ * {@code rubrica.purge.target-latency-ms} la dimensione del blocco viene
+ * dimezzata, se resta sotto la metà della soglia viene aumentata gradualmente.
+ * Tra un blocco e il successivo la pulizia attende un multiplo della durata
+ * dell'ultimo blocco, così da occupare solo una frazione del tempo del database
+ * anche quando questo rallenta. Con il circuito aperto o il bulkhead delle
+ * scritture pieno la pulizia viene rimandata all'esecuzione successiva.</p>
+ * 
+ * <p>Le righe rimosse lasciano un tombstone per la sincronizzazione dei client,
+ * conservato per {@code rubrica.sync.tombstone-retention-days} e poi rimosso
+ * a blocchi della stessa dimensione.</p>
+ * 
+ * <p>Con più shard la pulizia li percorre uno alla volta, con transazioni
+ * aperte sullo shard corrente.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class PurgeService {
+
+    private static final Logger log = LoggerFactory.getLogger(PurgeService.class);
+
+    private final PersonaRepository personaRepository;
+
+    private final DatabaseGuard databaseGuard;
+
+    private final DatabaseConnectionManager databaseConnectionManager;
+
+    private final ShardRouter shardRouter;
+
+    private final Duration undoWindow;
+
+    private final Duration tombstoneRetention;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final long targetLatencyNanos;
+
+    private final int pauseFactor;
+
+    /** Dimensione corrente del blocco, adattata tra un'esecuzione e l'altra */
+    private int batchSize;
+
+    /**
+     * Costruttore con i parametri della pulizia.
+     * 
+     * @param personaRepository il repository delle persone
+     * @param databaseGuard la protezione delle chiamate al database
+     * @param databaseConnectionManager servizio per verificare la configurazione database
+     * @param shardRouter l'instradamento delle operazioni tra gli shard
+     * @param undoWindowSeconds secondi in cui un'eliminazione può essere annullata
+     * @param tombstoneRetentionDays giorni di conservazione dei tombstone per la sincronizzazione
+     * @param minBatchSize dimensione minima del blocco
+     * @param maxBatchSize dimensione massima del blocco
+     * @param targetLatencyMillis durata oltre la quale un blocco viene considerato lento
+     * @param pauseFactor multiplo della durata del blocco atteso prima del successivo
+     */
+    public PurgeService(
+        PersonaRepository personaRepository, 
+        DatabaseGuard databaseGuard, 
+        DatabaseConnectionManager databaseConnectionManager, 
+        ShardRouter shardRouter, 
+        @Value("${rubrica.purge.undo-window-seconds:300}") long undoWindowSeconds, 
+        @Value("${rubrica.sync.tombstone-retention-days:30}") long tombstoneRetentionDays, 
+        @Value("${rubrica.purge.min-batch-size:20}") int minBatchSize, 
+        @Value("${rubrica.purge.max-batch-size:500}") int maxBatchSize, 
+        @Value("${rubrica.purge.target-latency-ms:50}") long targetLatencyMillis, 
+        @Value("${rubrica.purge.pause-factor:4}") int pauseFactor) {
+        this.personaRepository = personaRepository;
+        this.databaseGuard = databaseGuard;
+        this.databaseConnectionManager = databaseConnectionManager;
+        this.shardRouter = shardRouter;
+        this.undoWindow = Duration.ofSeconds(undoWindowSeconds);
+        this.tombstoneRetention = Duration.ofDays(tombstoneRetentionDays);
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.targetLatencyNanos = Duration.ofMillis(targetLatencyMillis).toNanos();
+        this.pauseFactor = pauseFactor;
+        this.batchSize = minBatchSize;
+    }
+
+    /**
+     * Rimuove definitivamente i contatti eliminati oltre la finestra di annullamento,
+     * finché ce ne sono o finché il database non è disponibile.
+     */
+    @Scheduled(
+        initialDelayString = "${rubrica.purge.interval-seconds:60}", 
+        fixedDelayString = "${rubrica.purge.interval-seconds:60}", 
+        timeUnit = TimeUnit.SECONDS)
+    public void purge() {
+        if (!databaseConnectionManager.isDatabaseConfigured() || databaseGuard.isOpen()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        Instant cutoff = now.minus(undoWindow);
+        long expired = IdGenerator.firstIdAt(now.minus(tombstoneRetention));
+        int purged = 0;
+        int tombstones = 0;
+        try {
+            for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+                purged += purgeShard(shard, cutoff);
+                tombstones += purgeTombstones(shard, expired);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // Database lento o non disponibile: si riprova all'esecuzione successiva
+            batchSize = minBatchSize;
+            log.warn("Pulizia dei contatti eliminati interrotta: {}", e.getMessage());
+        }
+
+        if (purged > 0) {
+            log.info("Pulizia dei contatti eliminati: {} righe rimosse, blocco corrente {}", purged, batchSize);
+        }
+        if (tombstones > 0) {
+            log.info("Pulizia dei tombstone scaduti: {} righe rimosse", tombstones);
+        }
+    }
+
+    /**
+     * Rimuove a blocchi i contatti eliminati prima dell'istante indicato da uno shard.
+     * 
+     * @param shard indice dello shard da pulire
+     * @param cutoff istante prima del quale le eliminazioni sono definitive
+     * @return numero di righe rimosse
+     * @throws InterruptedException se l'attesa tra due blocchi viene interrotta
+     */
+    private int purgeShard(int shard, Instant cutoff) throws InterruptedException {
+        int purged = 0;
+        while (true) {
+            long start = System.nanoTime();
+            int size = batchSize;
+            List<Long> ids = shardRouter.onShard(shard, () -> databaseGuard.write(() -> {
+                List<Long> batch = personaRepository.findPurgeableIds(cutoff, size);
+                if (!batch.isEmpty()) {
+                    personaRepository.purgeByIds(batch, cutoff);
+                }
+                return batch;
+            }));
+            long elapsed = System.nanoTime() - start;
+            purged += ids.size();
+            if (ids.size() < size) {
+                return purged;
+            }
+
+            adaptBatchSize(elapsed);
+            Thread.sleep(Duration.ofNanos(elapsed * pauseFactor).toMillis());
+        }
+    }
+
+    /**
+     * Rimuove a blocchi da uno shard i tombstone con versione precedente a quella indicata.
+     * 
+     * @param shard indice dello shard da pulire
+     * @param expired prima versione ancora conservata
+     * @return numero di tombstone rimossi
+     * @throws InterruptedException se l'attesa tra due blocchi viene interrotta
+     */
+    private int purgeTombstones(int shard, long expired) throws InterruptedException {
+        int purged = 0;
+        while (true) {
+            long start = System.nanoTime();
+            int size = batchSize;
+            int removed = shardRouter.onShard(shard, 
+                () -> databaseGuard.write(() -> personaRepository.purgeTombstones(expired, size)));
+            purged += removed;
+            if (removed < size) {
+                return purged;
+            }
+            Thread.sleep(Duration.ofNanos((System.nanoTime() - start) * pauseFactor).toMillis());
+        }
+    }
+
+    /**
+     * Restituisce il periodo di conservazione dei tombstone, oltre il quale
+     * un client deve ripetere la sincronizzazione completa.
+     * 
+     * @return durata della conservazione
+     */
+    public Duration getTombstoneRetention() {
+        return tombstoneRetention;
+    }
+
+    /**
+     * Restituisce la finestra in cui un'eliminazione può essere annullata.
+     * 
+     * @return durata della finestra di annullamento
+     */
+    public Duration getUndoWindow() {
+        return undoWindow;
+    }
+
+    /**
+     * Adatta la dimensione del blocco alla durata dell'ultimo blocco:
+     * dimezzamento se lento, aumento graduale se veloce.
+     * 
+     * @param elapsedNanos durata dell'ultimo blocco in nanosecondi
+     */
+    private void adaptBatchSize(long elapsedNanos) {
+        if (elapsedNanos > targetLatencyNanos) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+        } else if (elapsedNanos < targetLatencyNanos / 2) {
+            batchSize = Math.min(maxBatchSize, batchSize + minBatchSize);
+        }
+    }
+}
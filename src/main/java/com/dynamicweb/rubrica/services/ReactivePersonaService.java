@@ -0,0 +1,304 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.components.ResilienceProperties;
+import com.dynamicweb.rubrica.configs.PersonaApiConfig;
+import com.dynamicweb.rubrica.dtos.PersonaPage;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.dtos.SyncPage;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import com.dynamicweb.rubrica.repositories.ReactivePersonaRepository;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Servizio reattivo per le operazioni sulle persone, alternativo a {@link PersonaService}.
+ * 
+ * <p>Applica le stesse regole di validazione tramite {@link PersonaValidator} e
+ * pubblica un {@link PersonaChangedEvent} solo dopo il commit. Le letture hanno il
+ * timeout delle letture bloccanti; le scritture vengono eseguite in una
+ * transazione R2DBC con il timeout delle scritture. Il bulkhead è dato dalla
+ * dimensione del pool di connessioni e dal suo tempo massimo di attesa.</p>
+ * 
+ * <p>Come {@link PersonaService}, opera sulla rubrica dell'utente autenticato:
+ * il proprietario viene letto dalla sessione alla chiamata, sul thread della
+ * richiesta, prima che l'esecuzione passi ai thread del driver.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+@ConditionalOnProperty(name = "rubrica.persistence", havingValue = "reactive")
+@ConditionalOnClass(name = PersonaApiConfig.R2DBC_CLASS)
+public class ReactivePersonaService {
+
+    private final ReactivePersonaRepository personaRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final PersonaValidator personaValidator;
+
+    private final TransactionalOperator transactionalOperator;
+
+    private final NameSearchService nameSearchService;
+
+    private final AuthService authService;
+
+    private final Duration readTimeout;
+
+    private final SyncWindow syncWindow;
+
+    /**
+     * Costruttore del servizio persona reattivo.
+     * 
+     * @param personaRepository il repository reattivo delle persone
+     * @param eventPublisher publisher per notificare le modifiche alle persone
+     * @param personaValidator le regole di validazione dei dati
+     * @param transactionalOperator l'operatore per le transazioni R2DBC
+     * @param resilienceProperties i timeout di accesso al database
+     * @param nameSearchService l'indice dei nomi per la ricerca approssimata
+     * @param authService il servizio di autenticazione, per l'autore e il proprietario dei dati
+     * @param purgeService la pulizia, per la conservazione dei tombstone
+     */
+    public ReactivePersonaService(
+        ReactivePersonaRepository personaRepository, 
+        ApplicationEventPublisher eventPublisher, 
+        PersonaValidator personaValidator, 
+        TransactionalOperator transactionalOperator, 
+        ResilienceProperties resilienceProperties, 
+        NameSearchService nameSearchService, 
+        AuthService authService, 
+        PurgeService purgeService) {
+        this.personaRepository = personaRepository;
+        this.eventPublisher = eventPublisher;
+        this.personaValidator = personaValidator;
+        this.transactionalOperator = transactionalOperator;
+        this.nameSearchService = nameSearchService;
+        this.authService = authService;
+        this.readTimeout = Duration.ofSeconds(resilienceProperties.getReadTimeoutSeconds());
+        this.syncWindow = new SyncWindow(
+            Duration.ofSeconds(resilienceProperties.getWriteTimeoutSeconds()), purgeService.getTombstoneRetention());
+    }
+
+    /**
+     * Recupera una pagina di persone ordinata e filtrata secondo i parametri richiesti.
+     * 
+     * @param query parametri di ordinamento, filtro e paginazione
+     * @return pagina di persone; errore IllegalArgumentException se i parametri non sono validi
+     */
+    public Mono<PersonaPage> getPersonsPage(PersonaQuery query) {
+        long ownerId = authService.getCurrentUserId();
+        return Mono.defer(() -> {
+            query.validate();
+            return personaRepository.findPage(ownerId, query);
+        }).timeout(readTimeout).onErrorMap(ReactivePersonaService::isUnavailable, ReactivePersonaService::unavailable);
+    }
+
+    /**
+     * Legge in streaming tutte le persone della rubrica dell'utente ordinate per ID.
+     * 
+     * <p>Il timeout di lettura vale per l'attesa di ciascuna riga, non per
+     * l'intero flusso, che può durare quanto il consumatore richiede.</p>
+     * 
+     * @return flusso lazy delle persone
+     */
+    public Flux<Persona> streamAllPersons() {
+        return personaRepository.streamByOwner(authService.getCurrentUserId())
+            .timeout(readTimeout)
+            .onErrorMap(ReactivePersonaService::isUnavailable, ReactivePersonaService::unavailable);
+    }
+
+    /**
+     * Recupera le modifiche alla rubrica dell'utente successive al token di
+     * sincronizzazione, come {@link PersonaService#getChangesSince(String, int)}.
+     * 
+     * @param token token della risposta precedente, null per una sincronizzazione completa
+     * @param size numero massimo di modifiche nella pagina
+     * @return pagina di modifiche; errore IllegalArgumentException se il token o la dimensione non sono validi
+     */
+    public Mono<SyncPage> getChangesSince(String token, int size) {
+        long ownerId = authService.getCurrentUserId();
+        return Mono.defer(() -> {
+            SyncWindow.Request request = syncWindow.start(token, size);
+            return personaRepository.findChangesSince(ownerId, request.from(), size + 1)
+                .collectList()
+                .map(changes -> syncWindow.toPage(request, changes, size));
+        }).timeout(readTimeout).onErrorMap(ReactivePersonaService::isUnavailable, ReactivePersonaService::unavailable);
+    }
+
+    /**
+     * Recupera una persona specifica tramite il suo ID.
+     * 
+     * @param id l'identificativo univoco della persona
+     * @return la persona, o un Mono vuoto se non esiste
+     */
+    public Mono<Persona> getPersonById(Long id) {
+        return personaRepository.findById(authService.getCurrentUserId(), id)
+            .timeout(readTimeout)
+            .onErrorMap(ReactivePersonaService::isUnavailable, ReactivePersonaService::unavailable);
+    }
+
+    /**
+     * Cerca le persone con nome o cognome simili al testo indicato, tollerando
+     * errori di battitura e accenti.
+     * 
+     * @param text una o più parole da cercare tra nomi e cognomi
+     * @param limit numero massimo di risultati
+     * @return persone trovate, dalla più simile; errore IllegalArgumentException se il testo non è valido
+     */
+    public Flux<Persona> searchByName(String text, int limit) {
+        long ownerId = authService.getCurrentUserId();
+        return Mono.fromCallable(() -> nameSearchService.findMatches(ownerId, text, limit))
+            .flatMapMany(matches -> {
+                if (matches.isEmpty()) {
+                    return Flux.empty();
+                }
+                Map<Long, Integer> rank = new HashMap<>();
+                matches.forEach(match -> rank.put(match.id(), rank.size()));
+                return personaRepository.findByIds(ownerId, rank.keySet())
+                    .timeout(readTimeout)
+                    .sort(Comparator.comparing(persona -> rank.get(persona.getId())));
+            })
+            .onErrorMap(ReactivePersonaService::isUnavailable, ReactivePersonaService::unavailable);
+    }
+
+    /**
+     * Salva una nuova persona nel database dopo aver validato i dati.
+     * 
+     * @param persona la persona da salvare (senza ID)
+     * @return true se il salvataggio è avvenuto; errore IllegalArgumentException se i dati non sono validi
+     */
+    public Mono<Boolean> savePerson(Persona persona) {
+        // L'utente va letto ora: esecuzione e pubblicazione avvengono su un thread del driver
+        String username = authService.getCurrentUser();
+        long ownerId = authService.getCurrentUserId();
+        return Mono.defer(() -> {
+            if (persona == null) {
+                throw new IllegalArgumentException("La persona non può essere null");
+            }
+            if (persona.getId() != null) {
+                throw new IllegalArgumentException("L'ID deve essere null per una nuova persona");
+            }
+            personaValidator.validatePersona(persona);
+            return write(personaRepository.insert(ownerId, persona));
+        }).doOnNext(saved -> {
+            if (saved) {
+                publishChange(username, null, persona);
+            }
+        });
+    }
+
+    /**
+     * Aggiorna una persona esistente dopo aver validato i dati.
+     * 
+     * @param persona la persona con i dati aggiornati (con ID)
+     * @return true se l'aggiornamento è avvenuto; errore IllegalArgumentException se i dati non sono validi
+     */
+    public Mono<Boolean> updatePerson(Persona persona) {
+        // L'utente va letto ora: esecuzione e pubblicazione avvengono su un thread del driver
+        String username = authService.getCurrentUser();
+        long ownerId = authService.getCurrentUserId();
+        return Mono.defer(() -> {
+            if (persona == null) {
+                throw new IllegalArgumentException("La persona non può essere null");
+            }
+            if (persona.getId() == null || persona.getId() <= 0) {
+                throw new IllegalArgumentException("ID persona obbligatorio per l'aggiornamento: " + persona.getId());
+            }
+            personaValidator.validatePersona(persona);
+            return write(findExisting(ownerId, persona.getId())
+                .flatMap(before -> personaRepository.update(ownerId, persona)
+                    .filter(Boolean::booleanValue)
+                    .map(updated -> before)));
+        }).doOnNext(before -> publishChange(username, before, persona))
+            .map(before -> true)
+            .defaultIfEmpty(false);
+    }
+
+    /**
+     * Elimina una persona tramite il suo ID.
+     * 
+     * @param id l'identificativo della persona da eliminare
+     * @return true se l'eliminazione è avvenuta; errore IllegalArgumentException se l'ID non è valido
+     */
+    public Mono<Boolean> deletePerson(Long id) {
+        // L'utente va letto ora: esecuzione e pubblicazione avvengono su un thread del driver
+        String username = authService.getCurrentUser();
+        long ownerId = authService.getCurrentUserId();
+        return Mono.defer(() -> {
+            if (id == null || id <= 0) {
+                throw new IllegalArgumentException("ID persona non valido: " + id);
+            }
+            return write(findExisting(ownerId, id)
+                .flatMap(before -> personaRepository.deleteById(ownerId, id)
+                    .filter(Boolean::booleanValue)
+                    .map(deleted -> before)));
+        }).doOnNext(before -> publishChange(username, before, null))
+            .map(before -> true)
+            .defaultIfEmpty(false);
+    }
+
+    /**
+     * Esegue una scrittura in una transazione con timeout. Il risultato viene
+     * emesso solo dopo il commit, quindi le modifiche possono essere
+     * pubblicate a valle.
+     * 
+     * @param action la scrittura da eseguire
+     * @return il risultato della scrittura dopo il commit
+     */
+    private <T> Mono<T> write(Mono<T> action) {
+        return transactionalOperator.transactional(action)
+            .onErrorMap(ReactivePersonaService::isUnavailable, ReactivePersonaService::unavailable);
+    }
+
+    /**
+     * Pubblica la modifica di una persona alle strutture in memoria.
+     * 
+     * @param username l'utente che ha richiesto la modifica
+     * @param before i dati prima della modifica, null per un inserimento
+     * @param after i dati dopo la modifica, null per un'eliminazione
+     */
+    private void publishChange(String username, Persona before, Persona after) {
+        eventPublisher.publishEvent(new PersonaChangedEvent(this, username, before, after));
+    }
+
+    /**
+     * Recupera i dati correnti di una persona prima di una modifica.
+     * 
+     * @param ownerId l'ID dell'utente proprietario
+     * @param id l'identificativo della persona
+     * @return la persona, o un Mono vuoto se non esiste nella rubrica dell'utente
+     */
+    private Mono<Persona> findExisting(long ownerId, Long id) {
+        return personaRepository.findByIds(ownerId, List.of(id)).next();
+    }
+
+    /**
+     * Verifica se un errore indica che il database non è raggiungibile in tempo.
+     */
+    private static boolean isUnavailable(Throwable error) {
+        return error instanceof TimeoutException || error instanceof DataAccessResourceFailureException;
+    }
+
+    /**
+     * Converte un errore di disponibilità nell'eccezione usata anche dal percorso bloccante.
+     */
+    private static Throwable unavailable(Throwable error) {
+        DatabaseUnavailableException exception =
+            new DatabaseUnavailableException("Database non disponibile, riprovare più tardi");
+        exception.initCause(error);
+        return exception;
+    }
+}
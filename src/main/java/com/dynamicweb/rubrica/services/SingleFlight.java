@@ -0,0 +1,92 @@
+package com.dynamicweb.rubrica.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Accorpamento delle letture identiche concorrenti (single flight).
+ *
+ * <p>Il primo chiamante per una chiave esegue la lettura e ne pubblica il
+ * risultato in un future; i chiamanti che arrivano mentre la lettura è in
+ * corso attendono lo stesso future invece di eseguirne un'altra. La chiave
+ * viene rimossa appena la lettura termina, con successo o con errore, così
+ * che le richieste successive leggano di nuovo: non è una cache, limita solo
+ * a una le letture contemporanee della stessa chiave.</p>
+ *
+ * <p>I chiamanti accorpati ricevono lo stesso oggetto risultato, che non deve
+ * quindi essere modificato, oppure la stessa eccezione.</p>
+ *
+ * @param <K> tipo della chiave, con {@code equals} e {@code hashCode} sui valori
+ * @param <V> tipo del risultato
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Esegue la lettura, o attende quella già in corso per la stessa chiave.
+     *
+     * @param key chiave della lettura, da non modificare finché è in corso
+     * @param loader lettura da eseguire se nessuna è in corso
+     * @return il risultato della lettura
+     */
+    V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = loader.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Impedisce ai nuovi chiamanti di unirsi alla lettura in corso per la
+     * chiave, che potrebbe restituire dati precedenti a una modifica appena
+     * confermata. Chi la sta già attendendo ne riceve comunque il risultato.
+     *
+     * @param key chiave da rimuovere
+     */
+    void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    /**
+     * Come {@link #forget(Object)}, per tutte le letture in corso.
+     */
+    void forgetAll() {
+        inFlight.clear();
+    }
+
+    /**
+     * Attende il risultato di una lettura avviata da un altro thread e ne
+     * propaga l'eventuale eccezione originale.
+     */
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.components.ResilienceProperties;
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.events.ContactsLoadingEvent;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import com.dynamicweb.rubrica.repositories.PersonaCursor;
+import com.dynamicweb.rubrica.repositories.PersonaRepository;
+import com.dynamicweb.rubrica.repositories.PersonaSnapshotStore;
+import com.dynamicweb.rubrica.repositories.PersonaSnapshotStore.Snapshot;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servizio degli snapshot dei contatti, per il riavvio rapido delle strutture in memoria.
+ *
+ * <p>Uno snapshot binario dei contatti attivi ({@link PersonaSnapshotStore}) viene
+ * scritto periodicamente ogni {@code rubrica.snapshot.interval-seconds} e alla
+ * chiusura dell'applicazione. All'avvio e alla configurazione di un nuovo
+ * database i contatti vengono caricati dall'ultimo snapshot, leggendo dal
+ * database solo le righe con {@code modificato_il} successiva allo snapshot,
+ * e pubblicati una sola volta con un {@link ContactsLoadedEvent} a tutte le
+ * strutture costruite sull'intera rubrica. Senza uno snapshot utilizzabile
+ * viene letta l'intera tabella.</p>
+ *
+ * <p>L'allineamento parte da un margine prima dell'istante dello snapshot pari
+ * al timeout delle transazioni di scrittura, così da includere le modifiche
+ * ancora in corso mentre lo snapshot veniva letto. Le righe rimosse
+ * definitivamente dalla pulizia non lasciano traccia: se lo snapshot è più
+ * vecchio della finestra di annullamento vengono riconosciute confrontando gli
+ * ID attivi nel database. Il database H2 in memoria non viene mai salvato,
+ * poiché non sopravvive al riavvio.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class SnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotService.class);
+
+    private final PersonaRepository personaRepository;
+
+    private final PersonaSnapshotStore snapshotStore;
+
+    private final DatabaseConnectionManager databaseConnectionManager;
+
+    private final PurgeService purgeService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Duration catchUpMargin;
+
+    private final boolean enabled;
+
+    /**
+     * Costruttore del servizio snapshot.
+     *
+     * @param personaRepository il repository delle persone
+     * @param snapshotStore l'archivio degli snapshot su file
+     * @param databaseConnectionManager servizio per la configurazione database corrente
+     * @param purgeService il servizio di pulizia, per la finestra di annullamento
+     * @param resilienceProperties i limiti di accesso al database, per il timeout delle scritture
+     * @param eventPublisher publisher per notificare il caricamento dei contatti
+     * @param enabled se gli snapshot vengono scritti e usati all'avvio
+     */
+    public SnapshotService(
+        PersonaRepository personaRepository,
+        PersonaSnapshotStore snapshotStore,
+        DatabaseConnectionManager databaseConnectionManager,
+        PurgeService purgeService,
+        ResilienceProperties resilienceProperties,
+        ApplicationEventPublisher eventPublisher,
+        @Value("${rubrica.snapshot.enabled:true}") boolean enabled) {
+        this.personaRepository = personaRepository;
+        this.snapshotStore = snapshotStore;
+        this.databaseConnectionManager = databaseConnectionManager;
+        this.purgeService = purgeService;
+        this.eventPublisher = eventPublisher;
+        this.catchUpMargin = Duration.ofSeconds(resilienceProperties.getWriteTimeoutSeconds());
+        this.enabled = enabled;
+    }
+
+    /**
+     * Carica i contatti all'avvio se il database è già configurato
+     * (ad esempio in modalità embedded tramite DB_MODE).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (databaseConnectionManager.isDatabaseConfigured()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Carica i contatti quando viene configurato un nuovo database.
+     * 
+     * @param event evento di configurazione del database
+     */
+    @EventListener
+    public void onDatabaseConfigured(DatabaseConfiguredEvent event) {
+        warmUp();
+    }
+
+    /**
+     * Carica tutti i contatti attivi, dall'ultimo snapshot se possibile, e li
+     * pubblica alle strutture in memoria.
+     * 
+     * <p>La lettura è preceduta da un {@link ContactsLoadingEvent}, così che le
+     * strutture conservino le modifiche confermate nel frattempo.</p>
+     */
+    public void warmUp() {
+        eventPublisher.publishEvent(new ContactsLoadingEvent(this, false));
+        Collection<Persona> contacts;
+        try {
+            contacts = loadContacts().orElseGet(() -> {
+                List<Persona> all = new ArrayList<>();
+                try (PersonaCursor cursor = personaRepository.streamAll()) {
+                    cursor.forEach(all::add);
+                }
+                return all;
+            });
+        } catch (RuntimeException e) {
+            eventPublisher.publishEvent(new ContactsLoadingEvent(this, true));
+            throw e;
+        }
+        eventPublisher.publishEvent(new ContactsLoadedEvent(this, contacts));
+    }
+
+    /**
+     * Scrive uno snapshot periodico dei contatti.
+     */
+    @Scheduled(
+        initialDelayString = "${rubrica.snapshot.interval-seconds:900}",
+        fixedDelayString = "${rubrica.snapshot.interval-seconds:900}",
+        timeUnit = TimeUnit.SECONDS)
+    public void scheduledSnapshot() {
+        writeQuietly();
+    }
+
+    /**
+     * Scrive uno snapshot alla chiusura dell'applicazione, prima che il
+     * DataSource venga rilasciato, così che il riavvio successivo parta aggiornato.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        writeQuietly();
+    }
+
+    /**
+     * Scrive uno snapshot di tutti i contatti attivi.
+     *
+     * @return percorso dello snapshot, vuoto se gli snapshot non sono disponibili
+     *         per il database corrente
+     * @throws IOException se la scrittura non riesce
+     */
+    public Optional<Path> writeSnapshot() throws IOException {
+        String source = currentSource();
+        if (source == null) {
+            return Optional.empty();
+        }
+
+        long start = System.nanoTime();
+        Instant takenAt = personaRepository.currentTimestamp();
+        Path file;
+        try (PersonaCursor cursor = personaRepository.streamAll()) {
+            file = snapshotStore.write(source, takenAt, cursor);
+        }
+        log.info("Snapshot dei contatti scritto in {} ({} ms)",
+            file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return Optional.of(file);
+    }
+
+    /**
+     * Ricostruisce l'insieme dei contatti attivi dall'ultimo snapshot,
+     * allineato con le modifiche successive lette dal database.
+     *
+     * @return contatti attivi, vuoto se non esiste uno snapshot utilizzabile
+     *         (in questo caso il chiamante deve leggere l'intera tabella)
+     */
+    private Optional<Collection<Persona>> loadContacts() {
+        String source = currentSource();
+        if (source == null) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        Optional<Snapshot> snapshot = snapshotStore.readLatest(source);
+        if (snapshot.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Instant takenAt = snapshot.get().takenAt();
+        Map<Long, Persona> contacts = snapshot.get().contacts().stream()
+            .collect(Collectors.toMap(Persona::getId, persona -> persona, (a, b) -> b, LinkedHashMap::new));
+        int loaded = contacts.size();
+
+        Instant since = takenAt.minus(catchUpMargin);
+        List<Persona> modified = personaRepository.findModifiedSince(since);
+        modified.forEach(persona -> contacts.put(persona.getId(), persona));
+        List<Long> deleted = personaRepository.findDeletedIdsSince(since);
+        deleted.forEach(contacts::remove);
+
+        Instant now = personaRepository.currentTimestamp();
+        if (Duration.between(takenAt, now).compareTo(purgeService.getUndoWindow()) > 0) {
+            Set<Long> active = new HashSet<>(personaRepository.findActiveIds());
+            contacts.keySet().retainAll(active);
+        }
+
+        log.info("Contatti caricati dallo snapshot del {}: {} dal file, {} modificati e {} eliminati dal database ({} ms)",
+            takenAt, loaded, modified.size(), deleted.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return Optional.of(contacts.values());
+    }
+
+    /**
+     * Scrive uno snapshot registrando gli errori senza propagarli.
+     */
+    private void writeQuietly() {
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Snapshot dei contatti non scritto: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Identifica il database corrente negli snapshot: gli URL JDBC di tutti gli shard.
+     *
+     * @return identificativo, o {@code null} se gli snapshot non sono disponibili
+     */
+    private String currentSource() {
+        DatabaseProperties properties = databaseConnectionManager.getCurrentProperties();
+        if (!enabled || properties == null || properties.getMode() == DatabaseProperties.Mode.H2_MEMORY) {
+            return null;
+        }
+        return properties.buildShardProperties().stream()
+            .map(DatabaseProperties::buildJdbcUrl)
+            .collect(Collectors.joining(","));
+    }
+}
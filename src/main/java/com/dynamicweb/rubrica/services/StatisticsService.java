@@ -0,0 +1,280 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.dtos.RubricaStatistics;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.events.ContactsLoadingEvent;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servizio che mantiene in memoria le statistiche della rubrica.
+ * 
+ * <p>Le statistiche vengono calcolate dall'insieme dei contatti caricato
+ * all'avvio o alla configurazione del database ({@link ContactsLoadedEvent},
+ * dall'ultimo snapshot o con una sola lettura della tabella), e poi aggiornate
+ * a ogni inserimento, modifica ed eliminazione ({@link PersonaChangedEvent})
+ * con un numero costante di incrementi su contatori {@link LongAdder}, che
+ * distribuiscono le scritture concorrenti su celle separate. La lettura delle
+ * statistiche non accede al database.</p>
+ * 
+ * <p>Ogni rubrica ha i propri contatori, creati al primo contatto del suo
+ * proprietario; un utente senza contatti ha statistiche a zero.</p>
+ * 
+ * <p>Le modifiche confermate mentre è in corso un ricalcolo vengono conservate
+ * e riapplicate ai nuovi contatori ({@link PendingChanges}), come per gli
+ * indici dei nomi. Ogni modifica riapplicata sottrae lo stato del contatto
+ * compreso nella lettura, non quello dell'evento: una modifica già letta non
+ * viene quindi contata due volte.</p>
+ * 
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@Service
+public class StatisticsService {
+
+    /** Ampiezza in anni di una fascia dell'istogramma delle età */
+    private static final int AGE_BUCKET_WIDTH = 10;
+
+    /** Numero di fasce d'età: l'ultima comprende anche l'età massima di 120 anni */
+    private static final int AGE_BUCKETS = 12;
+
+    /** Prefisso internazionale italiano, ignorato nella classificazione dei numeri */
+    private static final String ITALIAN_PREFIX = "+39";
+
+    /** Chiave usata per i numeri senza prefisso riconoscibile */
+    private static final String OTHER_PREFIX = "altro";
+
+    /** Contatori correnti per proprietario, sostituiti in blocco a ogni ricalcolo */
+    private volatile Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    /** Indica se i contatori sono stati calcolati almeno una volta */
+    private volatile boolean ready;
+
+    /** Modifiche confermate durante il ricalcolo dei contatori */
+    private final PendingChanges pendingChanges = new PendingChanges();
+
+    /**
+     * Inizia a conservare le modifiche quando parte la lettura dei contatti,
+     * o smette se la lettura non è riuscita.
+     * 
+     * @param event evento di inizio o di fallimento della lettura
+     */
+    @EventListener
+    public void onContactsLoading(ContactsLoadingEvent event) {
+        if (event.isFailed()) {
+            pendingChanges.abort();
+        } else {
+            pendingChanges.start();
+        }
+    }
+
+    /**
+     * Ricalcola tutte le statistiche quando viene caricato l'insieme dei
+     * contatti e vi riapplica le modifiche confermate durante la lettura.
+     * 
+     * @param event evento con tutti i contatti attivi
+     */
+    @EventListener
+    public void onContactsLoaded(ContactsLoadedEvent event) {
+        Map<Long, Counters> fresh = new ConcurrentHashMap<>();
+        Map<Long, Persona> read = new HashMap<>();
+        for (Persona persona : event.getContacts()) {
+            countersOf(fresh, persona).apply(persona, 1);
+            read.put(persona.getId(), persona);
+        }
+        pendingChanges.finish(change -> replay(fresh, read, change), () -> {
+            counters = fresh;
+            ready = true;
+        });
+    }
+
+    /**
+     * Aggiorna i contatori dopo l'inserimento, la modifica o l'eliminazione di una persona.
+     * 
+     * @param event evento con i dati della persona prima e dopo la modifica
+     */
+    @EventListener
+    public void onPersonaChanged(PersonaChangedEvent event) {
+        pendingChanges.record(event, change -> {
+            Map<Long, Counters> current = counters;
+            if (change.getBefore() != null) {
+                countersOf(current, change.getBefore()).apply(change.getBefore(), -1);
+            }
+            if (change.getAfter() != null) {
+                countersOf(current, change.getAfter()).apply(change.getAfter(), 1);
+            }
+        });
+    }
+
+    /**
+     * Riapplica ai nuovi contatori una modifica confermata durante la lettura,
+     * sostituendo lo stato del contatto compreso nella lettura con quello
+     * successivo alla modifica.
+     */
+    private static void replay(Map<Long, Counters> fresh, Map<Long, Persona> read, PersonaChangedEvent event) {
+        Persona after = event.getAfter();
+        Long id = after != null ? after.getId() : event.getBefore().getId();
+        Persona counted = after != null ? read.put(id, after) : read.remove(id);
+        if (counted != null) {
+            countersOf(fresh, counted).apply(counted, -1);
+        }
+        if (after != null) {
+            countersOf(fresh, after).apply(after, 1);
+        }
+    }
+
+    /**
+     * Restituisce le statistiche correnti della rubrica di un utente senza
+     * accedere al database.
+     * 
+     * @param ownerId ID dell'utente proprietario
+     * @return istantanea delle statistiche
+     */
+    public RubricaStatistics getStatistics(long ownerId) {
+        Counters owner = counters.get(ownerId);
+        return (owner != null ? owner : new Counters()).snapshot();
+    }
+
+    /**
+     * Verifica se le statistiche sono state calcolate almeno una volta.
+     * 
+     * @return {@code true} se le statistiche sono disponibili
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Restituisce i contatori della rubrica a cui appartiene una persona,
+     * creandoli se necessario.
+     */
+    private static Counters countersOf(Map<Long, Counters> counters, Persona persona) {
+        return counters.computeIfAbsent(persona.getOwnerId(), owner -> new Counters());
+    }
+
+    /**
+     * Classifica un numero di telefono in base al prefisso.
+     * 
+     * <p>I cellulari vengono raggruppati per prefisso dell'operatore (3xx).
+     * I fissi vengono raggruppati per prefisso di tre cifre (011 Torino,
+     * 010 Genova), tranne Milano (02) e Roma (06), gli unici distretti con
+     * prefisso di due cifre; i distretti con prefisso di quattro cifre
+     * restano raggruppati per le prime tre.</p>
+     * 
+     * @param telefono il numero di telefono
+     * @return il prefisso, o {@value #OTHER_PREFIX} se non riconoscibile
+     */
+    private static String phonePrefix(String telefono) {
+        if (telefono == null) {
+            return OTHER_PREFIX;
+        }
+        String number = telefono.replace(" ", "");
+        if (number.startsWith(ITALIAN_PREFIX)) {
+            number = number.substring(ITALIAN_PREFIX.length());
+        }
+        if (number.startsWith("3") && number.length() > 3) {
+            return number.substring(0, 3);
+        }
+        if (number.startsWith("02") || number.startsWith("06")) {
+            return number.substring(0, 2);
+        }
+        if (number.startsWith("0") && number.length() > 3) {
+            return number.substring(0, 3);
+        }
+        return OTHER_PREFIX;
+    }
+
+    /**
+     * Etichetta di una fascia dell'istogramma delle età.
+     * 
+     * @param bucket indice della fascia
+     * @return etichetta del tipo "20-29"
+     */
+    private static String ageLabel(int bucket) {
+        int from = bucket * AGE_BUCKET_WIDTH;
+        int to = bucket == AGE_BUCKETS - 1 ? 120 : from + AGE_BUCKET_WIDTH - 1;
+        return from + "-" + to;
+    }
+
+    /**
+     * Insieme dei contatori delle statistiche.
+     */
+    private static final class Counters {
+
+        private final LongAdder total = new LongAdder();
+
+        private final LongAdder withoutAddress = new LongAdder();
+
+        private final LongAdder withoutAge = new LongAdder();
+
+        private final LongAdder[] ages = new LongAdder[AGE_BUCKETS];
+
+        private final Map<String, LongAdder> prefixes = new ConcurrentHashMap<>();
+
+        Counters() {
+            for (int i = 0; i < ages.length; i++) {
+                ages[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Aggiunge o sottrae una persona da tutti i contatori.
+         * 
+         * @param persona la persona da conteggiare
+         * @param delta +1 per aggiungere, -1 per sottrarre
+         */
+        void apply(Persona persona, int delta) {
+            total.add(delta);
+            if (persona.getIndirizzo() == null || persona.getIndirizzo().isBlank()) {
+                withoutAddress.add(delta);
+            }
+            Integer eta = persona.getEta();
+            if (eta == null) {
+                withoutAge.add(delta);
+            } else {
+                ages[Math.min(Math.max(eta, 0) / AGE_BUCKET_WIDTH, AGE_BUCKETS - 1)].add(delta);
+            }
+            prefixes.computeIfAbsent(phonePrefix(persona.getTelefono()), key -> new LongAdder()).add(delta);
+        }
+
+        /**
+         * Legge i contatori e costruisce il DTO delle statistiche.
+         * 
+         * @return istantanea delle statistiche
+         */
+        RubricaStatistics snapshot() {
+            Map<String, Long> ageHistogram = new LinkedHashMap<>();
+            for (int i = 0; i < ages.length; i++) {
+                ageHistogram.put(ageLabel(i), ages[i].sum());
+            }
+            ageHistogram.put("n/d", withoutAge.sum());
+
+            long mobile = 0;
+            long landline = 0;
+            Map<String, Long> phonePrefixes = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : prefixes.entrySet()) {
+                long count = entry.getValue().sum();
+                if (count == 0) {
+                    continue;
+                }
+                phonePrefixes.put(entry.getKey(), count);
+                if (entry.getKey().startsWith("3")) {
+                    mobile += count;
+                } else if (entry.getKey().startsWith("0")) {
+                    landline += count;
+                }
+            }
+
+            return new RubricaStatistics(
+                total.sum(), withoutAddress.sum(), ageHistogram, mobile, landline, phonePrefixes);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.dynamicweb.rubrica.services;
+
+import com.dynamicweb.rubrica.components.IdGenerator;
+import com.dynamicweb.rubrica.dtos.PersonaChange;
+import com.dynamicweb.rubrica.dtos.SyncPage;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.repositories.SyncToken;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Regole della sincronizzazione incrementale, comuni a {@link PersonaService}
+ * e {@link ReactivePersonaService}.
+ *
+ * <p>Le versioni vengono assegnate prima del commit, quindi una transazione
+ * ancora aperta può confermare una versione minore di righe già lette. Dato
+ * che ogni scrittura termina entro il timeout delle transazioni, le versioni
+ * generate prima di quel margine sono definitive: all'inizio di una lettura
+ * viene fissata questa soglia e, quando la lettura arriva in fondo, il token
+ * successivo riparte dalla soglia invece che dall'ultima riga. Le modifiche
+ * più recenti della soglia vengono quindi inviate di nuovo alla lettura
+ * successiva, e il client le applica senza effetti.</p>
+ *
+ * <p>Le eliminazioni restano leggibili come tombstone per il periodo di
+ * conservazione di {@link PurgeService}: un token più vecchio riparte con una
+ * sincronizzazione completa, segnalata al client.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+final class SyncWindow {
+
+    /** Numero massimo di modifiche per pagina */
+    static final int MAX_SIZE = 2000;
+
+    private final Duration settleTime;
+
+    private final Duration retention;
+
+    /**
+     * Lettura richiesta da un client: posizione di partenza, soglia di
+     * stabilità e segnalazione di un token scaduto.
+     */
+    record Request(SyncToken from, long floor, boolean reset) {
+    }
+
+    /**
+     * Costruttore con i tempi della sincronizzazione.
+     *
+     * @param settleTime durata massima di una transazione di scrittura
+     * @param retention periodo di conservazione dei tombstone
+     */
+    SyncWindow(Duration settleTime, Duration retention) {
+        this.settleTime = settleTime;
+        this.retention = retention;
+    }
+
+    /**
+     * Interpreta il token ricevuto dal client.
+     *
+     * @param token token della richiesta precedente, null per una sincronizzazione completa
+     * @param size numero massimo di modifiche richieste
+     * @return la lettura da eseguire
+     * @throws IllegalArgumentException se il token o la dimensione non sono validi
+     */
+    Request start(String token, int size) {
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Dimensione pagina non valida: massimo " + MAX_SIZE + " modifiche");
+        }
+        SyncToken from = SyncToken.decode(token);
+        Instant now = Instant.now();
+        long age = from.isContinuation() ? from.floor() : from.versione();
+        boolean reset = age > 0 && age < IdGenerator.firstIdAt(now.minus(retention));
+        if (reset) {
+            from = SyncToken.START;
+        }
+        long floor = from.isContinuation() ? from.floor() : IdGenerator.firstIdAt(now.minus(settleTime));
+        return new Request(from, floor, reset);
+    }
+
+    /**
+     * Costruisce la pagina dalle modifiche lette.
+     *
+     * @param request la lettura eseguita
+     * @param changes modifiche in ordine di versione, al più una oltre la dimensione della pagina
+     * @param size dimensione della pagina
+     * @return pagina con il token per la richiesta successiva
+     */
+    SyncPage toPage(Request request, List<PersonaChange> changes, int size) {
+        boolean hasMore = changes.size() > size;
+        List<PersonaChange> page = hasMore ? changes.subList(0, size) : changes;
+        List<Persona> items = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        for (PersonaChange change : page) {
+            if (change.getPersona() != null) {
+                items.add(change.getPersona());
+            } else {
+                deleted.add(change.getId());
+            }
+        }
+        PersonaChange last = hasMore ? page.get(page.size() - 1) : null;
+        SyncToken next = last != null
+            ? new SyncToken(last.getVersione(), last.getId(), request.floor())
+            : new SyncToken(request.floor(), 0, 0);
+        return new SyncPage(items, deleted, next.encode(), hasMore, request.reset());
+    }
+}
@@ -1,9 +1,89 @@
+-- Creazione tabella utenti per MySQL (solo sul primo shard)
+CREATE TABLE IF NOT EXISTS utenti (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    username VARCHAR(50) NOT NULL,
+    -- Hash PBKDF2 della password nel formato pbkdf2$iterazioni$sale$hash (Base64)
+    password_hash VARCHAR(255) NOT NULL,
+    creato_il TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE INDEX idx_username (username)
+);
+
 -- Creazione tabella lista_contatti per MySQL
 CREATE TABLE IF NOT EXISTS lista_contatti (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    -- Utente proprietario della rubrica a cui appartiene il contatto
+    owner_id BIGINT NOT NULL,
     nome VARCHAR(100) NOT NULL,
     cognome VARCHAR(100) NOT NULL,
     telefono VARCHAR(20) NOT NULL,
     indirizzo VARCHAR(255) NULL,
-    eta INT NULL
+    eta INT NULL,
+    -- Istante di eliminazione logica, NULL per i contatti attivi
+    eliminato_il TIMESTAMP NULL,
+    -- Istante dell'ultima modifica (eliminazione compresa), per l'allineamento degli snapshot
+    modificato_il TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    -- Numero di sequenza dell'ultima modifica (eliminazione compresa), crescente,
+    -- per la sincronizzazione incrementale dei client
+    versione BIGINT NOT NULL DEFAULT 0,
+    -- Accesso per chiave all'interno della rubrica di un utente
+    INDEX idx_owner_id (owner_id, id),
+    -- Indici per ordinamento, filtri e paginazione keyset (colonna, id)
+    -- sui soli contatti attivi (eliminato_il IS NULL) di un utente
+    INDEX idx_cognome_id (owner_id, eliminato_il, cognome, id),
+    INDEX idx_nome_id (owner_id, eliminato_il, nome, id),
+    INDEX idx_eta_id (owner_id, eliminato_il, eta, id),
+    INDEX idx_telefono_id (owner_id, eliminato_il, telefono, id),
+    INDEX idx_modificato_il (modificato_il),
+    -- Modifiche di una rubrica in ordine di sequenza, per la sincronizzazione
+    INDEX idx_owner_versione (owner_id, versione, id)
+);
+
+-- Contatti rimossi definitivamente dalla pulizia: restano come tombstone con
+-- la versione dell'eliminazione, così che i client non ancora sincronizzati
+-- ricevano comunque l'eliminazione, fino alla scadenza della conservazione
+CREATE TABLE IF NOT EXISTS contatti_rimossi (
+    id BIGINT PRIMARY KEY,
+    owner_id BIGINT NOT NULL,
+    versione BIGINT NOT NULL,
+    INDEX idx_rimossi_owner_versione (owner_id, versione, id),
+    INDEX idx_rimossi_versione (versione)
+);
+
+-- Posizione del database tra gli shard (una riga per database), registrata alla
+-- prima configurazione. I contatti sono assegnati agli shard per hash dell'ID
+-- modulo il numero di shard: la ridistribuzione non è supportata, e una
+-- configurazione con un numero di shard diverso da quello registrato viene
+-- rifiutata. Per cambiarlo esportare i contatti e reimportarli su database vuoti
+CREATE TABLE IF NOT EXISTS shard_layout (
+    shard_index INT NOT NULL,
+    shard_count INT NOT NULL
 );
+
+-- Per tabelle già esistenti create senza indici, senza eliminazione logica o senza data di modifica:
+-- ALTER TABLE lista_contatti
+--     ADD COLUMN eliminato_il TIMESTAMP NULL,
+--     ADD COLUMN modificato_il TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+--     ADD INDEX idx_modificato_il (modificato_il);
+
+-- Per tabelle già esistenti senza proprietario: i contatti vengono assegnati
+-- all'utente con ID 1, l'amministratore creato al primo avvio
+-- ALTER TABLE lista_contatti
+--     ADD COLUMN owner_id BIGINT NOT NULL DEFAULT 1 AFTER id,
+--     ADD INDEX idx_owner_id (owner_id, id),
+--     DROP INDEX idx_cognome_id, ADD INDEX idx_cognome_id (owner_id, eliminato_il, cognome, id),
+--     DROP INDEX idx_nome_id, ADD INDEX idx_nome_id (owner_id, eliminato_il, nome, id),
+--     DROP INDEX idx_eta_id, ADD INDEX idx_eta_id (owner_id, eliminato_il, eta, id),
+--     DROP INDEX idx_telefono_id, ADD INDEX idx_telefono_id (owner_id, eliminato_il, telefono, id);
+
+-- Per tabelle già esistenti senza versione: le righe esistenti hanno versione 0
+-- e vengono inviate alla prima sincronizzazione completa di ogni client
+-- ALTER TABLE lista_contatti
+--     ADD COLUMN versione BIGINT NOT NULL DEFAULT 0,
+--     ADD INDEX idx_owner_versione (owner_id, versione, id);
+
+-- Partizionamento opzionale per proprietario (solo MySQL): ogni rubrica resta
+-- in una sola partizione. MySQL richiede che la chiave di partizionamento sia
+-- parte di ogni chiave univoca, quindi la chiave primaria diventa (id, owner_id)
+-- ALTER TABLE lista_contatti
+--     DROP PRIMARY KEY, ADD PRIMARY KEY (id, owner_id),
+--     PARTITION BY KEY (owner_id) PARTITIONS 16;
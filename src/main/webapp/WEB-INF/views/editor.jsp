@@ -6,8 +6,8 @@
     <meta charset="UTF-8">
     <meta name="viewport" content="width=device-width, initial-scale=1.0">
     <title>Editor Persona</title>
-    <link href="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css" rel="stylesheet">
-    <link href="https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.0.0/css/all.min.css" rel="stylesheet">
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
+    <link href="<c:url value="/vendor/font-awesome/6.0.0/css/all.min.css"/>" rel="stylesheet">
 </head>
 <body>
     <div class="container mt-5">
@@ -75,6 +75,6 @@
             </div>
         </div>
     </div>
-    <script src="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js"></script>
+    <script src="<c:url value="/vendor/bootstrap/5.3.0/js/bootstrap.bundle.min.js"/>"></script>
 </body>
 </html>
@@ -7,7 +7,7 @@
     <meta charset="UTF-8">
     <meta name="viewport" content="width=device-width, initial-scale=1.0">
     <title>Database Config</title>
-    <link href="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css" rel="stylesheet">
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
 </head>
 <body>
     <div class="container mt-4">
@@ -29,11 +29,20 @@
                         <form:form action="${pageContext.request.contextPath}/configure" 
                                   method="post" modelAttribute="config">
                             <div class="mb-3">
+                                <label for="mode" class="form-label">Motore</label>
+                                <form:select class="form-select" id="mode" path="mode">
+                                    <form:option value="MYSQL">MySQL</form:option>
+                                    <form:option value="H2_MEMORY">Embedded in memoria (H2)</form:option>
+                                    <form:option value="H2_FILE">Embedded su file (H2)</form:option>
+                                </form:select>
+                            </div>
+
+                            <div class="mb-3 server-field">
                                 <label for="host" class="form-label">Host</label>
                                 <form:input type="text" class="form-control" id="host" path="host" required="true"/>
                             </div>
                             
-                            <div class="mb-3">
+                            <div class="mb-3 server-field">
                                 <label for="port" class="form-label">Porta</label>
                                 <form:input type="number" class="form-control" id="port" path="port" value="1" min="1" max="65535"/>
                             </div>
@@ -53,6 +62,22 @@
                                 <form:input type="password" class="form-control" id="password" path="password" required="true"/>
                             </div>
                             
+                            <div class="mb-3">
+                                <label for="shards" class="form-label">Shard aggiuntivi (opzionale)</label>
+                                <form:input type="text" class="form-control" id="shards" path="shards" placeholder="rubrica_2, host2:3306/rubrica_3"/>
+                                <div class="form-text">Database separati da virgola su cui distribuire i contatti, nel formato [host[:porta]/]nome.</div>
+                            </div>
+
+                            <div class="mb-3 form-check">
+                                <form:checkbox class="form-check-input" id="cachePrepStmts" path="cachePrepStmts"/>
+                                <label for="cachePrepStmts" class="form-check-label">Cache degli statement preparati</label>
+                            </div>
+
+                            <div class="mb-3 form-check server-field">
+                                <form:checkbox class="form-check-input" id="useServerPrepStmts" path="useServerPrepStmts"/>
+                                <label for="useServerPrepStmts" class="form-check-label">Statement preparati sul server MySQL</label>
+                            </div>
+
                             <button type="submit" class="btn btn-primary">Procedi</button>
                         </form:form>
                     </div>
@@ -60,5 +85,16 @@
             </div>
         </div>
     </div>
+    <script>
+        // Host e porta servono solo per MySQL
+        const modeSelect = document.getElementById('mode');
+        function toggleServerFields() {
+            const embedded = modeSelect.value !== 'MYSQL';
+            document.querySelectorAll('.server-field').forEach(el => el.classList.toggle('d-none', embedded));
+            document.getElementById('host').required = !embedded;
+        }
+        modeSelect.addEventListener('change', toggleServerFields);
+        toggleServerFields();
+    </script>
 </body>
 </html>
@@ -0,0 +1,68 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
+<!DOCTYPE html>
+<html lang="it">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Rubrica - Flight Recorder</title>
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
+</head>
+<body>
+    <div class="container mt-4">
+        <div class="d-flex justify-content-between align-items-center mb-3">
+            <h1>Flight Recorder</h1>
+            <a href="${pageContext.request.contextPath}/lista" class="btn btn-secondary">Torna alla lista</a>
+        </div>
+
+        <c:if test="${not empty successMessage}">
+            <div class="alert alert-success" role="alert"><c:out value="${successMessage}"/></div>
+        </c:if>
+        <c:if test="${not empty errorMessage}">
+            <div class="alert alert-danger" role="alert"><c:out value="${errorMessage}"/></div>
+        </c:if>
+
+        <p class="text-muted">
+            <c:choose>
+                <c:when test="${recording}">
+                    Registrazione in corso dalle <fmt:formatDate value="${startedAt}" pattern="HH:mm:ss"/>.
+                </c:when>
+                <c:otherwise>
+                    Nessuna registrazione in corso.
+                </c:otherwise>
+            </c:choose>
+            I file vengono salvati in <code><c:out value="${directory}"/></code>.
+        </p>
+
+        <div class="d-flex gap-2 mb-4">
+            <form method="post" action="${pageContext.request.contextPath}/admin/jfr/avvia">
+                <button type="submit" class="btn btn-primary" ${recording ? 'disabled' : ''}>Avvia</button>
+            </form>
+            <form method="post" action="${pageContext.request.contextPath}/admin/jfr/salva">
+                <button type="submit" class="btn btn-outline-primary" ${recording ? '' : 'disabled'}>Salva</button>
+            </form>
+            <form method="post" action="${pageContext.request.contextPath}/admin/jfr/ferma">
+                <button type="submit" class="btn btn-outline-danger" ${recording ? '' : 'disabled'}>Salva e ferma</button>
+            </form>
+        </div>
+
+        <table class="table table-sm table-striped w-auto">
+            <thead>
+                <tr>
+                    <th scope="col">Evento</th>
+                    <th scope="col" class="text-end">Soglia (ms)</th>
+                </tr>
+            </thead>
+            <tbody>
+                <c:forEach var="threshold" items="${thresholds}">
+                    <tr>
+                        <td><code>${threshold.key}</code></td>
+                        <td class="text-end">${threshold.value}</td>
+                    </tr>
+                </c:forEach>
+            </tbody>
+        </table>
+    </div>
+</body>
+</html>
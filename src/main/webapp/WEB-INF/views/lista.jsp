@@ -6,8 +6,8 @@
     <meta charset="UTF-8">
     <meta name="viewport" content="width=device-width, initial-scale=1.0">
     <title>Rubrica</title>
-    <link href="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css" rel="stylesheet">
-    <link href="https://cdnjs.cloudflare.com/ajax/libs/font-awesome/6.0.0/css/all.min.css" rel="stylesheet">
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
+    <link href="<c:url value="/vendor/font-awesome/6.0.0/css/all.min.css"/>" rel="stylesheet">
 </head>
 <body>
     <div class="container mt-4">
@@ -17,6 +17,16 @@
         <c:if test="${not empty successMessage}">
             <div class="alert alert-success alert-dismissible fade show" role="alert">
                 <i class="fas fa-check-circle"></i> ${successMessage}
+                <%-- Annullamento dell'eliminazione, possibile fino alla pulizia periodica --%>
+                <c:if test="${not empty undoIds}">
+                    <form method="post" action="${pageContext.request.contextPath}/ripristina" class="d-inline ms-2">
+                        <c:forEach var="undoId" items="${undoIds}">
+                            <input type="hidden" name="ids" value="${undoId}">
+                        </c:forEach>
+                        <button type="submit" class="btn btn-sm btn-outline-success">Annulla</button>
+                        <small class="text-muted">entro ${undoMinutes} min</small>
+                    </form>
+                </c:if>
                 <button type="button" class="btn-close" data-bs-dismiss="alert" aria-label="Close"></button>
             </div>
         </c:if>
@@ -30,10 +40,104 @@
         </c:if>
 
         <a href="${pageContext.request.contextPath}/editor" class="btn btn-primary mb-3">Nuovo</a>
+        <a href="${pageContext.request.contextPath}/stampa" class="btn btn-outline-secondary mb-3">Stampa tutti</a>
+        <a href="${pageContext.request.contextPath}/statistiche" class="btn btn-outline-secondary mb-3">Statistiche</a>
+
+        <!-- Filtri e ordinamento eseguiti lato server -->
+        <form method="get" action="${pageContext.request.contextPath}/lista" class="row g-2 align-items-end mb-3">
+            <div class="col-auto">
+                <label for="filtroCognome" class="form-label small mb-0">Cognome inizia con</label>
+                <input type="text" id="filtroCognome" name="cognome" value="${query.cognome}" class="form-control form-control-sm">
+            </div>
+            <div class="col-auto">
+                <label for="filtroEtaMin" class="form-label small mb-0">Età da</label>
+                <input type="number" id="filtroEtaMin" name="etaMin" value="${query.etaMin}" min="0" max="120" class="form-control form-control-sm">
+            </div>
+            <div class="col-auto">
+                <label for="filtroEtaMax" class="form-label small mb-0">Età a</label>
+                <input type="number" id="filtroEtaMax" name="etaMax" value="${query.etaMax}" min="0" max="120" class="form-control form-control-sm">
+            </div>
+            <div class="col-auto">
+                <label for="filtroTelefono" class="form-label small mb-0">Telefono inizia con</label>
+                <input type="text" id="filtroTelefono" name="telefono" value="${query.telefono}" class="form-control form-control-sm">
+            </div>
+            <div class="col-auto">
+                <label for="ordinamento" class="form-label small mb-0">Ordina per</label>
+                <select id="ordinamento" name="sort" class="form-select form-select-sm">
+                    <c:forEach var="key" items="${sortKeys}">
+                        <option value="${key}" ${query.sortOrDefault == key ? 'selected' : ''}>${key.column}</option>
+                    </c:forEach>
+                </select>
+            </div>
+            <div class="col-auto form-check ms-2">
+                <input type="checkbox" id="decrescente" name="descending" value="true" class="form-check-input" ${query.descending ? 'checked' : ''}>
+                <label for="decrescente" class="form-check-label small">Decrescente</label>
+            </div>
+            <div class="col-auto">
+                <button type="submit" class="btn btn-sm btn-outline-primary"><i class="fas fa-filter"></i> Applica</button>
+                <a href="${pageContext.request.contextPath}/lista" class="btn btn-sm btn-link">Azzera</a>
+            </div>
+        </form>
+
+        <!-- Ricerca approssimata: tollera errori di battitura e accenti mancanti -->
+        <form method="get" action="${pageContext.request.contextPath}/cerca" class="row g-2 align-items-end mb-3">
+            <div class="col-auto">
+                <label for="ricerca" class="form-label small mb-0">Nome o cognome simile a</label>
+                <input type="text" id="ricerca" name="q" value="<c:out value="${searchText}"/>" class="form-control form-control-sm">
+            </div>
+            <div class="col-auto">
+                <button type="submit" class="btn btn-sm btn-outline-primary"><i class="fas fa-search"></i> Cerca</button>
+            </div>
+        </form>
+        <c:if test="${not empty searchText}">
+            <p class="text-muted small">Risultati simili a &quot;<c:out value="${searchText}"/>&quot;, dal più vicino</p>
+        </c:if>
+
+        <!-- Schede A-Z dell'ordine alfabetico: ogni lettera riparte dal primo cognome con quell'iniziale -->
+        <c:if test="${not empty letterJumps}">
+            <nav aria-label="Iniziale del cognome">
+                <ul class="pagination pagination-sm flex-wrap mb-3">
+                    <c:forEach var="jump" items="${letterJumps}">
+                        <c:url var="letterUrl" value="/lista">
+                            <c:param name="lettera" value="${jump.letter}"/>
+                            <c:param name="size" value="${query.size}"/>
+                        </c:url>
+                        <li class="page-item ${jump.count == 0 ? 'disabled' : ''} ${empty query.after and query.lettera == jump.letter ? 'active' : ''}">
+                            <a class="page-link" href="${letterUrl}" title="${jump.count} contatti dalla posizione ${jump.offset + 1}">${jump.letter}</a>
+                        </li>
+                    </c:forEach>
+                </ul>
+            </nav>
+        </c:if>
+
+        <!-- Form per le operazioni sulle persone selezionate -->
+        <form id="bulkForm" method="post" action="${pageContext.request.contextPath}/elimina">
+        <div class="d-flex flex-wrap gap-2 align-items-center mb-3">
+            <button type="submit" class="btn btn-danger btn-sm"
+                    formaction="${pageContext.request.contextPath}/elimina"
+                    onclick="return confirm('Eliminare i contatti selezionati?')">
+                <i class="fas fa-trash"></i> Elimina selezionati
+            </button>
+            <select name="field" class="form-select form-select-sm w-auto" aria-label="Campo da aggiornare">
+                <option value="indirizzo">Indirizzo</option>
+                <option value="telefono">Telefono</option>
+                <option value="eta">Età</option>
+                <option value="nome">Nome</option>
+                <option value="cognome">Cognome</option>
+            </select>
+            <input type="text" name="value" class="form-control form-control-sm w-auto" placeholder="Nuovo valore">
+            <button type="submit" class="btn btn-secondary btn-sm"
+                    formaction="${pageContext.request.contextPath}/aggiorna">
+                <i class="fas fa-pen"></i> Aggiorna selezionati
+            </button>
+        </div>
 
         <table class="table table-striped table-hover">
             <thead class="table-dark">
                 <tr>
+                    <th scope="col" class="text-center">
+                        <input type="checkbox" class="form-check-input" id="selectAll" aria-label="Seleziona tutti">
+                    </th>
                     <th scope="col">ID</th>
                     <th scope="col">Nome</th>
                     <th scope="col">Cognome</th>
@@ -48,6 +152,9 @@
                 <c:if test="${not empty listPerson}">
                     <c:forEach var="persona" items="${listPerson}">
                         <tr>
+                            <td class="text-center">
+                                <input type="checkbox" class="form-check-input row-select" name="ids" value="${persona.id}">
+                            </td>
                             <td class="fw-bold">${persona.id}</td>
                             <td>${persona.nome}</td>
                             <td>${persona.cognome}</td>
@@ -72,12 +179,48 @@
                 </c:if>
                 <c:if test="${empty listPerson}">
                     <tr>
-                        <td colspan="8" class="text-center text-muted">Nessun contatto presente</td>
+                        <td colspan="9" class="text-center text-muted">Nessun contatto presente</td>
                     </tr>
                 </c:if>
             </tbody>
         </table>
+        </form>
+
+        <!-- Paginazione keyset: la pagina successiva riparte dall'ultima riga mostrata -->
+        <div class="d-flex gap-2 mb-4">
+            <c:if test="${not empty query.after}">
+                <c:url var="firstPageUrl" value="/lista">
+                    <c:param name="sort" value="${query.sortOrDefault}"/>
+                    <c:param name="descending" value="${query.descending}"/>
+                    <c:param name="cognome" value="${query.cognome}"/>
+                    <c:param name="etaMin" value="${query.etaMin}"/>
+                    <c:param name="etaMax" value="${query.etaMax}"/>
+                    <c:param name="telefono" value="${query.telefono}"/>
+                    <c:param name="size" value="${query.size}"/>
+                </c:url>
+                <a href="${firstPageUrl}" class="btn btn-sm btn-outline-secondary">Prima pagina</a>
+            </c:if>
+            <c:if test="${not empty nextCursor}">
+                <c:url var="nextPageUrl" value="/lista">
+                    <c:param name="sort" value="${query.sortOrDefault}"/>
+                    <c:param name="descending" value="${query.descending}"/>
+                    <c:param name="cognome" value="${query.cognome}"/>
+                    <c:param name="etaMin" value="${query.etaMin}"/>
+                    <c:param name="etaMax" value="${query.etaMax}"/>
+                    <c:param name="telefono" value="${query.telefono}"/>
+                    <c:param name="size" value="${query.size}"/>
+                    <c:param name="after" value="${nextCursor}"/>
+                </c:url>
+                <a href="${nextPageUrl}" class="btn btn-sm btn-outline-primary">Pagina successiva</a>
+            </c:if>
+        </div>
     </div>
-    <script src="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/js/bootstrap.bundle.min.js"></script>
+    <script src="<c:url value="/vendor/bootstrap/5.3.0/js/bootstrap.bundle.min.js"/>"></script>
+    <script>
+        // Seleziona o deseleziona tutte le righe
+        document.getElementById('selectAll').addEventListener('change', function () {
+            document.querySelectorAll('.row-select').forEach(cb => cb.checked = this.checked);
+        });
+    </script>
 </body>
 </html>
\ No newline at end of file
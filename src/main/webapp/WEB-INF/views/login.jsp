@@ -6,7 +6,7 @@
     <meta charset="UTF-8">
     <meta name="viewport" content="width=device-width, initial-scale=1.0">
     <title>Login</title>
-    <link href="https://cdn.jsdelivr.net/npm/bootstrap@5.3.0/dist/css/bootstrap.min.css" rel="stylesheet">
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
 </head>
 <body>
     <div class="container mt-4">
@@ -18,6 +18,9 @@
                 <c:if test="${not empty errorMessage}">
                     <div class="alert alert-danger">${errorMessage}</div>
                 </c:if>
+                <c:if test="${not empty successMessage}">
+                    <div class="alert alert-success">${successMessage}</div>
+                </c:if>
 
                 <!-- Card per il modulo di login -->
                 <div class="card">
@@ -39,6 +42,9 @@
                         </form>
                     </div>
                 </div>
+                <p class="mt-3 text-center">
+                    Non hai un account? <a href="<c:url value="/registrazione"/>">Registrati</a>
+                </p>
             </div>
         </div>
     </div>
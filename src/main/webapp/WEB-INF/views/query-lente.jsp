@@ -0,0 +1,57 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
+<!DOCTYPE html>
+<html lang="it">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Rubrica - Query lente</title>
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
+</head>
+<body>
+    <div class="container mt-4">
+        <div class="d-flex justify-content-between align-items-center mb-3">
+            <h1>Query lente</h1>
+            <a href="${pageContext.request.contextPath}/lista" class="btn btn-secondary">Torna alla lista</a>
+        </div>
+
+        <p class="text-muted">
+            Istruzioni oltre ${thresholdMillis} ms registrate dall'avvio: ${totalRecorded}.
+            Vengono mostrate le più recenti, dalla più nuova.
+        </p>
+
+        <table class="table table-sm table-striped">
+            <thead>
+                <tr>
+                    <th scope="col">#</th>
+                    <th scope="col">Ora</th>
+                    <th scope="col" class="text-end">Durata (ms)</th>
+                    <th scope="col" class="text-end">Righe</th>
+                    <th scope="col" class="text-end">Parametri</th>
+                    <th scope="col">SQL</th>
+                </tr>
+            </thead>
+            <tbody>
+                <c:forEach var="query" items="${slowQueries}">
+                    <jsp:useBean id="executedAt" class="java.util.Date"/>
+                    <jsp:setProperty name="executedAt" property="time" value="${query.timestamp}"/>
+                    <tr>
+                        <td>${query.sequence}</td>
+                        <td><fmt:formatDate value="${executedAt}" pattern="HH:mm:ss.SSS"/></td>
+                        <td class="text-end"><fmt:formatNumber value="${query.durationMicros / 1000}" maxFractionDigits="1"/></td>
+                        <td class="text-end">${query.rows}</td>
+                        <td class="text-end">${query.bindCount}</td>
+                        <td><code><c:out value="${query.sql}"/></code></td>
+                    </tr>
+                </c:forEach>
+                <c:if test="${empty slowQueries}">
+                    <tr>
+                        <td colspan="6" class="text-center text-muted">Nessuna istruzione lenta registrata</td>
+                    </tr>
+                </c:if>
+            </tbody>
+        </table>
+    </div>
+</body>
+</html>
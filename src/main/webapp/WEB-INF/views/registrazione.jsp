@@ -0,0 +1,52 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<!DOCTYPE html>
+<html lang="it">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Registrazione</title>
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
+</head>
+<body>
+    <div class="container mt-4">
+        <div class="row justify-content-center">
+            <div class="col-md-4">
+                <h4>Registrazione</h4>
+                
+                <!-- Messaggi -->
+                <c:if test="${not empty errorMessage}">
+                    <div class="alert alert-danger"><c:out value="${errorMessage}"/></div>
+                </c:if>
+
+                <!-- Card per il modulo di registrazione -->
+                <div class="card">
+                    <div class="card-body">
+                        <form action="${pageContext.request.contextPath}/registrazione" method="post">
+                            <div class="mb-3">
+                                <label for="username" class="form-label">Username</label>
+                                <input type="text" class="form-control" id="username" name="username" 
+                                       placeholder="Scegli uno username" pattern="[a-zA-Z0-9._\-]{3,50}" 
+                                       value="<c:out value="${username}"/>" required>
+                                <div class="form-text">Da 3 a 50 caratteri: lettere, cifre, punto, trattino, underscore</div>
+                            </div>
+                            
+                            <div class="mb-3">
+                                <label for="password" class="form-label">Password</label>
+                                <input type="password" class="form-control" id="password" name="password" 
+                                       placeholder="Scegli una password" minlength="8" maxlength="128" required>
+                                <div class="form-text">Almeno 8 caratteri</div>
+                            </div>
+                            
+                            <button type="submit" class="btn btn-primary">Registrati</button>
+                        </form>
+                    </div>
+                </div>
+                <p class="mt-3 text-center">
+                    Hai già un account? <a href="<c:url value="/login"/>">Accedi</a>
+                </p>
+            </div>
+        </div>
+    </div>
+</body>
+</html>
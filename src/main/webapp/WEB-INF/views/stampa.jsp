@@ -0,0 +1,50 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<!DOCTYPE html>
+<html lang="it">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Rubrica - Stampa</title>
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
+</head>
+<body>
+    <div class="container mt-4">
+        <div class="d-flex justify-content-between align-items-center mb-4 d-print-none">
+            <h1>Tutti i contatti</h1>
+            <div>
+                <a href="${pageContext.request.contextPath}/lista" class="btn btn-secondary">Torna alla lista</a>
+                <button type="button" class="btn btn-primary" onclick="window.print()">Stampa</button>
+            </div>
+        </div>
+
+        <table class="table table-sm table-bordered">
+            <thead>
+                <tr>
+                    <th scope="col">ID</th>
+                    <th scope="col">Nome</th>
+                    <th scope="col">Cognome</th>
+                    <th scope="col">Indirizzo</th>
+                    <th scope="col">Telefono</th>
+                    <th scope="col">Età</th>
+                </tr>
+            </thead>
+            <tbody>
+                <%-- Invia subito l'intestazione, poi le righe a blocchi man mano che arrivano dal cursore --%>
+                ${pageContext.out.flush()}
+                <c:forEach var="persona" items="${personCursor.iterator()}" varStatus="status">
+                    <tr>
+                        <td>${persona.id}</td>
+                        <td>${persona.nome}</td>
+                        <td>${persona.cognome}</td>
+                        <td>${persona.indirizzo}</td>
+                        <td>${persona.telefono}</td>
+                        <td>${persona.eta}</td>
+                    </tr>
+                    <c:if test="${status.count % 200 == 0}">${pageContext.out.flush()}</c:if>
+                </c:forEach>
+            </tbody>
+        </table>
+    </div>
+</body>
+</html>
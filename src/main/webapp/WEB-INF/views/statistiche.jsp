@@ -0,0 +1,96 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib prefix="c" uri="jakarta.tags.core" %>
+<%@ taglib prefix="fmt" uri="jakarta.tags.fmt" %>
+<!DOCTYPE html>
+<html lang="it">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Rubrica - Statistiche</title>
+    <link href="<c:url value="/vendor/bootstrap/5.3.0/css/bootstrap.min.css"/>" rel="stylesheet">
+    <link href="<c:url value="/vendor/font-awesome/6.0.0/css/all.min.css"/>" rel="stylesheet">
+</head>
+<body>
+    <div class="container mt-4">
+        <div class="d-flex justify-content-between align-items-center mb-4">
+            <h1>Statistiche</h1>
+            <a href="${pageContext.request.contextPath}/lista" class="btn btn-secondary">Torna alla lista</a>
+        </div>
+
+        <c:if test="${not statsReady}">
+            <div class="alert alert-warning" role="alert">
+                <i class="fas fa-hourglass-half"></i> Statistiche non ancora calcolate.
+            </div>
+        </c:if>
+
+        <div class="row g-3 mb-4">
+            <div class="col-md-3">
+                <div class="card text-center"><div class="card-body">
+                    <div class="text-muted small">Contatti</div>
+                    <div class="fs-3">${stats.total}</div>
+                </div></div>
+            </div>
+            <div class="col-md-3">
+                <div class="card text-center"><div class="card-body">
+                    <div class="text-muted small">Senza indirizzo</div>
+                    <div class="fs-3">${stats.withoutAddress}
+                        <span class="fs-6 text-muted">(<fmt:formatNumber value="${stats.withoutAddressPercent}" maxFractionDigits="1"/>%)</span>
+                    </div>
+                </div></div>
+            </div>
+            <div class="col-md-3">
+                <div class="card text-center"><div class="card-body">
+                    <div class="text-muted small">Cellulari</div>
+                    <div class="fs-3">${stats.mobile}</div>
+                </div></div>
+            </div>
+            <div class="col-md-3">
+                <div class="card text-center"><div class="card-body">
+                    <div class="text-muted small">Fissi</div>
+                    <div class="fs-3">${stats.landline}</div>
+                </div></div>
+            </div>
+        </div>
+
+        <div class="row g-4">
+            <div class="col-md-6">
+                <h2 class="h5">Età</h2>
+                <table class="table table-sm">
+                    <tbody>
+                        <c:forEach var="bucket" items="${stats.ageHistogram}">
+                            <tr>
+                                <td class="w-25">${bucket.key}</td>
+                                <td>
+                                    <div class="progress" role="progressbar" aria-label="${bucket.key}">
+                                        <div class="progress-bar" style="width: ${stats.total == 0 ? 0 : bucket.value * 100 / stats.total}%"></div>
+                                    </div>
+                                </td>
+                                <td class="text-end w-25">${bucket.value}</td>
+                            </tr>
+                        </c:forEach>
+                    </tbody>
+                </table>
+            </div>
+            <div class="col-md-6">
+                <h2 class="h5">Prefissi telefonici</h2>
+                <table class="table table-sm">
+                    <thead>
+                        <tr>
+                            <th scope="col">Prefisso</th>
+                            <th scope="col" class="text-end">Contatti</th>
+                        </tr>
+                    </thead>
+                    <tbody>
+                        <c:forEach var="prefix" items="${stats.phonePrefixes}">
+                            <tr>
+                                <td>${prefix.key}</td>
+                                <td class="text-end">${prefix.value}</td>
+                            </tr>
+                        </c:forEach>
+                    </tbody>
+                </table>
+            </div>
+        </div>
+    </div>
+</body>
+</html>
@@ -0,0 +1,59 @@
+package com.dynamicweb.rubrica.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Test della segnalazione degli esiti di {@link RequestOutcomeInterceptor}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class RequestOutcomeInterceptorTest {
+
+    private final RequestOutcomeInterceptor interceptor = new RequestOutcomeInterceptor();
+
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void redirectWithErrorFlashIsReported() {
+        FlashMap output = new FlashMap();
+        output.put("errorMessage", "Errore durante l'eliminazione della persona!");
+        request.setAttribute(DispatcherServlet.OUTPUT_FLASH_MAP_ATTRIBUTE, output);
+
+        interceptor.postHandle(request, response, null, new ModelAndView("redirect:/lista"));
+
+        assertEquals(RequestOutcomeInterceptor.ERROR, response.getHeader(RequestOutcomeInterceptor.OUTCOME));
+    }
+
+    @Test
+    void viewWithErrorMessageIsReported() {
+        request.setAttribute(DispatcherServlet.OUTPUT_FLASH_MAP_ATTRIBUTE, new FlashMap());
+
+        interceptor.postHandle(request, response, null,
+            new ModelAndView("editor", Map.of("errorMessage", "Errore durante il salvataggio della persona!")));
+
+        assertEquals(RequestOutcomeInterceptor.ERROR, response.getHeader(RequestOutcomeInterceptor.OUTCOME));
+    }
+
+    @Test
+    void errorReceivedFromPreviousRequestIsNotReported() {
+        String message = "Errore durante l'eliminazione della persona!";
+        request.setAttribute(DispatcherServlet.OUTPUT_FLASH_MAP_ATTRIBUTE, new FlashMap());
+        request.setAttribute(DispatcherServlet.INPUT_FLASH_MAP_ATTRIBUTE, Map.of("errorMessage", message));
+
+        interceptor.postHandle(request, response, null, new ModelAndView("lista", Map.of("errorMessage", message)));
+
+        assertNull(response.getHeader(RequestOutcomeInterceptor.OUTCOME));
+    }
+}
@@ -0,0 +1,101 @@
+package com.dynamicweb.rubrica.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dynamicweb.rubrica.components.RequestTimer.Phase;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Test delle fasi misurate dal {@link RequestTimer} sulle letture di
+ * {@link ShardRouter} su tutti gli shard.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class ShardRouterTest {
+
+    private static final long QUERY_MILLIS = 30;
+
+    private ShardRouter router;
+
+    @AfterEach
+    void tearDown() {
+        RequestTimer.stop();
+        if (router != null) {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    void singleShardReadIsTimedOnTheRequestThread() {
+        router = router(1);
+        RequestTimer.start();
+
+        assertEquals(List.of(0), router.onEachShard(timedQuery()));
+
+        assertTrue(RequestTimer.elapsed(Phase.QUERY) >= TimeUnit.MILLISECONDS.toNanos(QUERY_MILLIS));
+    }
+
+    @Test
+    void parallelShardReadsAreReportedOnTheRequest() {
+        router = router(3);
+        RequestTimer.start();
+
+        assertEquals(List.of(0, 1, 2), router.onEachShard(timedQuery()));
+
+        // Le letture sono parallele: conta la più lenta, non la somma delle tre
+        long query = RequestTimer.elapsed(Phase.QUERY);
+        assertTrue(query >= TimeUnit.MILLISECONDS.toNanos(QUERY_MILLIS), "query: " + query);
+        assertTrue(query <= RequestTimer.total(), "query: " + query);
+        assertTrue(RequestTimer.elapsed(Phase.MAPPING) > 0);
+    }
+
+    @Test
+    void unsampledRequestIsNotTimed() {
+        router = router(3);
+        // Azzera le durate lasciate sul thread dai test precedenti
+        RequestTimer.start();
+        RequestTimer.stop();
+
+        router.onEachShard(timedQuery());
+
+        assertEquals(0, RequestTimer.elapsed(Phase.QUERY));
+    }
+
+    private static ShardRouter router(int shards) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(new DriverManagerDataSource());
+        routing.configure(Stream.generate(DriverManagerDataSource::new).limit(shards).toList());
+        return new ShardRouter(routing);
+    }
+
+    /**
+     * Lettura che misura una query e una mappatura sul thread che la esegue
+     * e restituisce lo shard corrente.
+     */
+    private static Supplier<Integer> timedQuery() {
+        return () -> {
+            long start = RequestTimer.begin();
+            pause(QUERY_MILLIS);
+            RequestTimer.end(Phase.QUERY, start);
+            long mapping = RequestTimer.begin();
+            pause(1);
+            RequestTimer.end(Phase.MAPPING, mapping);
+            return ShardRouter.currentShard();
+        };
+    }
+
+    private static void pause(long millis) {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (long left = end - System.nanoTime(); left > 0; left = end - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+}
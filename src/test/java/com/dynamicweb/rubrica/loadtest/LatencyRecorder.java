@@ -0,0 +1,73 @@
+package com.dynamicweb.rubrica.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Raccoglie le latenze di una singola rotta durante un test di carico.
+ *
+ * <p>Le latenze sono memorizzate in nanosecondi in un array che cresce
+ * dinamicamente; i percentili vengono calcolati con il metodo nearest-rank
+ * su una copia ordinata al termine del test.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+
+    private int count;
+
+    private int errors;
+
+    /**
+     * Registra l'esito di una richiesta.
+     *
+     * @param latencyNanos latenza misurata dall'istante di arrivo pianificato
+     * @param success true se la risposta è considerata corretta
+     */
+    synchronized void record(long latencyNanos, boolean success) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    /**
+     * @return numero di richieste completate
+     */
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @return numero di richieste fallite
+     */
+    synchronized int errors() {
+        return errors;
+    }
+
+    /**
+     * Calcola i percentili richiesti in millisecondi.
+     *
+     * @param percentiles percentili da calcolare (es. 50.0, 99.0, 99.9)
+     * @return valori in millisecondi nello stesso ordine, 0 se nessun campione
+     */
+    synchronized double[] percentilesMillis(double... percentiles) {
+        double[] result = new double[percentiles.length];
+        if (count == 0) {
+            return result;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        for (int i = 0; i < percentiles.length; i++) {
+            int rank = (int) Math.ceil(percentiles[i] / 100.0 * count);
+            int index = Math.min(Math.max(rank, 1), count) - 1;
+            result[i] = sorted[index] / 1_000_000.0;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,356 @@
+package com.dynamicweb.rubrica.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dynamicweb.rubrica.components.RequestOutcomeInterceptor;
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.repositories.PersonaRepository;
+import com.dynamicweb.rubrica.services.AuthService;
+import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
+import com.dynamicweb.rubrica.services.SnapshotService;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/**
+ * Generatore di carico per l'applicazione avviata con un database H2 embedded.
+ *
+ * <p>Il test avvia l'applicazione su una porta casuale, crea lo schema da
+ * {@code schema_database.sql}, inserisce un insieme di contatti iniziali e
+ * genera traffico su {@code /login}, {@code /lista}, {@code /editor/{id}},
+ * {@code /salva} e {@code /elimina/{id}} con sessioni autenticate.</p>
+ *
+ * <p>Gli arrivi seguono un modello aperto: gli istanti di arrivo sono estratti
+ * da un processo di Poisson indipendentemente dal completamento delle richieste
+ * precedenti, e la latenza viene misurata dall'istante pianificato per evitare
+ * la coordinated omission.</p>
+ *
+ * <p>Il test è disabilitato di default e si esegue con:</p>
+ * <pre>
+ * mvn test -Dtest=LoadTestHarness -Dloadtest=true [-Dloadtest.rate=200] [-Dloadtest.duration=30]
+ *     [-Dloadtest.warmup=5]
+ *     [-Dloadtest.mix=lista=50,editor=25,salva=15,elimina=5,login=5] [-Dloadtest.sessions=50]
+ *     [-Dloadtest.seed=1000] [-Dloadtest.baseline=src/test/resources/loadtest-baseline.properties]
+ *     [-Dloadtest.saveBaseline=true]
+ * </pre>
+ *
+ * <p>Le richieste {@code /elimina/{id}} usano contatti riservati, inseriti
+ * all'avvio in numero sufficiente per il traffico previsto; l'editor apre
+ * solo i contatti iniziali, che non vengono mai eliminati.</p>
+ *
+ * <p>I risultati dell'ultima esecuzione vengono scritti in
+ * {@code target/loadtest/last-run.properties}.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class LoadTestHarness {
+
+    private static final String USERNAME = System.getProperty("loadtest.username", "admin");
+
+    private static final String PASSWORD = System.getProperty("loadtest.password", "admin123");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private DatabaseConnectionManager databaseConnectionManager;
+
+    @Autowired
+    private PersonaRepository personaRepository;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private SnapshotService snapshotService;
+
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+
+    private final ConcurrentLinkedQueue<Long> deletableIds = new ConcurrentLinkedQueue<>();
+
+    /** ID dei contatti iniziali, aperti dall'editor */
+    private long[] seededIds;
+
+    private HttpClient anonymousClient;
+
+    private List<HttpClient> sessions;
+
+    @Test
+    void runLoad() throws Exception {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+        int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+        int warmupSeconds = Integer.getInteger("loadtest.warmup", 5);
+        int sessionCount = Integer.getInteger("loadtest.sessions", 50);
+        int seedRows = Integer.getInteger("loadtest.seed", 1000);
+        Map<String, Integer> mix = parseMix(
+            System.getProperty("loadtest.mix", "lista=50,editor=25,salva=15,elimina=5,login=5"));
+
+        // Contatti da eliminare: il doppio di quelli previsti dalla composizione del traffico
+        int weightSum = mix.values().stream().mapToInt(Integer::intValue).sum();
+        double deleteShare = mix.getOrDefault("elimina", 0) / (double) weightSum;
+        int deletableRows = (int) Math.ceil(2 * rate * (warmupSeconds + durationSeconds) * deleteShare) + 100;
+
+        setUpDatabase(seedRows, deletableRows);
+        setUpSessions(sessionCount);
+
+        // Riscaldamento: compila le JSP e scalda la JIT, i campioni vengono scartati
+        mix.keySet().forEach(route -> recorders.put(route, new LatencyRecorder()));
+        drive(rate, warmupSeconds, mix);
+        mix.keySet().forEach(route -> recorders.put(route, new LatencyRecorder()));
+
+        long elapsed = drive(rate, durationSeconds, mix);
+
+        LoadTestReport report = new LoadTestReport(recorders, elapsed / 1e9);
+        Path baselineFile = Path.of(
+            System.getProperty("loadtest.baseline", "src/test/resources/loadtest-baseline.properties"));
+        LoadTestReport baseline = LoadTestReport.load(baselineFile);
+
+        System.out.printf("%nTest di carico: %.0f req/s per %d s (baseline: %s)%n%s%n",
+            rate, durationSeconds, baseline != null ? baselineFile : "assente",
+            report.format(mix.keySet(), baseline));
+
+        report.save(Path.of("target", "loadtest", "last-run.properties"));
+        if (Boolean.getBoolean("loadtest.saveBaseline")) {
+            report.save(baselineFile);
+        }
+
+        int total = recorders.values().stream().mapToInt(LatencyRecorder::count).sum();
+        assertTrue(total > 0, "Nessuna richiesta completata");
+    }
+
+    /**
+     * Configura l'applicazione su un database H2 embedded in memoria e
+     * inserisce nella rubrica dell'amministratore i contatti iniziali e
+     * quelli riservati all'eliminazione.
+     */
+    private void setUpDatabase(int seedRows, int deletableRows) {
+        DatabaseProperties properties = new DatabaseProperties();
+        properties.setMode(DatabaseProperties.Mode.H2_MEMORY);
+        properties.setDbName("loadtest");
+        properties.setUsername("sa");
+        properties.setPassword("");
+        databaseConnectionManager.updateDataSource(properties);
+
+        long ownerId = authService.ensureAdministrator().getId();
+        personaRepository.insertBatch(ownerId, contacts(seedRows, "Rossi"));
+        List<Long> seeded = personaRepository.findActiveIds();
+        seededIds = seeded.stream().mapToLong(Long::longValue).toArray();
+
+        personaRepository.insertBatch(ownerId, contacts(deletableRows, "Bianchi"));
+        Set<Long> reserved = new HashSet<>(personaRepository.findActiveIds());
+        reserved.removeAll(seeded);
+        deletableIds.addAll(reserved);
+
+        // Le strutture in memoria sono state costruite sul database vuoto
+        snapshotService.warmUp();
+    }
+
+    private static List<Persona> contacts(int count, String cognome) {
+        List<Persona> persons = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            persons.add(new Persona(null, "Mario", cognome, "Via Roma " + i,
+                "333123" + String.format("%04d", i % 10000), 20 + i % 60, null));
+        }
+        return persons;
+    }
+
+    /**
+     * Crea le sessioni autenticate, ognuna con il proprio cookie store.
+     */
+    private void setUpSessions(int sessionCount) throws Exception {
+        anonymousClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        sessions = new ArrayList<>(sessionCount);
+        for (int i = 0; i < sessionCount; i++) {
+            HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+            HttpResponse<Void> response = client.send(loginRequest(), HttpResponse.BodyHandlers.discarding());
+            if (!redirectTarget(response).endsWith("/lista")) {
+                throw new IllegalStateException("Login fallito per la sessione " + i);
+            }
+            sessions.add(client);
+        }
+    }
+
+    /**
+     * Genera gli arrivi secondo un processo di Poisson al tasso indicato
+     * e attende il completamento delle richieste in corso.
+     *
+     * @return durata effettiva in nanosecondi
+     */
+    private long drive(double rate, int durationSeconds, Map<String, Integer> mix) throws Exception {
+        String[] routes = mix.keySet().toArray(String[]::new);
+        int[] cumulative = new int[routes.length];
+        int weightSum = 0;
+        for (int i = 0; i < routes.length; i++) {
+            weightSum += mix.get(routes[i]);
+            cumulative[i] = weightSum;
+        }
+
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long nextArrival = start;
+
+        while (nextArrival < end) {
+            long wait = nextArrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            int pick = random.nextInt(weightSum);
+            int index = 0;
+            while (cumulative[index] <= pick) {
+                index++;
+            }
+            inFlight.add(fire(routes[index], nextArrival));
+
+            // Intervallo esponenziale tra arrivi successivi
+            nextArrival += (long) (-Math.log(1.0 - random.nextDouble()) / rate * 1e9);
+        }
+
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Invia una richiesta per la rotta indicata e ne registra la latenza.
+     */
+    private CompletableFuture<?> fire(String route, long scheduledAt) {
+        HttpClient client = "login".equals(route)
+            ? anonymousClient
+            : sessions.get(ThreadLocalRandom.current().nextInt(sessions.size()));
+        HttpRequest request = buildRequest(route);
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> {
+                long latency = System.nanoTime() - scheduledAt;
+                boolean success = error == null && isSuccess(route, response);
+                recorders.get(route).record(latency, success);
+                return null;
+            });
+    }
+
+    private HttpRequest buildRequest(String route) {
+        return switch (route) {
+            case "login" -> loginRequest();
+            case "lista" -> get("/lista");
+            case "editor" -> get("/editor/" + seededIds[ThreadLocalRandom.current().nextInt(seededIds.length)]);
+            case "salva" -> post("/salva", Map.of(
+                "nome", "Giuseppe",
+                "cognome", "Verdi",
+                "indirizzo", "Corso Italia 10",
+                "telefono", "3471234567",
+                "eta", String.valueOf(18 + ThreadLocalRandom.current().nextInt(70))));
+            case "elimina" -> {
+                Long id = deletableIds.poll();
+                if (id == null) {
+                    throw new IllegalStateException("Contatti riservati all'eliminazione esauriti");
+                }
+                yield get("/elimina/" + id);
+            }
+            default -> throw new IllegalArgumentException("Rotta sconosciuta: " + route);
+        };
+    }
+
+    /**
+     * Una risposta è corretta se non è un errore HTTP, non è segnalata come
+     * errore dall'header {@value RequestOutcomeInterceptor#OUTCOME} (messaggio
+     * di errore nella vista o nel redirect) e porta alla pagina attesa: la
+     * vista stessa per lista ed editor, il redirect alla lista per login,
+     * salvataggio ed eliminazione.
+     */
+    private boolean isSuccess(String route, HttpResponse<?> response) {
+        if (response.statusCode() >= 400) {
+            return false;
+        }
+        if (RequestOutcomeInterceptor.ERROR.equals(
+                response.headers().firstValue(RequestOutcomeInterceptor.OUTCOME).orElse(null))) {
+            return false;
+        }
+        String location = redirectTarget(response);
+        return switch (route) {
+            case "lista", "editor" -> location.isEmpty();
+            default -> location.endsWith("/lista");
+        };
+    }
+
+    /**
+     * Restituisce la destinazione del redirect senza parametri di percorso
+     * come {@code ;jsessionid=...}, stringa vuota se non è un redirect.
+     */
+    private static String redirectTarget(HttpResponse<?> response) {
+        String location = response.headers().firstValue("Location").orElse("");
+        int semicolon = location.indexOf(';');
+        return semicolon >= 0 ? location.substring(0, semicolon) : location;
+    }
+
+    private HttpRequest loginRequest() {
+        return post("/login", Map.of("username", USERNAME, "password", PASSWORD));
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpRequest post(String path, Map<String, String> form) {
+        StringBuilder body = new StringBuilder();
+        form.forEach((key, value) -> {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(URLEncoder.encode(key, StandardCharsets.UTF_8))
+                .append('=')
+                .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+        return HttpRequest.newBuilder(uri(path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+            .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    /**
+     * Interpreta la composizione del traffico nel formato "rotta=peso,rotta=peso".
+     */
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split("=");
+            mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+}
@@ -0,0 +1,121 @@
+package com.dynamicweb.rubrica.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Report di un test di carico: throughput e percentili di latenza per rotta.
+ *
+ * <p>Il report può essere salvato come file properties e confrontato con
+ * un'esecuzione di riferimento (baseline) salvata in precedenza. Per ogni
+ * rotta vengono memorizzate le chiavi {@code <rotta>.throughput},
+ * {@code <rotta>.p50}, {@code <rotta>.p99}, {@code <rotta>.p999} e
+ * {@code <rotta>.errors}.</p>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class LoadTestReport {
+
+    private static final String[] METRICS = {"throughput", "p50", "p99", "p999"};
+
+    private final Properties values = new Properties();
+
+    /**
+     * Costruisce il report a partire dalle latenze registrate.
+     *
+     * @param recorders latenze per rotta
+     * @param elapsedSeconds durata effettiva del test in secondi
+     */
+    LoadTestReport(Map<String, LatencyRecorder> recorders, double elapsedSeconds) {
+        recorders.forEach((route, recorder) -> {
+            double[] p = recorder.percentilesMillis(50.0, 99.0, 99.9);
+            put(route + ".count", recorder.count());
+            put(route + ".errors", recorder.errors());
+            put(route + ".throughput", recorder.count() / elapsedSeconds);
+            put(route + ".p50", p[0]);
+            put(route + ".p99", p[1]);
+            put(route + ".p999", p[2]);
+        });
+    }
+
+    private LoadTestReport(Properties values) {
+        this.values.putAll(values);
+    }
+
+    private void put(String key, double value) {
+        values.setProperty(key, String.format(Locale.ROOT, "%.3f", value));
+    }
+
+    private double get(String key) {
+        return Double.parseDouble(values.getProperty(key, "0"));
+    }
+
+    /**
+     * Carica un report salvato, se il file esiste.
+     *
+     * @param file percorso del file properties
+     * @return report caricato o null se il file non esiste
+     * @throws IOException se la lettura fallisce
+     */
+    static LoadTestReport load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        }
+        return new LoadTestReport(properties);
+    }
+
+    /**
+     * Salva il report come file properties.
+     *
+     * @param file percorso di destinazione
+     * @throws IOException se la scrittura fallisce
+     */
+    void save(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            values.store(writer, "Risultati test di carico");
+        }
+    }
+
+    /**
+     * Formatta il report come tabella, con la variazione percentuale
+     * rispetto alla baseline per ogni metrica se disponibile.
+     *
+     * @param routes rotte da includere nell'ordine desiderato
+     * @param baseline report di riferimento, può essere null
+     * @return tabella testuale
+     */
+    String format(Iterable<String> routes, LoadTestReport baseline) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-10s %8s %7s %22s %22s %22s %22s%n",
+            "rotta", "count", "errori", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        for (String route : routes) {
+            sb.append(String.format(Locale.ROOT, "%-10s %8.0f %7.0f",
+                route, get(route + ".count"), get(route + ".errors")));
+            for (String metric : METRICS) {
+                String key = route + "." + metric;
+                String cell = String.format(Locale.ROOT, "%.2f", get(key));
+                if (baseline != null && baseline.values.containsKey(key) && baseline.get(key) > 0) {
+                    double delta = (get(key) - baseline.get(key)) / baseline.get(key) * 100.0;
+                    cell += String.format(Locale.ROOT, " (%+.1f%%)", delta);
+                }
+                sb.append(String.format(Locale.ROOT, " %22s", cell));
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+}
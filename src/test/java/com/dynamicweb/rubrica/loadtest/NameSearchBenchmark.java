@@ -0,0 +1,117 @@
+package com.dynamicweb.rubrica.loadtest;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.services.NameSearchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Misura della latenza della ricerca approssimata per nome su un indice di grandi dimensioni.
+ *
+ * <p>Il test costruisce {@link NameSearchService} direttamente, senza
+ * applicazione né database, con contatti sintetici i cui cognomi sono composti
+ * da sillabe casuali, e riporta il tempo di costruzione dell'indice e le
+ * latenze delle ricerche con una o due lettere sbagliate.</p>
+ *
+ * <p>Il test è disabilitato di default e si esegue con:</p>
+ * <pre>
+ * mvn test -Dtest=NameSearchBenchmark -Dbenchmark=true [-Dbenchmark.contacts=1000000]
+ *     [-Dbenchmark.queries=2000]
+ * </pre>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class NameSearchBenchmark {
+
+    private static final String[] NOMI = {
+        "Giuseppe", "Giovanni", "Antonio", "Mario", "Luigi", "Francesco", "Angelo", "Vincenzo",
+        "Pietro", "Salvatore", "Maria", "Anna", "Giuseppina", "Rosa", "Angela", "Giovanna",
+        "Teresa", "Lucia", "Carmela", "Caterina", "Niccolò", "Nicolò", "Andrea", "Chiara"
+    };
+
+    private static final String[] SILLABE = {
+        "ro", "ma", "ri", "co", "lo", "ti", "ne", "sa", "fer", "bian", "gal", "mar",
+        "ric", "esp", "con", "to", "li", "ni", "ra", "ca", "gra", "zi", "val", "ber"
+    };
+
+    @Test
+    void measureSearchLatency() {
+        int contacts = Integer.getInteger("benchmark.contacts", 1_000_000);
+        int queries = Integer.getInteger("benchmark.queries", 2000);
+        Random random = new Random(42);
+
+        List<Persona> persons = new ArrayList<>(contacts);
+        for (long id = 1; id <= contacts; id++) {
+            persons.add(new Persona(id, NOMI[random.nextInt(NOMI.length)], surname(random), null, null, null, 1L));
+        }
+
+        NameSearchService service = new NameSearchService(2);
+        long start = System.nanoTime();
+        service.onContactsLoaded(new ContactsLoadedEvent(this, persons));
+        long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long[] single = new long[queries];
+        long[] full = new long[queries];
+        for (int i = 0; i < queries + queries / 10; i++) {
+            Persona target = persons.get(random.nextInt(contacts));
+            String surname = typo(target.getCognome(), random);
+            long t0 = System.nanoTime();
+            service.findMatches(1L, surname, 20);
+            long t1 = System.nanoTime();
+            service.findMatches(1L, typo(target.getNome(), random) + " " + surname, 20);
+            long t2 = System.nanoTime();
+            // Il primo decimo delle ricerche serve da riscaldamento
+            if (i >= queries / 10) {
+                single[i - queries / 10] = t1 - t0;
+                full[i - queries / 10] = t2 - t1;
+            }
+        }
+
+        System.out.printf("%nRicerca approssimata: %d contatti, indice costruito in %d ms%n", contacts, buildMillis);
+        System.out.printf("%-16s %9s %9s %9s%n", "ricerca", "p50 ms", "p99 ms", "max ms");
+        report("cognome", single);
+        report("nome e cognome", full);
+    }
+
+    private static String surname(Random random) {
+        StringBuilder surname = new StringBuilder();
+        int syllables = 3 + random.nextInt(2);
+        for (int i = 0; i < syllables; i++) {
+            surname.append(SILLABE[random.nextInt(SILLABE.length)]);
+        }
+        surname.setCharAt(0, Character.toUpperCase(surname.charAt(0)));
+        return surname.toString();
+    }
+
+    /**
+     * Introduce un errore di battitura: scambio di due lettere vicine o lettera mancante.
+     */
+    private static String typo(String word, Random random) {
+        int at = 1 + random.nextInt(word.length() - 2);
+        if (random.nextBoolean()) {
+            char[] chars = word.toCharArray();
+            char swap = chars[at];
+            chars[at] = chars[at + 1];
+            chars[at + 1] = swap;
+            return new String(chars);
+        }
+        return word.substring(0, at) + word.substring(at + 1);
+    }
+
+    private static void report(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-16s %9.3f %9.3f %9.3f%n", label,
+            sorted[sorted.length / 2] / 1e6,
+            sorted[(int) (sorted.length * 0.99)] / 1e6,
+            sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,214 @@
+package com.dynamicweb.rubrica.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dynamicweb.rubrica.DynamicWebProjectApplication;
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.repositories.PersonaRepository;
+import com.dynamicweb.rubrica.services.AuthService;
+import com.dynamicweb.rubrica.services.DatabaseConnectionManager;
+import com.dynamicweb.rubrica.services.SnapshotService;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Confronto tra il percorso di accesso bloccante (JdbcTemplate) e quello
+ * reattivo (R2DBC) delle API {@code /api/persone} ad alta concorrenza.
+ *
+ * <p>Per ciascuna modalità il test avvia l'applicazione con
+ * {@code rubrica.persistence} impostata, inserisce i contatti iniziali su un
+ * database H2 in memoria e mantiene un numero fisso di richieste in corso
+ * (modello chiuso) alternando pagine della lista e letture per ID. Vengono
+ * riportati throughput, latenze, errori (503 compresi), picco di heap e
+ * picco di thread della JVM.</p>
+ *
+ * <p>Il driver R2DBC di H2 esegue internamente le istruzioni in modo bloccante:
+ * per un confronto significativo del percorso reattivo usare MySQL, impostando
+ * la variabile DB_MODE a MYSQL e configurando il database prima della misura.</p>
+ *
+ * <p>Il test è disabilitato di default e si esegue con:</p>
+ * <pre>
+ * mvn test -Dtest=PersistenceBenchmark -Dbenchmark=true [-Dbenchmark.concurrency=500]
+ *     [-Dbenchmark.duration=20] [-Dbenchmark.warmup=5] [-Dbenchmark.seed=5000]
+ * </pre>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PersistenceBenchmark {
+
+    private static final String USERNAME = System.getProperty("loadtest.username", "admin");
+
+    private static final String PASSWORD = System.getProperty("loadtest.password", "admin123");
+
+    @Test
+    void compareBlockingAndReactive() throws Exception {
+        int concurrency = Integer.getInteger("benchmark.concurrency", 500);
+        int durationSeconds = Integer.getInteger("benchmark.duration", 20);
+        int warmupSeconds = Integer.getInteger("benchmark.warmup", 5);
+        int seedRows = Integer.getInteger("benchmark.seed", 5000);
+
+        List<String> lines = new ArrayList<>();
+        for (String mode : List.of("blocking", "reactive")) {
+            lines.add(run(mode, concurrency, durationSeconds, warmupSeconds, seedRows));
+        }
+
+        System.out.printf("%nConfronto persistenza: %d richieste concorrenti per %d s%n", concurrency, durationSeconds);
+        System.out.printf("%-9s %10s %9s %9s %9s %8s %10s %8s%n",
+            "modalità", "req/s", "p50 ms", "p99 ms", "p999 ms", "errori", "heap MB", "thread");
+        lines.forEach(System.out::println);
+    }
+
+    /**
+     * Avvia l'applicazione nella modalità indicata, esegue riscaldamento e misura
+     * e restituisce la riga di riepilogo.
+     */
+    private String run(String mode, int concurrency, int durationSeconds, int warmupSeconds, int seedRows)
+        throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DynamicWebProjectApplication.class)
+            .properties(
+                "server.port=0",
+                "rubrica.persistence=" + mode,
+                "rubrica.timing.sample-rate=0",
+                "server.tomcat.max-connections=" + (concurrency * 2))
+            .run()) {
+            setUpDatabase(context, mode, seedRows);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = login(port);
+
+            drive(client, port, concurrency, warmupSeconds, new LatencyRecorder());
+
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            System.gc();
+            threads.resetPeakThreadCount();
+            AtomicLong peakHeap = new AtomicLong();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(
+                () -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 50, TimeUnit.MILLISECONDS);
+
+            LatencyRecorder recorder = new LatencyRecorder();
+            long elapsed;
+            try {
+                elapsed = drive(client, port, concurrency, durationSeconds, recorder);
+            } finally {
+                sampler.shutdownNow();
+            }
+
+            assertTrue(recorder.count() > 0, "Nessuna richiesta completata in modalità " + mode);
+            double[] p = recorder.percentilesMillis(50, 99, 99.9);
+            return String.format("%-9s %10.1f %9.2f %9.2f %9.2f %8d %10.1f %8d",
+                mode,
+                recorder.count() / (elapsed / 1e9),
+                p[0], p[1], p[2],
+                recorder.errors(),
+                peakHeap.get() / (1024.0 * 1024.0),
+                threads.getPeakThreadCount());
+        }
+    }
+
+    /**
+     * Configura un database H2 in memoria dedicato alla modalità e inserisce i
+     * contatti iniziali nella rubrica dell'amministratore.
+     */
+    private static void setUpDatabase(ConfigurableApplicationContext context, String mode, int seedRows) {
+        DatabaseProperties properties = new DatabaseProperties();
+        properties.setMode(DatabaseProperties.Mode.H2_MEMORY);
+        properties.setDbName("benchmark_" + mode);
+        properties.setUsername("sa");
+        properties.setPassword("");
+        context.getBean(DatabaseConnectionManager.class).updateDataSource(properties);
+
+        List<Persona> persons = new ArrayList<>(seedRows);
+        for (int i = 0; i < seedRows; i++) {
+            persons.add(new Persona(null, "Nome" + i, "Cognome" + (i % 500), "Via Roma " + i,
+                "333" + String.format("%07d", i), 18 + i % 70, null));
+        }
+        long ownerId = context.getBean(AuthService.class).ensureAdministrator().getId();
+        context.getBean(PersonaRepository.class).insertBatch(ownerId, persons);
+        // Le strutture in memoria sono state costruite sul database vuoto
+        context.getBean(SnapshotService.class).warmUp();
+    }
+
+    /**
+     * Effettua il login e restituisce un client con il cookie di sessione.
+     */
+    private static HttpClient login(int port) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/login"))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString("username=" + USERNAME + "&password=" + PASSWORD))
+            .build();
+        client.send(request, HttpResponse.BodyHandlers.discarding());
+        return client;
+    }
+
+    /**
+     * Mantiene {@code concurrency} richieste in corso fino alla scadenza: ogni
+     * richiesta completata ne avvia subito un'altra.
+     *
+     * @return durata effettiva in nanosecondi
+     */
+    private static long drive(HttpClient client, int port, int concurrency, int durationSeconds,
+        LatencyRecorder recorder) throws Exception {
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        List<CompletableFuture<Void>> workers = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.add(loop(client, port, end, recorder));
+        }
+        CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).get(durationSeconds + 60L, TimeUnit.SECONDS);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Esegue richieste in sequenza fino alla scadenza, registrandone la latenza.
+     */
+    private static CompletableFuture<Void> loop(HttpClient client, int port, long end, LatencyRecorder recorder) {
+        if (System.nanoTime() >= end) {
+            return CompletableFuture.completedFuture(null);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String path = random.nextInt(4) == 0
+            ? "/api/persone?size=50&sort=ETA&etaMin=" + (18 + random.nextInt(60))
+            : "/api/persone/" + (1 + random.nextInt(1000));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .timeout(Duration.ofSeconds(30))
+            .GET()
+            .build();
+        long sentAt = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+            .handle((response, error) -> {
+                recorder.record(System.nanoTime() - sentAt, error == null && response.statusCode() < 400);
+                return null;
+            })
+            .thenCompose(ignored -> loop(client, port, end, recorder));
+    }
+}
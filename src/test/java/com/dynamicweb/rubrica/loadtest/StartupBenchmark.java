@@ -0,0 +1,202 @@
+package com.dynamicweb.rubrica.loadtest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+/**
+ * Confronto di tempo di avvio e memoria tra il WAR eseguito sulla JVM e
+ * l'eseguibile nativo GraalVM del profilo Maven {@code native}.
+ *
+ * <p>Per ciascuna variante il test avvia il processo più volte con il database
+ * H2 in memoria e il profilo Spring "prod", misura il tempo fino alla prima
+ * risposta HTTP, esegue login e rendering della lista e legge la memoria
+ * residente del processo (RSS corrente e picco, da {@code /proc}). Vengono
+ * riportate le mediane. Se l'eseguibile nativo non esiste viene misurata solo
+ * la JVM.</p>
+ *
+ * <p>Il test è disabilitato di default e si esegue dopo la build dei due artefatti:</p>
+ * <pre>
+ * mvn package -DskipTests
+ * mvn -Pnative native:compile -DskipTests
+ * mvn test -Dtest=StartupBenchmark -Dbenchmark=true [-Dbenchmark.runs=5]
+ *     [-Dbenchmark.native=target/rubrica]
+ * </pre>
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@EnabledOnOs(OS.LINUX)
+class StartupBenchmark {
+
+    private static final String USERNAME = System.getProperty("loadtest.username", "admin");
+
+    private static final String PASSWORD = System.getProperty("loadtest.password", "admin123");
+
+    /** Attesa massima della prima risposta */
+    private static final long STARTUP_TIMEOUT_SECONDS = 120;
+
+    @Test
+    void compareJvmAndNative() throws Exception {
+        int runs = Integer.getInteger("benchmark.runs", 3);
+        Path war = Path.of("target", "Rubrica.war");
+        Path executable = Path.of(System.getProperty("benchmark.native", "target/rubrica"));
+        assertTrue(Files.exists(war), "WAR non trovato: eseguire prima mvn package");
+
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> lines = new ArrayList<>();
+        lines.add(measure("jvm", runs, java, "-jar", war.toString()));
+        if (Files.isExecutable(executable)) {
+            lines.add(measure("nativo", runs, executable.toString()));
+        } else {
+            System.out.printf("%nEseguibile nativo %s non trovato: misurata solo la JVM%n", executable);
+        }
+
+        System.out.printf("%nAvvio e memoria: mediane di %d avvii%n", runs);
+        System.out.printf("%-8s %12s %14s %10s %12s%n", "variante", "avvio ms", "prima pagina", "RSS MB", "picco MB");
+        lines.forEach(System.out::println);
+    }
+
+    /**
+     * Avvia più volte il comando e restituisce la riga con le mediane.
+     */
+    private static String measure(String label, int runs, String... command) throws Exception {
+        long[] startup = new long[runs];
+        long[] firstPage = new long[runs];
+        long[] rss = new long[runs];
+        long[] peak = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long[] sample = startOnce(command);
+            startup[i] = sample[0];
+            firstPage[i] = sample[1];
+            rss[i] = sample[2];
+            peak[i] = sample[3];
+        }
+        return String.format("%-8s %12d %14d %10.1f %12.1f",
+            label, median(startup), median(firstPage), median(rss) / 1024.0, median(peak) / 1024.0);
+    }
+
+    /**
+     * Avvia il processo, attende la prima risposta, visita la lista e ne legge la memoria.
+     *
+     * @return millisecondi fino alla prima risposta, millisecondi per login e
+     *         prima lista, RSS e picco di RSS in kB
+     */
+    private static long[] startOnce(String... command) throws Exception {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(Arrays.asList(command));
+        arguments.add("--server.port=" + port);
+        arguments.add("--spring.profiles.active=prod");
+        arguments.add("--rubrica.snapshot.enabled=false");
+        arguments.add("--rubrica.audit.enabled=false");
+        ProcessBuilder builder = new ProcessBuilder(arguments)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put("DB_MODE", "H2_MEMORY");
+
+        HttpClient client = HttpClient.newBuilder()
+            .cookieHandler(new CookieManager())
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            waitForFirstResponse(client, port, process);
+            long started = System.nanoTime();
+
+            HttpRequest login = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=" + USERNAME + "&password=" + PASSWORD))
+                .build();
+            client.send(login, HttpResponse.BodyHandlers.discarding());
+            HttpResponse<String> list = client.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/lista")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            assertTrue(list.statusCode() == 200 && list.body().contains("Rubrica Contatti"),
+                "Lista non visualizzata: HTTP " + list.statusCode());
+            long rendered = System.nanoTime();
+
+            long[] memory = readMemoryKb(process.pid());
+            return new long[] {
+                TimeUnit.NANOSECONDS.toMillis(started - start),
+                TimeUnit.NANOSECONDS.toMillis(rendered - started),
+                memory[0],
+                memory[1]
+            };
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static void waitForFirstResponse(HttpClient client, int port, Process process) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/login"))
+            .timeout(Duration.ofSeconds(1))
+            .build();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(STARTUP_TIMEOUT_SECONDS);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Processo terminato durante l'avvio: " + process.exitValue());
+            }
+            try {
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException e) {
+                Thread.sleep(10);
+            }
+        }
+        throw new IllegalStateException("Nessuna risposta entro " + STARTUP_TIMEOUT_SECONDS + " s");
+    }
+
+    /**
+     * Legge RSS corrente e picco del processo da {@code /proc/<pid>/status}.
+     */
+    private static long[] readMemoryKb(long pid) throws IOException {
+        long rss = 0;
+        long peak = 0;
+        for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                rss = parseKb(line);
+            } else if (line.startsWith("VmHWM:")) {
+                peak = parseKb(line);
+            }
+        }
+        return new long[] {rss, peak};
+    }
+
+    private static long parseKb(String line) {
+        return Long.parseLong(line.replaceAll("\\D", ""));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
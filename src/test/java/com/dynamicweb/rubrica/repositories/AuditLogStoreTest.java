@@ -0,0 +1,145 @@
+package com.dynamicweb.rubrica.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dynamicweb.rubrica.dtos.AuditRecord;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test del registro di audit su file di {@link AuditLogStore}: una riga JSON
+ * per voce, rimozione delle righe incomplete alla riapertura e rotazione dei segmenti.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class AuditLogStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void eachRecordIsOneJsonLine() throws IOException {
+        AuditLogStore store = new AuditLogStore(directory, 1 << 20, objectMapper);
+        store.append(List.of(record(1), record(2)));
+        store.append(List.of(record(3)));
+        store.close();
+
+        assertEquals(List.of(1L, 2L, 3L), readIds(segments()));
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    void reopenTruncatesTornLine() throws IOException {
+        AuditLogStore store = new AuditLogStore(directory, 1 << 20, objectMapper);
+        store.append(List.of(record(1), record(2)));
+        store.close();
+        Path segment = segments().get(0);
+        long complete = Files.size(segment);
+
+        // Interruzione a metà della scrittura di una voce
+        byte[] torn = objectMapper.writeValueAsBytes(record(99));
+        Files.write(segment, Arrays.copyOf(torn, torn.length / 2), StandardOpenOption.APPEND);
+
+        AuditLogStore reopened = new AuditLogStore(directory, 1 << 20, objectMapper);
+        reopened.append(List.of(record(3)));
+        reopened.close();
+
+        assertEquals(List.of(segment), segments());
+        assertEquals(List.of(1L, 2L, 3L), readIds(segments()));
+        assertTrue(Files.size(segment) > complete);
+    }
+
+    @Test
+    void reopenKeepsCompleteSegment() throws IOException {
+        AuditLogStore store = new AuditLogStore(directory, 1 << 20, objectMapper);
+        store.append(List.of(record(1)));
+        store.close();
+
+        AuditLogStore reopened = new AuditLogStore(directory, 1 << 20, objectMapper);
+        reopened.append(List.of(record(2)));
+        reopened.close();
+
+        assertEquals(1, segments().size());
+        assertEquals(List.of(1L, 2L), readIds(segments()));
+    }
+
+    @Test
+    void fullSegmentRollsOver() throws IOException {
+        AuditLogStore store = new AuditLogStore(directory, 4096, objectMapper);
+        List<Long> written = new ArrayList<>();
+        for (long id = 1; id <= 60; id++) {
+            store.append(List.of(record(id)));
+            written.add(id);
+        }
+        store.close();
+
+        List<Path> segments = segments();
+        assertTrue(segments.size() > 1);
+        for (Path segment : segments) {
+            assertTrue(Files.size(segment) <= 4096);
+        }
+        assertEquals(written, readIds(segments));
+    }
+
+    @Test
+    void fullSegmentIsNotReopened() throws IOException {
+        StringBuilder full = new StringBuilder();
+        long id = 1;
+        while (full.length() < 4096) {
+            full.append(objectMapper.writeValueAsString(record(id++))).append('\n');
+        }
+        Files.writeString(directory.resolve("audit-1.log"), full, StandardCharsets.UTF_8);
+
+        AuditLogStore store = new AuditLogStore(directory, 4096, objectMapper);
+        store.append(List.of(record(id)));
+        store.close();
+
+        assertEquals(2, segments().size());
+        assertEquals(id, readIds(segments()).size());
+    }
+
+    private static AuditRecord record(long id) {
+        Persona after = new Persona(id, "Mario", "Rossi", "Via Roma " + id, "333" + id, 40, 1L);
+        return new AuditRecord(Instant.ofEpochMilli(id), "admin", AuditRecord.Operation.INSERIMENTO, id, null, after);
+    }
+
+    /**
+     * @return segmenti nell'ordine di apertura
+     */
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    /**
+     * Legge gli ID delle voci; ogni riga deve essere un JSON completo.
+     */
+    private List<Long> readIds(List<Path> segments) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        for (Path segment : segments) {
+            String content = Files.readString(segment, StandardCharsets.UTF_8);
+            assertTrue(content.isEmpty() || content.endsWith("\n"));
+            for (String line : content.lines().toList()) {
+                ids.add(objectMapper.readValue(line, AuditRecord.class).getPersonaId());
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,162 @@
+package com.dynamicweb.rubrica.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test del formato binario di {@link PersonaSnapshotStore}: lettura di quanto
+ * scritto e ripiego sullo snapshot precedente per i file non validi.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class PersonaSnapshotStoreTest {
+
+    private static final String SOURCE = "jdbc:h2:mem:rubrica";
+
+    private static final Instant FIRST = Instant.ofEpochMilli(1_000);
+
+    private static final Instant SECOND = Instant.ofEpochMilli(2_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripPreservesEveryField() throws IOException {
+        List<Persona> contacts = List.of(
+            new Persona(1L, "Mario", "Rossi", "Via Roma 1", "3331234567", 42, 1L),
+            new Persona(Long.MAX_VALUE, "Zoë", "D'Àrco", null, "06 1234", -7, Long.MAX_VALUE),
+            new Persona(300L, null, null, null, null, null, 128L),
+            new Persona(301L, "x".repeat(1_000), "", "€".repeat(300), "0", Integer.MIN_VALUE, 0L));
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 3);
+        store.write(SOURCE, FIRST, contacts);
+
+        PersonaSnapshotStore.Snapshot snapshot = store.readLatest(SOURCE).orElseThrow();
+
+        assertEquals(FIRST, snapshot.takenAt());
+        assertEquals(contacts, snapshot.contacts());
+    }
+
+    @Test
+    void roundTripSpansSeveralWriteBuffers() throws IOException {
+        List<Persona> contacts = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id++) {
+            contacts.add(new Persona(id, "Nome" + id, "Cognome" + id, "Via " + id, "333" + id, (int) (id % 120), id % 7));
+        }
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 3);
+        Path file = store.write(SOURCE, FIRST, contacts);
+
+        assertTrue(Files.size(file) > 64 * 1024);
+        assertEquals(contacts, store.readLatest(SOURCE).orElseThrow().contacts());
+    }
+
+    @Test
+    void snapshotOfAnotherDatabaseIsIgnored() throws IOException {
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 3);
+        store.write(SOURCE, FIRST, List.of(persona(1L)));
+
+        assertEquals(Optional.empty(), store.readLatest("jdbc:h2:mem:altro"));
+    }
+
+    @Test
+    void truncatedSnapshotFallsBackToPrevious() throws IOException {
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 3);
+        store.write(SOURCE, FIRST, List.of(persona(1L)));
+        Path latest = store.write(SOURCE, SECOND, List.of(persona(1L), persona(2L)));
+
+        for (long size : new long[] { Files.size(latest) - 1, 10, 0 }) {
+            byte[] bytes = Files.readAllBytes(latest);
+            Files.write(latest, Arrays.copyOf(bytes, (int) Math.min(size, bytes.length)));
+
+            PersonaSnapshotStore.Snapshot snapshot = store.readLatest(SOURCE).orElseThrow();
+            assertEquals(FIRST, snapshot.takenAt());
+            assertEquals(List.of(persona(1L)), snapshot.contacts());
+        }
+    }
+
+    @Test
+    void corruptedSnapshotFallsBackToPrevious() throws IOException {
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 3);
+        store.write(SOURCE, FIRST, List.of(persona(1L)));
+        Path latest = store.write(SOURCE, SECOND, List.of(persona(1L), persona(2L)));
+
+        byte[] bytes = Files.readAllBytes(latest);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(latest, bytes);
+
+        assertEquals(FIRST, store.readLatest(SOURCE).orElseThrow().takenAt());
+    }
+
+    @Test
+    void unknownVersionOrSignatureFallsBackToPrevious() throws IOException {
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 3);
+        store.write(SOURCE, FIRST, List.of(persona(1L)));
+        Path latest = store.write(SOURCE, SECOND, List.of(persona(2L)));
+        byte[] original = Files.readAllBytes(latest);
+
+        // Versione e firma modificate con checksum ricalcolato, come un file valido di un altro formato
+        for (int offset : new int[] { 4, 0 }) {
+            byte[] bytes = original.clone();
+            bytes[offset]++;
+            rewriteChecksum(bytes);
+            Files.write(latest, bytes);
+
+            assertEquals(FIRST, store.readLatest(SOURCE).orElseThrow().takenAt());
+        }
+    }
+
+    @Test
+    void contactCountMismatchFallsBackToPrevious() throws IOException {
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 3);
+        store.write(SOURCE, FIRST, List.of(persona(1L)));
+        Path latest = store.write(SOURCE, SECOND, List.of(persona(2L)));
+
+        byte[] bytes = Files.readAllBytes(latest);
+        ByteBuffer.wrap(bytes).putLong(bytes.length - Long.BYTES - Integer.BYTES, 2);
+        rewriteChecksum(bytes);
+        Files.write(latest, bytes);
+
+        assertEquals(FIRST, store.readLatest(SOURCE).orElseThrow().takenAt());
+    }
+
+    @Test
+    void olderSnapshotsBeyondKeepAreDeleted() throws IOException {
+        PersonaSnapshotStore store = new PersonaSnapshotStore(directory, 2);
+        store.write(SOURCE, Instant.ofEpochMilli(1), List.of(persona(1L)));
+        store.write(SOURCE, Instant.ofEpochMilli(2), List.of(persona(1L)));
+        store.write(SOURCE, Instant.ofEpochMilli(3), List.of(persona(1L)));
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of("rubrica-2.snap", "rubrica-3.snap"),
+                files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+    }
+
+    private static Persona persona(Long id) {
+        return new Persona(id, "Nome" + id, "Cognome" + id, null, "333" + id, 30, 1L);
+    }
+
+    /**
+     * Ricalcola il CRC32C finale dopo una modifica del contenuto.
+     */
+    private static void rewriteChecksum(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length - Integer.BYTES);
+        ByteBuffer.wrap(bytes).putInt(bytes.length - Integer.BYTES, (int) crc.getValue());
+    }
+}
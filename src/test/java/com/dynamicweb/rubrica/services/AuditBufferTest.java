@@ -0,0 +1,138 @@
+package com.dynamicweb.rubrica.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dynamicweb.rubrica.dtos.AuditRecord;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test del buffer circolare multi-produttore di {@link AuditBuffer}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class AuditBufferTest {
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new AuditBuffer(0));
+        assertThrows(IllegalArgumentException.class, () -> new AuditBuffer(1));
+        assertThrows(IllegalArgumentException.class, () -> new AuditBuffer(6));
+    }
+
+    @Test
+    void fullBufferRejectsWithoutWaiting() {
+        AuditBuffer buffer = new AuditBuffer(4);
+        for (long i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(record("p", i)));
+        }
+        assertFalse(buffer.offer(record("p", 4)));
+
+        List<AuditRecord> drained = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertTrue(buffer.offer(record("p", 4)));
+        assertTrue(buffer.offer(record("p", 5)));
+        assertFalse(buffer.offer(record("p", 6)));
+
+        assertEquals(4, buffer.drainTo(drained, 10));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L), ids(drained));
+    }
+
+    @Test
+    void wrapAroundKeepsInsertionOrder() {
+        AuditBuffer buffer = new AuditBuffer(4);
+        List<AuditRecord> drained = new ArrayList<>();
+        long next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(buffer.offer(record("p", next++)));
+            }
+            assertEquals(3, buffer.drainTo(drained, 3));
+        }
+
+        assertEquals(30, drained.size());
+        for (int i = 0; i < drained.size(); i++) {
+            assertEquals(i, drained.get(i).getPersonaId());
+        }
+    }
+
+    @Test
+    void drainStopsAtMaxAndOnEmptyBuffer() {
+        AuditBuffer buffer = new AuditBuffer(8);
+        List<AuditRecord> drained = new ArrayList<>();
+        assertEquals(0, buffer.drainTo(drained, 8));
+
+        for (long i = 0; i < 5; i++) {
+            buffer.offer(record("p", i));
+        }
+        assertEquals(2, buffer.drainTo(drained, 2));
+        assertEquals(3, buffer.drainTo(drained, 8));
+        assertEquals(0, buffer.drainTo(drained, 8));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), ids(drained));
+    }
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepTheirOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        AuditBuffer buffer = new AuditBuffer(64);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                String producer = "p" + p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(record(producer, i))) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            // Il thread del test è l'unico consumatore
+            List<AuditRecord> drained = new ArrayList<>(producers * perProducer);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (drained.size() < producers * perProducer && System.nanoTime() < deadline) {
+                if (buffer.drainTo(drained, 16) == 0) {
+                    Thread.onSpinWait();
+                }
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(producers * perProducer, drained.size());
+            long[] expected = new long[producers];
+            for (AuditRecord record : drained) {
+                int producer = Integer.parseInt(record.getUsername().substring(1));
+                assertEquals(expected[producer]++, record.getPersonaId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static AuditRecord record(String username, long id) {
+        return new AuditRecord(Instant.EPOCH, username, AuditRecord.Operation.INSERIMENTO, id, null, null);
+    }
+
+    private static List<Long> ids(List<AuditRecord> records) {
+        return records.stream().map(AuditRecord::getPersonaId).toList();
+    }
+}
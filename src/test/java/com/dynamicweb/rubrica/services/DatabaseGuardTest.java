@@ -0,0 +1,80 @@
+package com.dynamicweb.rubrica.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.dynamicweb.rubrica.components.ResilienceProperties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Test del circuit breaker di {@link DatabaseGuard}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class DatabaseGuardTest {
+
+    @Test
+    void retriedReadCountsAsOneFailure() {
+        DatabaseGuard guard = guard(2, 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(TransientDataAccessResourceException.class, () -> guard.read(() -> fail(attempts)));
+        assertEquals(3, attempts.get());
+        assertFalse(guard.isOpen());
+
+        assertThrows(TransientDataAccessResourceException.class, () -> guard.read(() -> fail(attempts)));
+        assertTrue(guard.isOpen());
+    }
+
+    @Test
+    void successAdmittedBeforeOpeningDoesNotCloseCircuit() throws Exception {
+        DatabaseGuard guard = guard(2, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> slow = CompletableFuture.supplyAsync(() -> guard.read(() -> {
+            started.countDown();
+            await(release);
+            return "ok";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger attempts = new AtomicInteger();
+        assertThrows(TransientDataAccessResourceException.class, () -> guard.read(() -> fail(attempts)));
+        assertThrows(TransientDataAccessResourceException.class, () -> guard.read(() -> fail(attempts)));
+        assertTrue(guard.isOpen());
+
+        release.countDown();
+        assertEquals("ok", slow.get(5, TimeUnit.SECONDS));
+        assertTrue(guard.isOpen());
+        assertThrows(DatabaseUnavailableException.class, () -> guard.read(() -> "rifiutata"));
+    }
+
+    private static DatabaseGuard guard(int failureThreshold, int readMaxAttempts) {
+        ResilienceProperties properties = new ResilienceProperties(
+            10, 30, 20, 5, 500, failureThreshold, 30, readMaxAttempts, 0);
+        return new DatabaseGuard(properties, mock(PlatformTransactionManager.class));
+    }
+
+    private static String fail(AtomicInteger attempts) {
+        attempts.incrementAndGet();
+        throw new TransientDataAccessResourceException("connessione persa");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
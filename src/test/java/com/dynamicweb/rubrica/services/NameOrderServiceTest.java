@@ -0,0 +1,92 @@
+package com.dynamicweb.rubrica.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.dynamicweb.rubrica.dtos.DatabaseProperties;
+import com.dynamicweb.rubrica.dtos.PersonaQuery;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.events.ContactsLoadingEvent;
+import com.dynamicweb.rubrica.events.DatabaseConfiguredEvent;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test dell'ordinamento alfabetico in memoria di {@link NameOrderService}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class NameOrderServiceTest {
+
+    private static final long OWNER = 1;
+
+    @Test
+    void contactsAreOrderedBySurnameThenName() {
+        NameOrderService service = loaded(
+            persona(1, "Mario", "Rossini"), persona(2, "Luca", "Rossi"),
+            persona(3, "Anna", "D'Angelo"), persona(4, "Bruno", "Dangelo"), persona(5, "Carla", "Élia"));
+
+        assertEquals(List.of(3L, 4L, 5L, 2L, 1L), page(service));
+    }
+
+    @Test
+    void changesCommittedDuringRebuildAreReplayed() {
+        NameOrderService service = loaded(persona(1, "Mario", "Rossi"), persona(2, "Anna", "Verdi"));
+
+        // Il caricamento legge i contatti prima di queste modifiche
+        service.onContactsLoading(new ContactsLoadingEvent(this, false));
+        List<Persona> read = List.of(persona(1, "Mario", "Rossi"), persona(2, "Anna", "Verdi"));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(3, "Luca", "Bianchi")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, persona(1, "Mario", "Rossi"), persona(1, "Mario", "Zanetti")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, persona(2, "Anna", "Verdi"), null));
+        service.onContactsLoaded(new ContactsLoadedEvent(this, read));
+
+        assertEquals(List.of(3L, 1L), page(service));
+    }
+
+    @Test
+    void replayOfChangesAlreadyReadHasNoEffect() {
+        NameOrderService service = loaded(persona(1, "Mario", "Rossi"));
+
+        service.onContactsLoading(new ContactsLoadingEvent(this, false));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(2, "Luca", "Bianchi")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, persona(1, "Mario", "Rossi"), persona(1, "Mario", "Zanetti")));
+        // La lettura comprende già entrambe le modifiche
+        service.onContactsLoaded(new ContactsLoadedEvent(this,
+            List.of(persona(1, "Mario", "Zanetti"), persona(2, "Luca", "Bianchi"))));
+
+        assertEquals(List.of(2L, 1L), page(service));
+    }
+
+    @Test
+    void newDatabaseDiscardsThePreviousIndex() {
+        NameOrderService service = loaded(persona(1, "Mario", "Rossi"));
+        PersonaQuery query = new PersonaQuery();
+        assertTrue(service.supports(query));
+
+        service.onDatabaseConfigured(new DatabaseConfiguredEvent(this, new DatabaseProperties()));
+        assertFalse(service.supports(query));
+
+        service.onContactsLoaded(new ContactsLoadedEvent(this, List.of(persona(7, "Anna", "Verdi"))));
+        assertTrue(service.supports(query));
+        assertEquals(List.of(7L), page(service));
+    }
+
+    private static NameOrderService loaded(Persona... contacts) {
+        NameOrderService service = new NameOrderService("it-IT");
+        service.onContactsLoaded(new ContactsLoadedEvent(NameOrderServiceTest.class, List.of(contacts)));
+        return service;
+    }
+
+    private static Persona persona(long id, String nome, String cognome) {
+        return new Persona(id, nome, cognome, null, "333" + id, null, OWNER);
+    }
+
+    private static List<Long> page(NameOrderService service) {
+        return service.findPage(OWNER, null, null, 100).ids();
+    }
+}
@@ -0,0 +1,133 @@
+package com.dynamicweb.rubrica.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.events.ContactsLoadingEvent;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test della ricerca approssimata per nome di {@link NameSearchService}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class NameSearchServiceTest {
+
+    private static final long OWNER = 1;
+
+    @Test
+    void misspelledNameIsFound() {
+        NameSearchService service = loaded(persona(1, "Giuseppe", "Verdi"), persona(2, "Giusy", "Neri"));
+
+        assertEquals(List.of(new NameSearchService.Match(1, 1)), service.findMatches(OWNER, "Guiseppe", 10));
+    }
+
+    @Test
+    void allowedDistanceGrowsWithWordLength() {
+        NameSearchService service = loaded(
+            persona(1, "Lu", "Bo"), persona(2, "Anna", "Rossi"), persona(3, "Carlo", "Bianchini"));
+
+        // Fino a 2 lettere nessun errore
+        assertEquals(List.of(), ids(service, "Li"));
+        assertEquals(List.of(1L), ids(service, "Lu"));
+        // Fino a 5 lettere un errore
+        assertEquals(List.of(2L), ids(service, "Rosi"));
+        assertEquals(List.of(), ids(service, "Rosxy"));
+        // Oltre, la distanza massima configurata
+        assertEquals(List.of(3L), ids(service, "Bancini"));
+        assertEquals(List.of(), ids(service, "Bnacni"));
+    }
+
+    @Test
+    void everyWordMustMatchTheSameContact() {
+        NameSearchService service = loaded(
+            persona(1, "Mario", "Rossi"), persona(2, "Mario", "Bianchi"),
+            persona(3, "Maria", "Rossi"), persona(4, "Luigi", "Rossi"));
+
+        assertEquals(List.of(new NameSearchService.Match(1, 0), new NameSearchService.Match(3, 1)),
+            service.findMatches(OWNER, "rossi mario", 10));
+        assertEquals(List.of(), service.findMatches(OWNER, "luigi bianchi", 10));
+    }
+
+    @Test
+    void accentsApostrophesAndCompoundNamesAreFolded() {
+        NameSearchService service = loaded(
+            persona(1, "Jürgen", "D'Àngelo"), persona(2, "Anna", "Strauß"), persona(3, "Pier-Paolo", "Rossi Bianchi"));
+
+        assertEquals(List.of(1L), ids(service, "juergen dangelo"));
+        assertEquals(List.of(1L), ids(service, "jurgen d'angelo"));
+        assertEquals(List.of(2L), ids(service, "strauss"));
+        assertEquals(List.of(3L), ids(service, "paolo bianchi"));
+        assertEquals("dangelo", NameSearchService.fold("D’Àngelo"));
+        assertEquals("orsted", NameSearchService.fold("Ørsted"));
+    }
+
+    @Test
+    void searchIsLimitedToTheOwner() {
+        NameSearchService service = loaded(persona(1, "Mario", "Rossi"), new Persona(2L, "Mario", "Rossi", null, "3", null, 2L));
+
+        assertEquals(List.of(1L), ids(service, "rossi"));
+    }
+
+    @Test
+    void searchBeforeLoadingIsUnavailable() {
+        NameSearchService service = new NameSearchService(2);
+
+        assertThrows(DatabaseUnavailableException.class, () -> service.findMatches(OWNER, "rossi", 10));
+    }
+
+    @Test
+    void changesCommittedDuringRebuildAreReplayed() {
+        NameSearchService service = loaded(persona(1, "Mario", "Rossi"), persona(2, "Anna", "Verdi"));
+
+        // Il caricamento legge i contatti prima di queste modifiche
+        service.onContactsLoading(new ContactsLoadingEvent(this, false));
+        List<Persona> read = List.of(persona(1, "Mario", "Rossi"), persona(2, "Anna", "Verdi"));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(3, "Luca", "Neri")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, persona(1, "Mario", "Rossi"), persona(1, "Mario", "Bruni")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, persona(2, "Anna", "Verdi"), null));
+        service.onContactsLoaded(new ContactsLoadedEvent(this, read));
+
+        assertEquals(List.of(3L), ids(service, "neri"));
+        assertEquals(List.of(1L), ids(service, "mario bruni"));
+        assertEquals(List.of(), ids(service, "rossi"));
+        assertEquals(List.of(), ids(service, "verdi"));
+
+        // Dopo la ricostruzione le modifiche non vengono più conservate
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(4, "Sara", "Galli")));
+        service.onContactsLoaded(new ContactsLoadedEvent(this, read));
+        assertEquals(List.of(), ids(service, "galli"));
+    }
+
+    @Test
+    void failedLoadingStopsKeepingChanges() {
+        NameSearchService service = loaded(persona(1, "Mario", "Rossi"));
+
+        service.onContactsLoading(new ContactsLoadingEvent(this, false));
+        service.onContactsLoading(new ContactsLoadingEvent(this, true));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(2, "Luca", "Neri")));
+        assertEquals(List.of(2L), ids(service, "neri"));
+
+        service.onContactsLoaded(new ContactsLoadedEvent(this, List.of(persona(1, "Mario", "Rossi"))));
+        assertEquals(List.of(), ids(service, "neri"));
+    }
+
+    private static NameSearchService loaded(Persona... contacts) {
+        NameSearchService service = new NameSearchService(2);
+        service.onContactsLoaded(new ContactsLoadedEvent(NameSearchServiceTest.class, List.of(contacts)));
+        return service;
+    }
+
+    private static Persona persona(long id, String nome, String cognome) {
+        return new Persona(id, nome, cognome, null, "333" + id, null, OWNER);
+    }
+
+    private static List<Long> ids(NameSearchService service, String text) {
+        return service.findMatches(OWNER, text, 10).stream().map(NameSearchService.Match::id).toList();
+    }
+}
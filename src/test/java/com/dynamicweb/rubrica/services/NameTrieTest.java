@@ -0,0 +1,96 @@
+package com.dynamicweb.rubrica.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test della ricerca approssimata di {@link NameTrie}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class NameTrieTest {
+
+    @Test
+    void transpositionCountsAsOneEdit() {
+        NameTrie trie = trie("giuseppe", "giusy");
+
+        assertEquals(Map.of("giuseppe", 1), distances(trie.search("guiseppe", 1)));
+        assertEquals(Map.of(), distances(trie.search("guiseppe", 0)));
+    }
+
+    @Test
+    void insertionDeletionAndSubstitutionCountAsOneEdit() {
+        NameTrie trie = trie("rossi", "rosi", "rossa", "rosssi", "russo", "bianchi");
+
+        assertEquals(Map.of("rossi", 0, "rosi", 1, "rossa", 1, "rosssi", 1), distances(trie.search("rossi", 1)));
+        assertEquals(Map.of("rossi", 0, "rosi", 1, "rossa", 1, "rosssi", 1, "russo", 2),
+            distances(trie.search("rossi", 2)));
+        assertEquals(Map.of("rossi", 0), distances(trie.search("rossi", 0)));
+    }
+
+    @Test
+    void prefixesAndExtensionsAreMeasuredOnTheWholeTerm() {
+        NameTrie trie = trie("de", "della", "dellavalle");
+
+        assertEquals(Map.of("della", 0), distances(trie.search("della", 2)));
+        assertEquals(Map.of("de", 0), distances(trie.search("de", 2)));
+    }
+
+    @Test
+    void idsStaySortedAndUnique() {
+        NameTrie trie = new NameTrie();
+        trie.add("rossi", 30);
+        trie.add("rossi", 10);
+        trie.add("rossi", 20);
+        trie.add("rossi", 10);
+
+        assertArrayEquals(new long[] { 10, 20, 30 }, ids(trie.search("rossi", 0).get(0)));
+
+        trie.remove("rossi", 20);
+        trie.remove("rossi", 99);
+        trie.remove("rosso", 10);
+        assertArrayEquals(new long[] { 10, 30 }, ids(trie.search("rossi", 0).get(0)));
+    }
+
+    @Test
+    void termWithoutContactsIsNotFoundButReused() {
+        NameTrie trie = trie("rossi");
+        trie.remove("rossi", 1);
+
+        assertTrue(trie.search("rossi", 1).isEmpty());
+        assertEquals(1, trie.termCount());
+
+        trie.add("rossi", 2);
+        assertArrayEquals(new long[] { 2 }, ids(trie.search("rossi", 0).get(0)));
+        assertEquals(1, trie.termCount());
+    }
+
+    /**
+     * Trie con un contatto per termine, con ID da 1 nell'ordine indicato.
+     */
+    private static NameTrie trie(String... terms) {
+        NameTrie trie = new NameTrie();
+        for (int i = 0; i < terms.length; i++) {
+            trie.add(terms[i], i + 1);
+        }
+        return trie;
+    }
+
+    private static Map<String, Integer> distances(List<NameTrie.Hit> hits) {
+        Map<String, Integer> distances = new TreeMap<>();
+        hits.forEach(hit -> distances.put(hit.term(), hit.distance()));
+        return distances;
+    }
+
+    private static long[] ids(NameTrie.Hit hit) {
+        return Arrays.copyOf(hit.ids(), hit.size());
+    }
+}
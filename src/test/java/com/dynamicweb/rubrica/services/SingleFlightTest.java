@@ -0,0 +1,229 @@
+package com.dynamicweb.rubrica.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test dell'accorpamento delle letture concorrenti di {@link SingleFlight}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class SingleFlightTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final SingleFlight<String, Object> flight = new SingleFlight<>();
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        Object result = new Object();
+        BlockingLoader loader = new BlockingLoader(() -> result);
+        CompletableFuture<Object> leader = loadAsync("k", loader);
+        loader.awaitStarted();
+
+        List<Caller> joiners = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            joiners.add(Caller.start(() -> flight.load("k", loader)));
+        }
+        joiners.forEach(Caller::awaitWaiting);
+        loader.release();
+
+        assertSame(result, leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        for (Caller joiner : joiners) {
+            assertSame(result, joiner.result());
+        }
+        assertEquals(1, loader.calls.get());
+    }
+
+    @Test
+    void exceptionReachesEveryJoiner() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database non disponibile");
+        BlockingLoader loader = new BlockingLoader(() -> {
+            throw failure;
+        });
+        CompletableFuture<Object> leader = loadAsync("k", loader);
+        loader.awaitStarted();
+
+        List<Caller> joiners = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            joiners.add(Caller.start(() -> flight.load("k", loader)));
+        }
+        joiners.forEach(Caller::awaitWaiting);
+        loader.release();
+
+        Exception leaderFailure = assertThrows(Exception.class, () -> leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(failure, leaderFailure.getCause());
+        for (Caller joiner : joiners) {
+            assertSame(failure, joiner.failure());
+        }
+        assertEquals(1, loader.calls.get());
+    }
+
+    @Test
+    void completedLoadIsNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertEquals(1, flight.load("k", calls::incrementAndGet));
+        assertEquals(2, flight.load("k", calls::incrementAndGet));
+        assertThrows(IllegalStateException.class, () -> flight.load("k", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(3, flight.load("k", calls::incrementAndGet));
+    }
+
+    @Test
+    void forgetCutsOffNewJoinersOnly() throws Exception {
+        Object stale = new Object();
+        BlockingLoader loader = new BlockingLoader(() -> stale);
+        CompletableFuture<Object> leader = loadAsync("k", loader);
+        loader.awaitStarted();
+        Caller earlyJoiner = Caller.start(() -> flight.load("k", loader));
+        earlyJoiner.awaitWaiting();
+
+        flight.forget("k");
+
+        // Un nuovo chiamante esegue la propria lettura senza attendere quella in corso
+        Object fresh = new Object();
+        assertSame(fresh, flight.load("k", () -> fresh));
+
+        loader.release();
+        assertSame(stale, leader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(stale, earlyJoiner.result());
+        assertEquals(1, loader.calls.get());
+    }
+
+    @Test
+    void forgetAllCutsOffEveryKey() throws Exception {
+        BlockingLoader first = new BlockingLoader(Object::new);
+        BlockingLoader second = new BlockingLoader(Object::new);
+        CompletableFuture<Object> a = loadAsync("a", first);
+        CompletableFuture<Object> b = loadAsync("b", second);
+        first.awaitStarted();
+        second.awaitStarted();
+
+        flight.forgetAll();
+
+        assertEquals("a2", flight.load("a", () -> "a2"));
+        assertEquals("b2", flight.load("b", () -> "b2"));
+        first.release();
+        second.release();
+        a.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        b.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void differentKeysLoadIndependently() throws Exception {
+        BlockingLoader blocked = new BlockingLoader(() -> "a");
+        CompletableFuture<Object> a = loadAsync("a", blocked);
+        blocked.awaitStarted();
+
+        assertEquals("b", flight.load("b", () -> "b"));
+
+        blocked.release();
+        assertEquals("a", a.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private CompletableFuture<Object> loadAsync(String key, BlockingLoader loader) {
+        return CompletableFuture.supplyAsync(() -> flight.load(key, loader));
+    }
+
+    /**
+     * Lettura che si ferma finché il test non la rilascia.
+     */
+    private static final class BlockingLoader implements Supplier<Object> {
+
+        private final Supplier<Object> result;
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        BlockingLoader(Supplier<Object> result) {
+            this.result = result;
+        }
+
+        @Override
+        public Object get() {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                assertTrue(released.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return result.get();
+        }
+
+        void awaitStarted() throws InterruptedException {
+            assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+
+    /**
+     * Chiamante su un thread dedicato, per riconoscere quando attende la lettura di un altro.
+     */
+    private static final class Caller {
+
+        private final Thread thread;
+
+        private volatile Object result;
+
+        private volatile RuntimeException failure;
+
+        private Caller(Supplier<Object> call) {
+            this.thread = new Thread(() -> {
+                try {
+                    result = call.get();
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            });
+        }
+
+        static Caller start(Supplier<Object> call) {
+            Caller caller = new Caller(call);
+            caller.thread.start();
+            return caller;
+        }
+
+        /**
+         * Attende che il thread sia fermo sul future della lettura in corso.
+         */
+        void awaitWaiting() {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (thread.getState() != Thread.State.WAITING) {
+                assertTrue(thread.isAlive() && System.nanoTime() < deadline, "il chiamante non attende la lettura in corso");
+                Thread.onSpinWait();
+            }
+        }
+
+        Object result() throws InterruptedException {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            return result;
+        }
+
+        RuntimeException failure() throws InterruptedException {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            return failure;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.dynamicweb.rubrica.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.dynamicweb.rubrica.dtos.RubricaStatistics;
+import com.dynamicweb.rubrica.entities.Persona;
+import com.dynamicweb.rubrica.events.ContactsLoadedEvent;
+import com.dynamicweb.rubrica.events.ContactsLoadingEvent;
+import com.dynamicweb.rubrica.events.PersonaChangedEvent;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test dei contatori in memoria di {@link StatisticsService}.
+ *
+ * @author Michael Leanza
+ * @since 1.0
+ */
+class StatisticsServiceTest {
+
+    private static final long OWNER = 1;
+
+    @Test
+    void changesUpdateTheCounters() {
+        StatisticsService service = loaded(persona(1, "Via Roma 1", 25, "3331234567"));
+
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(2, null, null, "06 1234")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null,
+            persona(1, "Via Roma 1", 25, "3331234567"), persona(1, "Via Roma 1", 45, "3331234567")));
+
+        RubricaStatistics statistics = service.getStatistics(OWNER);
+        assertEquals(2, statistics.getTotal());
+        assertEquals(1, statistics.getWithoutAddress());
+        assertEquals(0, statistics.getAgeHistogram().get("20-29"));
+        assertEquals(1, statistics.getAgeHistogram().get("40-49"));
+        assertEquals(1, statistics.getAgeHistogram().get("n/d"));
+        assertEquals(1, statistics.getMobile());
+        assertEquals(1, statistics.getLandline());
+    }
+
+    @Test
+    void changesCommittedDuringRebuildAreReplayed() {
+        StatisticsService service = loaded(persona(1, "Via Roma 1", 25, "3331234567"), persona(2, null, 30, "06 1234"));
+
+        // Il caricamento legge i contatti prima di queste modifiche
+        service.onContactsLoading(new ContactsLoadingEvent(this, false));
+        List<Persona> read = List.of(persona(1, "Via Roma 1", 25, "3331234567"), persona(2, null, 30, "06 1234"));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(3, null, 50, "3401234567")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null,
+            persona(1, "Via Roma 1", 25, "3331234567"), persona(1, "Via Roma 1", 65, "3331234567")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, persona(2, null, 30, "06 1234"), null));
+        service.onContactsLoaded(new ContactsLoadedEvent(this, read));
+
+        RubricaStatistics statistics = service.getStatistics(OWNER);
+        assertEquals(2, statistics.getTotal());
+        assertEquals(1, statistics.getWithoutAddress());
+        assertEquals(0, statistics.getAgeHistogram().get("20-29"));
+        assertEquals(0, statistics.getAgeHistogram().get("30-39"));
+        assertEquals(1, statistics.getAgeHistogram().get("50-59"));
+        assertEquals(1, statistics.getAgeHistogram().get("60-69"));
+        assertEquals(2, statistics.getMobile());
+        assertEquals(0, statistics.getLandline());
+    }
+
+    @Test
+    void replayOfChangesAlreadyReadHasNoEffect() {
+        StatisticsService service = loaded(persona(1, "Via Roma 1", 25, "3331234567"), persona(2, null, 30, "06 1234"));
+
+        service.onContactsLoading(new ContactsLoadingEvent(this, false));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(3, null, 50, "3401234567")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null,
+            persona(1, "Via Roma 1", 25, "3331234567"), persona(1, "Via Roma 1", 65, "3331234567")));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, persona(2, null, 30, "06 1234"), null));
+        // La lettura comprende già tutte le modifiche
+        service.onContactsLoaded(new ContactsLoadedEvent(this,
+            List.of(persona(1, "Via Roma 1", 65, "3331234567"), persona(3, null, 50, "3401234567"))));
+
+        RubricaStatistics statistics = service.getStatistics(OWNER);
+        assertEquals(2, statistics.getTotal());
+        assertEquals(1, statistics.getWithoutAddress());
+        assertEquals(0, statistics.getAgeHistogram().get("20-29"));
+        assertEquals(1, statistics.getAgeHistogram().get("50-59"));
+        assertEquals(1, statistics.getAgeHistogram().get("60-69"));
+        assertEquals(0, statistics.getLandline());
+    }
+
+    @Test
+    void failedLoadStopsRecordingChanges() {
+        StatisticsService service = loaded(persona(1, "Via Roma 1", 25, "3331234567"));
+
+        service.onContactsLoading(new ContactsLoadingEvent(this, false));
+        service.onPersonaChanged(new PersonaChangedEvent(this, null, null, persona(2, null, 30, "06 1234")));
+        service.onContactsLoading(new ContactsLoadingEvent(this, true));
+        service.onContactsLoaded(new ContactsLoadedEvent(this, List.of(persona(1, "Via Roma 1", 25, "3331234567"))));
+
+        assertEquals(1, service.getStatistics(OWNER).getTotal());
+    }
+
+    private static StatisticsService loaded(Persona... contacts) {
+        StatisticsService service = new StatisticsService();
+        service.onContactsLoaded(new ContactsLoadedEvent(StatisticsServiceTest.class, List.of(contacts)));
+        return service;
+    }
+
+    private static Persona persona(long id, String indirizzo, Integer eta, String telefono) {
+        return new Persona(id, "Nome" + id, "Cognome" + id, indirizzo, telefono, eta, OWNER);
+    }
+}